@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.io.File;
+import java.util.*;
+
+import edu.berkeley.path.model_elements.*;
+
+import core.*;
+
+/**
+ * Command line front end of ScenarioGenerator. Options, all optional:
+ * 
+ *     --links=1000          links in the network
+ *     --seed=1              seed of the generator
+ *     --network-id=900000   network id, also the run id of reports
+ *     --days=1              days of time series, from 2012-01-01
+ *     --report-step=300     seconds between reports
+ *     --members=0           members of ensemble reports, 0 for none
+ *     --pems                also generate PeMS samples, every 30 seconds
+ *     --db                  insert network, sets and reports with the writers,
+ *                           using the DBParams environment variables
+ *     --out=DIR             write reports and PeMS samples to SQL*Loader
+ *                           files in DIR
+ * 
+ * The network and sets are only inserted with --db, since their geometry
+ * and generated ids are not loadable from flat files. PeMS samples are
+ * only written with --out, since there is no PeMS writer.
+ * 
+ * @author vjoel
+ */
+public class GeneratorMain {
+  public static final long T0 = SyntheticResultSets.T0;
+  
+  public static void main(String[] args) throws Exception {
+    Map<String,String> opts = new HashMap<String,String>();
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        throw new IllegalArgumentException("unrecognized argument: " + arg);
+      }
+      int eq = arg.indexOf('=');
+      if (eq < 0) {
+        opts.put(arg.substring(2), "true");
+      }
+      else {
+        opts.put(arg.substring(2, eq), arg.substring(eq + 1));
+      }
+    }
+    
+    int links = Integer.parseInt(option(opts, "links", "1000"));
+    long seed = Long.parseLong(option(opts, "seed", "1"));
+    long networkID = Long.parseLong(option(opts, "network-id", "900000"));
+    int days = Integer.parseInt(option(opts, "days", "1"));
+    int reportStep = Integer.parseInt(option(opts, "report-step", "300"));
+    int members = Integer.parseInt(option(opts, "members", "0"));
+    boolean pems = opts.remove("pems") != null;
+    boolean db = opts.remove("db") != null;
+    String out = option(opts, "out", null);
+    
+    if (!opts.isEmpty()) {
+      throw new IllegalArgumentException("unrecognized options: " + opts.keySet());
+    }
+    if (!db && out == null) {
+      throw new IllegalArgumentException("nothing to do: give --db, --out=DIR, or both");
+    }
+    
+    ScenarioGenerator gen = new ScenarioGenerator(seed);
+    Network network = gen.network(networkID, links);
+    int steps = (int)(days * 86400 / gen.sampleRate);
+    
+    DemandSet demandSet = gen.demandSet(network, steps);
+    FDSet fdSet = gen.fdSet(network);
+    SplitRatioSet splitRatioSet = gen.splitRatioSet(network, steps);
+    SensorSet sensorSet = gen.sensorSet(network, 400000L);
+    
+    System.out.println("network " + networkID + ": " +
+      network.getNodeList().size() + " nodes, " +
+      network.getLinkList().size() + " links, " +
+      demandSet.getProfileMap().size() + " demand profiles, " +
+      splitRatioSet.getProfileMap().size() + " split ratio profiles, " +
+      sensorSet.getSensorList().size() + " sensors");
+    
+    DBParams dbParams = new DBParams();
+    FreewayCTMReportWriter reportWriter = null;
+    
+    if (db) {
+      new NetworkWriter(dbParams).insert(network);
+      new DemandSetWriter().insert(demandSet);
+      new FDSetWriter(dbParams).insert(fdSet);
+      new SplitRatioSetWriter(dbParams).insert(splitRatioSet);
+      new SensorSetWriter(dbParams).insert(sensorSet);
+      
+      System.out.println("inserted demand set " + demandSet.getId() +
+        ", fd set " + fdSet.getId() +
+        ", split ratio set " + splitRatioSet.getId() +
+        ", sensor set " + sensorSet.getId());
+      
+      reportWriter = new FreewayCTMReportWriter(dbParams);
+    }
+    
+    LoaderFile reportFile = null;
+    LoaderFile ensembleFile = null;
+    LoaderFile pemsFile = null;
+    FreewayCTMReportWriter reportFileWriter = null;
+    FreewayCTMReportWriter ensembleFileWriter = null;
+    
+    if (out != null) {
+      File dir = new File(out);
+      
+      reportFile = new LoaderFile(dir, "LINK_DATA_TOTAL", REPORT_COLUMNS, "TS");
+      reportFileWriter = new FreewayCTMReportWriter(dbParams,
+        new LoaderFileDatabaseWriter(reportFile));
+      
+      if (members > 0) {
+        ensembleFile = new LoaderFile(dir, "LINK_DATA_TOTAL_DEBUG", ENSEMBLE_COLUMNS, "TS");
+        ensembleFileWriter = new FreewayCTMReportWriter(dbParams,
+          new LoaderFileDatabaseWriter(ensembleFile));
+      }
+      
+      if (pems) {
+        pemsFile = new LoaderFile(dir, "PEMS_30SEC_FILT", PEMS_COLUMNS, "MEASURE_DT");
+      }
+    }
+    
+    try {
+      for (long t = T0; t < T0 + days * 86400000L; t += reportStep * 1000L) {
+        FreewayCTMReport report = gen.report(network, networkID, t);
+        
+        if (reportWriter != null) {
+          reportWriter.insert(report);
+        }
+        if (reportFileWriter != null) {
+          reportFileWriter.insertRows(report, false);
+        }
+        
+        if (members > 0) {
+          FreewayCTMEnsembleReport ensemble = gen.ensembleReport(network, networkID, t, members);
+          
+          if (reportWriter != null) {
+            reportWriter.insert(ensemble);
+          }
+          if (ensembleFileWriter != null) {
+            ensembleFileWriter.insertRows(ensemble);
+          }
+        }
+      }
+      
+      if (pemsFile != null) {
+        List<Sensor> sensors = sensorSet.getSensorList();
+        
+        for (long t = T0; t < T0 + days * 86400000L; t += 30000L) {
+          for (Sensor sensor : sensors) {
+            PeMS sample = gen.pems(sensor.getLongMeasurementFeedId(), sensor.getLaneNum().intValue(), t);
+            pemsFile.row(pemsRow(sample));
+          }
+        }
+      }
+    }
+    finally {
+      for (LoaderFile file : new LoaderFile[] {reportFile, ensembleFile, pemsFile}) {
+        if (file != null) {
+          file.close();
+          System.out.println("wrote " + file.rows + " rows to " + out);
+        }
+      }
+    }
+  }
+  
+  private static String option(Map<String,String> opts, String name, String dflt) {
+    String value = opts.remove(name);
+    return value == null ? dflt : value;
+  }
+  
+  /**
+   * columns of the FreewayCTMReport insert, in parameter order
+   **/
+  static final String[] REPORT_COLUMNS = {
+    "NETWORK_ID", "APP_RUN_ID", "APP_TYPE_ID", "TS", "LINK_ID",
+    "FREE_FLOW_SPEED", "CRITICAL_SPEED", "CONGESTION_WAVE_SPEED",
+    "CAPACITY", "JAM_DENSITY", "CAPACITY_DROP",
+    "AGG_TYPE_ID", "QTY_TYPE_ID", "IN_FLOW", "OUT_FLOW", "DENSITY", "SPEED",
+    "QUEUE_LENGTH"
+  };
+  
+  /**
+   * columns of the FreewayCTMEnsembleReport insert, in parameter order
+   **/
+  static final String[] ENSEMBLE_COLUMNS = {
+    "NETWORK_ID", "APP_RUN_ID", "APP_TYPE_ID", "TS", "CTM_ID", "LINK_ID",
+    "FREE_FLOW_SPEED", "CRITICAL_SPEED", "CONGESTION_WAVE_SPEED",
+    "CAPACITY", "JAM_DENSITY", "CAPACITY_DROP",
+    "AGG_TYPE_ID", "QTY_TYPE_ID", "IN_FLOW", "OUT_FLOW", "DENSITY", "SPEED",
+    "QUEUE_LENGTH"
+  };
+  
+  /**
+   * columns of VIA.PEMS_30SEC_FILT, as read by PeMSReader
+   **/
+  static final String[] PEMS_COLUMNS = {
+    "VDS_ID", "MEASURE_DT", "FLOW", "DENSITY", "DENSITY_ERR",
+    "SPEED", "SPEED_ERROR", "FF_SPEED", "FUNC_LOOP_FACT",
+    "G_FACTOR_LANE_0", "G_FACTOR_LANE_1", "G_FACTOR_LANE_2", "G_FACTOR_LANE_3",
+    "G_FACTOR_LANE_4", "G_FACTOR_LANE_5", "G_FACTOR_LANE_6", "G_FACTOR_LANE_7",
+    "G_FACTOR_LANE_8", "G_FACTOR_LANE_9"
+  };
+  
+  private static Object[] pemsRow(PeMS pems) {
+    Object[] row = new Object[PEMS_COLUMNS.length];
+    int i = 0;
+    row[i++] = pems.getVdsId();
+    row[i++] = pems.getTimeMeasured().getMilliseconds();
+    row[i++] = pems.getFlow();
+    row[i++] = pems.getDensity();
+    row[i++] = pems.getDensityError();
+    row[i++] = pems.getSpeed();
+    row[i++] = pems.getSpeedError();
+    row[i++] = pems.getFreeFlowSpeed();
+    row[i++] = pems.getFuncLoopFact();
+    for (Double g : pems.getGFactorLane()) {
+      row[i++] = g;
+    }
+    return row;
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Writes rows of one table to a delimited data file, with a SQL*Loader
+ * control file next to it, for bulk loading with
+ * 
+ *     sqlldr userid=... control=TABLE.ctl direct=true
+ * 
+ * Timestamp columns are given as milliseconds since the epoch and are
+ * written in the default time zone of the JVM, as psSetTimestampMilliseconds
+ * binds them, so that loaded rows match rows inserted over JDBC. Null
+ * values are written as empty fields.
+ * 
+ * @author vjoel
+ */
+public class LoaderFile implements Closeable {
+  public static final String DELIMITER = "|";
+  
+  private final String[] columns;
+  private final boolean[] isTimestamp;
+  private final Writer out;
+  private final SimpleDateFormat timestampFormat;
+  
+  /**
+   * number of rows written
+   **/
+  public long rows = 0;
+  
+  /**
+   * Create TABLE.ctl and TABLE.dat in the given directory.
+   * 
+   * @param dir         output directory
+   * @param table       table name, without the VIA schema
+   * @param columns     column names, in the order of the values of each row
+   * @param timestamps  names of the columns that are timestamps
+   */
+  public LoaderFile(
+          File dir,
+          String table,
+          String[] columns,
+          String... timestamps
+          ) throws IOException {
+    this.columns = columns;
+    this.isTimestamp = new boolean[columns.length];
+    
+    List<String> tsList = Arrays.asList(timestamps);
+    for (int i = 0; i < columns.length; i++) {
+      isTimestamp[i] = tsList.contains(columns[i]);
+    }
+    
+    timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    
+    dir.mkdirs();
+    writeControlFile(new File(dir, table + ".ctl"), table);
+    
+    out = new BufferedWriter(new OutputStreamWriter(
+      new FileOutputStream(new File(dir, table + ".dat")), "UTF-8"), 1 << 16);
+  }
+  
+  private void writeControlFile(File file, String table) throws IOException {
+    Writer ctl = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+    
+    try {
+      ctl.write(
+        "LOAD DATA\n" +
+        "CHARACTERSET UTF8\n" +
+        "INFILE '" + table + ".dat'\n" +
+        "APPEND\n" +
+        "INTO TABLE VIA." + table + "\n" +
+        "FIELDS TERMINATED BY '" + DELIMITER + "'\n" +
+        "TRAILING NULLCOLS\n" +
+        "(\n");
+      
+      for (int i = 0; i < columns.length; i++) {
+        ctl.write("  " + columns[i]);
+        if (isTimestamp[i]) {
+          ctl.write(" TIMESTAMP \"YYYY-MM-DD HH24:MI:SS.FF3\"");
+        }
+        ctl.write(i < columns.length - 1 ? ",\n" : "\n");
+      }
+      
+      ctl.write(")\n");
+    }
+    finally {
+      ctl.close();
+    }
+  }
+  
+  /**
+   * Write one row. Timestamp values must be Longs, in milliseconds.
+   */
+  public void row(Object... values) throws IOException {
+    row(values, 0);
+  }
+  
+  /**
+   * Write one row, taking the values from the given array starting at
+   * the offset, as with the 1-based parameters of a statement.
+   */
+  public void row(Object[] values, int offset) throws IOException {
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        out.write(DELIMITER);
+      }
+      
+      Object value = values[offset + i];
+      
+      if (value == null) {
+        continue;
+      }
+      else if (isTimestamp[i]) {
+        out.write(timestampFormat.format(new Date((Long)value)));
+      }
+      else {
+        out.write(value.toString());
+      }
+    }
+    
+    out.write("\n");
+    rows++;
+  }
+  
+  public void close() throws IOException {
+    out.close();
+  }
+}
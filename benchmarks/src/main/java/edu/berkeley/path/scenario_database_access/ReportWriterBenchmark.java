@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import edu.berkeley.path.model_elements.*;
+
+import core.*;
+
+/**
+ * Benchmark of the parameter binding loop of FreewayCTMReportWriter,
+ * writing to a StubDatabaseWriter. The report, with a mean and std dev
+ * state and fd parameters for each link, is read from a synthetic result
+ * set by FreewayCTMReportReader.
+ * 
+ * @author vjoel
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReportWriterBenchmark {
+  /**
+   * number of links in the report
+   **/
+  @Param({"1000", "50000"})
+  public int links;
+  
+  /**
+   * seed of the synthetic data
+   **/
+  @Param({"1"})
+  public long seed;
+  
+  private StubDatabaseWriter dbw;
+  private FreewayCTMReportWriter writer;
+  private FreewayCTMReport report;
+  
+  @Setup
+  public void setup() throws DatabaseException {
+    DBParams dbParams = new DBParams();
+    
+    StubDatabaseReader dbr = new StubDatabaseReader(
+      new SyntheticResultSets(seed).reports(1, links));
+    report = new FreewayCTMReportReader(dbParams, dbr).reportsFromQueryRS("bench").get(0);
+    
+    dbw = new StubDatabaseWriter();
+    writer = new FreewayCTMReportWriter(dbParams, dbw);
+  }
+  
+  @Benchmark
+  public long insertRows() throws DatabaseException {
+    writer.insertRows(report, false);
+    return dbw.updates;
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.berkeley.path.model_elements.*;
+
+import core.*;
+
+/**
+ * Benchmarks of the methods that map result set rows to model objects,
+ * reading synthetic result sets from a StubDatabaseReader. Each
+ * invocation maps a whole result set of about the given number of rows.
+ * 
+ * @author vjoel
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMappingBenchmark {
+  private static final String QUERY = "bench";
+  
+  /**
+   * number of rows in each result set
+   **/
+  @Param({"1000", "50000"})
+  public int rows;
+  
+  /**
+   * seed of the synthetic data
+   **/
+  @Param({"1"})
+  public long seed;
+  
+  private StubDatabaseReader dbr;
+  
+  private StubResultSet links;
+  private StubResultSet pems;
+  private StubResultSet reports;
+  private StubResultSet ensembleReports;
+  private StubResultSet aggregates;
+  
+  private LinkReader linkReader;
+  private PeMSReader pemsReader;
+  private FreewayCTMReportReader reportReader;
+  private PeMSStationAggregateReader aggregateReader;
+  
+  @Setup
+  public void setup() throws DatabaseException {
+    DBParams dbParams = new DBParams();
+    SyntheticResultSets data = new SyntheticResultSets(seed);
+    
+    links = data.links(rows);
+    pems = data.pems(100, Math.max(1, rows / 100));
+    reports = data.reports(10, Math.max(1, rows / 20));
+    ensembleReports = data.ensembleReports(10, 10, Math.max(1, rows / 100));
+    aggregates = data.stationAggregates(100, Math.max(1, rows / 100));
+    
+    dbr = new StubDatabaseReader(links);
+    
+    linkReader = new LinkReader(dbParams, dbr);
+    pemsReader = new PeMSReader(dbParams, dbr);
+    reportReader = new FreewayCTMReportReader(dbParams, dbr);
+    aggregateReader = new PeMSStationAggregateReader(dbParams, dbr);
+  }
+  
+  @Benchmark
+  public void linkFromQueryRS(Blackhole bh) throws DatabaseException {
+    dbr.setResultSet(links);
+    Link link;
+    while (null != (link = linkReader.linkFromQueryRS(QUERY))) {
+      bh.consume(link);
+    }
+  }
+  
+  @Benchmark
+  public void pemsFromQueryRS(Blackhole bh) throws DatabaseException {
+    dbr.setResultSet(pems);
+    PeMS row;
+    while (null != (row = pemsReader.pemsFromQueryRS(QUERY))) {
+      bh.consume(row);
+    }
+  }
+  
+  @Benchmark
+  public Object reportsFromQueryRS() throws DatabaseException {
+    dbr.setResultSet(reports);
+    return reportReader.reportsFromQueryRS(QUERY);
+  }
+  
+  @Benchmark
+  public Object ensembleReportsFromQueryRS() throws DatabaseException {
+    dbr.setResultSet(ensembleReports);
+    return reportReader.ensembleReportsFromQueryRS(QUERY);
+  }
+  
+  @Benchmark
+  public void aggregateFromQueryRS(Blackhole bh) throws DatabaseException {
+    dbr.setResultSet(aggregates);
+    PeMSStationAggregate agg;
+    while (null != (agg = aggregateReader.aggregateFromQueryRS(
+        QUERY, PeMSAggregate.AggregationLevel.PEMS_5MIN))) {
+      bh.consume(agg);
+    }
+  }
+}
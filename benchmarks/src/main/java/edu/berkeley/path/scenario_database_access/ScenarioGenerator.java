@@ -0,0 +1,576 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import edu.berkeley.path.model_elements.*;
+
+/**
+ * Generates synthetic networks, data sets and time series of a given size,
+ * for load tests and as input to benchmarks. The same seed and settings
+ * always produce the same objects.
+ * 
+ * Networks are freeway corridors: chains of mainline links, with an
+ * off-ramp and an on-ramp at every rampSpacing-th node. The sets and
+ * time series are derived from the structure of whatever network they
+ * are given: demand on the links where traffic enters the network, split
+ * ratios at the nodes where it diverges, sensors on the mainline. Flows
+ * follow a daily profile with morning and evening peaks. Settings can be
+ * set directly, as with DBParams.
+ * 
+ * @author vjoel
+ */
+public class ScenarioGenerator {
+  /**
+   * mainline links in each corridor
+   **/
+  public int corridorLinks = 400;
+  
+  /**
+   * mainline nodes between interchanges
+   **/
+  public int rampSpacing = 4;
+  
+  /**
+   * mainline links between sensors
+   **/
+  public int sensorSpacing = 3;
+  
+  /**
+   * time between values of demand and split ratio profiles, in seconds
+   **/
+  public double sampleRate = 300.0;
+  
+  /**
+   * link type names, which must be in VIA.LINK_TYPES
+   **/
+  public String freewayType = "Freeway";
+  public String onRampType = "On-Ramp";
+  public String offRampType = "Off-Ramp";
+  
+  /**
+   * node type names, which must be in VIA.NODE_TYPES
+   **/
+  public String freewayNodeType = "Freeway";
+  public String terminalNodeType = "Terminal";
+  
+  /**
+   * vehicle type of all flows and ratios
+   **/
+  public long vehicleTypeID = 1L;
+  
+  private static final double METERS_PER_DEGREE = 111320.0;
+  private static final double LANE_CAPACITY = 0.55;      // veh/s, about 2000 veh/h
+  private static final double LANE_JAM_DENSITY = 0.125;  // veh/m
+  
+  private final Random random;
+  
+  public ScenarioGenerator(long seed) {
+    this.random = new Random(seed);
+  }
+  
+  /**
+   * Generate a network of freeway corridors with the given number of links.
+   * Node and link ids are numbered from 1.
+   * 
+   * @param networkID  ID of the network
+   * @param links      number of links
+   * @return Network, with references resolved
+   */
+  public Network network(long networkID, int links) {
+    Network network = new Network();
+    network.setId(networkID);
+    network.setName("synthetic " + links + " links");
+    network.setDescription("generated, " + corridorLinks + " mainline links per corridor");
+    
+    List<Node> nodes = new ArrayList<Node>();
+    List<Link> linkList = new ArrayList<Link>();
+    
+    for (int corridor = 0; linkList.size() < links; corridor++) {
+      double lon = -122.4 + 0.05 * (corridor % 20);
+      double lat = 37.2 + 0.05 * (corridor / 20);
+      double heading = random.nextDouble() * 2 * Math.PI;
+      
+      Node prev = addNode(nodes, lon, lat, terminalNodeType);
+      
+      for (int i = 1; i <= corridorLinks && linkList.size() < links; i++) {
+        double meters = 400 + random.nextDouble() * 400;
+        heading += (random.nextDouble() - 0.5) * 0.3;
+        lon += Math.sin(heading) * meters / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+        lat += Math.cos(heading) * meters / METERS_PER_DEGREE;
+        
+        boolean last = i == corridorLinks || linkList.size() + 1 == links;
+        Node node = addNode(nodes, lon, lat, last ? terminalNodeType : freewayNodeType);
+        addLink(linkList, prev, node, freewayType, 29.0, 3 + random.nextInt(3));
+        
+        if (!last && i % rampSpacing == 0) {
+          double off = heading + Math.PI / 2;
+          if (linkList.size() < links) {
+            Node exit = addNode(nodes,
+              lon + Math.sin(off) * 0.003, lat + Math.cos(off) * 0.003, terminalNodeType);
+            addLink(linkList, node, exit, offRampType, 15.0, 1);
+          }
+          if (linkList.size() < links) {
+            Node entry = addNode(nodes,
+              lon - Math.sin(off) * 0.003, lat - Math.cos(off) * 0.003, terminalNodeType);
+            addLink(linkList, entry, node, onRampType, 15.0, 1);
+          }
+        }
+        
+        prev = node;
+      }
+    }
+    
+    network.setNodeList(nodes);
+    network.setLinkList(linkList);
+    network.resolveReferences();
+    
+    return network;
+  }
+  
+  private Node addNode(List<Node> nodes, double lon, double lat, String type) {
+    Node node = new Node();
+    node.setId((long)nodes.size() + 1);
+    node.setName("n" + (nodes.size() + 1));
+    node.setType(type);
+    node.setLongitude(lon);
+    node.setLatitude(lat);
+    nodes.add(node);
+    return node;
+  }
+  
+  private void addLink(List<Link> links, Node begin, Node end, String type, double speed, int lanes) {
+    Link link = new Link();
+    link.setId((long)links.size() + 1);
+    link.setName(type + " " + (links.size() + 1));
+    link.setType(type);
+    link.setBeginId(begin.getId());
+    link.setEndId(end.getId());
+    link.setSpeedLimit(speed);
+    link.setLaneCount((double)lanes);
+    link.setLaneOffset(0);
+    link.setDetailLevel(type.equals(freewayType) ? 1 : 2);
+    
+    // a slightly bent line, with a vertex near the middle
+    double lon0 = begin.getLongitude();
+    double lat0 = begin.getLatitude();
+    double lon1 = end.getLongitude();
+    double lat1 = end.getLatitude();
+    double bend = (random.nextDouble() - 0.5) * 0.1;
+    
+    List<Point> points = new ArrayList<Point>();
+    points.add(point(lon0, lat0));
+    points.add(point(
+      (lon0 + lon1) / 2 - (lat1 - lat0) * bend,
+      (lat0 + lat1) / 2 + (lon1 - lon0) * bend));
+    points.add(point(lon1, lat1));
+    link.setPointList(points);
+    
+    double length = 0;
+    for (int i = 1; i < points.size(); i++) {
+      length += meters(points.get(i - 1), points.get(i));
+    }
+    link.setLength(length);
+    
+    links.add(link);
+  }
+  
+  private static Point point(double lon, double lat) {
+    Point p = new Point();
+    p.setLongitude(lon);
+    p.setLatitude(lat);
+    return p;
+  }
+  
+  /**
+   * Distance between two points, on a sphere, in meters.
+   */
+  private static double meters(Point a, Point b) {
+    double dLat = Math.toRadians(b.getLatitude() - a.getLatitude());
+    double dLon = Math.toRadians(b.getLongitude() - a.getLongitude());
+    double h =
+      Math.pow(Math.sin(dLat / 2), 2) +
+      Math.cos(Math.toRadians(a.getLatitude())) *
+      Math.cos(Math.toRadians(b.getLatitude())) *
+      Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * 6371000.0 * Math.asin(Math.sqrt(h));
+  }
+  
+  /**
+   * Links where traffic enters the network: those that begin at a node
+   * with no incoming links.
+   */
+  public static List<Link> sourceLinks(Network network) {
+    Map<String,Integer> inDegree = inDegree(network);
+    List<Link> sources = new ArrayList<Link>();
+    for (Link link : network.getLinkList()) {
+      if (!inDegree.containsKey(link.getBeginId().toString())) {
+        sources.add(link);
+      }
+    }
+    return sources;
+  }
+  
+  private static Map<String,Integer> inDegree(Network network) {
+    Map<String,Integer> inDegree = new HashMap<String,Integer>();
+    for (Link link : network.getLinkList()) {
+      String end = link.getEndId().toString();
+      Integer n = inDegree.get(end);
+      inDegree.put(end, n == null ? 1 : n + 1);
+    }
+    return inDegree;
+  }
+  
+  /**
+   * Fraction of the daily peak flow at a time of day: a night minimum,
+   * and peaks at 8:00 and 17:30.
+   * 
+   * @param seconds seconds since midnight
+   */
+  public static double dailyShape(double seconds) {
+    double h = (seconds / 3600.0) % 24;
+    return 0.15 +
+      0.85 * Math.exp(-Math.pow((h - 8.0) / 1.5, 2)) +
+      0.75 * Math.exp(-Math.pow((h - 17.5) / 2.0, 2));
+  }
+  
+  /**
+   * Generate a demand set with one profile per source link, with the
+   * given number of values starting at midnight.
+   */
+  public DemandSet demandSet(Network network, int steps) {
+    DemandSet demandSet = new DemandSet();
+    demandSet.setName("synthetic demand for network " + network.getId());
+    demandSet.setDescription("generated, " + steps + " steps of " + sampleRate + " s");
+    
+    Map<String,DemandProfile> profiles = new HashMap<String,DemandProfile>();
+    
+    for (Link link : sourceLinks(network)) {
+      DemandProfile profile = new DemandProfile();
+      profile.setStartTime(0.0);
+      profile.setSampleRate(sampleRate);
+      profile.setFlow(new HashMap<CharSequence,List<Double>>());
+      profile.setKnob(1.0);
+      
+      double peak = LANE_CAPACITY * link.getLaneCount() * (0.5 + 0.4 * random.nextDouble());
+      for (int t = 0; t < steps; t++) {
+        double flow = peak * dailyShape(t * sampleRate) * (0.9 + 0.2 * random.nextDouble());
+        profile.addFlowAt(vehicleTypeID, flow);
+      }
+      
+      profiles.put(link.getId().toString(), profile);
+    }
+    
+    demandSet.setProfileMap(profiles);
+    return demandSet;
+  }
+  
+  /**
+   * Generate a triangular fundamental diagram for a link, from its lanes
+   * and speed limit.
+   */
+  public FD fd(Link link) {
+    double lanes = link.getLaneCount() == null ? 1 : link.getLaneCount();
+    double vf = link.getSpeedLimit() * (0.95 + 0.1 * random.nextDouble());
+    double capacity = LANE_CAPACITY * lanes;
+    double jam = LANE_JAM_DENSITY * lanes;
+    
+    FD fd = new FD();
+    fd.setFreeFlowSpeed(vf);
+    fd.setCriticalSpeed(vf);
+    fd.setCapacity(capacity);
+    fd.setJamDensity(jam);
+    fd.setCongestionWaveSpeed(capacity / (jam - capacity / vf));
+    fd.setCapacityDrop(0.0);
+    return fd;
+  }
+  
+  /**
+   * Generate an fd set with one profile, of one triangular fundamental
+   * diagram, per link.
+   */
+  public FDSet fdSet(Network network) {
+    FDSet fdSet = new FDSet();
+    fdSet.setName("synthetic fds for network " + network.getId());
+    fdSet.setDescription("generated, triangular");
+    
+    FDType fdType = new FDType();
+    fdType.setId(1L);
+    fdSet.setType(fdType);
+    
+    Map<String,FDProfile> profiles = new HashMap<String,FDProfile>();
+    
+    for (Link link : network.getLinkList()) {
+      FDProfile profile = new FDProfile();
+      profile.setStartTime(0.0);
+      profile.setSampleRate(86400.0);
+      
+      List<FD> fds = new ArrayList<FD>();
+      fds.add(fd(link));
+      profile.setFdList(fds);
+      
+      profiles.put(link.getId().toString(), profile);
+    }
+    
+    fdSet.setProfileMap(profiles);
+    return fdSet;
+  }
+  
+  /**
+   * Generate a split ratio set with one profile per node with more than
+   * one outgoing link, with the given number of values starting at
+   * midnight. Freeway links carry most of the flow, as a mainline does
+   * past an off-ramp.
+   */
+  public SplitRatioSet splitRatioSet(Network network, int steps) {
+    SplitRatioSet splitRatioSet = new SplitRatioSet();
+    splitRatioSet.setName("synthetic split ratios for network " + network.getId());
+    splitRatioSet.setDescription("generated, " + steps + " steps of " + sampleRate + " s");
+    
+    Map<String,List<Link>> in = new HashMap<String,List<Link>>();
+    Map<String,List<Link>> out = new HashMap<String,List<Link>>();
+    for (Link link : network.getLinkList()) {
+      add(in, link.getEndId().toString(), link);
+      add(out, link.getBeginId().toString(), link);
+    }
+    
+    Map<String,SplitRatioProfile> profiles = new HashMap<String,SplitRatioProfile>();
+    
+    for (Map.Entry<String,List<Link>> entry : out.entrySet()) {
+      List<Link> outLinks = entry.getValue();
+      List<Link> inLinks = in.get(entry.getKey());
+      if (outLinks.size() < 2 || inLinks == null) {
+        continue;
+      }
+      
+      SplitRatioProfile profile = new SplitRatioProfile();
+      profile.setStartTime(0.0);
+      profile.setSampleRate(sampleRate);
+      profile.setRatio(new HashMap<CharSequence,Map<CharSequence,Map<CharSequence,List<Double>>>>());
+      
+      int mainlines = 0;
+      for (Link outLink : outLinks) {
+        if (freewayType.equals(outLink.getTypeString())) {
+          mainlines++;
+        }
+      }
+      int exits = outLinks.size() - mainlines;
+      double exitShare = 0.05 + 0.15 * random.nextDouble();
+      
+      for (Link inLink : inLinks) {
+        for (int t = 0; t < steps; t++) {
+          double share = mainlines == 0 || exits == 0 ? 0 :
+            exitShare * (0.8 + 0.4 * random.nextDouble());
+          for (Link outLink : outLinks) {
+            double ratio = freewayType.equals(outLink.getTypeString()) ?
+              (1 - share) / mainlines :
+              (mainlines == 0 ? 1.0 : share) / exits;
+            profile.addRatioAt(inLink.getLongId(), outLink.getLongId(), vehicleTypeID, ratio);
+          }
+        }
+      }
+      
+      profiles.put(entry.getKey(), profile);
+    }
+    
+    splitRatioSet.setProfileMap(profiles);
+    return splitRatioSet;
+  }
+  
+  private static void add(Map<String,List<Link>> map, String key, Link link) {
+    List<Link> links = map.get(key);
+    if (links == null) {
+      links = new ArrayList<Link>();
+      map.put(key, links);
+    }
+    links.add(link);
+  }
+  
+  /**
+   * Generate a sensor set with a loop detector at the middle of every
+   * sensorSpacing-th freeway link. The measurement feed ids, which are the
+   * PeMS VDS ids, are numbered from firstVdsID.
+   */
+  public SensorSet sensorSet(Network network, long firstVdsID) {
+    SensorSet sensorSet = new SensorSet();
+    sensorSet.setName("synthetic sensors for network " + network.getId());
+    sensorSet.setDescription("generated, every " + sensorSpacing + " freeway links");
+    
+    List<Sensor> sensors = new ArrayList<Sensor>();
+    int n = 0;
+    
+    for (Link link : network.getLinkList()) {
+      if (!freewayType.equals(link.getTypeString()) || n++ % sensorSpacing != 0) {
+        continue;
+      }
+      
+      long vdsID = firstVdsID + sensors.size();
+      
+      Sensor sensor = new Sensor();
+      sensor.setType("Loop");
+      sensor.setEntityId("vds" + vdsID);
+      sensor.setMeasurementFeedId(vdsID);
+      sensor.setLinkId(link.getLongId());
+      sensor.setLinkOffset(link.getLength() / 2);
+      sensor.setLaneNum(link.getLaneCount());
+      sensor.setHealthStatus(random.nextDouble() < 0.05 ? 0.0 : 1.0);
+      sensors.add(sensor);
+    }
+    
+    sensorSet.setSensorList(sensors);
+    return sensorSet;
+  }
+  
+  /**
+   * Fill a ctm state with a density, speed and flows for each link, and
+   * queue lengths for source links, at the given time of day.
+   * 
+   * @param scale  1 for a mean, smaller for a std dev
+   */
+  private FreewayCTMState ctmState(Network network, List<Link> sources, long millis, double scale) {
+    FreewayCTMState state = new FreewayCTMState();
+    Map<CharSequence,FreewayLinkState> linkStates = new HashMap<CharSequence,FreewayLinkState>();
+    Map<CharSequence,FreewayLinkFlowState> flowStates = new HashMap<CharSequence,FreewayLinkFlowState>();
+    Map<CharSequence,Double> queues = new HashMap<CharSequence,Double>();
+    
+    double load = dailyShape((millis / 1000.0) % 86400);
+    
+    for (Link link : network.getLinkList()) {
+      double lanes = link.getLaneCount();
+      double flow = LANE_CAPACITY * lanes * load * (0.8 + 0.2 * random.nextDouble());
+      double speed = link.getSpeedLimit() * (load > 0.8 ? 0.4 + 0.4 * random.nextDouble() : 1.0);
+      
+      FreewayLinkState linkState = new FreewayLinkState();
+      linkState.setDensity(scale * flow / speed);
+      linkState.setVelocity(scale * speed);
+      linkStates.put(link.getId().toString(), linkState);
+      
+      FreewayLinkFlowState flowState = new FreewayLinkFlowState();
+      flowState.setInFlow(scale * flow);
+      flowState.setOutFlow(scale * flow * (0.98 + 0.04 * random.nextDouble()));
+      flowStates.put(link.getId().toString(), flowState);
+    }
+    
+    for (Link link : sources) {
+      queues.put(link.getId().toString(), scale * (load > 0.8 ? 50 * random.nextDouble() : 0.0));
+    }
+    
+    state.setLinkStateMap(linkStates);
+    state.setLinkFlowStateMap(flowStates);
+    state.setQueueLength(queues);
+    return state;
+  }
+  
+  /**
+   * Generate the report of one time step of a CTM run, with mean and std
+   * dev states and fundamental diagrams for all links.
+   */
+  public FreewayCTMReport report(Network network, long runID, long millis) {
+    List<Link> sources = sourceLinks(network);
+    
+    FreewayCTMReport report = new FreewayCTMReport();
+    report.setTime(new DateTime(millis));
+    report.setNetworkId(network.getLongId());
+    report.setRunId(runID);
+    report.setMean(ctmState(network, sources, millis, 1.0));
+    report.setStdDev(ctmState(network, sources, millis, 0.1));
+    
+    FDMap fdMap = new FDMap();
+    for (Link link : network.getLinkList()) {
+      fdMap.getFdMap().put(link.getId().toString(), fd(link));
+    }
+    report.setFd(fdMap);
+    
+    return report;
+  }
+  
+  /**
+   * Generate the report of one time step of an ensemble of CTM runs, with
+   * a mean state for each member.
+   */
+  public FreewayCTMEnsembleReport ensembleReport(Network network, long runID, long millis, int members) {
+    List<Link> sources = sourceLinks(network);
+    
+    FreewayCTMEnsembleReport report = new FreewayCTMEnsembleReport();
+    report.setNetworkId(network.getLongId());
+    report.setRunId(runID);
+    
+    FreewayCTMEnsembleState ensemble = new FreewayCTMEnsembleState();
+    ensemble.setTime(new DateTime(millis));
+    
+    List<FreewayCTMState> states = new ArrayList<FreewayCTMState>();
+    for (int i = 0; i < members; i++) {
+      states.add(ctmState(network, sources, millis, 1.0));
+    }
+    ensemble.setStates(states);
+    report.setEnsembleState(ensemble);
+    
+    return report;
+  }
+  
+  /**
+   * Generate one 30 second PeMS sample of a station.
+   * 
+   * @param vdsID   the station
+   * @param lanes   number of lanes at the station
+   * @param millis  time of the sample
+   */
+  public PeMS pems(long vdsID, int lanes, long millis) {
+    double load = dailyShape((millis / 1000.0) % 86400);
+    double congested = load > 0.8 ? random.nextDouble() : 0.0;
+    
+    double flow = 30 * LANE_CAPACITY * lanes * load * (0.85 + 0.3 * random.nextDouble());
+    double speed = 65 * (1 - 0.7 * congested) * (0.95 + 0.1 * random.nextDouble());
+    
+    PeMS pems = new PeMS();
+    pems.setVdsId(vdsID);
+    pems.setTimeMeasured(new DateTime(millis));
+    pems.setFlow(flow);
+    pems.setDensity(flow * 120 / speed);
+    pems.setDensityError(0.05 * random.nextDouble());
+    pems.setSpeed(speed);
+    pems.setSpeedError(0.05 * random.nextDouble());
+    pems.setFreeFlowSpeed(65.0);
+    pems.setFuncLoopFact(1.0);
+    
+    List<Double> gFactors = new ArrayList<Double>();
+    for (int i = 0; i <= 9; i++) {
+      gFactors.add(i < lanes ? 20 + 4 * random.nextDouble() : null);
+    }
+    pems.setGFactorLane(gFactors);
+    
+    return pems;
+  }
+}
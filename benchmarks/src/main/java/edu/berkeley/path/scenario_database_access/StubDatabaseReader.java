@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+/**
+ * A DBConnection that serves one StubResultSet to every query, instead
+ * of running statements, so that row mapping code can be measured
+ * without a database. Each psQuery() rewinds the result set. Statement
+ * creation and parameter binding do nothing, and no connection is
+ * opened.
+ * 
+ * @author vjoel
+ */
+public class StubDatabaseReader implements DBConnection {
+  private StubResultSet resultSet;
+  
+  /**
+   * index of the current row, -1 before the first
+   **/
+  private int row = -1;
+  
+  public StubDatabaseReader(StubResultSet resultSet) {
+    this.resultSet = resultSet;
+  }
+  
+  public void setResultSet(StubResultSet resultSet) {
+    this.resultSet = resultSet;
+    this.row = -1;
+  }
+  
+  public core.Database getDatabase() {
+    return null;
+  }
+  
+  public SqlDialect getDialect() {
+    return SqlDialect.ORACLE;
+  }
+  
+  public void psCreate(String query, String sql) {}
+  public void psDestroy(String query) {}
+  public void psClearParams(String query) {}
+  public void psSetBigInt(String query, int index, Long value) {}
+  public void psSetInteger(String query, int index, Integer value) {}
+  public void psSetDouble(String query, int index, Double value) {}
+  public void psSetVarChar(String query, int index, String value) {}
+  public void psSetTimestampMilliseconds(String query, int index, Long value) {}
+  public void psSetBytes(String query, int index, byte[] value) {}
+  public void psAddBatch(String query) {}
+  
+  public int[] psExecuteBatch(String query) {
+    return new int[0];
+  }
+  
+  public void setFetchSize(int n) {}
+  public void close() {}
+  
+  public boolean transactionIsOpen() {
+    return false;
+  }
+  
+  public void transactionBegin() {}
+  public void transactionCommit() {}
+  public void transactionRollback() {}
+  
+  public void psQuery(String query) {
+    row = -1;
+  }
+  
+  public int psUpdate(String query) {
+    return 0;
+  }
+  
+  public void psExecute(String query) {}
+  
+  public boolean psRSNext(String query) {
+    if (row + 1 < resultSet.rowCount()) {
+      row++;
+      return true;
+    }
+    return false;
+  }
+  
+  public String[] psRSColumnNames(String query) {
+    return resultSet.columnNames();
+  }
+  
+  public Long psRSGetBigInt(String query, String column) {
+    return (Long)resultSet.get(row, column);
+  }
+  
+  public Integer psRSGetInteger(String query, String column) {
+    return (Integer)resultSet.get(row, column);
+  }
+  
+  public Double psRSGetDouble(String query, String column) {
+    return (Double)resultSet.get(row, column);
+  }
+  
+  public String psRSGetVarChar(String query, String column) {
+    return (String)resultSet.get(row, column);
+  }
+  
+  public Long psRSGetTimestampMilliseconds(String query, String column) {
+    return (Long)resultSet.get(row, column);
+  }
+  
+  public Long psRSGetTimestampMicroseconds(String query, String column) {
+    Long millis = (Long)resultSet.get(row, column);
+    return millis == null ? null : millis * 1000;
+  }
+  
+  public byte[] psRSGetBytes(String query, String column) {
+    return (byte[])resultSet.get(row, column);
+  }
+}
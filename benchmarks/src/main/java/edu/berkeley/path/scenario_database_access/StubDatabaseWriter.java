@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+/**
+ * A DBConnection that keeps the parameters bound to a statement in an
+ * array and counts updates, instead of running statements, so that
+ * parameter binding code can be measured without a database. Every
+ * psUpdate() reports one row changed, as does every batched row, every
+ * query returns no rows, and no connection is opened.
+ * 
+ * @author vjoel
+ */
+public class StubDatabaseWriter implements DBConnection {
+  /**
+   * parameters bound since the last psClearParams, by index
+   **/
+  public Object[] params = new Object[64];
+  
+  /**
+   * number of psUpdate calls
+   **/
+  public long updates = 0;
+  
+  /**
+   * number of rows batched since the last psExecuteBatch
+   **/
+  private int batched = 0;
+  
+  public core.Database getDatabase() {
+    return null;
+  }
+  
+  public SqlDialect getDialect() {
+    return SqlDialect.ORACLE;
+  }
+  
+  public void psCreate(String query, String sql) {}
+  public void psDestroy(String query) {}
+  
+  public void psClearParams(String query) {
+    java.util.Arrays.fill(params, null);
+  }
+  
+  public void psSetBigInt(String query, int index, Long value) {
+    params[index] = value;
+  }
+  
+  public void psSetInteger(String query, int index, Integer value) {
+    params[index] = value;
+  }
+  
+  public void psSetDouble(String query, int index, Double value) {
+    params[index] = value;
+  }
+  
+  public void psSetVarChar(String query, int index, String value) {
+    params[index] = value;
+  }
+  
+  public void psSetTimestampMilliseconds(String query, int index, Long value) {
+    params[index] = value;
+  }
+  
+  public void psSetBytes(String query, int index, byte[] value) {
+    params[index] = value;
+  }
+  
+  public void setFetchSize(int n) {}
+  public void close() {}
+  
+  public boolean transactionIsOpen() {
+    return false;
+  }
+  
+  public void transactionBegin() {}
+  public void transactionCommit() {}
+  public void transactionRollback() {}
+  
+  public int psUpdate(String query) {
+    updates++;
+    return 1;
+  }
+  
+  /**
+   * Runs the row as psUpdate() does, right away.
+   */
+  public void psAddBatch(String query) {
+    psUpdate(query);
+    batched++;
+  }
+  
+  public int[] psExecuteBatch(String query) {
+    int[] rows = new int[batched];
+    java.util.Arrays.fill(rows, 1);
+    batched = 0;
+    return rows;
+  }
+  
+  public void psExecute(String query) {}
+  public void psQuery(String query) {}
+  
+  public boolean psRSNext(String query) {
+    return false;
+  }
+  
+  public String[] psRSColumnNames(String query) {
+    return new String[0];
+  }
+  
+  public Long psRSGetBigInt(String query, String column) { return null; }
+  public Integer psRSGetInteger(String query, String column) { return null; }
+  public Double psRSGetDouble(String query, String column) { return null; }
+  public String psRSGetVarChar(String query, String column) { return null; }
+  public Long psRSGetTimestampMilliseconds(String query, String column) { return null; }
+  public Long psRSGetTimestampMicroseconds(String query, String column) { return null; }
+  public byte[] psRSGetBytes(String query, String column) { return null; }
+}
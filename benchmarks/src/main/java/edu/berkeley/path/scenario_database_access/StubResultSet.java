@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory result set, for feeding the row mapping methods of the
+ * readers without a database. Values are stored as the objects the
+ * psRSGet methods return: Long for BIGINT and timestamps (in
+ * milliseconds), Integer, Double and String.
+ * 
+ * @see StubDatabaseReader
+ * @author vjoel
+ */
+public class StubResultSet {
+  /**
+   * column names, in order
+   **/
+  private final String[] columns;
+  
+  /**
+   * index of each column by name, looked up on every get, like JDBC
+   **/
+  private final Map<String,Integer> columnIndex = new HashMap<String,Integer>();
+  
+  private final List<Object[]> rows = new ArrayList<Object[]>();
+  
+  public StubResultSet(String... columns) {
+    this.columns = columns;
+    for (int i = 0; i < columns.length; i++) {
+      columnIndex.put(columns[i], i);
+    }
+  }
+  
+  /**
+   * Add a row, with one value per column, in column order.
+   */
+  public StubResultSet addRow(Object... values) {
+    if (values.length != columns.length) {
+      throw new IllegalArgumentException(
+        "row has " + values.length + " values, but there are " +
+        columns.length + " columns");
+    }
+    rows.add(values);
+    return this;
+  }
+  
+  public int rowCount() {
+    return rows.size();
+  }
+  
+  public String[] columnNames() {
+    return columns.clone();
+  }
+  
+  /**
+   * Value in the given row and column, which may be null.
+   * 
+   * @throws IllegalArgumentException if there is no such column
+   */
+  public Object get(int row, String column) {
+    Integer i = columnIndex.get(column);
+    if (i == null) {
+      throw new IllegalArgumentException("no column named " + column);
+    }
+    return rows.get(row)[i];
+  }
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.Random;
+
+/**
+ * Synthetic result sets with the columns of the reader queries, for the
+ * benchmarks. Values are random but repeatable for a given seed, and the
+ * rows are in the order the real queries return them.
+ * 
+ * @author vjoel
+ */
+public class SyntheticResultSets {
+  /**
+   * start of the time series, 2012-01-01 00:00 UTC, in milliseconds
+   **/
+  public static final long T0 = 1325376000000L;
+  
+  private final Random random;
+  
+  public SyntheticResultSets(long seed) {
+    this.random = new Random(seed);
+  }
+  
+  /**
+   * Rows of LinkReader.runQueryAllLinks(), for linkFromQueryRS().
+   */
+  public StubResultSet links(int count) {
+    StubResultSet rs = new StubResultSet(
+      "ID", "NETWORK_ID", "BEG_NODE_ID", "END_NODE_ID",
+      "SPEED_LIMIT", "LENGTH", "DETAIL_LEVEL",
+      "NAME", "TYPE", "LANES", "DISPLAY_LANE_OFFSET");
+    
+    for (long id = 1; id <= count; id++) {
+      rs.addRow(
+        id, 1L, id, id + 1,
+        25.0 + random.nextInt(4) * 5, 50.0 + random.nextDouble() * 500, 1 + random.nextInt(3),
+        "link " + id, "Freeway", (double)(1 + random.nextInt(5)), random.nextInt(2));
+    }
+    
+    return rs;
+  }
+  
+  /**
+   * Rows of PeMSReader.runQuerySet(), for pemsFromQueryRS(), 30
+   * second samples of the given number of stations.
+   */
+  public StubResultSet pems(int stations, int samplesPerStation) {
+    String[] columns = new String[19];
+    String[] fixed = {
+      "VDS_ID", "MEASURE_DT", "FLOW", "DENSITY", "DENSITY_ERR",
+      "SPEED", "SPEED_ERROR", "FF_SPEED", "FUNC_LOOP_FACT"};
+    System.arraycopy(fixed, 0, columns, 0, fixed.length);
+    for (int i = 0; i <= 9; i++) {
+      columns[fixed.length + i] = "G_FACTOR_LANE_" + i;
+    }
+    
+    StubResultSet rs = new StubResultSet(columns);
+    
+    for (int t = 0; t < samplesPerStation; t++) {
+      for (long vds = 400000; vds < 400000 + stations; vds++) {
+        Object[] row = new Object[columns.length];
+        row[0] = vds;
+        row[1] = T0 + t * 30000L;
+        for (int i = 2; i < fixed.length; i++) {
+          row[i] = random.nextDouble() * 100;
+        }
+        for (int i = fixed.length; i < columns.length; i++) {
+          row[i] = random.nextDouble() < 0.5 ? null : random.nextDouble();
+        }
+        rs.addRow(row);
+      }
+    }
+    
+    return rs;
+  }
+  
+  /**
+   * Rows of FreewayCTMReportReader.runReportQuery(), for
+   * reportsFromQueryRS(): a mean and a std dev row for each link at each
+   * time, with fd parameters on the mean rows.
+   */
+  public StubResultSet reports(int times, int links) {
+    StubResultSet rs = new StubResultSet(reportColumns(false));
+    
+    for (int t = 0; t < times; t++) {
+      long ts = T0 + t * 60000L;
+      for (long link = 1; link <= links; link++) {
+        rs.addRow(reportRow(ts, null, link, 2L, true));
+        rs.addRow(reportRow(ts, null, link, 4L, false));
+      }
+    }
+    
+    return rs;
+  }
+  
+  /**
+   * Rows of FreewayCTMReportReader.runEnsembleReportQuery(), for
+   * ensembleReportsFromQueryRS(): a mean row for each link of each
+   * ensemble member at each time.
+   */
+  public StubResultSet ensembleReports(int times, int members, int links) {
+    StubResultSet rs = new StubResultSet(reportColumns(true));
+    
+    for (int t = 0; t < times; t++) {
+      long ts = T0 + t * 60000L;
+      for (int ctm = 0; ctm < members; ctm++) {
+        for (long link = 1; link <= links; link++) {
+          rs.addRow(reportRow(ts, ctm, link, 2L, false));
+        }
+      }
+    }
+    
+    return rs;
+  }
+  
+  private static String[] reportColumns(boolean ensemble) {
+    String[] columns = {
+      "TS", "NETWORK_ID", "APP_RUN_ID", "LINK_ID",
+      "FREE_FLOW_SPEED", "CRITICAL_SPEED", "CONGESTION_WAVE_SPEED",
+      "CAPACITY", "JAM_DENSITY", "CAPACITY_DROP",
+      "QTY_TYPE_ID", "IN_FLOW", "OUT_FLOW", "DENSITY", "SPEED",
+      "QUEUE_LENGTH", "CTM_ID"};
+    
+    if (!ensemble) {
+      columns = java.util.Arrays.copyOf(columns, columns.length - 1);
+    }
+    return columns;
+  }
+  
+  private Object[] reportRow(long ts, Integer ctmId, long link, long qtyType, boolean fd) {
+    Object[] row = new Object[ctmId == null ? 16 : 17];
+    
+    row[0] = ts;
+    row[1] = 1L;
+    row[2] = 1L;
+    row[3] = link;
+    if (fd) {
+      row[4] = 30.0;
+      row[5] = 25.0;
+      row[6] = 5.0;
+      row[7] = 0.5 + random.nextDouble();
+      row[8] = 0.1 + random.nextDouble() * 0.1;
+      row[9] = 0.0;
+    }
+    row[10] = qtyType;
+    row[11] = random.nextDouble();
+    row[12] = random.nextDouble();
+    row[13] = random.nextDouble() * 0.1;
+    row[14] = random.nextDouble() * 30;
+    row[15] = null;
+    if (ctmId != null) {
+      row[16] = ctmId;
+    }
+    
+    return row;
+  }
+  
+  /**
+   * Rows of PeMSStationAggregateReader.runQueryAggregates(), for
+   * aggregateFromQueryRS(), with the columns of every aggregation level.
+   */
+  public StubResultSet stationAggregates(int stations, int intervals) {
+    java.util.List<String> columns = new java.util.ArrayList<String>(java.util.Arrays.asList(
+      "VDS_ID", "MEASURE_DT", "TOTAL_SAMPLES", "PERCENT_OBSERVED",
+      "TOTAL_FLOW", "AVG_OCC", "AVG_SPEED"));
+    for (int mph = 35; mph <= 60; mph += 5) {
+      columns.add("DELAY_VT_" + mph);
+    }
+    for (int lane = 1; lane <= 8; lane++) {
+      String prefix = "LANE_" + lane + "_";
+      columns.add(prefix + "FLOW");
+      columns.add(prefix + "AVG_OCC");
+      columns.add(prefix + "AVG_SPEED");
+      columns.add(prefix + "SAMPLES");
+      columns.add(prefix + "OBSERVED");
+    }
+    
+    StubResultSet rs = new StubResultSet(columns.toArray(new String[0]));
+    
+    for (int t = 0; t < intervals; t++) {
+      for (long vds = 400000; vds < 400000 + stations; vds++) {
+        Object[] row = new Object[columns.size()];
+        int i = 0;
+        row[i++] = vds;
+        row[i++] = T0 + t * 300000L;
+        row[i++] = 10L;
+        row[i++] = random.nextDouble() * 100;
+        row[i++] = random.nextDouble() * 500;
+        row[i++] = random.nextDouble();
+        row[i++] = random.nextDouble() * 70;
+        for (int mph = 35; mph <= 60; mph += 5) {
+          row[i++] = random.nextDouble();
+        }
+        for (int lane = 1; lane <= 8; lane++) {
+          row[i++] = random.nextDouble() * 100;
+          row[i++] = random.nextDouble();
+          row[i++] = random.nextDouble() * 70;
+          row[i++] = 10L;
+          row[i++] = random.nextBoolean() ? "1" : "0";
+        }
+        rs.addRow(row);
+      }
+    }
+    
+    return rs;
+  }
+}
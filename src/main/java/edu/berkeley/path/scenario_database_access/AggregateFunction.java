@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+/**
+ * Aggregate function applied by the database when reading time-bucketed
+ * data, such as in FreewayCTMReportReader.readAggregates() and
+ * ProbeReader.readAggregates(). Only the fixed set of functions below can
+ * be constructed, so the generated SQL never contains caller-supplied text.
+ * 
+ * @author vjoel
+ */
+public class AggregateFunction {
+  public static final AggregateFunction MEAN  = new AggregateFunction("AVG", null);
+  public static final AggregateFunction MIN   = new AggregateFunction("MIN", null);
+  public static final AggregateFunction MAX   = new AggregateFunction("MAX", null);
+  public static final AggregateFunction COUNT = new AggregateFunction("COUNT", null);
+  
+  private final String sqlName;
+  private final Double fraction;
+  
+  private AggregateFunction(String sqlName, Double fraction) {
+    this.sqlName = sqlName;
+    this.fraction = fraction;
+  }
+  
+  /**
+   * Continuous percentile, for example percentile(0.5) for the median.
+   * 
+   * @param fraction  number in the range [0, 1]
+   */
+  public static AggregateFunction percentile(double fraction) {
+    if (!(fraction >= 0.0 && fraction <= 1.0)) {
+      throw new IllegalArgumentException(
+        "percentile fraction must be in [0, 1], not " + fraction);
+    }
+    return new AggregateFunction("PERCENTILE_CONT", fraction);
+  }
+  
+  /**
+   * SQL expression applying this function to the given column.
+   **/
+  protected String toSql(String column) {
+    if (fraction != null) {
+      return sqlName + "(" + fraction + ") WITHIN GROUP (ORDER BY " + column + ")";
+    }
+    return sqlName + "(" + column + ")";
+  }
+  
+  public String toString() {
+    if (fraction != null) {
+      return "percentile(" + fraction + ")";
+    }
+    return sqlName.toLowerCase();
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+/**
+ * A longitude/latitude rectangle (srid 8307), used for reading only the
+ * parts of a network within a map viewport or tile.
+ * 
+ * @see LinkReader#readLinksInBox
+ * @see NodeReader#readNodesInBox
+ * @author vjoel
+ */
+public class BoundingBox {
+  public final double minLongitude;
+  public final double minLatitude;
+  public final double maxLongitude;
+  public final double maxLatitude;
+  
+  public BoundingBox(
+      double minLongitude,
+      double minLatitude,
+      double maxLongitude,
+      double maxLatitude) {
+    if (minLongitude > maxLongitude || minLatitude > maxLatitude) {
+      throw new IllegalArgumentException("empty bounding box: " +
+        minLongitude + ", " + minLatitude + ", " +
+        maxLongitude + ", " + maxLatitude);
+    }
+    
+    this.minLongitude = minLongitude;
+    this.minLatitude = minLatitude;
+    this.maxLongitude = maxLongitude;
+    this.maxLatitude = maxLatitude;
+  }
+  
+  /**
+   * The bounding box of a web map (spherical mercator) tile. Tile y
+   * counts down from the north edge of the map, as in most tile servers.
+   * 
+   * @param z zoom level, with 2^z tiles along each axis
+   * @param x tile column, in [0, 2^z)
+   * @param y tile row, in [0, 2^z)
+   */
+  public static BoundingBox fromTile(int z, int x, int y) {
+    if (z < 0 || z > 30) {
+      throw new IllegalArgumentException("tile zoom out of range: " + z);
+    }
+    
+    long n = 1L << z;
+    if (x < 0 || x >= n || y < 0 || y >= n) {
+      throw new IllegalArgumentException(
+        "tile out of range: " + z + "/" + x + "/" + y);
+    }
+    
+    return new BoundingBox(
+      tileLongitude(x, n),
+      tileLatitude(y + 1, n),
+      tileLongitude(x + 1, n),
+      tileLatitude(y, n));
+  }
+  
+  private static double tileLongitude(long x, long n) {
+    return (double)x / n * 360.0 - 180.0;
+  }
+  
+  private static double tileLatitude(long y, long n) {
+    return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1.0 - 2.0 * y / n))));
+  }
+  
+  public String toString() {
+    return "[" + minLongitude + ", " + minLatitude + ", " +
+      maxLongitude + ", " + maxLatitude + "]";
+  }
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import core.*;
+
+/**
+ * A DBConnection on a core DatabaseReader or DatabaseWriter, so that
+ * callers that connect through core can pass their own connection to any
+ * reader or writer. Queries run on a DatabaseReader, and updates on a
+ * DatabaseWriter; operations that the core object does not have throw a
+ * DatabaseException.
+ * 
+ * The core object belongs to the caller, who closes it.
+ * 
+ * @see ReaderBase#ReaderBase(DBParams, DatabaseReader)
+ * @see WriterBase#WriterBase(DBParams, DatabaseWriter)
+ * @author vjoel
+ */
+public class CoreStatements implements DBConnection {
+  private final Database db;
+  private final DatabaseReader reader;
+  private final DatabaseWriter writer;
+  
+  /**
+   * rows affected by each row added to the batch of a statement so far
+   **/
+  private final HashMap<String,List<Integer>> batches = new HashMap<String,List<Integer>>();
+  
+  public CoreStatements(DatabaseReader reader) {
+    this.db = reader;
+    this.reader = reader;
+    this.writer = null;
+  }
+  
+  public CoreStatements(DatabaseWriter writer) {
+    this.db = writer;
+    this.reader = null;
+    this.writer = writer;
+  }
+  
+  public Database getDatabase() {
+    return db;
+  }
+  
+  /**
+   * Core connects only to Oracle.
+   */
+  public SqlDialect getDialect() {
+    return SqlDialect.ORACLE;
+  }
+  
+  public DatabaseReader getDatabaseReader() {
+    return reader;
+  }
+  
+  public DatabaseWriter getDatabaseWriter() {
+    return writer;
+  }
+  
+  private DatabaseReader reader(String query) throws DatabaseException {
+    if (reader == null) {
+      throw new DatabaseException(null,
+        "Cannot query on a DatabaseWriter: " + query, db, query);
+    }
+    return reader;
+  }
+  
+  private DatabaseWriter writer(String query) throws DatabaseException {
+    if (writer == null) {
+      throw new DatabaseException(null,
+        "Cannot update on a DatabaseReader: " + query, db, query);
+    }
+    return writer;
+  }
+  
+  public void psCreate(String query, String sql) throws DatabaseException {
+    db.psCreate(query, sql);
+  }
+  
+  public void psDestroy(String query) throws DatabaseException {
+    batches.remove(query);
+    db.psDestroy(query);
+  }
+  
+  public void psClearParams(String query) throws DatabaseException {
+    db.psClearParams(query);
+  }
+  
+  public void psSetBigInt(String query, int index, Long value) throws DatabaseException {
+    db.psSetBigInt(query, index, value);
+  }
+  
+  public void psSetInteger(String query, int index, Integer value) throws DatabaseException {
+    db.psSetInteger(query, index, value);
+  }
+  
+  public void psSetDouble(String query, int index, Double value) throws DatabaseException {
+    db.psSetDouble(query, index, value);
+  }
+  
+  public void psSetVarChar(String query, int index, String value) throws DatabaseException {
+    db.psSetVarChar(query, index, value);
+  }
+  
+  public void psSetTimestampMilliseconds(String query, int index, Long value) throws DatabaseException {
+    db.psSetTimestampMilliseconds(query, index, value);
+  }
+  
+  /**
+   * Core has no binary parameters, so this always throws.
+   */
+  public void psSetBytes(String query, int index, byte[] value) throws DatabaseException {
+    throw new DatabaseException(null,
+      "Cannot bind binary parameter " + index + " through core: " + query, db, query);
+  }
+  
+  /**
+   * Core has no batches, so the row is written right away, and only its
+   * count waits for psExecuteBatch().
+   */
+  public void psAddBatch(String query) throws DatabaseException {
+    int rows = writer(query).psUpdate(query);
+    
+    List<Integer> batch = batches.get(query);
+    if (batch == null) {
+      batch = new ArrayList<Integer>();
+      batches.put(query, batch);
+    }
+    batch.add(rows);
+  }
+  
+  public int[] psExecuteBatch(String query) throws DatabaseException {
+    List<Integer> batch = batches.remove(query);
+    int[] rows = new int[batch == null ? 0 : batch.size()];
+    
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = batch.get(i);
+    }
+    return rows;
+  }
+  
+  public void psQuery(String query) throws DatabaseException {
+    reader(query).psQuery(query);
+  }
+  
+  public int psUpdate(String query) throws DatabaseException {
+    return writer(query).psUpdate(query);
+  }
+  
+  /**
+   * Runs the statement as an update on a DatabaseWriter, or as a query,
+   * which the Oracle driver accepts for any statement, on a
+   * DatabaseReader.
+   */
+  public void psExecute(String query) throws DatabaseException {
+    if (writer != null) {
+      writer.psUpdate(query);
+    }
+    else {
+      reader.psQuery(query);
+    }
+  }
+  
+  public boolean psRSNext(String query) throws DatabaseException {
+    return reader(query).psRSNext(query);
+  }
+  
+  public String[] psRSColumnNames(String query) throws DatabaseException {
+    return reader(query).psRSColumnNames(query);
+  }
+  
+  public Long psRSGetBigInt(String query, String column) throws DatabaseException {
+    return reader(query).psRSGetBigInt(query, column);
+  }
+  
+  public Integer psRSGetInteger(String query, String column) throws DatabaseException {
+    return reader(query).psRSGetInteger(query, column);
+  }
+  
+  public Double psRSGetDouble(String query, String column) throws DatabaseException {
+    return reader(query).psRSGetDouble(query, column);
+  }
+  
+  public String psRSGetVarChar(String query, String column) throws DatabaseException {
+    return reader(query).psRSGetVarChar(query, column);
+  }
+  
+  public Long psRSGetTimestampMilliseconds(String query, String column) throws DatabaseException {
+    return reader(query).psRSGetTimestampMilliseconds(query, column);
+  }
+  
+  public Long psRSGetTimestampMicroseconds(String query, String column) throws DatabaseException {
+    return reader(query).psRSGetTimestampMicroseconds(query, column);
+  }
+  
+  /**
+   * Core has no binary columns, so this always throws.
+   */
+  public byte[] psRSGetBytes(String query, String column) throws DatabaseException {
+    throw new DatabaseException(null,
+      "Cannot read binary column " + column + " through core: " + query, db, query);
+  }
+  
+  public void setFetchSize(int n) throws DatabaseException {
+    if (reader != null) {
+      reader.setFetchSize(n);
+    }
+  }
+  
+  public boolean transactionIsOpen() throws DatabaseException {
+    return db.transactionIsOpen();
+  }
+  
+  public void transactionBegin() throws DatabaseException {
+    db.transactionBegin();
+  }
+  
+  public void transactionCommit() throws DatabaseException {
+    db.transactionCommit();
+  }
+  
+  public void transactionRollback() throws DatabaseException {
+    db.transactionRollback();
+  }
+  
+  /**
+   * Does nothing: the core object belongs to the caller.
+   */
+  public void close() {
+  }
+}
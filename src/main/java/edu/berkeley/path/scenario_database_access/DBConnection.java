@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import core.*;
+
+/**
+ * A connection to the database, with named prepared statements, as used
+ * by all readers and writers. A reader can also write and a writer can
+ * also read on the same connection, within the same transaction, such as
+ * to read back a modstamp or to lock a row before a diff.
+ * 
+ * Statements are named by the caller: psCreate() prepares one under a
+ * name, the ps* methods bind its parameters, run it, and read its result
+ * set, and psDestroy() releases it.
+ * 
+ * @see JdbcStatements
+ * @see CoreStatements
+ * @see ReaderBase
+ * @see WriterBase
+ * @author vjoel
+ */
+public interface DBConnection {
+  /**
+   * The core connection under this one, if any, for the context of a
+   * DatabaseException, or null.
+   */
+  Database getDatabase();
+  
+  /**
+   * Dialect of the database, for the operations whose SQL depends on it,
+   * such as read-only snapshots.
+   */
+  SqlDialect getDialect();
+  
+  void psCreate(String query, String sql) throws DatabaseException;
+  void psDestroy(String query) throws DatabaseException;
+  void psClearParams(String query) throws DatabaseException;
+  
+  void psSetBigInt(String query, int index, Long value) throws DatabaseException;
+  void psSetInteger(String query, int index, Integer value) throws DatabaseException;
+  void psSetDouble(String query, int index, Double value) throws DatabaseException;
+  void psSetVarChar(String query, int index, String value) throws DatabaseException;
+  void psSetTimestampMilliseconds(String query, int index, Long value) throws DatabaseException;
+  
+  /**
+   * Bind a binary parameter, such as the WKB of a geometry, or null.
+   */
+  void psSetBytes(String query, int index, byte[] value) throws DatabaseException;
+  
+  /**
+   * Add the parameters bound so far to the batch of the statement, to be
+   * run by psExecuteBatch().
+   */
+  void psAddBatch(String query) throws DatabaseException;
+  
+  /**
+   * Run the batch of an INSERT, UPDATE, DELETE or MERGE in one round trip,
+   * and empty it.
+   * 
+   * @return rows affected by each batched row, in order, or
+   *   java.sql.Statement.SUCCESS_NO_INFO where the driver does not tell
+   */
+  int[] psExecuteBatch(String query) throws DatabaseException;
+  
+  /**
+   * Run a query, keeping its result set for psRSNext().
+   */
+  void psQuery(String query) throws DatabaseException;
+  
+  /**
+   * Run an INSERT, UPDATE, DELETE or MERGE.
+   * 
+   * @return number of rows affected
+   */
+  int psUpdate(String query) throws DatabaseException;
+  
+  /**
+   * Run any other statement, such as SET TRANSACTION or a PL/SQL block,
+   * ignoring what it returns.
+   */
+  void psExecute(String query) throws DatabaseException;
+  
+  boolean psRSNext(String query) throws DatabaseException;
+  String[] psRSColumnNames(String query) throws DatabaseException;
+  Long psRSGetBigInt(String query, String column) throws DatabaseException;
+  Integer psRSGetInteger(String query, String column) throws DatabaseException;
+  Double psRSGetDouble(String query, String column) throws DatabaseException;
+  String psRSGetVarChar(String query, String column) throws DatabaseException;
+  Long psRSGetTimestampMilliseconds(String query, String column) throws DatabaseException;
+  
+  /**
+   * Microseconds of the stored date and time read as UTC, without any
+   * time zone conversion, so that each stored value, even one in a
+   * daylight saving transition, has exactly one representation. Used for
+   * modstamps, which are compared for equality.
+   */
+  Long psRSGetTimestampMicroseconds(String query, String column) throws DatabaseException;
+  
+  /**
+   * Contents of a binary column, such as the WKB of a geometry, or null.
+   */
+  byte[] psRSGetBytes(String query, String column) throws DatabaseException;
+  
+  /**
+   * Rows fetched per round trip by the following queries, or 0 for the
+   * driver's default.
+   */
+  void setFetchSize(int n) throws DatabaseException;
+  
+  boolean transactionIsOpen() throws DatabaseException;
+  void transactionBegin() throws DatabaseException;
+  void transactionCommit() throws DatabaseException;
+  void transactionRollback() throws DatabaseException;
+  
+  /**
+   * Close the connection and all its statements.
+   */
+  void close() throws DatabaseException;
+}
@@ -33,9 +33,13 @@ package edu.berkeley.path.scenario_database_access;
  * Captures parameters for accessing Scenarios from a database.
  * 
  * Roughly equivalent to a connection string, but with accessibe fields.
- * The fields correspond exactly to the constructor of a core.Database.
  * The param object is used in the constructor of a ScenarioReader or
- * ScenarioWriter.
+ * ScenarioWriter, which connects with JdbcStatements.connect().
+ * 
+ * If url is set, readers and writers connect to it, and their statements
+ * are translated by the SqlDialect for the url. This is how they run
+ * against an EmbeddedDatabase. Otherwise they connect to the Oracle
+ * database at host, port and name, through core's oraDatabase.
  * 
  * @author vjoel
  */
@@ -46,6 +50,11 @@ public class DBParams {
   public String name;
   public String user;
   public String pass;
+  
+  /**
+   * JDBC url, such as jdbc:h2:mem:via;MODE=Oracle, or null for Oracle
+   **/
+  public String url;
 
   public DBParams() {
     this.host = System.getenv("VIA_DATABASE_HOST");
@@ -75,5 +84,7 @@ public class DBParams {
     if (this.pass == null) {
       this.pass = "";
     }
+    
+    this.url = System.getenv("VIA_DATABASE_URL");
   }
 }
@@ -54,6 +54,13 @@ public class DemandProfileReader extends ReaderBase {
     super(dbParams);
   }
   
+  public DemandProfileReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public DemandProfileReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -59,49 +59,57 @@ public class DemandProfileWriter {
    */
   public void insertProfiles(Map<String,DemandProfile> profileMap, long demandSetID) throws DatabaseException {
     for (Map.Entry<String,DemandProfile> entry : profileMap.entrySet()) {
-      Long linkID = Long.parseLong(entry.getKey());
-      DemandProfile profile = entry.getValue();
-
-      oraSPParams[] params = new oraSPParams[10];
-      int i = 0;
+      insertProfile(Long.parseLong(entry.getKey()), entry.getValue(), demandSetID);
+    }
+  }
+  
+  /**
+   * Insert one profile, and its flows, into a demand set.
+   * 
+   * @param linkID ID of the origin link of the profile
+   * @param profile the profile
+   * @param demandSetID ID of the set
+   */
+  protected void insertProfile(Long linkID, DemandProfile profile, long demandSetID) throws DatabaseException {
+    oraSPParams[] params = new oraSPParams[10];
+    int i = 0;
 
-      params[i++] = new oraSPParams(i, spParamType.INT_VAR, spParamDir.IN,
-        demandSetID, 0F, null, null);
+    params[i++] = new oraSPParams(i, spParamType.INT_VAR, spParamDir.IN,
+      demandSetID, 0F, null, null);
 
-      params[i++] = new oraSPParams(i, spParamType.FLT_VAR, spParamDir.IN, 0,
-        profile.getStdDevMult(), null, null);
+    params[i++] = new oraSPParams(i, spParamType.FLT_VAR, spParamDir.IN, 0,
+      profile.getStdDevMult(), null, null);
 
-      params[i++] = new oraSPParams(i, spParamType.FLT_VAR, spParamDir.IN, 0,
-        profile.getStartTime(), null, null);
+    params[i++] = new oraSPParams(i, spParamType.FLT_VAR, spParamDir.IN, 0,
+      profile.getStartTime(), null, null);
 
-      params[i++] = new oraSPParams(i, spParamType.FLT_VAR, spParamDir.IN, 0,
-        profile.getKnob(), null, null);
+    params[i++] = new oraSPParams(i, spParamType.FLT_VAR, spParamDir.IN, 0,
+      profile.getKnob(), null, null);
 
-      params[i++] = new oraSPParams(i, spParamType.INT_VAR, spParamDir.IN,
-        linkID, 0F, null, null);
+    params[i++] = new oraSPParams(i, spParamType.INT_VAR, spParamDir.IN,
+      linkID, 0F, null, null);
 
-      params[i++] = new oraSPParams(i, spParamType.INT_VAR, spParamDir.OUT,
-        0L, 0F, null, null);
+    params[i++] = new oraSPParams(i, spParamType.INT_VAR, spParamDir.OUT,
+      0L, 0F, null, null);
 
-      params[i++] = new oraSPParams(i, spParamType.FLT_VAR, spParamDir.IN, 0,
-        profile.getStdDevAdd(), null, null);
+    params[i++] = new oraSPParams(i, spParamType.FLT_VAR, spParamDir.IN, 0,
+      profile.getStdDevAdd(), null, null);
 
-      params[i++] = new oraSPParams(i, spParamType.FLT_VAR, spParamDir.IN, 0,
-        profile.getSampleRate(), null, null);
+    params[i++] = new oraSPParams(i, spParamType.FLT_VAR, spParamDir.IN, 0,
+      profile.getSampleRate(), null, null);
 
-      params[i++] = new oraSPParams(i, spParamType.INT_VAR, spParamDir.IN,
-        profile.getDestinationNetworkLongId(), 0F, null, null);
+    params[i++] = new oraSPParams(i, spParamType.INT_VAR, spParamDir.IN,
+      profile.getDestinationNetworkLongId(), 0F, null, null);
 
-      params[i++] = new oraSPParams(i, spParamType.INT_VAR, spParamDir.OUT,
-        0, 0F, null, null);
+    params[i++] = new oraSPParams(i, spParamType.INT_VAR, spParamDir.OUT,
+      0, 0F, null, null);
 
-      int result = SingleOracleConnector.executeSP("VIA.SP_DEMAND_PROFS.INS", params);
-      if (result != 0 || params[9].intParam != 0) {
-        throw new DatabaseException(null, "insert failed -- check logs for details", null, null);
-      }
-    
-      insertFlows(profile.getFlow(), params[5].intParam);
+    int result = SingleOracleConnector.executeSP("VIA.SP_DEMAND_PROFS.INS", params);
+    if (result != 0 || params[9].intParam != 0) {
+      throw new DatabaseException(null, "insert failed -- check logs for details", null, null);
     }
+    
+    insertFlows(profile.getFlow(), params[5].intParam);
   }
   
   protected void insertFlows(
@@ -150,4 +158,213 @@ public class DemandProfileWriter {
       }
     }
   }
+  
+  /**
+   * Update the profiles of a demand set to match the given map, writing
+   * only what differs from the stored profiles. Profiles are matched by
+   * origin link. New profiles are inserted, profiles missing from the map
+   * are deleted, changed profile rows are updated, and of the flows only
+   * the series of the vehicle types that changed are rewritten.
+   * This is intended to be called from @see DemandSetWriter, so it does
+   * not set up a transaction of its own.
+   * 
+   * @param profileMap Map of link id to profile.
+   * @param demandSetID ID of the set
+   */
+  public void updateProfiles(Map<String,DemandProfile> profileMap, long demandSetID) throws DatabaseException {
+    Map<Long,StoredProfile> stored = readStoredProfiles(demandSetID);
+    int inserted = 0, updated = 0, flowsUpdated = 0;
+    
+    for (Map.Entry<String,DemandProfile> entry : profileMap.entrySet()) {
+      Long linkID = Long.parseLong(entry.getKey());
+      DemandProfile profile = entry.getValue();
+      StoredProfile old = stored.remove(linkID);
+      
+      if (old == null) {
+        insertProfile(linkID, profile, demandSetID);
+        inserted++;
+        continue;
+      }
+      
+      if (!sameRow(profile, old.profile)) {
+        updateRow(profile, old.id);
+        updated++;
+      }
+      
+      flowsUpdated += updateFlows(profile.getFlow(), old.profile.getFlow(), old.id);
+    }
+    
+    // What is left was not in the map.
+    for (StoredProfile old : stored.values()) {
+      SingleOracleConnector.executeUpdate(
+        "DELETE FROM VIA.DEMANDS WHERE DEMAND_PROF_ID = ?", old.id);
+      SingleOracleConnector.executeUpdate(
+        "DELETE FROM VIA.DEMAND_PROFS WHERE ID = ?", old.id);
+    }
+    
+    Monitor.debug("DemandSet diff update on demandSet.id=" + demandSetID +
+      ": profiles +" + inserted + " ~" + updated + " -" + stored.size() +
+      ", flow series ~" + flowsUpdated);
+  }
+  
+  /**
+   * Profile as stored in the database, with its id.
+   */
+  protected static class StoredProfile {
+    public Long id;
+    public DemandProfile profile = new DemandProfile();
+  }
+  
+  /**
+   * Read the profiles and flows of a demand set on the connection of the
+   * current transaction, keyed by origin link id.
+   * 
+   * @param demandSetID ID of the set
+   * @return Map of link id to stored profile.
+   */
+  protected Map<Long,StoredProfile> readStoredProfiles(long demandSetID) throws DatabaseException {
+    final Map<Long,StoredProfile> byLink = new HashMap<Long,StoredProfile>();
+    final Map<Long,StoredProfile> byID = new HashMap<Long,StoredProfile>();
+    
+    SingleOracleConnector.executeQuery(
+      "SELECT ID, ORG_LINK_ID, DEST_NETWORK_ID, START_TIME, SAMPLE_RATE, " +
+        "KNOB, STD_DEV_ADD, STD_DEV_MULT " +
+      "FROM VIA.DEMAND_PROFS WHERE (DEMAND_SET_ID = ?)",
+      new SingleOracleConnector.RowVisitor() {
+        public void visit(java.sql.ResultSet rs) throws java.sql.SQLException {
+          StoredProfile sp = new StoredProfile();
+          sp.id = rs.getLong("ID");
+          sp.profile.setDestinationNetworkLongId(getLong(rs, "DEST_NETWORK_ID"));
+          sp.profile.setStartTime(getDouble(rs, "START_TIME"));
+          sp.profile.setSampleRate(getDouble(rs, "SAMPLE_RATE"));
+          sp.profile.setKnob(getDouble(rs, "KNOB"));
+          sp.profile.setStdDevAdd(getDouble(rs, "STD_DEV_ADD"));
+          sp.profile.setStdDevMult(getDouble(rs, "STD_DEV_MULT"));
+          sp.profile.setFlow(new HashMap<CharSequence,List<Double>>());
+          
+          byLink.put(rs.getLong("ORG_LINK_ID"), sp);
+          byID.put(sp.id, sp);
+        }
+      },
+      demandSetID);
+    
+    SingleOracleConnector.executeQuery(
+      "SELECT D.DEMAND_PROF_ID, D.VEH_TYPE_ID, D.FLOW " +
+      "FROM VIA.DEMANDS D, VIA.DEMAND_PROFS P " +
+      "WHERE (P.DEMAND_SET_ID = ?) AND (D.DEMAND_PROF_ID = P.ID) " +
+      "ORDER BY D.DEMAND_PROF_ID, D.VEH_TYPE_ID, D.DEMAND_ORDER",
+      new SingleOracleConnector.RowVisitor() {
+        public void visit(java.sql.ResultSet rs) throws java.sql.SQLException {
+          StoredProfile sp = byID.get(rs.getLong("DEMAND_PROF_ID"));
+          DemandProfile.addFlowToMapAt(sp.profile.getFlow(),
+            rs.getLong("VEH_TYPE_ID"), getDouble(rs, "FLOW"));
+        }
+      },
+      demandSetID);
+    
+    return byLink;
+  }
+  
+  private static Long getLong(java.sql.ResultSet rs, String column) throws java.sql.SQLException {
+    long value = rs.getLong(column);
+    return rs.wasNull() ? null : value;
+  }
+  
+  private static Double getDouble(java.sql.ResultSet rs, String column) throws java.sql.SQLException {
+    double value = rs.getDouble(column);
+    return rs.wasNull() ? null : value;
+  }
+  
+  /**
+   * Check whether two profiles have the same DEMAND_PROFS row, ignoring
+   * their flows.
+   */
+  protected static boolean sameRow(DemandProfile a, DemandProfile b) {
+    return
+      WriterBase.same(a.getDestinationNetworkLongId(), b.getDestinationNetworkLongId()) &&
+      WriterBase.same(a.getStartTime(), b.getStartTime()) &&
+      WriterBase.same(a.getSampleRate(), b.getSampleRate()) &&
+      WriterBase.same(a.getKnob(), b.getKnob()) &&
+      WriterBase.same(a.getStdDevAdd(), b.getStdDevAdd()) &&
+      WriterBase.same(a.getStdDevMult(), b.getStdDevMult());
+  }
+  
+  /**
+   * Update the DEMAND_PROFS row of a stored profile. The origin link and the
+   * set do not change.
+   * 
+   * @param profile the profile
+   * @param profileID ID of the stored profile
+   */
+  protected void updateRow(DemandProfile profile, Long profileID) throws DatabaseException {
+    int rows = SingleOracleConnector.executeUpdate(
+      "UPDATE VIA.DEMAND_PROFS SET DEST_NETWORK_ID = ?, START_TIME = ?, SAMPLE_RATE = ?, " +
+        "KNOB = ?, STD_DEV_ADD = ?, STD_DEV_MULT = ? WHERE ID = ?",
+      profile.getDestinationNetworkLongId(),
+      profile.getStartTime(),
+      profile.getSampleRate(),
+      profile.getKnob(),
+      profile.getStdDevAdd(),
+      profile.getStdDevMult(),
+      profileID);
+    
+    if (rows != 1) {
+      throw new DatabaseException(null, "Demand profile not unique: there exist " + rows + " with id=" + profileID, null, null);
+    }
+  }
+  
+  /**
+   * Rewrite the flow series, one per vehicle type, that differ between
+   * the given and the stored flows of a profile.
+   * 
+   * @param flows the flows to write
+   * @param storedFlows the flows in the database
+   * @param profileID ID of the stored profile
+   * @return number of series rewritten or deleted
+   */
+  protected int updateFlows(
+      Map<CharSequence,List<Double>> flows,
+      Map<CharSequence,List<Double>> storedFlows,
+      Long profileID) throws DatabaseException {
+    
+    // Keys may be Utf8 or String, so compare them as strings.
+    Map<String,List<Double>> stored = new HashMap<String,List<Double>>();
+    for (Map.Entry<CharSequence,List<Double>> entry : storedFlows.entrySet()) {
+      stored.put(entry.getKey().toString(), entry.getValue());
+    }
+    
+    Map<CharSequence,List<Double>> changed = new HashMap<CharSequence,List<Double>>();
+    int count = 0;
+    
+    for (Map.Entry<CharSequence,List<Double>> entry : flows.entrySet()) {
+      String vehTypeId = entry.getKey().toString();
+      List<Double> old = stored.remove(vehTypeId);
+      
+      if (old == null || !old.equals(entry.getValue())) {
+        if (old != null) {
+          deleteFlows(profileID, vehTypeId);
+        }
+        changed.put(vehTypeId, entry.getValue());
+        count++;
+      }
+    }
+    
+    // What is left was not in the given flows.
+    for (String vehTypeId : stored.keySet()) {
+      deleteFlows(profileID, vehTypeId);
+      count++;
+    }
+    
+    if (!changed.isEmpty()) {
+      insertFlows(changed, profileID);
+    }
+    
+    return count;
+  }
+  
+  private void deleteFlows(Long profileID, String vehTypeId) throws DatabaseException {
+    SingleOracleConnector.executeUpdate(
+      "DELETE FROM VIA.DEMANDS WHERE (DEMAND_PROF_ID = ?) AND (VEH_TYPE_ID = ?)",
+      profileID, Long.parseLong(vehTypeId));
+  }
 }
@@ -50,6 +50,13 @@ public class DemandSetReader extends ReaderBase {
     super(dbParams);
   }
   
+  public DemandSetReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public DemandSetReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -71,14 +78,14 @@ public class DemandSetReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug(
         "DemandSet reader transaction beginning on demandSet.id=" +
         demandSetID);
 
       demandSet = readWithDependents(demandSetID);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug(
         "DemandSet reader transaction committing on demandSet.id=" +
         demandSetID);
@@ -89,7 +96,7 @@ public class DemandSetReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug(
           "DemandSet reader transaction rollback on demandSet.id=" +
           demandSetID);
@@ -193,7 +200,7 @@ public class DemandSetReader extends ReaderBase {
     while (dbr.psRSNext(query)) {
       if (demandSet != null) {
         throw new DatabaseException(null,
-          "DemandSet not unique: " + query, dbr, query);
+          "DemandSet not unique: " + query, dbr.getDatabase(), query);
       }
       
       //String columns = org.apache.commons.lang.StringUtils.join(dbr.psRSColumnNames(query), ", ");
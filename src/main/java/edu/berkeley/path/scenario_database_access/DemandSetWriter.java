@@ -174,8 +174,8 @@ public class DemandSetWriter {
 
   /**
    * Update the given demandSet in the database, including dependent objects, such as
-   * demand profiles and demands.
-   * Note the pre-existing dependents in the database are deleted first.
+   * demand profiles and demands. Only the profiles and flow series that differ
+   * from the stored ones are written.
    * 
    * @see #update() if you want a transaction and logging around the operation.
    * 
@@ -184,11 +184,23 @@ public class DemandSetWriter {
   public void updateWithDependents(DemandSet demandSet) throws DatabaseException, ConcurrencyException {
     long demandSetID = demandSet.getLongId();
 
-    deleteOnlyDependents(demandSetID);
+    // Check the modstamp before touching any dependents.
     updateRow(demandSet);
-    insertDependents(demandSet);
+    
+    DemandProfileWriter dpWriter = new DemandProfileWriter();
+    dpWriter.updateProfiles(demandSet.getProfileMap(), demandSetID);
+    
+    // The set changed if any of its profiles did, so give it a new modstamp.
+    SingleOracleConnector.executeUpdate(touchModstampSql, demandSetID);
+    ModstampCache.invalidate(ModstampCache.DEMAND_SETS, demandSetID);
   }
 
+  /**
+   * SQL that gives a demand set row a new modstamp, given its id.
+   **/
+  static final String touchModstampSql =
+      "UPDATE VIA.DEMAND_SETS SET MODSTAMP = " + WriterBase.NEXT_MODSTAMP_SQL + " WHERE ID = ?";
+
   /**
    * Update just the demandSet row into the database. Ignores dependent objects.
    * Throws DatabaseException
@@ -291,6 +303,8 @@ public class DemandSetWriter {
     if (result != 0 || params[1].intParam != 0) {
       throw new DatabaseException(null, "delete (DEL) failed -- check logs for details " + result + " " + params[1].intParam, null, null);
     }
+    
+    ModstampCache.invalidate(ModstampCache.DEMAND_SETS, demandSetID);
   }
 
   /**
@@ -312,5 +326,79 @@ public class DemandSetWriter {
     if (result != 0 || params[1].intParam != 0) {
       throw new DatabaseException(null, "delete (CLEAR) failed -- check logs for details " + result + " " + params[1].intParam, null, null);
     }
+    
+    ModstampCache.invalidate(ModstampCache.DEMAND_SETS, demandSetID);
+  }
+
+  /**
+   * Tables of a demand set and its profiles and demands, for copying them
+   * within the database.
+   **/
+  static final WriterBase.CloneTables cloneTables = new WriterBase.CloneTables(
+      "DEMAND_SETS", "NAME, DESCRIPTION, PROJECT_ID",
+      "DEMAND_PROFS", "DEMAND_SET_ID", "VIA.SEQ_DEMAND_PROFS_ID",
+        "ORG_LINK_ID, DEST_NETWORK_ID, START_TIME, SAMPLE_RATE, KNOB, STD_DEV_ADD, STD_DEV_MULT",
+      "DEMANDS", "DEMAND_PROF_ID",
+        "VEH_TYPE_ID, DEMAND_ORDER, FLOW");
+
+  /**
+   * Copy the demand set with the given ID and its profiles and demands, within
+   * the database. The copy gets a new id from the sequence. The profiles get
+   * new ids.
+   * 
+   * @param demandSetID  the ID of the demand set to copy
+   * @return ID of the copy
+   */
+  public long clone(long demandSetID) throws DatabaseException {
+    long newID;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      SingleOracleConnector.transactionBegin();
+      Monitor.debug("DemandSet clone transaction beginning on demandSet.id=" + demandSetID);
+      
+      newID = cloneWithDependents(demandSetID);
+
+      SingleOracleConnector.transactionCommit();
+      Monitor.debug("DemandSet clone transaction committing on demandSet.id=" + demandSetID);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        SingleOracleConnector.transactionRollback();
+        Monitor.debug("DemandSet clone transaction rollback on demandSet.id=" + demandSetID);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Clone demandSet.id=" + demandSetID + " to id=" + newID, timeCommit - timeBegin);
+    
+    return newID;
+  }
+
+  /**
+   * Copy the demand set with the given ID and its profiles and demands, within
+   * the database.
+   * 
+   * @see #clone() if you want a transaction and logging around the operation.
+   * 
+   * @param demandSetID  the ID of the demand set to copy
+   * @return ID of the copy
+   */
+  public long cloneWithDependents(long demandSetID) throws DatabaseException {
+    long newID = SingleOracleConnector.nextVal("VIA.SEQ_DEMAND_PROF_SETS_ID");
+    
+    cloneTables.copy(
+      new JdbcStatements(SingleOracleConnector.getConnection(), SqlDialect.ORACLE),
+      demandSetID, newID);
+    
+    return newID;
   }
 }
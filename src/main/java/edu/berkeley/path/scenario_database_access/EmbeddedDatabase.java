@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.sql.*;
+
+import core.*;
+
+/**
+ * An embedded H2 database with the VIA schema, for running the readers
+ * and writers of this package without Oracle, such as in tests and on a
+ * laptop. The schema is created by the script via-h2.sql, next to this
+ * class; geometry is stored as WKB, by EmbeddedGeometry.
+ * 
+ * Example:
+ * 
+ *   DBParams dbParams = EmbeddedDatabase.create("test");
+ *   NetworkWriter nwWriter = new NetworkWriter(dbParams);
+ * 
+ * Requires the H2 driver (com.h2database:h2) on the classpath.
+ * 
+ * @see H2Dialect
+ * @author vjoel
+ */
+public class EmbeddedDatabase {
+  /** classpath location of the schema script **/
+  public static final String SCHEMA_SCRIPT =
+    "classpath:/edu/berkeley/path/scenario_database_access/via-h2.sql";
+  
+  /**
+   * Params for an in-memory database with the given name, which lives
+   * until the JVM exits. Connections with the same name share the database.
+   */
+  public static DBParams params(String name) {
+    DBParams dbParams = new DBParams();
+    
+    dbParams.usingOracle = false;
+    dbParams.url = "jdbc:h2:mem:" + name + ";MODE=Oracle;DB_CLOSE_DELAY=-1";
+    dbParams.user = "sa";
+    dbParams.pass = "";
+    
+    return dbParams;
+  }
+  
+  /**
+   * Params for an in-memory database with the given name and the VIA
+   * schema. The schema is created if it does not exist.
+   */
+  public static DBParams create(String name) throws DatabaseException {
+    DBParams dbParams = params(name);
+    createSchema(dbParams);
+    return dbParams;
+  }
+  
+  /**
+   * Create any tables, sequences, and functions of the VIA schema that do
+   * not exist in the database at dbParams.url.
+   */
+  public static void createSchema(DBParams dbParams) throws DatabaseException {
+    Connection conn = null;
+    
+    try {
+      conn = DriverManager.getConnection(dbParams.url, dbParams.user, dbParams.pass);
+      Statement stmt = conn.createStatement();
+      stmt.execute("RUNSCRIPT FROM '" + SCHEMA_SCRIPT + "'");
+      stmt.close();
+    }
+    catch (SQLException sqlExp) {
+      throw new DatabaseException(sqlExp,
+        "Could not create schema in " + dbParams.url + ": " + sqlExp.getMessage(), null, null);
+    }
+    finally {
+      if (conn != null) {
+        try {
+          conn.close();
+        }
+        catch (SQLException sqlExp) {
+          // Do nothing.
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,425 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Stand-ins for the Oracle Spatial functions used by the readers and
+ * writers, for databases without SDO_GEOMETRY, such as the embedded H2
+ * database. Geometry is stored as WKB (well-known binary) in a binary
+ * column, and these static methods are registered as SQL functions under
+ * the Oracle names (SDO_GEOMETRY, SDO_UTIL.TO_WKTGEOMETRY, and so on) by
+ * the schema script of EmbeddedDatabase.
+ * 
+ * Only what the queries of this package need is supported: 2D points,
+ * line strings and polygons, in longitude and latitude.
+ * 
+ * @see EmbeddedDatabase
+ * @author vjoel
+ */
+public class EmbeddedGeometry {
+  private EmbeddedGeometry() {}
+  
+  private static final int WKB_POINT = 1;
+  private static final int WKB_LINESTRING = 2;
+  private static final int WKB_POLYGON = 3;
+  
+  private static final double METERS_PER_DEGREE = 111320.0;
+  
+  /**
+   * SDO_GEOMETRY(gtype, srid, point, elem_info, ordinates). The srid is
+   * ignored. A point geometry may be given by the point or by the first
+   * two ordinates. An optimized rectangle (elem_info 1, 1003, 3) is
+   * expanded from its two corners.
+   */
+  public static byte[] sdoGeometry(Integer gtype, Integer srid, byte[] point,
+      Integer[] elemInfo, Double[] ordinates) {
+    if (point != null) {
+      return point;
+    }
+    if (gtype == null || ordinates == null) {
+      return null;
+    }
+    
+    double[] coords = new double[ordinates.length];
+    for (int i = 0; i < coords.length; i++) {
+      coords[i] = ordinates[i];
+    }
+    
+    switch (gtype % 10) {
+      case 1:
+        return point(coords[0], coords[1]);
+        
+      case 2:
+        return lineString(coords);
+        
+      case 3:
+        boolean rectangle = elemInfo != null && elemInfo.length >= 3 &&
+          elemInfo[2] == 3;
+        if (rectangle) {
+          coords = new double[] {
+            coords[0], coords[1],
+            coords[2], coords[1],
+            coords[2], coords[3],
+            coords[0], coords[3],
+            coords[0], coords[1]
+          };
+        }
+        return polygon(coords);
+        
+      default:
+        throw new IllegalArgumentException("unsupported SDO_GTYPE: " + gtype);
+    }
+  }
+  
+  /**
+   * SDO_POINT_TYPE(x, y, z). The z ordinate is ignored. A point without x
+   * or y, as written for a node without coordinates, is null, so that
+   * its SDO_POINT.X and Y read back as null, as in Oracle.
+   */
+  public static byte[] sdoPointType(Double x, Double y, Double z) {
+    if (x == null || y == null) {
+      return null;
+    }
+    return point(x, y);
+  }
+  
+  /**
+   * SDO_ELEM_INFO_ARRAY(...). The varargs are primitive, since H2 only
+   * converts arguments to the elements of a primitive varargs array.
+   */
+  public static Integer[] sdoElemInfoArray(int... values) {
+    Integer[] array = new Integer[values.length];
+    for (int i = 0; i < values.length; i++) {
+      array[i] = values[i];
+    }
+    return array;
+  }
+  
+  /**
+   * SDO_ORDINATE_ARRAY(...), with primitive varargs, as above.
+   */
+  public static Double[] sdoOrdinateArray(double... values) {
+    Double[] array = new Double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      array[i] = values[i];
+    }
+    return array;
+  }
+  
+  /**
+   * GEOM.SDO_POINT.X, rewritten as SDO_POINT_X(GEOM) by the dialect.
+   */
+  public static Double sdoPointX(byte[] wkb) {
+    double[] coords = coordinates(wkb);
+    return coords == null || coords.length == 0 ? null : coords[0];
+  }
+  
+  /**
+   * GEOM.SDO_POINT.Y, rewritten as SDO_POINT_Y(GEOM) by the dialect.
+   */
+  public static Double sdoPointY(byte[] wkb) {
+    double[] coords = coordinates(wkb);
+    return coords == null || coords.length == 0 ? null : coords[1];
+  }
+  
+  /**
+   * SDO_UTIL.FROM_WKTGEOMETRY(wkt), for POINT, LINESTRING,
+   * MULTILINESTRING (whose parts are concatenated) and POLYGON.
+   */
+  public static byte[] fromWkt(String wkt) {
+    if (wkt == null) {
+      return null;
+    }
+    
+    String type = wkt.trim().toUpperCase();
+    double[] coords = LinkGeometry.parseLineString(wkt);
+    
+    if (type.startsWith("POINT")) {
+      return point(coords[0], coords[1]);
+    }
+    else if (type.startsWith("LINESTRING") || type.startsWith("MULTILINESTRING")) {
+      return lineString(coords);
+    }
+    else if (type.startsWith("POLYGON")) {
+      return polygon(coords);
+    }
+    
+    throw new IllegalArgumentException("unsupported WKT: " + wkt);
+  }
+  
+  /**
+   * SDO_UTIL.FROM_WKTGEOMETRY(wkt, srid). The srid is ignored.
+   */
+  public static byte[] fromWkt(String wkt, Integer srid) {
+    return fromWkt(wkt);
+  }
+  
+  /**
+   * SDO_UTIL.FROM_WKBGEOMETRY(wkb, srid), for line strings, in either byte
+   * order, as written by LinkWriter. The srid is ignored.
+   */
+  public static byte[] fromWkb(byte[] wkb, Integer srid) {
+    if (wkb == null) {
+      return null;
+    }
+    return lineString(LinkGeometry.parseWkb(wkb));
+  }
+  
+  /**
+   * SDO_UTIL.TO_WKTGEOMETRY(geom)
+   */
+  public static String toWkt(byte[] wkb) {
+    if (wkb == null) {
+      return null;
+    }
+    
+    int type = buffer(wkb).getInt(1);
+    double[] coords = coordinates(wkb);
+    
+    StringBuilder wkt = new StringBuilder();
+    switch (type) {
+      case WKB_POINT:
+        return wkt.append("POINT (").append(coords[0]).append(' ').append(coords[1]).append(")").toString();
+      case WKB_LINESTRING:
+        wkt.append("LINESTRING (");
+        break;
+      default:
+        wkt.append("POLYGON ((");
+    }
+    
+    for (int i = 0; i + 1 < coords.length; i += 2) {
+      if (i > 0) {
+        wkt.append(", ");
+      }
+      wkt.append(coords[i]).append(' ').append(coords[i + 1]);
+    }
+    
+    return wkt.append(type == WKB_LINESTRING ? ")" : "))").toString();
+  }
+  
+  /**
+   * SDO_UTIL.TO_WKBGEOMETRY(geom): the stored WKB itself.
+   */
+  public static byte[] toWkb(byte[] wkb) {
+    return wkb;
+  }
+  
+  /**
+   * SDO_UTIL.SIMPLIFY(geom, threshold, tolerance): Douglas-Peucker
+   * simplification of a line string, with the threshold in meters. Other
+   * geometries are returned unchanged.
+   */
+  public static byte[] simplify(byte[] wkb, Double threshold, Double tolerance) {
+    if (wkb == null || threshold == null || buffer(wkb).getInt(1) != WKB_LINESTRING) {
+      return wkb;
+    }
+    
+    double[] coords = coordinates(wkb);
+    int n = coords.length / 2;
+    if (n <= 2) {
+      return wkb;
+    }
+    
+    boolean[] keep = new boolean[n];
+    keep[0] = true;
+    keep[n - 1] = true;
+    simplify(coords, keep, 0, n - 1, threshold);
+    
+    double[] kept = new double[coords.length];
+    int k = 0;
+    for (int i = 0; i < n; i++) {
+      if (keep[i]) {
+        kept[k++] = coords[2 * i];
+        kept[k++] = coords[2 * i + 1];
+      }
+    }
+    
+    return lineString(java.util.Arrays.copyOf(kept, k));
+  }
+  
+  private static void simplify(double[] coords, boolean[] keep, int first, int last, double threshold) {
+    double cosLat = Math.cos(Math.toRadians(coords[2 * first + 1]));
+    double ax = coords[2 * first] * cosLat;
+    double ay = coords[2 * first + 1];
+    double bx = coords[2 * last] * cosLat - ax;
+    double by = coords[2 * last + 1] - ay;
+    double len2 = bx * bx + by * by;
+    
+    int farthest = -1;
+    double maxMeters = threshold;
+    
+    for (int i = first + 1; i < last; i++) {
+      double px = coords[2 * i] * cosLat - ax;
+      double py = coords[2 * i + 1] - ay;
+      double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, (px * bx + py * by) / len2));
+      double meters = Math.hypot(px - t * bx, py - t * by) * METERS_PER_DEGREE;
+      
+      if (meters > maxMeters) {
+        maxMeters = meters;
+        farthest = i;
+      }
+    }
+    
+    if (farthest >= 0) {
+      keep[farthest] = true;
+      simplify(coords, keep, first, farthest, threshold);
+      simplify(coords, keep, farthest, last, threshold);
+    }
+  }
+  
+  /**
+   * SDO_ANYINTERACT(a, b): 'TRUE' if the bounding boxes of the geometries
+   * intersect. This is exact for points in a rectangle, as used by the
+   * bounding box filters of the readers, and conservative otherwise.
+   */
+  public static String sdoAnyInteract(byte[] a, byte[] b) {
+    if (a == null || b == null) {
+      return "FALSE";
+    }
+    
+    double[] ea = envelope(coordinates(a));
+    double[] eb = envelope(coordinates(b));
+    
+    boolean interacts =
+      ea[0] <= eb[2] && eb[0] <= ea[2] &&
+      ea[1] <= eb[3] && eb[1] <= ea[3];
+    
+    return interacts ? "TRUE" : "FALSE";
+  }
+  
+  private static double[] envelope(double[] coords) {
+    double[] env = {
+      Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+    
+    for (int i = 0; i + 1 < coords.length; i += 2) {
+      env[0] = Math.min(env[0], coords[i]);
+      env[1] = Math.min(env[1], coords[i + 1]);
+      env[2] = Math.max(env[2], coords[i]);
+      env[3] = Math.max(env[3], coords[i + 1]);
+    }
+    
+    return env;
+  }
+  
+  /**
+   * Encode a point as little-endian WKB.
+   */
+  public static byte[] point(double x, double y) {
+    ByteBuffer buf = header(WKB_POINT, 16);
+    buf.putDouble(x);
+    buf.putDouble(y);
+    return buf.array();
+  }
+  
+  /**
+   * Encode a line string, given a packed coordinate array, as WKB.
+   */
+  public static byte[] lineString(double[] coords) {
+    ByteBuffer buf = header(WKB_LINESTRING, 4 + 8 * coords.length);
+    buf.putInt(coords.length / 2);
+    for (double c : coords) {
+      buf.putDouble(c);
+    }
+    return buf.array();
+  }
+  
+  /**
+   * Encode a polygon with one ring, given a packed coordinate array, as WKB.
+   */
+  public static byte[] polygon(double[] coords) {
+    ByteBuffer buf = header(WKB_POLYGON, 8 + 8 * coords.length);
+    buf.putInt(1);
+    buf.putInt(coords.length / 2);
+    for (double c : coords) {
+      buf.putDouble(c);
+    }
+    return buf.array();
+  }
+  
+  /**
+   * Decode the vertices of a WKB point, line string or polygon (all rings)
+   * into a packed coordinate array.
+   */
+  public static double[] coordinates(byte[] wkb) {
+    if (wkb == null) {
+      return null;
+    }
+    
+    ByteBuffer buf = buffer(wkb);
+    buf.position(1);
+    int type = buf.getInt();
+    
+    switch (type) {
+      case WKB_POINT:
+        return new double[] {buf.getDouble(), buf.getDouble()};
+        
+      case WKB_LINESTRING:
+        return readCoordinates(buf, buf.getInt());
+        
+      case WKB_POLYGON:
+        int rings = buf.getInt();
+        double[] coords = new double[0];
+        for (int r = 0; r < rings; r++) {
+          double[] ring = readCoordinates(buf, buf.getInt());
+          double[] all = java.util.Arrays.copyOf(coords, coords.length + ring.length);
+          System.arraycopy(ring, 0, all, coords.length, ring.length);
+          coords = all;
+        }
+        return coords;
+        
+      default:
+        throw new IllegalArgumentException("unsupported WKB type: " + type);
+    }
+  }
+  
+  private static double[] readCoordinates(ByteBuffer buf, int nPoints) {
+    double[] coords = new double[2 * nPoints];
+    for (int i = 0; i < coords.length; i++) {
+      coords[i] = buf.getDouble();
+    }
+    return coords;
+  }
+  
+  private static ByteBuffer header(int type, int bodyLength) {
+    ByteBuffer buf = ByteBuffer.allocate(5 + bodyLength).order(ByteOrder.LITTLE_ENDIAN);
+    buf.put((byte)1);
+    buf.putInt(type);
+    return buf;
+  }
+  
+  private static ByteBuffer buffer(byte[] wkb) {
+    return ByteBuffer.wrap(wkb).order(wkb[0] == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+  }
+}
@@ -54,6 +54,13 @@ public class FDProfileReader extends ReaderBase {
     super(dbParams);
   }
   
+  public FDProfileReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public FDProfileReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -54,6 +54,13 @@ public class FDProfileWriter extends WriterBase {
     super(dbParams);
   }
   
+  public FDProfileWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
   public FDProfileWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
@@ -50,6 +50,13 @@ public class FDSetReader extends ReaderBase {
     super(dbParams);
   }
   
+  public FDSetReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public FDSetReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -71,14 +78,14 @@ public class FDSetReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug(
         "FDSet reader transaction beginning on fdSet.id=" +
         fdSetID);
 
       fdSet = readWithDependents(fdSetID);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug(
         "FDSet reader transaction committing on fdSet.id=" +
         fdSetID);
@@ -89,7 +96,7 @@ public class FDSetReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug(
           "FDSet reader transaction rollback on fdSet.id=" +
           fdSetID);
@@ -199,7 +206,7 @@ public class FDSetReader extends ReaderBase {
     while (dbr.psRSNext(query)) {
       if (fdSet != null) {
         throw new DatabaseException(null,
-          "FDSet not unique: " + query, dbr, query);
+          "FDSet not unique: " + query, dbr.getDatabase(), query);
       }
       
       //String columns = org.apache.commons.lang.StringUtils.join(dbr.psRSColumnNames(query), ", ");
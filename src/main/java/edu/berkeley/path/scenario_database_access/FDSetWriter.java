@@ -51,6 +51,13 @@ public class FDSetWriter extends WriterBase {
     super(dbParams);
   }
   
+  public FDSetWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
   public FDSetWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
@@ -206,6 +213,70 @@ public class FDSetWriter extends WriterBase {
     deleteDependents(fdSetID);
     updateRow(fdSet);
     insertDependents(fdSet);
+    touchModstamp("FUND_DIAG_SETS", fdSetID);
+  }
+
+  /**
+   * Update the given fd set in the database, as update() does, but only if
+   * it has not been modified since it was read, as shown by its modstamp.
+   * Editors can then work concurrently without holding a transaction open
+   * while they edit. On success, the fd set gets its new modstamp.
+   * 
+   * @param fdSet  the fd set, with the modstamp it was read with
+   * @throws ConcurrencyException if it was modified or deleted by another writer
+   */
+  public void updateIfUnmodified(FDSet fdSet) throws DatabaseException, ConcurrencyException {
+    long modstamp;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("FDSet conditional update transaction beginning on fdSet.id=" + fdSet.getId());
+      
+      modstamp = updateWithDependentsIfUnmodified(fdSet);
+
+      dbw.transactionCommit();
+      Monitor.debug("FDSet conditional update transaction committing on fdSet.id=" + fdSet.getId());
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("FDSet conditional update transaction rollback on fdSet.id=" + fdSet.getId());
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    fdSet.setModstamp(modstamp);
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Conditional update fdSet.id=" + fdSet.getId(), timeCommit - timeBegin);
+  }
+
+  /**
+   * Update the given fd set in the database, as updateWithDependents()
+   * does, after checking that its row still has the modstamp it was read
+   * with. The row is locked until the transaction ends. The new modstamp
+   * is read back after all the writes.
+   * 
+   * @see #updateIfUnmodified() if you want a transaction and logging around the operation.
+   * 
+   * @param fdSet  the fd set, with the modstamp it was read with
+   * @return the new modstamp, in microseconds
+   * @throws ConcurrencyException if it was modified or deleted by another writer
+   */
+  public long updateWithDependentsIfUnmodified(FDSet fdSet) throws DatabaseException, ConcurrencyException {
+    claimModstamp("FUND_DIAG_SETS", fdSet.getLongId(), fdSet.getModstamp());
+    
+    updateWithDependents(fdSet);
+    
+    return readModstamp("FUND_DIAG_SETS", fdSet.getLongId());
   }
 
   /**
@@ -238,8 +309,10 @@ public class FDSetWriter extends WriterBase {
       long rows = dbw.psUpdate(query);
       
       if (rows != 1) {
-        throw new DatabaseException(null, "FDSet not unique: there exist " + rows + " with id=" + fdSet.getId(), dbw, query);
+        throw new DatabaseException(null, "FDSet not unique: there exist " + rows + " with id=" + fdSet.getId(), dbw.getDatabase(), query);
       }
+      
+      ModstampCache.invalidate(ModstampCache.FD_SETS, fdSet.getLongId());
     }
     finally {
       if (query != null) {
@@ -302,8 +375,10 @@ public class FDSetWriter extends WriterBase {
       long rows = dbw.psUpdate(query);
       
       if (rows != 1) {
-        throw new DatabaseException(null, "FDSet not unique: there exist " + rows + " with id=" + fdSetID, dbw, query);
+        throw new DatabaseException(null, "FDSet not unique: there exist " + rows + " with id=" + fdSetID, dbw.getDatabase(), query);
       }
+      
+      ModstampCache.invalidate(ModstampCache.FD_SETS, fdSetID);
     }
     finally {
       if (query != null) {
@@ -322,4 +397,75 @@ public class FDSetWriter extends WriterBase {
     
     fdpWriter.deleteAllProfiles(fdSetID);
   }
+  
+  /**
+   * Tables of an fd set and its profiles and fundamental diagrams, for
+   * copying them within the database.
+   **/
+  static final WriterBase.CloneTables cloneTables = new WriterBase.CloneTables(
+      "FUND_DIAG_SETS", "NAME, DESCRIPTION, FUND_DIAG_TYPE, PROJECT_ID",
+      "FUND_DIAG_PROFS", "FUND_DIAG_SET", "VIA.SEQ_FUND_DIAG_PROFILES_ID",
+        "LINK_ID, START_TIME, SAMPLE_RATE",
+      "FUND_DIAGRAMS", "FUND_DIAG_PROF_ID",
+        "DIAG_ORDER, FREE_FLOW_SPEED, CRITICAL_SPEED, CONG_WAVE_SPEED, CAPACITY, JAM_DENSITY, " +
+        "CAPACITY_DROP, FREE_FLOW_SPEED_STD, CONG_WAVE_SPEED_STD, CAPACITY_STD");
+  
+  /**
+   * Copy the fd set with the given ID and its profiles and fundamental
+   * diagrams, within the database. The copy gets a new id from the sequence.
+   * The profiles get new ids.
+   * 
+   * @param fdSetID  the ID of the fd set to copy
+   * @return ID of the copy
+   */
+  public long clone(long fdSetID) throws DatabaseException {
+    long newID;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("FDSet clone transaction beginning on fdSet.id=" + fdSetID);
+      
+      newID = cloneWithDependents(fdSetID);
+
+      dbw.transactionCommit();
+      Monitor.debug("FDSet clone transaction committing on fdSet.id=" + fdSetID);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("FDSet clone transaction rollback on fdSet.id=" + fdSetID);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Clone fdSet.id=" + fdSetID + " to id=" + newID, timeCommit - timeBegin);
+    
+    return newID;
+  }
+
+  /**
+   * Copy the fd set with the given ID and its profiles and fundamental
+   * diagrams, within the database.
+   * 
+   * @see #clone() if you want a transaction and logging around the operation.
+   * 
+   * @param fdSetID  the ID of the fd set to copy
+   * @return ID of the copy
+   */
+  public long cloneWithDependents(long fdSetID) throws DatabaseException {
+    long newID = new FDSetReader(dbParams, dbw).getNextID();
+    
+    cloneTables.copy(dbw, fdSetID, newID);
+    
+    return newID;
+  }
 }
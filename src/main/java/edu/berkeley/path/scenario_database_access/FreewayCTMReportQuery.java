@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.List;
+
+/**
+ * Selects which parts of the stored FreewayCTMReports to read, so that
+ * FreewayCTMReportReader can query only the needed rows and columns.
+ * 
+ * The default instance selects everything, which is equivalent to
+ * FreewayCTMReportReader.read() without a query spec. Fields can be
+ * set directly, as with DBParams.
+ * 
+ * @see FreewayCTMReportReader
+ * @author vjoel
+ */
+public class FreewayCTMReportQuery {
+  /**
+   * ids of the links to read, or null to read all links of the network
+   **/
+  public List<Long> linkIds = null;
+  
+  /**
+   * whether to read the mean state (QTY_TYPE_ID = 2)
+   **/
+  public boolean mean = true;
+  
+  /**
+   * whether to read the std dev state (QTY_TYPE_ID = 4)
+   **/
+  public boolean stdDev = true;
+  
+  /**
+   * whether to read IN_FLOW and OUT_FLOW
+   **/
+  public boolean flow = true;
+  
+  /**
+   * whether to read DENSITY
+   **/
+  public boolean density = true;
+  
+  /**
+   * whether to read SPEED
+   **/
+  public boolean speed = true;
+  
+  /**
+   * whether to read QUEUE_LENGTH
+   **/
+  public boolean queueLength = true;
+  
+  /**
+   * whether to read the fundamental diagram columns
+   **/
+  public boolean fd = true;
+  
+  /**
+   * read only every stride-th time step in the interval, starting with the first
+   **/
+  public int stride = 1;
+  
+  public FreewayCTMReportQuery() {
+  }
+  
+  /**
+   * Read only the given links, with all quantities and fields.
+   **/
+  public FreewayCTMReportQuery(List<Long> linkIds) {
+    this.linkIds = linkIds;
+  }
+  
+  public String toString() {
+    return "{links=" + (linkIds == null ? "all" : linkIds.size()) +
+      ", mean=" + mean +
+      ", std_dev=" + stdDev +
+      ", flow=" + flow +
+      ", density=" + density +
+      ", speed=" + speed +
+      ", queue_length=" + queueLength +
+      ", fd=" + fd +
+      ", stride=" + stride + "}";
+  }
+}
@@ -46,12 +46,25 @@ import core.*;
  * @author vjoel
  */
 public class FreewayCTMReportReader extends ReaderBase {
+  /**
+   * Spec reading everything, for the methods that take none. It is never
+   * handed out, so it is never modified.
+   **/
+  private static final FreewayCTMReportQuery ALL = new FreewayCTMReportQuery();
+  
   public FreewayCTMReportReader(
           DBParams dbParams
           ) throws DatabaseException {
     super(dbParams);
   }
   
+  public FreewayCTMReportReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public FreewayCTMReportReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -81,6 +94,29 @@ public class FreewayCTMReportReader extends ReaderBase {
       Interval interval,
       boolean debug
       ) throws DatabaseException {
+    return read(networkId, runId, interval, debug, ALL);
+  }
+
+  /**
+   * Read the parts of the specified FreewayCTMReports selected by the
+   * query spec from the database. Only the selected links, quantity types,
+   * fields and time steps are transferred. States and maps for quantities
+   * and fields that are not selected are left null.
+   * 
+   * @param networkId   ID of the network the data refers to
+   * @param runId       ID of the run used to generate the data
+   * @param interval    time interval of the data to be read
+   * @param debug       whether to use the DEBUG table
+   * @param spec        which links, quantities, fields and steps to read
+   * @return list of FreewayCTMReport
+   */
+  public List<FreewayCTMReport> read(
+      Long networkId,
+      Long runId,
+      Interval interval,
+      boolean debug,
+      FreewayCTMReportQuery spec
+      ) throws DatabaseException {
     
     List<FreewayCTMReport> reports;
     
@@ -88,17 +124,18 @@ public class FreewayCTMReportReader extends ReaderBase {
       "network_id=" + networkId +
       ", run_id=" + runId +
       ", interval=" + interval +
-      ", debug=" + debug + "}";
+      ", debug=" + debug +
+      ", spec=" + spec + "}";
 
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug("Read transaction beginning on " + rptStr);
       
-      reports = readRows(networkId, runId, interval, debug);
+      reports = readRows(networkId, runId, interval, debug, spec);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug("Read transaction committing on " + rptStr);
     }
     catch (DatabaseException dbExc) {
@@ -107,7 +144,7 @@ public class FreewayCTMReportReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug("Read transaction rollback on " + rptStr);
       }
       catch(Exception Exc) {
@@ -140,13 +177,37 @@ public class FreewayCTMReportReader extends ReaderBase {
       Interval interval,
       boolean debug
       ) throws DatabaseException {
+    return readRows(networkId, runId, interval, debug, ALL);
+  }
+
+  /**
+   * Read the parts of the specified FreewayCTMReports selected by the
+   * query spec from the database.
+   * 
+   * This is intended to be called from @see read(), so it does
+   * not set up a transaction of its own.
+   * 
+   * @param networkId   ID of the network the data refers to
+   * @param runId       ID of the run used to generate the data
+   * @param interval    time interval of the data to be read
+   * @param debug       whether to use the DEBUG table
+   * @param spec        which links, quantities, fields and steps to read
+   * @return list of FreewayCTMReport
+   */
+  public List<FreewayCTMReport> readRows(
+      Long networkId,
+      Long runId,
+      Interval interval,
+      boolean debug,
+      FreewayCTMReportQuery spec
+      ) throws DatabaseException {
     
     String query = null;
     List<FreewayCTMReport> reports = null;
     
     try {
-      query = runReportQuery(networkId, runId, interval, debug);
-      reports = reportsFromQueryRS(query);
+      query = runReportQuery(networkId, runId, interval, debug, spec);
+      reports = reportsFromQueryRS(query, spec);
     }
     finally {
       if (query != null) {
@@ -157,6 +218,180 @@ public class FreewayCTMReportReader extends ReaderBase {
     return reports;
   }
 
+  /**
+   * Receives the reports of several runs, one time stamp at a time, from
+   * readMultiRun().
+   **/
+  public interface MultiRunVisitor {
+    /**
+     * Called once per time stamp, in time order.
+     * 
+     * @param reportsByRun  map from run id to that run's report at this
+     *                      time stamp, in the order of the requested run ids;
+     *                      runs with no data at this time stamp are absent
+     */
+    void visit(Map<Long,FreewayCTMReport> reportsByRun) throws DatabaseException;
+  }
+
+  /**
+   * Read the FreewayCTMReports of several runs, aligned by time stamp,
+   * passing them to the visitor as they are read. One ordered query is
+   * issued for all runs, and only the reports of one time stamp are held in
+   * memory at a time, so comparing runs costs one pass over the table.
+   * 
+   * @param networkId   ID of the network the data refers to
+   * @param runIds      IDs of the runs to compare
+   * @param interval    time interval of the data to be read
+   * @param debug       whether to use the DEBUG table
+   * @param spec        which links, quantities, fields and steps to read
+   * @param visitor     receives the aligned reports for each time stamp
+   * @return number of time stamps visited
+   */
+  public long readMultiRun(
+      Long networkId,
+      List<Long> runIds,
+      Interval interval,
+      boolean debug,
+      FreewayCTMReportQuery spec,
+      MultiRunVisitor visitor
+      ) throws DatabaseException {
+    
+    long steps;
+    
+    String rptStr = "multi-run report.{" +
+      "network_id=" + networkId +
+      ", run_ids=" + runIds +
+      ", interval=" + interval +
+      ", debug=" + debug +
+      ", spec=" + spec + "}";
+
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug("Read transaction beginning on " + rptStr);
+      
+      steps = readMultiRunRows(networkId, runIds, interval, debug, spec, visitor);
+
+      snapshotCommit();
+      Monitor.debug("Read transaction committing on " + rptStr);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug("Read transaction rollback on " + rptStr);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Read " + rptStr, timeCommit - timeBegin);
+    Monitor.count("Read " + rptStr, steps);
+    
+    return steps;
+  }
+
+  /**
+   * Read the FreewayCTMReports of several runs, aligned by time stamp,
+   * passing them to the visitor as they are read.
+   * 
+   * This is intended to be called from @see readMultiRun(), so it does
+   * not set up a transaction of its own.
+   * 
+   * @param networkId   ID of the network the data refers to
+   * @param runIds      IDs of the runs to compare
+   * @param interval    time interval of the data to be read
+   * @param debug       whether to use the DEBUG table
+   * @param spec        which links, quantities, fields and steps to read
+   * @param visitor     receives the aligned reports for each time stamp
+   * @return number of time stamps visited
+   */
+  public long readMultiRunRows(
+      Long networkId,
+      List<Long> runIds,
+      Interval interval,
+      boolean debug,
+      FreewayCTMReportQuery spec,
+      MultiRunVisitor visitor
+      ) throws DatabaseException {
+    
+    if (runIds.isEmpty()) {
+      return 0;
+    }
+    
+    String query = null;
+    long steps = 0;
+    
+    try {
+      query = runMultiRunReportQuery(networkId, runIds, interval, debug, spec);
+      
+      Map<Long,FreewayCTMReport> aligned = null;
+      FreewayCTMReport report = null;
+      Long reportRunId = null;
+      
+      while (dbr.psRSNext(query)) {
+        edu.berkeley.path.model_elements.DateTime ts =
+          new edu.berkeley.path.model_elements.DateTime(dbr.psRSGetTimestampMilliseconds(query, "TS"));
+        Long runId = dbr.psRSGetBigInt(query, "APP_RUN_ID");
+        
+        if (report == null ||
+            !ts.getMilliseconds().equals(report.getTime().getMilliseconds())) {
+          if (aligned != null) {
+            visitor.visit(inRunOrder(aligned, runIds));
+            steps++;
+          }
+          aligned = new HashMap<Long,FreewayCTMReport>();
+          report = null;
+        }
+        
+        if (report == null || !runId.equals(reportRunId)) {
+          report = newReport(ts, query, spec);
+          reportRunId = runId;
+          aligned.put(runId, report);
+        }
+        
+        readReportRow(report, query, spec);
+      }
+      
+      if (aligned != null) {
+        visitor.visit(inRunOrder(aligned, runIds));
+        steps++;
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    return steps;
+  }
+
+  /**
+   * Reorder the reports of one time stamp by the caller's list of run ids,
+   * rather than the numeric order they were read in.
+   */
+  private static Map<Long,FreewayCTMReport> inRunOrder(
+      Map<Long,FreewayCTMReport> reportsByRun,
+      List<Long> runIds) {
+    Map<Long,FreewayCTMReport> ordered = new LinkedHashMap<Long,FreewayCTMReport>();
+    
+    for (Long runId : runIds) {
+      FreewayCTMReport report = reportsByRun.get(runId);
+      if (report != null) {
+        ordered.put(runId, report);
+      }
+    }
+    
+    return ordered;
+  }
+
   /**
    * Execute a query for the specified reports.
    * 
@@ -172,7 +407,59 @@ public class FreewayCTMReportReader extends ReaderBase {
       Interval interval,
       boolean debug
       ) throws DatabaseException {
+    return runReportQuery(networkId, runId, interval, debug, ALL);
+  }
+
+  /**
+   * Execute a query for the parts of the specified reports selected by the
+   * query spec. Only the columns needed for the selected fields are
+   * projected, and the link, quantity type and stride filters are applied
+   * by the database.
+   * 
+   * @param networkId   ID of the network the data refers to
+   * @param runId       ID of the run used to generate the data
+   * @param interval    time interval of the data to be read
+   * @param debug       whether to use the DEBUG table
+   * @param spec        which links, quantities, fields and steps to read
+   * @return String     query string, may be passed to psRSNext or reportsFromQueryRS
+   */
+  protected String runReportQuery(
+      Long networkId,
+      Long runId,
+      Interval interval,
+      boolean debug,
+      FreewayCTMReportQuery spec
+      ) throws DatabaseException {
 
+    return runMultiRunReportQuery(networkId, Collections.singletonList(runId),
+      interval, debug, spec);
+  }
+
+  /**
+   * Execute a query for the parts of the specified reports of several runs
+   * selected by the query spec. Rows are ordered by time stamp and then by
+   * run, so that the reports of all runs for one time stamp are adjacent.
+   * 
+   * @param networkId   ID of the network the data refers to
+   * @param runIds      IDs of the runs used to generate the data
+   * @param interval    time interval of the data to be read
+   * @param debug       whether to use the DEBUG table
+   * @param spec        which links, quantities, fields and steps to read
+   * @return String     query string, may be passed to psRSNext or reportsFromQueryRS
+   */
+  protected String runMultiRunReportQuery(
+      Long networkId,
+      List<Long> runIds,
+      Interval interval,
+      boolean debug,
+      FreewayCTMReportQuery spec
+      ) throws DatabaseException {
+
+    if (spec.stride < 1) {
+      throw new IllegalArgumentException(
+        "stride must be positive, not " + spec.stride);
+    }
+    
     String query;
     String tableName;
     
@@ -185,23 +472,96 @@ public class FreewayCTMReportReader extends ReaderBase {
       query = "read_report";
     }
     
-    dbr.psCreate(query,
-      "SELECT * FROM " +
+    String columns =
+      "NETWORK_ID, " +
+      "APP_RUN_ID, " +
+      "TS, " +
+      "LINK_ID, " +
+      "QTY_TYPE_ID" +
+      (spec.flow ? ", IN_FLOW, OUT_FLOW" : "") +
+      (spec.density ? ", DENSITY" : "") +
+      (spec.speed ? ", SPEED" : "") +
+      (spec.queueLength ? ", QUEUE_LENGTH" : "") +
+      (spec.fd ?
+        ", FREE_FLOW_SPEED" +
+        ", CRITICAL_SPEED" +
+        ", CONGESTION_WAVE_SPEED" +
+        ", CAPACITY" +
+        ", JAM_DENSITY" +
+        ", CAPACITY_DROP" : "");
+    
+    String qtyFilter = "";
+    if (spec.mean && !spec.stdDev) {
+      qtyFilter = "QTY_TYPE_ID = 2 AND "; // mean -- get this from table or enum
+    }
+    else if (spec.stdDev && !spec.mean) {
+      qtyFilter = "QTY_TYPE_ID = 4 AND "; // std dev -- get this from table or enum
+    }
+    else if (!spec.mean && !spec.stdDev) {
+      qtyFilter = "1 = 0 AND ";
+    }
+    
+    String linkFilter = "";
+    if (spec.linkIds != null) {
+      if (spec.linkIds.isEmpty()) {
+        linkFilter = "1 = 0 AND ";
+      }
+      else {
+        linkFilter = inListSql("LINK_ID", spec.linkIds.size()) + " AND ";
+      }
+    }
+    
+    String select =
+      "FROM " +
         "VIA." + tableName + " " +
       "WHERE " +
         "NETWORK_ID = ? AND " +
-        "APP_RUN_ID = ? AND " +
-        "TS BETWEEN ? AND ? " +
-      "ORDER BY TS"
-      // should this be limited to AGG_TYPE = RAW ?
-    );
+        inListSql("APP_RUN_ID", runIds.size()) + " AND " +
+        qtyFilter +
+        linkFilter +
+        // ctm_id > 0 rows belong to ensemble reports, @see readEnsemble
+        (debug ? "CTM_ID = 0 AND " : "") +
+        "TS BETWEEN ? AND ?";
+    
+    if (spec.stride == 1) {
+      dbr.psCreate(query,
+        "SELECT " + columns + " " + select + " " +
+        "ORDER BY TS, APP_RUN_ID"
+        // should this be limited to AGG_TYPE = RAW ?
+      );
+    }
+    else {
+      // number the distinct time steps in the interval, and keep every
+      // stride-th one
+      dbr.psCreate(query,
+        "SELECT " + columns + " " +
+        "FROM (" +
+          "SELECT " + columns + ", " +
+            "DENSE_RANK() OVER (ORDER BY TS) AS STEP " +
+          select +
+        ") " +
+        "WHERE MOD(STEP - 1, " + spec.stride + ") = 0 " +
+        "ORDER BY TS, APP_RUN_ID"
+      );
+    }
     
     dbr.psClearParams(query);
 
-    dbr.psSetBigInt(query, 1, networkId);
-    dbr.psSetBigInt(query, 2, runId);
-    dbr.psSetTimestampMilliseconds(query, 3, interval.getStartMillis());
-    dbr.psSetTimestampMilliseconds(query, 4, interval.getEndMillis());
+    int i = 1;
+    dbr.psSetBigInt(query, i++, networkId);
+    
+    for (Long runId : runIds) {
+      dbr.psSetBigInt(query, i++, runId);
+    }
+    
+    if (spec.linkIds != null) {
+      for (Long linkId : spec.linkIds) {
+        dbr.psSetBigInt(query, i++, linkId);
+      }
+    }
+    
+    dbr.psSetTimestampMilliseconds(query, i++, interval.getStartMillis());
+    dbr.psSetTimestampMilliseconds(query, i++, interval.getEndMillis());
 
     dbr.psQuery(query);
 
@@ -212,35 +572,37 @@ public class FreewayCTMReportReader extends ReaderBase {
    * Populate a list of FreewayCTMReports from the result set
    * of a report query, one entry for all rows with the same time stamp.
    * 
+   * @param query string generated by runReportQuery
+   * @return list of FreewayCTMReport.
+   */
+  protected List<FreewayCTMReport> reportsFromQueryRS(String query) throws DatabaseException {
+    return reportsFromQueryRS(query, ALL);
+  }
+
+  /**
+   * Populate a list of FreewayCTMReports from the result set
+   * of a report query, one entry for all rows with the same time stamp.
+   * Only the columns selected by the spec are read.
+   * 
    * This method assumes that report rows are grouped by timestamp. If,
    * further, they are _sorted_ by timestamp, then the returned list will
    * also be sorted in the same way.
    * 
    * @param query string generated by runReportQuery
+   * @param spec  the query spec passed to runReportQuery
    * @return list of FreewayCTMReport.
    */
-  protected List<FreewayCTMReport> reportsFromQueryRS(String query) throws DatabaseException {
+  protected List<FreewayCTMReport> reportsFromQueryRS(
+      String query,
+      FreewayCTMReportQuery spec
+      ) throws DatabaseException {
     List<FreewayCTMReport> reports = new ArrayList<FreewayCTMReport>();
     
     FreewayCTMReport report = null;
     
-    boolean debug = false;
-    boolean firstPass = true;
-
     while (dbr.psRSNext(query)) {
-      if (firstPass) {
-        firstPass = false;
-
-        //String columns = org.apache.commons.lang.StringUtils.join(dbr.psRSColumnNames(query), ", ");
-        //System.out.println("columns: [" + columns + "]");
-        
-        for (String colName : dbr.psRSColumnNames(query)) {
-          if (colName.equalsIgnoreCase("CTM_ID")) {
-            debug = true; // or we could grep the query string for "_DEBUG"...
-            break;
-          }
-        }
-      }
+      //String columns = org.apache.commons.lang.StringUtils.join(dbr.psRSColumnNames(query), ", ");
+      //System.out.println("columns: [" + columns + "]");
       
       edu.berkeley.path.model_elements.DateTime ts =
         new edu.berkeley.path.model_elements.DateTime(dbr.psRSGetTimestampMilliseconds(query, "TS"));
@@ -248,34 +610,62 @@ public class FreewayCTMReportReader extends ReaderBase {
       if (report == null ||
           !ts.getMilliseconds().equals(report.getTime().getMilliseconds())) {
         
-        report = new FreewayCTMReport();
+        report = newReport(ts, query, spec);
         reports.add(report);
-        
-        report.setTime(ts);
-
-        Long networkId = dbr.psRSGetBigInt(query, "NETWORK_ID");
-        Long runId = dbr.psRSGetBigInt(query, "APP_RUN_ID");
-        
-        report.setNetworkId(networkId);
-        report.setRunId(runId);
-
-        report.setMean(new FreewayCTMState());
-        report.setStdDev(new FreewayCTMState());
-        report.setFd(new FDMap());
       }
 
-      if (debug) {
-        Long ctmId = dbr.psRSGetBigInt(query, "CTM_ID");
-        if (ctmId > 0) {
-          // this method can only return FreewayCTMReport, not FreewayCTMEnsembleReport
-          // so, just ignore rows with ctmId > 0 (should this be an error?)
-          continue;
-        }
-      }
-      
-      Long linkId = dbr.psRSGetBigInt(query, "LINK_ID");
-      String lidStr = linkId.toString();
+      readReportRow(report, query, spec);
       
+      //System.out.println("Report: " + report);
+    }
+
+    return reports;
+  }
+
+  /**
+   * Create an empty report for the current row of a report query, with
+   * states and maps for the parts selected by the spec.
+   */
+  private FreewayCTMReport newReport(
+      edu.berkeley.path.model_elements.DateTime ts,
+      String query,
+      FreewayCTMReportQuery spec
+      ) throws DatabaseException {
+    FreewayCTMReport report = new FreewayCTMReport();
+    
+    report.setTime(ts);
+
+    Long networkId = dbr.psRSGetBigInt(query, "NETWORK_ID");
+    Long runId = dbr.psRSGetBigInt(query, "APP_RUN_ID");
+    
+    report.setNetworkId(networkId);
+    report.setRunId(runId);
+
+    if (spec.mean) {
+      report.setMean(new FreewayCTMState());
+    }
+    if (spec.stdDev) {
+      report.setStdDev(new FreewayCTMState());
+    }
+    if (spec.fd) {
+      report.setFd(new FDMap());
+    }
+    
+    return report;
+  }
+
+  /**
+   * Add the link data in the current row of a report query to the report.
+   */
+  private void readReportRow(
+      FreewayCTMReport report,
+      String query,
+      FreewayCTMReportQuery spec
+      ) throws DatabaseException {
+    Long linkId = dbr.psRSGetBigInt(query, "LINK_ID");
+    String lidStr = linkId.toString();
+    
+    if (spec.fd) {
       Double ffSpeed = dbr.psRSGetDouble(query, "FREE_FLOW_SPEED");
       Double cSpeed  = dbr.psRSGetDouble(query, "CRITICAL_SPEED");
       Double cwSpeed = dbr.psRSGetDouble(query, "CONGESTION_WAVE_SPEED");
@@ -325,45 +715,46 @@ public class FreewayCTMReportReader extends ReaderBase {
           fd.setCapacityDrop(capDrop);
         }
       }
-            
-      Long qtyTypeId = dbr.psRSGetBigInt(query, "QTY_TYPE_ID");
-      
-      if (qtyTypeId == 2) { // mean -- get this from table or enum
-        FreewayCTMState mean = (FreewayCTMState)report.getMean();
-        if (mean == null) {
-          mean = new FreewayCTMState();
-          report.setMean(mean);
-        }
-        
-        readCTMState(mean, linkId, query);
-      }
-      else if (qtyTypeId == 4) { // std dev -- get this from table or enum
-        FreewayCTMState stdDev = (FreewayCTMState)report.getStdDev();
-        if (stdDev == null) {
-          stdDev = new FreewayCTMState();
-          report.setStdDev(stdDev);
-        }
-        
-        readCTMState(stdDev, linkId, query);
+    }
+          
+    Long qtyTypeId = dbr.psRSGetBigInt(query, "QTY_TYPE_ID");
+    
+    if (qtyTypeId == 2 && spec.mean) { // mean -- get this from table or enum
+      FreewayCTMState mean = (FreewayCTMState)report.getMean();
+      if (mean == null) {
+        mean = new FreewayCTMState();
+        report.setMean(mean);
       }
-      else {
-        // ?
+      
+      readCTMState(mean, linkId, query, spec);
+    }
+    else if (qtyTypeId == 4 && spec.stdDev) { // std dev -- get this from table or enum
+      FreewayCTMState stdDev = (FreewayCTMState)report.getStdDev();
+      if (stdDev == null) {
+        stdDev = new FreewayCTMState();
+        report.setStdDev(stdDev);
       }
-
-      //System.out.println("Report: " + report);
+      
+      readCTMState(stdDev, linkId, query, spec);
+    }
+    else {
+      // ?
     }
-
-    return reports;
   }
 
-  private void readCTMState(FreewayCTMState ctmState, Long linkId, String query) throws DatabaseException {
-    Double inFlow   = dbr.psRSGetDouble(query, "IN_FLOW");
-    Double outFlow  = dbr.psRSGetDouble(query, "OUT_FLOW");
+  private void readCTMState(
+      FreewayCTMState ctmState,
+      Long linkId,
+      String query,
+      FreewayCTMReportQuery spec
+      ) throws DatabaseException {
+    Double inFlow   = spec.flow ? dbr.psRSGetDouble(query, "IN_FLOW") : null;
+    Double outFlow  = spec.flow ? dbr.psRSGetDouble(query, "OUT_FLOW") : null;
     
-    Double density  = dbr.psRSGetDouble(query, "DENSITY");
-    Double speed    = dbr.psRSGetDouble(query, "SPEED");
+    Double density  = spec.density ? dbr.psRSGetDouble(query, "DENSITY") : null;
+    Double speed    = spec.speed ? dbr.psRSGetDouble(query, "SPEED") : null;
 
-    Double qLen     = dbr.psRSGetDouble(query, "QUEUE_LENGTH");
+    Double qLen     = spec.queueLength ? dbr.psRSGetDouble(query, "QUEUE_LENGTH") : null;
 
     if (inFlow != null ||
         outFlow != null) {
@@ -411,6 +802,203 @@ public class FreewayCTMReportReader extends ReaderBase {
     }
   }
   
+  /**
+   * Quantities of a FreewayCTMState that can be aggregated in the database.
+   **/
+  public enum Quantity {
+    IN_FLOW("IN_FLOW"),
+    OUT_FLOW("OUT_FLOW"),
+    DENSITY("DENSITY"),
+    SPEED("SPEED"),
+    QUEUE_LENGTH("QUEUE_LENGTH");
+    
+    /**
+     * column of the LINK_DATA_TOTAL tables holding the quantity
+     **/
+    public final String column;
+    
+    Quantity(String column) {
+      this.column = column;
+    }
+  }
+  
+  /**
+   * Read the mean state of one quantity, aggregated per link over time
+   * buckets of the given size. The aggregation is done by the database, so
+   * only one row per link per bucket is transferred, rather than one row per
+   * link per time step.
+   * 
+   * If the debug parameter is true, then read from the DEBUG
+   * table (ctm_id = 0 only).
+   * 
+   * @param networkId     ID of the network the data refers to
+   * @param runId         ID of the run used to generate the data
+   * @param interval      time interval of the data to be read
+   * @param debug         whether to use the DEBUG table
+   * @param quantity      which quantity to aggregate
+   * @param fn            aggregate function to apply within each bucket
+   * @param bucketSeconds size of each time bucket in seconds
+   * @return list of TimeBucketAggregate, sorted by time and then link id
+   */
+  public List<TimeBucketAggregate> readAggregates(
+      Long networkId,
+      Long runId,
+      Interval interval,
+      boolean debug,
+      Quantity quantity,
+      AggregateFunction fn,
+      int bucketSeconds
+      ) throws DatabaseException {
+    
+    List<TimeBucketAggregate> aggs;
+    
+    String rptStr = "report aggregate.{" +
+      "network_id=" + networkId +
+      ", run_id=" + runId +
+      ", interval=" + interval +
+      ", debug=" + debug +
+      ", quantity=" + quantity +
+      ", fn=" + fn +
+      ", bucket=" + bucketSeconds + "s}";
+
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug("Read transaction beginning on " + rptStr);
+      
+      aggs = readAggregateRows(networkId, runId, interval, debug,
+        quantity, fn, bucketSeconds);
+
+      snapshotCommit();
+      Monitor.debug("Read transaction committing on " + rptStr);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug("Read transaction rollback on " + rptStr);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Read " + rptStr, timeCommit - timeBegin);
+    Monitor.count("Read " + rptStr, aggs.size());
+    
+    return aggs;
+  }
+
+  /**
+   * Read the specified aggregates from the database.
+   * 
+   * This is intended to be called from @see readAggregates(), so it does
+   * not set up a transaction of its own.
+   * 
+   * @param networkId     ID of the network the data refers to
+   * @param runId         ID of the run used to generate the data
+   * @param interval      time interval of the data to be read
+   * @param debug         whether to use the DEBUG table
+   * @param quantity      which quantity to aggregate
+   * @param fn            aggregate function to apply within each bucket
+   * @param bucketSeconds size of each time bucket in seconds
+   * @return list of TimeBucketAggregate, sorted by time and then link id
+   */
+  public List<TimeBucketAggregate> readAggregateRows(
+      Long networkId,
+      Long runId,
+      Interval interval,
+      boolean debug,
+      Quantity quantity,
+      AggregateFunction fn,
+      int bucketSeconds
+      ) throws DatabaseException {
+    
+    String query = null;
+    List<TimeBucketAggregate> aggs = new ArrayList<TimeBucketAggregate>();
+    
+    try {
+      query = runAggregateQuery(networkId, runId, interval, debug,
+        quantity, fn, bucketSeconds);
+      
+      TimeBucketAggregate agg;
+      while (null != (agg = bucketAggregateFromQueryRS(query))) {
+        aggs.add(agg);
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    return aggs;
+  }
+
+  /**
+   * Execute an aggregate query for the specified reports.
+   * 
+   * @param networkId     ID of the network the data refers to
+   * @param runId         ID of the run used to generate the data
+   * @param interval      time interval of the data to be read
+   * @param debug         whether to use the DEBUG table
+   * @param quantity      which quantity to aggregate
+   * @param fn            aggregate function to apply within each bucket
+   * @param bucketSeconds size of each time bucket in seconds
+   * @return String       query string, may be passed to psRSNext or bucketAggregateFromQueryRS
+   */
+  protected String runAggregateQuery(
+      Long networkId,
+      Long runId,
+      Interval interval,
+      boolean debug,
+      Quantity quantity,
+      AggregateFunction fn,
+      int bucketSeconds
+      ) throws DatabaseException {
+
+    String query = "read_report_aggregate" + (debug ? "_debug" : "");
+    String tableName = debug ? "LINK_DATA_TOTAL_DEBUG" : "LINK_DATA_TOTAL";
+    
+    dbr.psCreate(query,
+      "SELECT " +
+        "LINK_ID, " +
+        "BUCKET_TS, " +
+        fn.toSql("VAL") + " AS VALUE, " +
+        "COUNT(VAL) AS SAMPLES " +
+      "FROM (" +
+        "SELECT " +
+          "LINK_ID, " +
+          timeBucketSql("TS", bucketSeconds) + " AS BUCKET_TS, " +
+          quantity.column + " AS VAL " +
+        "FROM VIA." + tableName + " " +
+        "WHERE " +
+          "NETWORK_ID = ? AND " +
+          "APP_RUN_ID = ? AND " +
+          "QTY_TYPE_ID = 2 AND " + // mean -- get this from table or enum
+          (debug ? "CTM_ID = 0 AND " : "") +
+          "TS BETWEEN ? AND ?" +
+      ") " +
+      "GROUP BY BUCKET_TS, LINK_ID " +
+      "ORDER BY BUCKET_TS, LINK_ID"
+    );
+    
+    dbr.psClearParams(query);
+
+    dbr.psSetBigInt(query, 1, networkId);
+    dbr.psSetBigInt(query, 2, runId);
+    dbr.psSetTimestampMilliseconds(query, 3, interval.getStartMillis());
+    dbr.psSetTimestampMilliseconds(query, 4, interval.getEndMillis());
+
+    dbr.psQuery(query);
+
+    return query;
+  }
   /**
    * Read the specified FreewayCTMEnsembleReport from the database.
    * 
@@ -438,12 +1026,12 @@ public class FreewayCTMReportReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug("Read transaction beginning on " + rptStr);
       
       reports = readRows(networkId, runId, interval);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug("Read transaction committing on " + rptStr);
     }
     catch (DatabaseException dbExc) {
@@ -452,7 +1040,7 @@ public class FreewayCTMReportReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug("Read transaction rollback on " + rptStr);
       }
       catch(Exception Exc) {
@@ -604,7 +1192,7 @@ public class FreewayCTMReportReader extends ReaderBase {
         throw new DatabaseException(null, "bad ctm index values in table:" +
           " prevCtmId = " + prevCtmId +
           ", ctmId = " + ctmId,
-          dbr, query);
+          dbr.getDatabase(), query);
       }
       
       Long linkId = dbr.psRSGetBigInt(query, "LINK_ID");
@@ -622,16 +1210,16 @@ public class FreewayCTMReportReader extends ReaderBase {
           cap != null ||
           jDen != null ||
           capDrop != null) {
-        throw new DatabaseException(null, "ctm ensemble report should not have FD data", dbr, query);
+        throw new DatabaseException(null, "ctm ensemble report should not have FD data", dbr.getDatabase(), query);
       }
             
       Long qtyTypeId = dbr.psRSGetBigInt(query, "QTY_TYPE_ID");
       
       if (qtyTypeId != 2) { // mean -- get this from table or enum
-        throw new DatabaseException(null, "ctm ensemble report should use qtyTypeId: mean", dbr, query);
+        throw new DatabaseException(null, "ctm ensemble report should use qtyTypeId: mean", dbr.getDatabase(), query);
       }
       
-      readCTMState(ctmState, linkId, query);
+      readCTMState(ctmState, linkId, query, ALL);
 
       //System.out.println("ctmState: " + ctmState);
     }
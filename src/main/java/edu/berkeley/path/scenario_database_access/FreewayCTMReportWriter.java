@@ -58,6 +58,13 @@ public class FreewayCTMReportWriter extends WriterBase {
     super(dbParams);
   }
   
+  public FreewayCTMReportWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
   public FreewayCTMReportWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
@@ -728,4 +735,295 @@ public class FreewayCTMReportWriter extends WriterBase {
       ) throws DatabaseException {
     return delete(networkId, runId, interval, true);
   }
+
+  /**
+   * Default number of rows deleted, and committed, by each statement of a purge.
+   **/
+  public static final int DEFAULT_PURGE_CHUNK_ROWS = 50000;
+  
+  /**
+   * Purge report rows by run, by network, by time range, or by any
+   * combination of these, in chunks of DEFAULT_PURGE_CHUNK_ROWS rows.
+   * 
+   * @see #purge(Long, Long, Interval, boolean, int)
+   */
+  public long purge(
+      Long networkId,
+      Long runId,
+      Interval interval,
+      boolean debug
+      ) throws DatabaseException {
+    return purge(networkId, runId, interval, debug, DEFAULT_PURGE_CHUNK_ROWS);
+  }
+  
+  /**
+   * Purge report rows by run, by network, by time range, or by any
+   * combination of these. Unlike delete(), this is meant for removing
+   * the results of whole runs, which may be millions of rows.
+   * 
+   * Rows are deleted in chunks of at most chunkRows, each in a transaction
+   * of its own, so undo stays small and an interrupted purge can simply
+   * be repeated. Progress and the rate in rows per second are reported
+   * through Monitor after each chunk.
+   * 
+   * If only the run is given, and the table is list partitioned by
+   * APP_RUN_ID with a partition whose only value is the run, the partition
+   * is truncated instead.
+   * 
+   * @param networkId   ID of the network the data refers to, or null for all
+   * @param runId       ID of the run used to generate the data, or null for all
+   * @param interval    time interval of the data to be deleted, or null for all
+   * @param debug       whether to use the DEBUG table
+   * @param chunkRows   largest number of rows deleted by one statement
+   * @return number of rows deleted
+   */
+  public long purge(
+      Long networkId,
+      Long runId,
+      Interval interval,
+      boolean debug,
+      int chunkRows
+      ) throws DatabaseException {
+    
+    if (networkId == null && runId == null && interval == null) {
+      throw new IllegalArgumentException(
+        "purge needs at least one of network, run or interval");
+    }
+    if (chunkRows <= 0) {
+      throw new IllegalArgumentException(
+        "chunk size must be positive, not " + chunkRows);
+    }
+    
+    String tableName = debug ? "LINK_DATA_TOTAL_DEBUG" : "LINK_DATA_TOTAL";
+    
+    String rptStr = "report.{" +
+      "network_id=" + networkId +
+      ", run_id=" + runId +
+      ", interval=" + interval +
+      ", debug=" + debug + "}";
+
+    long timeBegin = System.nanoTime();
+    long total = 0;
+    
+    try {
+      if (runId != null && networkId == null && interval == null) {
+        String partition = findRunPartition(tableName, runId);
+        
+        if (partition != null) {
+          Monitor.debug("Purge truncating partition " + partition + " of " + tableName + " on " + rptStr);
+          total = truncatePartition(tableName, partition);
+        }
+      }
+      
+      String query = "purge_report_chunk";
+      dbw.psCreate(query, purgeChunkSql(tableName, networkId, runId, interval));
+      
+      try {
+        long rows;
+        do {
+          rows = purgeChunk(query, networkId, runId, interval, chunkRows);
+          total += rows;
+          
+          double seconds = (System.nanoTime() - timeBegin) / 1e9;
+          Monitor.debug("Purged " + total + " rows from " + tableName +
+            " at " + Math.round(total / Math.max(seconds, 1e-3)) + " rows/sec on " + rptStr);
+        } while (rows == chunkRows);
+      }
+      finally {
+        dbw.psDestroy(query);
+      }
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+
+    long timeEnd = System.nanoTime();
+    Monitor.duration("Purge " + rptStr, timeEnd - timeBegin);
+    Monitor.count("Purged " + rptStr, total);
+    
+    return total;
+  }
+
+  /**
+   * Statement deleting at most a chunk of the specified report rows, with
+   * the parameters bound by purgeChunk().
+   */
+  protected String purgeChunkSql(
+      String tableName,
+      Long networkId,
+      Long runId,
+      Interval interval
+      ) {
+    
+    StringBuilder where = new StringBuilder();
+    if (networkId != null) {
+      where.append("NETWORK_ID = ? AND ");
+    }
+    if (runId != null) {
+      where.append("APP_RUN_ID = ? AND ");
+    }
+    if (interval != null) {
+      where.append("TS BETWEEN ? AND ? AND ");
+    }
+    where.append("ROWNUM <= ?");
+    
+    return "DELETE FROM VIA." + tableName + " WHERE " + where;
+  }
+
+  /**
+   * Delete and commit at most chunkRows of the specified report rows,
+   * using the statement prepared from purgeChunkSql().
+   * 
+   * @return number of rows deleted
+   */
+  protected long purgeChunk(
+      String query,
+      Long networkId,
+      Long runId,
+      Interval interval,
+      int chunkRows
+      ) throws DatabaseException {
+    
+    long rows;
+    
+    try {
+      dbw.transactionBegin();
+      
+      dbw.psClearParams(query);
+      
+      int i = 0;
+      if (networkId != null) {
+        dbw.psSetBigInt(query, ++i, networkId);
+      }
+      if (runId != null) {
+        dbw.psSetBigInt(query, ++i, runId);
+      }
+      if (interval != null) {
+        dbw.psSetTimestampMilliseconds(query, ++i, interval.getStartMillis());
+        dbw.psSetTimestampMilliseconds(query, ++i, interval.getEndMillis());
+      }
+      dbw.psSetInteger(query, ++i, chunkRows);
+      
+      rows = dbw.psUpdate(query);
+      
+      dbw.transactionCommit();
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    return rows;
+  }
+
+  /**
+   * Find the partition holding the rows of a run, if the table is list
+   * partitioned by APP_RUN_ID alone and the partition's only value is the
+   * run. The decision comes from the partition bounds in the dictionary,
+   * not from the rows, so rows inserted meanwhile cannot make it wrong.
+   * The lookup runs on this writer's connection.
+   * 
+   * @return name of the partition, or null
+   */
+  protected String findRunPartition(String tableName, long runId) throws DatabaseException {
+    String partition = null;
+    String runValue = Long.toString(runId);
+    
+    String sql = dbw.getDialect().runPartitionSql(tableName);
+    if (sql == null) {
+      return null;
+    }
+    
+    String query = "read_run_partition";
+    dbw.psCreate(query, sql);
+    
+    try {
+      dbw.psClearParams(query);
+      dbw.psSetVarChar(query, 1, tableName);
+      dbw.psQuery(query);
+      
+      while (partition == null && dbw.psRSNext(query)) {
+        String highValue = dbw.psRSGetVarChar(query, "HIGH_VALUE");
+        
+        if (highValue != null && highValue.trim().equals(runValue)) {
+          partition = dbw.psRSGetVarChar(query, "PARTITION_NAME");
+        }
+      }
+    }
+    finally {
+      dbw.psDestroy(query);
+    }
+    
+    return partition;
+  }
+
+  /**
+   * Truncate a partition found by findRunPartition(). The partition is
+   * locked before its rows are counted, so the count is what the truncate
+   * removes. Truncating is DDL, so it commits at once.
+   * 
+   * @return number of rows in the partition when it was truncated
+   */
+  protected long truncatePartition(String tableName, String partition) throws DatabaseException {
+    long rows = 0;
+    String target = "VIA." + tableName + " PARTITION (\"" + partition + "\")";
+    
+    try {
+      dbw.transactionBegin();
+      
+      String query = "lock_run_partition";
+      dbw.psCreate(query, "LOCK TABLE " + target + " IN EXCLUSIVE MODE");
+      
+      try {
+        dbw.psUpdate(query);
+      }
+      finally {
+        dbw.psDestroy(query);
+      }
+      
+      query = "read_run_partition_rows";
+      dbw.psCreate(query, "SELECT COUNT(*) AS ROWS_TOTAL FROM " + target);
+      
+      try {
+        dbw.psQuery(query);
+        
+        if (dbw.psRSNext(query)) {
+          Long rowsTotal = dbw.psRSGetBigInt(query, "ROWS_TOTAL");
+          if (rowsTotal != null) {
+            rows = rowsTotal;
+          }
+        }
+      }
+      finally {
+        dbw.psDestroy(query);
+      }
+      
+      query = "truncate_run_partition";
+      dbw.psCreate(query,
+        "ALTER TABLE VIA." + tableName + " TRUNCATE PARTITION \"" + partition + "\" UPDATE GLOBAL INDEXES"
+      );
+      
+      try {
+        dbw.psUpdate(query);
+      }
+      finally {
+        dbw.psDestroy(query);
+      }
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    return rows;
+  }
 }
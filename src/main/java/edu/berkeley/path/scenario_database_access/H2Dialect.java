@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import core.*;
+
+/**
+ * Dialect of an H2 database in Oracle compatibility mode (MODE=Oracle),
+ * with the VIA schema of EmbeddedDatabase. That mode accepts most of the
+ * SQL of this package as it is, including SEQ.nextVal, dual, NVL, ROWNUM
+ * and TO_TIMESTAMP, and the SDO functions are defined by the schema
+ * script. This class rewrites the rest:
+ * 
+ * - GEOM.SDO_POINT.X (object attributes) becomes SDO_POINT_X(GEOM).
+ * - Oracle's MERGE ... UPDATE ... DELETE WHERE ... INSERT ... WHERE
+ *   becomes standard MERGE with conditional WHEN clauses, and the bound
+ *   id and value of its source rows are cast, since H2 cannot infer the
+ *   type of a parameter in a select list.
+ * - A PL/SQL block of plain DELETE, INSERT and UPDATE statements, as in
+ *   the deletion of all nodes or links of a network, is split into those
+ *   statements.
+ * 
+ * Read-only snapshots, flashback and partitions are not SQL of the
+ * readers and writers but operations of the dialect: a snapshot is an
+ * ordinary transaction, its SCN is always 0, and there are no partitions,
+ * so purges delete in chunks.
+ * 
+ * Other PL/SQL blocks, which the clone methods of networks and scenarios
+ * use, have no H2 equivalent, and stored procedures
+ * are not reached through this layer at all; those operations need Oracle.
+ * 
+ * @see EmbeddedDatabase
+ * @author vjoel
+ */
+public class H2Dialect extends SqlDialect {
+  private static final Pattern SDO_POINT =
+    Pattern.compile("([\\w.]+)\\.SDO_POINT\\.([XY])\\b");
+  
+  private static final Pattern ORACLE_MERGE = Pattern.compile(
+    "WHEN MATCHED THEN UPDATE SET (.+?) DELETE WHERE (\\(.+?\\)) " +
+    "WHEN NOT MATCHED THEN INSERT (\\(.+?\\)) VALUES (\\(.+?\\)) WHERE (\\(.+?\\))$",
+    Pattern.DOTALL);
+  
+  private static final String MERGE_SOURCE = "SELECT ? ID, ? VAL FROM dual";
+  
+  private static final Pattern PLSQL_BLOCK =
+    Pattern.compile("^\\s*(declare|begin)\\b", Pattern.CASE_INSENSITIVE);
+  
+  private static final Pattern PLAIN_BLOCK =
+    Pattern.compile("^begin\n(.*;)\nend;$", Pattern.DOTALL);
+  
+  private static final Pattern DML =
+    Pattern.compile("^(DELETE|INSERT|UPDATE)\\b[^;]*$", Pattern.CASE_INSENSITIVE);
+  
+  /**
+   * A snapshot is an ordinary transaction.
+   */
+  public String snapshotBeginSql() {
+    return null;
+  }
+  
+  /**
+   * There is no SCN; it is always 0.
+   */
+  public String snapshotSCNSql() {
+    return "SELECT CAST(0 AS BIGINT) AS SCN FROM DUAL";
+  }
+  
+  public String flashbackEnableSql() {
+    return null;
+  }
+  
+  public String flashbackDisableSql() {
+    return null;
+  }
+  
+  /**
+   * There are no partitions, so purges delete in chunks.
+   */
+  public String runPartitionSql(String tableName) {
+    return null;
+  }
+  
+  /**
+   * There is no CONNECT BY, so the rows come from a range.
+   */
+  public String nextValuesSql(String sequence) {
+    return "SELECT " + sequence + ".nextVal AS ID FROM SYSTEM_RANGE(1, ?)";
+  }
+  
+  public String[] split(String sql) {
+    Matcher block = PLAIN_BLOCK.matcher(sql);
+    if (!block.find()) {
+      return super.split(sql);
+    }
+    
+    String[] statements = block.group(1).split(";\n");
+    for (int i = 0; i < statements.length; i++) {
+      statements[i] = statements[i].trim();
+      if (statements[i].endsWith(";")) {
+        statements[i] = statements[i].substring(0, statements[i].length() - 1);
+      }
+      if (!DML.matcher(statements[i]).find()) {
+        return super.split(sql);
+      }
+    }
+    
+    return statements;
+  }
+  
+  public String translate(String sql) throws DatabaseException {
+    if (PLSQL_BLOCK.matcher(sql).find()) {
+      throw new DatabaseException(null,
+        "PL/SQL blocks are not supported by " + this + ": " + sql, null, null);
+    }
+    
+    sql = SDO_POINT.matcher(sql).replaceAll("SDO_POINT_$2($1)");
+    
+    Matcher merge = ORACLE_MERGE.matcher(sql);
+    if (merge.find()) {
+      sql = merge.replaceFirst(
+        "WHEN MATCHED AND $2 THEN DELETE " +
+        "WHEN MATCHED THEN UPDATE SET $1 " +
+        "WHEN NOT MATCHED AND $5 THEN INSERT $3 VALUES $4");
+      sql = sql.replace(MERGE_SOURCE,
+        "SELECT CAST(? AS BIGINT) ID, CAST(? AS VARCHAR) VAL FROM dual");
+    }
+    
+    return sql;
+  }
+}
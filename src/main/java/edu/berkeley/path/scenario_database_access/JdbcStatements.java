@@ -0,0 +1,546 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.sql.*;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.TimeZone;
+
+import core.*;
+
+/**
+ * A DBConnection on a plain JDBC connection: an Oracle connection made by
+ * core's oraDatabase, or any database given by DBParams.url, such as an
+ * EmbeddedDatabase. Each statement is split and translated by the
+ * dialect of the connection when it is prepared; the parts of a split
+ * statement share its parameters in order, and run in turn.
+ * 
+ * @see DBParams#url
+ * @author vjoel
+ */
+public class JdbcStatements implements DBConnection {
+  private final Connection conn;
+  private final SqlDialect dialect;
+  private final HashMap<String,PreparedStatement[]> statements = new HashMap<String,PreparedStatement[]>();
+  private final HashMap<String,ResultSet> results = new HashMap<String,ResultSet>();
+  
+  /**
+   * number of parameters of each part, for statements that were split
+   **/
+  private final HashMap<String,int[]> paramCounts = new HashMap<String,int[]>();
+  private int fetchSize = 0;
+  
+  /**
+   * Statements on the given connection, in the given dialect.
+   */
+  public JdbcStatements(Connection conn, SqlDialect dialect) {
+    this.conn = conn;
+    this.dialect = dialect;
+  }
+  
+  /**
+   * Connect as specified by the dbParams: to dbParams.url if it is set,
+   * otherwise to the Oracle database at dbParams.host, port and name.
+   */
+  public static JdbcStatements connect(DBParams dbParams) throws DatabaseException {
+    Connection conn;
+    
+    if (dbParams.url != null) {
+      try {
+        conn = DriverManager.getConnection(dbParams.url, dbParams.user, dbParams.pass);
+      }
+      catch (SQLException sqlExp) {
+        throw new DatabaseException(sqlExp,
+          "Could not connect to " + dbParams.url + ": " + sqlExp.getMessage(), null, null);
+      }
+    }
+    else if (dbParams.usingOracle) {
+      oraDatabase.dbConnectInfo connInfo = new oraDatabase.dbConnectInfo();
+      connInfo.uname = dbParams.user;
+      connInfo.upass = dbParams.pass;
+      connInfo.host = dbParams.host;
+      connInfo.SID = dbParams.name;
+      connInfo.port = dbParams.port;
+      
+      conn = oraDatabase.doConnect(connInfo);
+      if (conn == null) {
+        throw new DatabaseException(null,
+          "Could not connect to " + dbParams.host + ":" + dbParams.port + "/" + dbParams.name + ".", null, null);
+      }
+    }
+    else {
+      throw new DatabaseException(null,
+        "No url for a database that is not Oracle: set DBParams.url.", null, null);
+    }
+    
+    return new JdbcStatements(conn, SqlDialect.forUrl(dbParams.url));
+  }
+  
+  public Connection getConnection() {
+    return conn;
+  }
+  
+  public SqlDialect getDialect() {
+    return dialect;
+  }
+  
+  /**
+   * There is no core connection under a plain JDBC connection.
+   */
+  public Database getDatabase() {
+    return null;
+  }
+  
+  public void psCreate(String name, String sql) throws DatabaseException {
+    String[] parts = dialect.split(sql);
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = dialect.translate(parts[i]);
+    }
+    psDestroy(name);
+    
+    PreparedStatement[] prepared = new PreparedStatement[parts.length];
+    statements.put(name, prepared);
+    
+    for (int i = 0; i < parts.length; i++) {
+      try {
+        prepared[i] = conn.prepareStatement(parts[i]);
+      }
+      catch (SQLException sqlExp) {
+        psDestroy(name);
+        throw new DatabaseException(sqlExp,
+          "Could not prepare statement: " + parts[i], null, name);
+      }
+    }
+    
+    if (parts.length > 1) {
+      int[] counts = new int[parts.length];
+      
+      try {
+        for (int i = 0; i < parts.length; i++) {
+          counts[i] = prepared[i].getParameterMetaData().getParameterCount();
+        }
+      }
+      catch (SQLException sqlExp) {
+        psDestroy(name);
+        throw failure(sqlExp, "count parameters", name);
+      }
+      
+      paramCounts.put(name, counts);
+    }
+  }
+  
+  public void psDestroy(String name) throws DatabaseException {
+    closeResults(name);
+    paramCounts.remove(name);
+    PreparedStatement[] prepared = statements.remove(name);
+    
+    if (prepared != null) {
+      for (PreparedStatement ps : prepared) {
+        try {
+          if (ps != null) {
+            ps.close();
+          }
+        }
+        catch (SQLException sqlExp) {
+          // Do nothing.
+        }
+      }
+    }
+  }
+  
+  private void closeResults(String name) {
+    ResultSet rs = results.remove(name);
+    
+    if (rs != null) {
+      try {
+        rs.close();
+      }
+      catch (SQLException sqlExp) {
+        // Do nothing.
+      }
+    }
+  }
+  
+  private PreparedStatement[] ps(String name) throws DatabaseException {
+    PreparedStatement[] prepared = statements.get(name);
+    if (prepared == null) {
+      throw new DatabaseException(null, "No such statement: " + name, null, name);
+    }
+    return prepared;
+  }
+  
+  private DatabaseException failure(SQLException sqlExp, String what, String name) {
+    return new DatabaseException(sqlExp, "Could not " + what + ": " + sqlExp.getMessage(), null, name);
+  }
+  
+  public void psClearParams(String name) throws DatabaseException {
+    try {
+      for (PreparedStatement ps : ps(name)) {
+        ps.clearParameters();
+      }
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "clear parameters", name);
+    }
+  }
+  
+  /**
+   * Set the parameter at the given index of the statement, which is in
+   * the part of a split statement where that index falls, or to null
+   * of the given type.
+   */
+  private void set(String name, int index, Object value, int type) throws DatabaseException {
+    PreparedStatement[] prepared = ps(name);
+    PreparedStatement ps = prepared[0];
+    int local = index;
+    
+    int[] counts = paramCounts.get(name);
+    if (counts != null) {
+      int i = 0;
+      while (i < counts.length - 1 && local > counts[i]) {
+        local -= counts[i++];
+      }
+      ps = prepared[i];
+    }
+    
+    try {
+      if (value == null) {
+        ps.setNull(local, type);
+      }
+      else {
+        ps.setObject(local, value, type);
+      }
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "set parameter " + index, name);
+    }
+  }
+  
+  public void psSetBigInt(String name, int index, Long value) throws DatabaseException {
+    set(name, index, value, Types.BIGINT);
+  }
+  
+  public void psSetInteger(String name, int index, Integer value) throws DatabaseException {
+    set(name, index, value, Types.INTEGER);
+  }
+  
+  public void psSetDouble(String name, int index, Double value) throws DatabaseException {
+    set(name, index, value, Types.DOUBLE);
+  }
+  
+  public void psSetVarChar(String name, int index, String value) throws DatabaseException {
+    set(name, index, value, Types.VARCHAR);
+  }
+  
+  public void psSetTimestampMilliseconds(String name, int index, Long value) throws DatabaseException {
+    set(name, index, value == null ? null : new Timestamp(value), Types.TIMESTAMP);
+  }
+  
+  public void psSetBytes(String name, int index, byte[] value) throws DatabaseException {
+    set(name, index, value, Types.VARBINARY);
+  }
+  
+  public void psAddBatch(String name) throws DatabaseException {
+    try {
+      for (PreparedStatement ps : ps(name)) {
+        ps.addBatch();
+      }
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "add to batch", name);
+    }
+  }
+  
+  /**
+   * Run the batch of each part of the statement in turn, so the parts of
+   * a split statement run once for all rows, rather than once per row.
+   * The rows affected by the parts are added up for each row.
+   */
+  public int[] psExecuteBatch(String name) throws DatabaseException {
+    try {
+      int[] rows = null;
+      
+      for (PreparedStatement ps : ps(name)) {
+        int[] partRows = ps.executeBatch();
+        
+        if (rows == null) {
+          rows = partRows;
+        }
+        else {
+          for (int i = 0; i < rows.length && i < partRows.length; i++) {
+            if (rows[i] >= 0 && partRows[i] >= 0) {
+              rows[i] += partRows[i];
+            }
+            else {
+              rows[i] = Statement.SUCCESS_NO_INFO;
+            }
+          }
+        }
+      }
+      
+      return rows;
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "execute batch", name);
+    }
+  }
+  
+  /**
+   * Execute a statement, keeping its result set, if it has one, for
+   * psRSNext (the last one, of the parts of a split statement).
+   * Statements without results are accepted, as by the Oracle driver.
+   */
+  public void psQuery(String name) throws DatabaseException {
+    closeResults(name);
+    
+    try {
+      for (PreparedStatement ps : ps(name)) {
+        ps.setFetchSize(fetchSize);
+        
+        if (ps.execute()) {
+          closeResults(name);
+          results.put(name, ps.getResultSet());
+        }
+      }
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "execute query", name);
+    }
+  }
+  
+  public int psUpdate(String name) throws DatabaseException {
+    try {
+      int rows = 0;
+      for (PreparedStatement ps : ps(name)) {
+        rows += ps.executeUpdate();
+      }
+      return rows;
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "execute update", name);
+    }
+  }
+  
+  public void psExecute(String name) throws DatabaseException {
+    closeResults(name);
+    
+    try {
+      for (PreparedStatement ps : ps(name)) {
+        ps.execute();
+      }
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "execute statement", name);
+    }
+  }
+  
+  private ResultSet rs(String name) throws DatabaseException {
+    ResultSet rs = results.get(name);
+    if (rs == null) {
+      throw new DatabaseException(null, "No results for statement: " + name, null, name);
+    }
+    return rs;
+  }
+  
+  public boolean psRSNext(String name) throws DatabaseException {
+    ResultSet rs = results.get(name);
+    
+    try {
+      return rs != null && rs.next();
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "read next row", name);
+    }
+  }
+  
+  public String[] psRSColumnNames(String name) throws DatabaseException {
+    try {
+      ResultSetMetaData meta = rs(name).getMetaData();
+      String[] columns = new String[meta.getColumnCount()];
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = meta.getColumnLabel(i + 1);
+      }
+      return columns;
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "read column names", name);
+    }
+  }
+  
+  public Long psRSGetBigInt(String name, String column) throws DatabaseException {
+    try {
+      ResultSet rs = rs(name);
+      long value = rs.getLong(column);
+      return rs.wasNull() ? null : value;
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "read " + column, name);
+    }
+  }
+  
+  public Integer psRSGetInteger(String name, String column) throws DatabaseException {
+    try {
+      ResultSet rs = rs(name);
+      int value = rs.getInt(column);
+      return rs.wasNull() ? null : value;
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "read " + column, name);
+    }
+  }
+  
+  public Double psRSGetDouble(String name, String column) throws DatabaseException {
+    try {
+      ResultSet rs = rs(name);
+      double value = rs.getDouble(column);
+      return rs.wasNull() ? null : value;
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "read " + column, name);
+    }
+  }
+  
+  public String psRSGetVarChar(String name, String column) throws DatabaseException {
+    try {
+      return rs(name).getString(column);
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "read " + column, name);
+    }
+  }
+  
+  public Long psRSGetTimestampMilliseconds(String name, String column) throws DatabaseException {
+    try {
+      Timestamp ts = rs(name).getTimestamp(column);
+      return ts == null ? null : ts.getTime();
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "read " + column, name);
+    }
+  }
+  
+  public Long psRSGetTimestampMicroseconds(String name, String column) throws DatabaseException {
+    try {
+      Timestamp ts = rs(name).getTimestamp(column, utc());
+      if (ts == null) {
+        return null;
+      }
+      return ts.getTime() / 1000 * 1000000 + ts.getNanos() / 1000;
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "read " + column, name);
+    }
+  }
+  
+  public byte[] psRSGetBytes(String name, String column) throws DatabaseException {
+    try {
+      return rs(name).getBytes(column);
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "read " + column, name);
+    }
+  }
+  
+  private static Calendar utc() {
+    return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+  }
+  
+  public void setFetchSize(int n) {
+    fetchSize = n;
+  }
+  
+  public boolean transactionIsOpen() throws DatabaseException {
+    try {
+      return !conn.getAutoCommit();
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "check if within a transaction", null);
+    }
+  }
+  
+  public void transactionBegin() throws DatabaseException {
+    if (transactionIsOpen()) {
+      throw new DatabaseException(null,
+        "Cannot begin a transaction while in another transaction.", null, null);
+    }
+    
+    try {
+      conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+      conn.setAutoCommit(false);
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "start a transaction", null);
+    }
+  }
+  
+  public void transactionCommit() throws DatabaseException {
+    if (!transactionIsOpen()) {
+      throw new DatabaseException(null,
+        "Cannot commit outside of a transaction.", null, null);
+    }
+    
+    try {
+      conn.commit();
+      conn.setAutoCommit(true);
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "commit a transaction", null);
+    }
+  }
+  
+  public void transactionRollback() throws DatabaseException {
+    if (!transactionIsOpen()) {
+      throw new DatabaseException(null,
+        "Cannot rollback outside of a transaction.", null, null);
+    }
+    
+    try {
+      conn.rollback();
+      conn.setAutoCommit(true);
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "rollback a transaction", null);
+    }
+  }
+  
+  public void close() throws DatabaseException {
+    for (String name : new java.util.ArrayList<String>(statements.keySet())) {
+      psDestroy(name);
+    }
+    
+    try {
+      conn.close();
+    }
+    catch (SQLException sqlExp) {
+      throw failure(sqlExp, "close the connection", null);
+    }
+  }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import edu.berkeley.path.model_elements.*;
+
+import core.*;
+
+/**
+ * A scenario whose associated networks and sets are read from the database
+ * on first access, rather than all at once by ScenarioReader.read().
+ * getScenario() returns the scenario row at once; each associate getter
+ * reads its associate the first time it is called, stores it in the
+ * scenario, and returns it.
+ * 
+ * Networks and sensor sets are taken from a ModstampCache when one is set,
+ * so that scenarios sharing a network do not read it twice.
+ * 
+ * @see ScenarioReader#readLazy
+ * @author vjoel
+ */
+public class LazyScenario {
+  private final Scenario scenario;
+  private final List<Long> networkIDs;
+  private final Long splitRatioSetID;
+  private final Long demandSetID;
+  private final Long fdSetID;
+  private final Long sensorSetID;
+  
+  private final DBParams dbParams;
+  private final DBConnection dbr;
+  
+  private ModstampCache<Network> networkCache = null;
+  private ModstampCache<SensorSet> sensorSetCache = null;
+  
+  private boolean networksLoaded = false;
+  private boolean splitRatioSetLoaded = false;
+  private boolean demandSetLoaded = false;
+  private boolean fdSetLoaded = false;
+  private boolean sensorSetLoaded = false;
+  
+  /**
+   * @param scenario      the scenario row, without associates
+   * @param associateIDs  ids of the 1-1 associates, as read by
+   *                      ScenarioReader.readRow()
+   * @param networkIDs    ids of the associated networks
+   * @param dbParams      database to read associates from
+   * @param dbr           connection to read associates on
+   */
+  public LazyScenario(
+      Scenario scenario,
+      Map<String, Long> associateIDs,
+      List<Long> networkIDs,
+      DBParams dbParams,
+      DBConnection dbr) {
+    this.scenario = scenario;
+    this.networkIDs = networkIDs;
+    this.splitRatioSetID = associateIDs.get("SPLIT_RATIO_SET");
+    this.demandSetID = associateIDs.get("DEMAND_SET");
+    this.fdSetID = associateIDs.get("FD_SET");
+    this.sensorSetID = associateIDs.get("SENSOR_SET");
+    this.dbParams = dbParams;
+    this.dbr = dbr;
+  }
+  
+  /**
+   * Read networks through the given cache, instead of directly.
+   **/
+  public void setNetworkCache(ModstampCache<Network> networkCache) {
+    this.networkCache = networkCache;
+  }
+  
+  /**
+   * Read sensor sets through the given cache, instead of directly.
+   **/
+  public void setSensorSetCache(ModstampCache<SensorSet> sensorSetCache) {
+    this.sensorSetCache = sensorSetCache;
+  }
+  
+  /**
+   * The scenario, with the associates that have been read so far.
+   **/
+  public Scenario getScenario() {
+    return scenario;
+  }
+  
+  public List<Long> getNetworkIDs() {
+    return networkIDs;
+  }
+  
+  public synchronized List<Network> getNetworks() throws DatabaseException {
+    if (!networksLoaded) {
+      List<Network> networks = scenario.getNetworkList();
+      
+      if (networkCache != null) {
+        networks.addAll(networkCache.get(networkIDs).values());
+      }
+      else {
+        NetworkReader nwr = new NetworkReader(dbParams, dbr);
+        for (Long networkID : networkIDs) {
+          networks.add(nwr.read(networkID));
+        }
+      }
+      
+      networksLoaded = true;
+    }
+    
+    return scenario.getNetworkList();
+  }
+  
+  public synchronized SplitRatioSet getSplitRatioSet() throws DatabaseException {
+    if (!splitRatioSetLoaded) {
+      if (splitRatioSetID != null) {
+        scenario.splitratioSet =
+          new SplitRatioSetReader(dbParams, dbr).read(splitRatioSetID);
+      }
+      splitRatioSetLoaded = true;
+    }
+    
+    return scenario.splitratioSet;
+  }
+  
+  public synchronized DemandSet getDemandSet() throws DatabaseException {
+    if (!demandSetLoaded) {
+      if (demandSetID != null) {
+        scenario.demandSet =
+          new DemandSetReader(dbParams, dbr).read(demandSetID);
+      }
+      demandSetLoaded = true;
+    }
+    
+    return scenario.demandSet;
+  }
+  
+  public synchronized FDSet getFDSet() throws DatabaseException {
+    if (!fdSetLoaded) {
+      if (fdSetID != null) {
+        scenario.fdSet =
+          new FDSetReader(dbParams, dbr).read(fdSetID);
+      }
+      fdSetLoaded = true;
+    }
+    
+    return scenario.fdSet;
+  }
+  
+  public synchronized SensorSet getSensorSet() throws DatabaseException {
+    if (!sensorSetLoaded) {
+      if (sensorSetID != null) {
+        scenario.sensorSet = sensorSetCache != null ?
+          sensorSetCache.get(sensorSetID) :
+          new SensorSetReader(dbParams, dbr).read(sensorSetID);
+      }
+      sensorSetLoaded = true;
+    }
+    
+    return scenario.sensorSet;
+  }
+  
+  /**
+   * Read all associates that have not been read yet.
+   * 
+   * @return the scenario, complete as if read by ScenarioReader.read()
+   */
+  public Scenario loadAll() throws DatabaseException {
+    getNetworks();
+    getSplitRatioSet();
+    getDemandSet();
+    getFDSet();
+    getSensorSet();
+    
+    return scenario;
+  }
+  
+  public String toString() {
+    return "{scenario_id=" + scenario.getId() +
+      ", network_ids=" + networkIDs +
+      ", split_ratio_set_id=" + splitRatioSetID +
+      ", demand_set_id=" + demandSetID +
+      ", fd_set_id=" + fdSetID +
+      ", sensor_set_id=" + sensorSetID + "}";
+  }
+}
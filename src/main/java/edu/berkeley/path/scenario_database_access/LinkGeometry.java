@@ -0,0 +1,302 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.berkeley.path.model_elements.Point;
+
+/**
+ * Converts link geometry between the WKB or WKT used to transfer it to and
+ * from the database and the client-side forms: a list of Points, or a
+ * packed array of coordinates [lon0, lat0, lon1, lat1, ...].
+ * 
+ * @see LinkReader
+ * @see LinkWriter
+ * @author vjoel
+ */
+public class LinkGeometry {
+  private LinkGeometry() {}
+  
+  /**
+   * Decode the vertices of a WKT LINESTRING (or MULTILINESTRING, whose
+   * parts are concatenated) into a packed coordinate array. Only the first
+   * two ordinates of each vertex are kept.
+   * 
+   * @param wkt  text such as "LINESTRING (-75.97 40.90, -75.96 40.91)"
+   * @return packed array of longitude, latitude pairs; empty for null or EMPTY
+   */
+  public static double[] parseLineString(String wkt) {
+    if (wkt == null) {
+      return new double[0];
+    }
+    
+    int len = wkt.length();
+    double[] coords = new double[16];
+    int n = 0;
+    
+    int pos = wkt.indexOf('(');
+    if (pos < 0) {
+      return new double[0]; // "LINESTRING EMPTY"
+    }
+    
+    int ordinate = 0; // index of the next ordinate within the current vertex
+    
+    while (pos < len) {
+      char c = wkt.charAt(pos);
+      
+      if (c == ',' || c == '(' || c == ')') {
+        ordinate = 0;
+        pos++;
+      }
+      else if (Character.isWhitespace(c)) {
+        pos++;
+      }
+      else {
+        int end = pos;
+        while (end < len) {
+          char e = wkt.charAt(end);
+          if (e == ',' || e == ')' || Character.isWhitespace(e)) {
+            break;
+          }
+          end++;
+        }
+        
+        if (ordinate < 2) {
+          if (n == coords.length) {
+            coords = java.util.Arrays.copyOf(coords, 2 * n);
+          }
+          try {
+            coords[n++] = Double.parseDouble(wkt.substring(pos, end));
+          }
+          catch (NumberFormatException exc) {
+            throw new IllegalArgumentException("bad WKT ordinate at " + pos + ": " + wkt);
+          }
+        }
+        
+        ordinate++;
+        pos = end;
+      }
+    }
+    
+    if (n % 2 != 0) {
+      throw new IllegalArgumentException("WKT vertex without latitude: " + wkt);
+    }
+    
+    return java.util.Arrays.copyOf(coords, n);
+  }
+  
+  private static final int WKB_LINESTRING = 2;
+  private static final int WKB_MULTILINESTRING = 5;
+  
+  /**
+   * Decode the vertices of a WKB LINESTRING (or MULTILINESTRING, whose
+   * parts are concatenated), as returned by SDO_UTIL.TO_WKBGEOMETRY, into a
+   * packed coordinate array. Either byte order is accepted, as are 3D and
+   * measured vertices, in ISO or extended type codes; only the first two
+   * ordinates of each vertex are kept.
+   * 
+   * @param wkb  the well-known binary
+   * @return packed array of longitude, latitude pairs; empty for null
+   */
+  public static double[] parseWkb(byte[] wkb) {
+    if (wkb == null) {
+      return new double[0];
+    }
+    
+    try {
+      ByteBuffer buf = ByteBuffer.wrap(wkb);
+      int type = wkbHeader(buf);
+      
+      if (type % 1000 == WKB_LINESTRING) {
+        int vertices = wkbVertexCount(buf, type);
+        return readWkbVertices(buf, type, vertices, new double[2 * vertices], 0);
+      }
+      else if (type % 1000 == WKB_MULTILINESTRING) {
+        int parts = buf.getInt();
+        double[] coords = new double[0];
+        
+        for (int p = 0; p < parts; p++) {
+          int partType = wkbHeader(buf);
+          if (partType % 1000 != WKB_LINESTRING) {
+            throw new IllegalArgumentException("WKB part is not a line string: type " + partType);
+          }
+          int vertices = wkbVertexCount(buf, partType);
+          int n = coords.length;
+          coords = java.util.Arrays.copyOf(coords, n + 2 * vertices);
+          readWkbVertices(buf, partType, vertices, coords, n);
+        }
+        
+        return coords;
+      }
+      
+      throw new IllegalArgumentException("WKB is not a line string: type " + type);
+    }
+    catch (java.nio.BufferUnderflowException exc) {
+      throw new IllegalArgumentException("truncated WKB of " + wkb.length + " bytes");
+    }
+  }
+  
+  /**
+   * Read the byte order and the type of a WKB geometry, setting the byte
+   * order of the buffer. Extended (EWKB) Z and M flags are folded into the
+   * ISO type code, so that type / 1000 is 0 for 2D, 1 for Z, 2 for M and
+   * 3 for ZM.
+   */
+  private static int wkbHeader(ByteBuffer buf) {
+    buf.order(buf.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    int type = buf.getInt();
+    
+    if ((type & 0xE0000000) != 0) {
+      int dims = ((type & 0x80000000) != 0 ? 1 : 0) + ((type & 0x40000000) != 0 ? 2 : 0);
+      
+      if ((type & 0x20000000) != 0) {
+        buf.getInt(); // srid
+      }
+      type = (type & 0x0FFFFFFF) + 1000 * dims;
+    }
+    
+    return type;
+  }
+  
+  /**
+   * Number of ordinates per vertex of a WKB geometry of the given ISO type.
+   */
+  private static int wkbOrdinates(int type) {
+    switch (type / 1000) {
+      case 0: return 2;
+      case 3: return 4;
+      default: return 3;
+    }
+  }
+  
+  /**
+   * Read the vertex count of a WKB line string, checking that the vertices
+   * fit in the rest of the buffer before any array is allocated for them.
+   */
+  private static int wkbVertexCount(ByteBuffer buf, int type) {
+    int vertices = buf.getInt();
+    
+    if (vertices < 0 || 8L * wkbOrdinates(type) * vertices > buf.remaining()) {
+      throw new IllegalArgumentException("WKB line string of " + vertices +
+        " vertices in " + buf.remaining() + " bytes");
+    }
+    
+    return vertices;
+  }
+  
+  /**
+   * Read the given number of WKB vertices into coords from index n on,
+   * keeping the first two ordinates of each.
+   */
+  private static double[] readWkbVertices(ByteBuffer buf, int type, int vertices, double[] coords, int n) {
+    int skip = 8 * (wkbOrdinates(type) - 2);
+    
+    for (int v = 0; v < vertices; v++) {
+      coords[n++] = buf.getDouble();
+      coords[n++] = buf.getDouble();
+      buf.position(buf.position() + skip);
+    }
+    
+    return coords;
+  }
+  
+  /**
+   * Convert a packed coordinate array into a list of Points.
+   * 
+   * @param coords  packed array of longitude, latitude pairs
+   * @return list of Point
+   */
+  public static List<Point> toPoints(double[] coords) {
+    List<Point> points = new ArrayList<Point>(coords.length / 2);
+    addPoints(points, coords);
+    return points;
+  }
+  
+  /**
+   * Append the vertices of a packed coordinate array to a list of Points.
+   * 
+   * @param points  list to append to, such as a link's point list
+   * @param coords  packed array of longitude, latitude pairs
+   */
+  public static void addPoints(List<Point> points, double[] coords) {
+    for (int i = 0; i + 1 < coords.length; i += 2) {
+      Point point = new Point();
+      point.setLongitude(coords[i]);
+      point.setLatitude(coords[i + 1]);
+      points.add(point);
+    }
+  }
+  
+  /**
+   * Encode a list of Points as big-endian WKB, for SDO_UTIL.FROM_WKBGEOMETRY.
+   * Every vertex is kept, even one that repeats the vertex before it.
+   * 
+   * @param points  vertices of the line
+   * @return WKB of a LINESTRING
+   */
+  public static byte[] toLineStringWkb(List<Point> points) {
+    ByteBuffer buf = ByteBuffer.allocate(9 + 16 * points.size());
+    buf.put((byte)0);
+    buf.putInt(WKB_LINESTRING);
+    buf.putInt(points.size());
+    
+    for (Point point : points) {
+      buf.putDouble(point.getLongitude());
+      buf.putDouble(point.getLatitude());
+    }
+    
+    return buf.array();
+  }
+  
+  /**
+   * Encode a list of Points as WKT, for SDO_UTIL.FROM_WKTGEOMETRY.
+   * 
+   * @param points  vertices of the line
+   * @return text such as "LINESTRING ( -75.97 40.90, -75.96 40.91 )"
+   */
+  public static String toLineStringWkt(List<Point> points) {
+    StringBuilder wkt = new StringBuilder("LINESTRING ( ");
+    boolean first = true;
+    
+    for (Point point : points) {
+      if (!first) {
+        wkt.append(", ");
+      }
+      wkt.append(point.getLongitude()).append(' ').append(point.getLatitude());
+      first = false;
+    }
+    
+    return wkt.append(" )").toString();
+  }
+}
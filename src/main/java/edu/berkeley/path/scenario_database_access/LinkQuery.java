@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+/**
+ * Selects which links of a network LinkReader reads, at what level of
+ * geometric detail, and which optional attributes are read with them.
+ * The default instance selects all links and attributes at full
+ * resolution, which is equivalent to LinkReader.readLinks(networkID).
+ * Fields can be set directly, as with DBParams.
+ * 
+ * The id, begin and end node ids, length, lanes, speed limit and detail
+ * level of a link are always read. Attributes that are turned off are
+ * left unset in the links, and their tables are not joined.
+ * 
+ * @see LinkReader#readLinks(long, LinkQuery)
+ * @author vjoel
+ */
+public class LinkQuery {
+  /**
+   * read only links interacting with this box, or null for all links
+   **/
+  public BoundingBox box = null;
+  
+  /**
+   * read only links with DETAIL_LEVEL at most this, or null for all levels
+   **/
+  public Integer maxDetailLevel = null;
+  
+  /**
+   * simplify link geometry in the database, dropping vertices that are
+   * closer than this many meters to the simplified line, or null to read
+   * full resolution geometry
+   **/
+  public Double simplifyMeters = null;
+  
+  /**
+   * read link geometry (the vertex list)
+   **/
+  public boolean geometry = true;
+  
+  /**
+   * read link names, from LINK_NAMES
+   **/
+  public boolean names = true;
+  
+  /**
+   * read link type names, from LINK_TYPE_DET and LINK_TYPES
+   **/
+  public boolean types = true;
+  
+  /**
+   * read display lane offsets, from LINK_LANE_OFFSET
+   **/
+  public boolean laneOffsets = true;
+  
+  public LinkQuery() {
+  }
+  
+  /**
+   * Read only what a solver needs to build the graph: ids, begin and end
+   * nodes, length, lanes and speed limit. No geometry, names, types or
+   * lane offsets.
+   */
+  public static LinkQuery topology() {
+    LinkQuery spec = new LinkQuery();
+    spec.geometry = false;
+    spec.names = false;
+    spec.types = false;
+    spec.laneOffsets = false;
+    return spec;
+  }
+  
+  /**
+   * Read the links of a web map tile, simplified to about half a pixel
+   * at the tile's zoom level, and optionally limited by detail level.
+   * 
+   * @param z               zoom level
+   * @param x               tile column
+   * @param y               tile row
+   * @param maxDetailLevel  highest DETAIL_LEVEL to include, or null for all
+   */
+  public static LinkQuery forTile(int z, int x, int y, Integer maxDetailLevel) {
+    LinkQuery spec = new LinkQuery();
+    spec.box = BoundingBox.fromTile(z, x, y);
+    spec.maxDetailLevel = maxDetailLevel;
+    spec.simplifyMeters = metersPerPixel(z) / 2;
+    return spec;
+  }
+  
+  /**
+   * Ground resolution of a 256 pixel web map tile at the equator. This
+   * overstates the resolution away from the equator, so simplifying to a
+   * fraction of it never removes visible detail.
+   * 
+   * @param z zoom level
+   * @return meters per pixel
+   */
+  public static double metersPerPixel(int z) {
+    return 2 * Math.PI * 6378137.0 / 256 / Math.pow(2, z);
+  }
+  
+  public String toString() {
+    return "{box=" + box +
+      ", max_detail_level=" + maxDetailLevel +
+      ", simplify_meters=" + simplifyMeters +
+      ", geometry=" + geometry +
+      ", names=" + names +
+      ", types=" + types +
+      ", lane_offsets=" + laneOffsets + "}";
+  }
+}
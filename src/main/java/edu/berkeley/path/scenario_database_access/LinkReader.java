@@ -32,6 +32,8 @@ package edu.berkeley.path.scenario_database_access;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Arrays;
 import java.util.HashSet;
 
@@ -51,6 +53,13 @@ public class LinkReader extends ReaderBase {
     super(dbParams);
   }
   
+  public LinkReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public LinkReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -72,12 +81,12 @@ public class LinkReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug("Link reader transaction beginning on " + linkIdStr);
 
       link = readWithAssociates(linkID, networkID);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug("Link reader transaction committing on " + linkIdStr);
     }
     catch (DatabaseException dbExc) {
@@ -86,7 +95,7 @@ public class LinkReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug("Link reader transaction rollback on " + linkIdStr);
       }
       catch(Exception Exc) {
@@ -117,40 +126,6 @@ public class LinkReader extends ReaderBase {
     return link;
   }
   
-  /**
-   * Represents the result of querying the geom of a link. These objects
-   * should not be used outside of transferring the query results into
-   * the links. The Link instance doesn't refer to Vertex instances.
-   **/
-  protected static class Vertex {
-    /**
-     * id of the link this vertex belongs to
-     **/
-    public Long linkId;
-    
-    /**
-     * index of this vertex in the list of all vertices of the link
-     **/
-    public Long index;
-    
-    /**
-     * x coordinate of this vertex
-     **/
-    public Double x;
-    
-    /**
-     * y coordinate of this vertex
-     **/
-    public Double y;
-    
-    public Vertex(Long linkId, Long index, Double x, Double y) {
-      this.linkId = linkId;
-      this.index = index;
-      this.x = x;
-      this.y = y;
-    }
-  }
-
   /**
    * Read the list of links associated with a network from the database.
    * This is intended to be called from @see NetworkReader, so it does
@@ -177,50 +152,310 @@ public class LinkReader extends ReaderBase {
       }
     }
     
-    String vertexQuery = null;
+    String geomQuery = null;
     try {
-      vertexQuery = runVertexQueryAllLinks(networkID);
-      
-      int i = 0;
+      geomQuery = runGeometryQueryAllLinks(networkID);
+      addGeometryFromQueryRS(links, geomQuery);
+    }
+    finally {
+      if (geomQuery != null) {
+        dbr.psDestroy(geomQuery);
+      }
+    }
+    
+    return links;
+  }
+  
+  /**
+   * Read the list of links of a network that interact with the bounding box,
+   * optionally limited to links of at most the given detail level. Both
+   * filters are applied by the database, using the spatial index on
+   * LINKS.GEOM. This is intended for map views, which only need the
+   * viewport, so it does not set up a transaction of its own.
+   * 
+   * @param networkID       ID of the network
+   * @param box             the bounding box
+   * @param maxDetailLevel  highest DETAIL_LEVEL to include, or null for all
+   * @return List of links, sorted by id.
+   */
+  public ArrayList<Link> readLinksInBox(
+      long networkID,
+      BoundingBox box,
+      Integer maxDetailLevel
+      ) throws DatabaseException {
+    LinkQuery spec = new LinkQuery();
+    spec.box = box;
+    spec.maxDetailLevel = maxDetailLevel;
+    
+    return readLinks(networkID, spec);
+  }
+  
+  /**
+   * Read the links of a network selected by the query spec, with geometry
+   * simplified by the database if the spec asks for it. Overview maps and
+   * previews can use this to transfer and hold much less geometry.
+   * Optional attributes the spec turns off are not joined or read, and
+   * without geometry the geometry query is skipped entirely.
+   * This does not set up a transaction of its own.
+   * 
+   * @param networkID ID of the network
+   * @param spec      which links to read, and at what detail
+   * @return List of links, sorted by id.
+   */
+  public ArrayList<Link> readLinks(long networkID, LinkQuery spec) throws DatabaseException {
+    ArrayList<Link> links = new ArrayList<Link>();
+    
+    String query = null;
+    
+    try {
+      query = runQueryLinks(networkID, spec);
       Link link = null;
-      Vertex vertex = null;
+      while (null != (link = linkFromQueryRS(query))) {
+        links.add(link);
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    if (links.isEmpty() || !spec.geometry) {
+      return links;
+    }
+    
+    String geomQuery = null;
+    try {
+      geomQuery = runGeometryQueryLinks(networkID, spec);
+      addGeometryFromQueryRS(links, geomQuery);
+    }
+    finally {
+      if (geomQuery != null) {
+        dbr.psDestroy(geomQuery);
+      }
+    }
+    
+    return links;
+  }
+  
+  /**
+   * Read the geometry of all links of a network as packed coordinate
+   * arrays, without reading the rest of the link rows. This is intended for
+   * drawing a network, so it does not set up a transaction of its own.
+   * 
+   * @param networkID ID of the network
+   * @return map from link id to [lon0, lat0, lon1, lat1, ...], sorted by id
+   */
+  public Map<Long,double[]> readPackedGeometry(long networkID) throws DatabaseException {
+    Map<Long,double[]> geoms = new LinkedHashMap<Long,double[]>();
+    
+    String geomQuery = null;
+    try {
+      geomQuery = runGeometryQueryAllLinks(networkID);
       
-      while (null != (vertex = vertexFromQueryRS(vertexQuery))) {
-        link = links.get(i);
+      while (dbr.psRSNext(geomQuery)) {
+        Long linkId = dbr.psRSGetBigInt(geomQuery, "LINK_ID");
         
-        if (!vertex.linkId.equals(link.getLongId())) {
-          i++;
-          link = links.get(i);
-          
-          if (!vertex.linkId.equals(link.getLongId())) {
-            throw new DatabaseException(null,
-              "Links not in same order as vertex query results",
-              dbr, vertexQuery);
-          }
+        geoms.put(linkId, geometryFromRow(geomQuery));
+      }
+    }
+    finally {
+      if (geomQuery != null) {
+        dbr.psDestroy(geomQuery);
+      }
+    }
+    
+    return geoms;
+  }
+  
+  /**
+   * Read a digest of each stored link of a network, as RowDigest.of(Link),
+   * with one query for the rows, their attributes and their geometry.
+   * Only the digests are kept, so this holds much less than the links.
+   * This is intended to be called from @see NetworkWriter, so it does not
+   * set up a transaction of its own.
+   * 
+   * @param networkID ID of the network
+   * @return map from link id to digest
+   */
+  public Map<Long,Long> readLinkDigests(long networkID) throws DatabaseException {
+    Map<Long,Long> digests = new HashMap<Long,Long>();
+    
+    String query = "read_link_digests_network" + networkID;
+    
+    dbr.psCreate(query, queryFragment(new LinkQuery(), geometryColumnSql("LINKS.GEOM")) +
+      "WHERE (LINKS.NETWORK_ID = ?)"
+    );
+    
+    try {
+      dbr.psClearParams(query);
+      dbr.psSetBigInt(query, 1, networkID);
+      dbr.psQuery(query);
+      
+      Link link = null;
+      while (null != (link = linkFromQueryRS(query))) {
+        try {
+          LinkGeometry.addPoints(link.getPointList(), geometryFromRow(query));
         }
-        
-        List<Point> points = link.getPointList();
-        
-        if (points.size() + 1 != vertex.index) {
-          throw new DatabaseException(null,
-            "Link vertices not in order",
-            dbr, vertexQuery);
+        catch (IllegalArgumentException exc) {
+          throw new DatabaseException(exc,
+            "Bad geometry for link id=" + link.getId(),
+            dbr.getDatabase(), query);
         }
         
-        Point point = new Point();
-        point.setLongitude(vertex.x);
-        point.setLatitude(vertex.y);
-        
-        points.add(point);
+        digests.put(link.getLongId(), RowDigest.of(link));
       }
     }
     finally {
-      if (vertexQuery != null) {
-        dbr.psDestroy(vertexQuery);
+      dbr.psDestroy(query);
+    }
+    
+    return digests;
+  }
+  
+  /**
+   * Read the links of several networks from the database, with one link
+   * query and one geometry query for all of them, instead of two queries
+   * per network. Both queries are ordered by network, so the results are
+   * split into per-network lists in one pass. This is intended to be
+   * called from @see NetworkReader, so it does not set up a transaction
+   * of its own.
+   * 
+   * @param networkIDs IDs of the networks, at least one
+   * @param spec       which links and link attributes to read
+   * @return Map from network ID to list of links. Networks without links
+   *         are not in the map.
+   */
+  public Map<Long,ArrayList<Link>> readLinksOfNetworks(
+          List<Long> networkIDs,
+          LinkQuery spec
+          ) throws DatabaseException {
+    Map<Long,ArrayList<Link>> linksByNetwork = new HashMap<Long,ArrayList<Link>>();
+    
+    String query = null;
+    
+    try {
+      query = runQueryLinksOfNetworks(networkIDs, spec);
+      ArrayList<Link> links = null;
+      Long currentNetworkID = null;
+      Link link = null;
+      while (null != (link = linkFromQueryRS(query))) {
+        Long networkID = dbr.psRSGetBigInt(query, "NETWORK_ID");
+        if (!networkID.equals(currentNetworkID)) {
+          currentNetworkID = networkID;
+          links = new ArrayList<Link>();
+          linksByNetwork.put(networkID, links);
+        }
+        links.add(link);
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
       }
     }
     
-    return links;
+    String geomQuery = null;
+    try {
+      geomQuery = runGeometryQueryLinksOfNetworks(networkIDs, spec);
+      addGeometryFromNetworksQueryRS(linksByNetwork, geomQuery);
+    }
+    finally {
+      if (geomQuery != null) {
+        dbr.psDestroy(geomQuery);
+      }
+    }
+    
+    return linksByNetwork;
+  }
+  
+  /**
+   * Decode the geometries in the result set of a geometry query into the
+   * point lists of the links, consuming all results. The links and the
+   * geometry query results must both be sorted by link id, and each link
+   * has at most one geometry row.
+   * 
+   * @param links     links to add the points to
+   * @param geomQuery string
+   */
+  protected void addGeometryFromQueryRS(List<Link> links, String geomQuery) throws DatabaseException {
+    int i = 0;
+    
+    while (dbr.psRSNext(geomQuery)) {
+      i = addGeometryFromRow(links, i, geomQuery);
+    }
+  }
+  
+  /**
+   * Decode the geometries in the result set of a geometry query for several
+   * networks into the point lists of their links, consuming all results.
+   * The results must be sorted by network id and then by link id, as must
+   * each list of links.
+   * 
+   * @param linksByNetwork  links to add the points to, by network ID
+   * @param geomQuery       string, with a NETWORK_ID column
+   */
+  protected void addGeometryFromNetworksQueryRS(
+          Map<Long,ArrayList<Link>> linksByNetwork,
+          String geomQuery
+          ) throws DatabaseException {
+    List<Link> links = null;
+    Long currentNetworkID = null;
+    int i = 0;
+    
+    while (dbr.psRSNext(geomQuery)) {
+      Long networkID = dbr.psRSGetBigInt(geomQuery, "NETWORK_ID");
+      
+      if (!networkID.equals(currentNetworkID)) {
+        currentNetworkID = networkID;
+        links = linksByNetwork.get(networkID);
+        i = 0;
+        
+        if (links == null) {
+          throw new DatabaseException(null,
+            "Geometry without links in network id=" + networkID,
+            dbr.getDatabase(), geomQuery);
+        }
+      }
+      
+      i = addGeometryFromRow(links, i, geomQuery);
+    }
+  }
+  
+  /**
+   * Decode the geometry in the current row of a geometry query into the
+   * point list of its link, searching the links from index i on.
+   * 
+   * @param links     links sorted by link id
+   * @param i         index of the first link that may match the row
+   * @param geomQuery string
+   * @return index of the first link that may match the next row
+   */
+  private int addGeometryFromRow(List<Link> links, int i, String geomQuery) throws DatabaseException {
+    Long linkId = dbr.psRSGetBigInt(geomQuery, "LINK_ID");
+    
+    // skip links without geometry
+    while (i < links.size() && !linkId.equals(links.get(i).getLongId())) {
+      i++;
+    }
+    
+    if (i == links.size()) {
+      throw new DatabaseException(null,
+        "Links not in same order as geometry query results",
+        dbr.getDatabase(), geomQuery);
+    }
+    
+    try {
+      LinkGeometry.addPoints(links.get(i).getPointList(),
+        geometryFromRow(geomQuery));
+    }
+    catch (IllegalArgumentException exc) {
+      throw new DatabaseException(exc,
+        "Bad geometry for link id=" + linkId,
+        dbr.getDatabase(), geomQuery);
+    }
+    
+    return i + 1;
   }
   
   /**
@@ -244,70 +479,68 @@ public class LinkReader extends ReaderBase {
       }
     }
     
-    String vertexQuery = null;
+    if (link == null) {
+      return link;
+    }
+    
+    String geomQuery = null;
     try {
-      vertexQuery = runVertexQueryOneLink(linkID, networkID);
-      
-      Vertex vertex = null;
-      
-      while (null != (vertex = vertexFromQueryRS(vertexQuery))) {
-        if (!vertex.linkId.equals(link.getLongId())) {
-          throw new DatabaseException(null,
-            "Wrong Link ID in vertex query result",
-            dbr, vertexQuery);
-        }
-        
-        List<Point> points = link.getPointList();
-        
-        if (points.size() + 1 != vertex.index) {
-          throw new DatabaseException(null,
-            "Link vertices not in order",
-            dbr, vertexQuery);
-        }
-        
-        Point point = new Point();
-        point.setLongitude(vertex.x);
-        point.setLatitude(vertex.y);
-        
-        points.add(point);
-      }
+      geomQuery = runGeometryQueryOneLink(linkID, networkID);
+      addGeometryFromQueryRS(Arrays.asList(link), geomQuery);
     }
     finally {
-      if (vertexQuery != null) {
-        dbr.psDestroy(vertexQuery);
+      if (geomQuery != null) {
+        dbr.psDestroy(geomQuery);
       }
     }
     
     return link;
   }
   
-  private static String queryFragment =
+  private static String queryFragment = queryFragment(new LinkQuery(), null);
+  
+  /**
+   * SELECT ... FROM for link rows, joining only the attribute tables the
+   * spec asks for. Columns of tables that are not joined are selected as
+   * NULL, so linkFromQueryRS() can read any of these queries. The geometry
+   * column, if not null, is selected as well, as by geometryColumnSql().
+   */
+  private static String queryFragment(LinkQuery spec, String geometryColumn) {
+    return
       "SELECT " +
         "LINKS.ID, " +
+        "LINKS.NETWORK_ID, " +
         "LINKS.BEG_NODE_ID, " +
         "LINKS.END_NODE_ID, " +
         "LINKS.SPEED_LIMIT, " +
         "LINKS.LENGTH, " +
         "LINKS.DETAIL_LEVEL, " +
-        "LINK_NAMES.NAME, " +
-        "LINK_TYPES.NAME TYPE, " +
+        (spec.names ? "LINK_NAMES.NAME, " : "NULL NAME, ") +
+        (spec.types ? "LINK_TYPES.NAME TYPE, " : "NULL TYPE, ") +
         "LINK_LANES.LANES, " +
-        "LINK_LANE_OFFSET.DISPLAY_LANE_OFFSET " +
+        (spec.laneOffsets ?
+          "LINK_LANE_OFFSET.DISPLAY_LANE_OFFSET " :
+          "NULL DISPLAY_LANE_OFFSET ") +
+        (geometryColumn == null ? "" : ", " + geometryColumn) +
       "FROM VIA.LINKS " +
-      "LEFT OUTER JOIN VIA.LINK_NAMES " +
-        "ON ((VIA.LINK_NAMES.LINK_ID = VIA.LINKS.ID) AND " +
-            "(VIA.LINK_NAMES.NETWORK_ID = VIA.LINKS.NETWORK_ID)) " +
+      (spec.names ?
+        "LEFT OUTER JOIN VIA.LINK_NAMES " +
+          "ON ((VIA.LINK_NAMES.LINK_ID = VIA.LINKS.ID) AND " +
+              "(VIA.LINK_NAMES.NETWORK_ID = VIA.LINKS.NETWORK_ID)) " : "") +
       "LEFT OUTER JOIN VIA.LINK_LANES " +
         "ON ((VIA.LINK_LANES.LINK_ID = VIA.LINKS.ID) AND " +
             "(VIA.LINK_LANES.NETWORK_ID = VIA.LINKS.NETWORK_ID)) " +
-      "LEFT OUTER JOIN VIA.LINK_LANE_OFFSET " +
-        "ON ((VIA.LINK_LANE_OFFSET.LINK_ID = VIA.LINKS.ID) AND " +
-            "(VIA.LINK_LANE_OFFSET.NETWORK_ID = VIA.LINKS.NETWORK_ID)) " +
-      "LEFT OUTER JOIN VIA.LINK_TYPE_DET " +
-        "ON ((VIA.LINK_TYPE_DET.LINK_ID = LINKS.ID) AND " +
-            "(VIA.LINK_TYPE_DET.NETWORK_ID = LINKS.NETWORK_ID)) " +
-      "LEFT OUTER JOIN VIA.LINK_TYPES " +
-        "ON (VIA.LINK_TYPES.ID = LINK_TYPE_DET.LINK_TYPE) ";
+      (spec.laneOffsets ?
+        "LEFT OUTER JOIN VIA.LINK_LANE_OFFSET " +
+          "ON ((VIA.LINK_LANE_OFFSET.LINK_ID = VIA.LINKS.ID) AND " +
+              "(VIA.LINK_LANE_OFFSET.NETWORK_ID = VIA.LINKS.NETWORK_ID)) " : "") +
+      (spec.types ?
+        "LEFT OUTER JOIN VIA.LINK_TYPE_DET " +
+          "ON ((VIA.LINK_TYPE_DET.LINK_ID = LINKS.ID) AND " +
+              "(VIA.LINK_TYPE_DET.NETWORK_ID = LINKS.NETWORK_ID)) " +
+        "LEFT OUTER JOIN VIA.LINK_TYPES " +
+          "ON (VIA.LINK_TYPES.ID = LINK_TYPE_DET.LINK_TYPE) " : "");
+  }
 
   /**
    * Execute a query for the specified link.
@@ -352,6 +585,83 @@ public class LinkReader extends ReaderBase {
     return query;
   }
 
+  /**
+   * Execute a query for the links of a network selected by the query spec.
+   * 
+   * @param networkID ID of the network
+   * @param spec      which links to read
+   * @return String     query string, may be passed to psRSNext or linkFromQueryRS
+   */
+  protected String runQueryLinks(long networkID, LinkQuery spec) throws DatabaseException {
+    String query = "read_links_query_network" + networkID;
+    
+    dbr.psCreate(query, queryFragment(spec, null) +
+      "WHERE (LINKS.NETWORK_ID = ?) " +
+        linkFilterSql("LINKS", spec) +
+      "ORDER BY LINKS.ID"
+    );
+    
+    dbr.psClearParams(query);
+    dbr.psSetBigInt(query, 1, networkID);
+    setLinkFilter(query, 2, spec);
+    dbr.psQuery(query);
+
+    return query;
+  }
+  
+  /**
+   * Execute a query for the links of several networks selected by the query
+   * spec, ordered by network and then by link.
+   * 
+   * @param networkIDs IDs of the networks, at least one
+   * @param spec       which links to read
+   * @return String     query string, may be passed to psRSNext or linkFromQueryRS
+   */
+  protected String runQueryLinksOfNetworks(List<Long> networkIDs, LinkQuery spec) throws DatabaseException {
+    String query = "read_links_networks";
+    
+    dbr.psCreate(query, queryFragment(spec, null) +
+      "WHERE " + inListSql("LINKS.NETWORK_ID", networkIDs.size()) + " " +
+        linkFilterSql("LINKS", spec) +
+      "ORDER BY LINKS.NETWORK_ID, LINKS.ID"
+    );
+    
+    dbr.psClearParams(query);
+    int i = 1;
+    for (Long networkID : networkIDs) {
+      dbr.psSetBigInt(query, i++, networkID);
+    }
+    setLinkFilter(query, i, spec);
+    dbr.psQuery(query);
+
+    return query;
+  }
+  
+  /**
+   * SQL conditions (each preceded by AND) for the detail level and bounding
+   * box of the spec. Bind them with setLinkFilter().
+   */
+  private static String linkFilterSql(String table, LinkQuery spec) {
+    return
+      (spec.maxDetailLevel == null ? "" : "AND (" + table + ".DETAIL_LEVEL <= ?) ") +
+      (spec.box == null ? "" : "AND " + boundingBoxSql(table + ".GEOM") + " ");
+  }
+  
+  /**
+   * Bind the parameters of linkFilterSql(), starting at the given index.
+   * 
+   * @return index of the next parameter
+   */
+  private int setLinkFilter(String query, int i, LinkQuery spec) throws DatabaseException {
+    if (spec.maxDetailLevel != null) {
+      dbr.psSetInteger(query, i++, spec.maxDetailLevel);
+    }
+    if (spec.box != null) {
+      i = setBoundingBox(query, i, spec.box);
+    }
+    return i;
+  }
+
   /**
    * Instantiate and populate a link object from the next item in the result set
    * of a link query.
@@ -403,29 +713,57 @@ public class LinkReader extends ReaderBase {
   }
 
   /**
-   * Execute a query for the vertices of a specified link in specified network.
+   * Select list item transferring the given geometry expression as WKB,
+   * which is decoded without any text parsing. Core connections cannot read
+   * binary columns, so through them it is transferred as WKT.
    * 
-   * @param linkID  ID of the link in the database
-   * @param networkID ID of the network
-   * @return String     query string, may be passed to psRSNext or vertexFromQueryRS
+   * @param geom  SQL expression of SDO_GEOMETRY type
+   * @return SQL of a GEOM column, to be read with geometryFromRow()
    */
-  protected String runVertexQueryOneLink(long linkID, long networkID) throws DatabaseException {
-    String query = "read_vertices_link_" + linkID;
-    
-    dbr.psCreate(query,
+  private String geometryColumnSql(String geom) {
+    if (dbr instanceof CoreStatements) {
+      return "SDO_UTIL.TO_WKTGEOMETRY(" + geom + ") GEOM ";
+    }
+    return "SDO_UTIL.TO_WKBGEOMETRY(" + geom + ") GEOM ";
+  }
+  
+  /**
+   * Decode the GEOM column of the current row of a geometry query.
+   * 
+   * @param geomQuery string
+   * @return packed array of longitude, latitude pairs
+   */
+  private double[] geometryFromRow(String geomQuery) throws DatabaseException {
+    if (dbr instanceof CoreStatements) {
+      return LinkGeometry.parseLineString(dbr.psRSGetVarChar(geomQuery, "GEOM"));
+    }
+    return LinkGeometry.parseWkb(dbr.psRSGetBytes(geomQuery, "GEOM"));
+  }
+  
+  private String geometryQueryFragment() {
+    return
       "SELECT " +
         "L.ID LINK_ID, " +
-        "POINTS.X X, " +
-        "POINTS.Y Y, " +
-        "POINTS.ID POINT_ID " +
+        geometryColumnSql("L.GEOM") +
       "FROM " +
-        "VIA.LINKS L, " +
-        "TABLE( SDO_UTIL.GETVERTICES(L.GEOM) ) POINTS " +
+        "VIA.LINKS L ";
+  }
+
+  /**
+   * Execute a query for the geometry of a specified link, as one row.
+   * 
+   * @param linkID  ID of the link in the database
+   * @param networkID ID of the network
+   * @return String     query string, may be passed to psRSNext or addGeometryFromQueryRS
+   */
+  protected String runGeometryQueryOneLink(long linkID, long networkID) throws DatabaseException {
+    String query = "read_geometry_link_" + linkID;
+    
+    dbr.psCreate(query, geometryQueryFragment() +
       "WHERE " +
         "L.ID = ? AND " +
-        "NETWORK_ID = ? " +
-      "ORDER BY " +
-        "POINTS.ID"
+        "L.NETWORK_ID = ? AND " +
+        "L.GEOM IS NOT NULL"
     );
     
     dbr.psClearParams(query);
@@ -437,59 +775,115 @@ public class LinkReader extends ReaderBase {
   }
 
   /**
-   * Execute a query for all vertices of all links in specified network.
+   * Execute a query for the geometry of all links in specified network,
+   * one row per link, rather than one row per vertex.
+   * 
+   * @param networkID ID of the network
+   * @return String     query string, may be passed to psRSNext or addGeometryFromQueryRS
+   */
+  protected String runGeometryQueryAllLinks(long networkID) throws DatabaseException {
+    String query = "read_link_geometry_network" + networkID;
+    
+    dbr.psCreate(query, geometryQueryFragment() +
+      "WHERE " +
+        "L.NETWORK_ID = ? AND " +
+        "L.GEOM IS NOT NULL " +
+      "ORDER BY " +
+        "L.ID"
+    );
+    
+    dbr.psClearParams(query);
+    dbr.psSetBigInt(query, 1, networkID);
+    dbr.psQuery(query);
+
+    return query;
+  }
+
+  /**
+   * Execute a query for the geometry of the links of a network selected by
+   * the query spec, one row per link. If the spec has a simplification
+   * distance, the geometry is simplified with SDO_UTIL.SIMPLIFY before it
+   * is transferred.
    * 
    * @param networkID ID of the network
-   * @return String     query string, may be passed to psRSNext or vertexFromQueryRS
+   * @param spec      which links to read, and at what detail
+   * @return String     query string, may be passed to psRSNext or addGeometryFromQueryRS
    */
-  protected String runVertexQueryAllLinks(long networkID) throws DatabaseException {
-    String query = "read_link_vertices_network" + networkID;
+  protected String runGeometryQueryLinks(long networkID, LinkQuery spec) throws DatabaseException {
+    String query = "read_link_geometry_query_network" + networkID;
+    
+    String geom = spec.simplifyMeters == null ? "L.GEOM" :
+      // tolerance 0.05 m is the usual one for geodetic data
+      "SDO_UTIL.SIMPLIFY(L.GEOM, ?, 0.05)";
     
     dbr.psCreate(query,
       "SELECT " +
         "L.ID LINK_ID, " +
-        "POINTS.X X, " +
-        "POINTS.Y Y, " +
-        "POINTS.ID POINT_ID " +
+        geometryColumnSql(geom) +
       "FROM " +
-        "VIA.LINKS L, " +
-        "TABLE( SDO_UTIL.GETVERTICES(L.GEOM) ) POINTS " +
+        "VIA.LINKS L " +
       "WHERE " +
-        "NETWORK_ID = ? " +
+        "L.NETWORK_ID = ? AND " +
+        "L.GEOM IS NOT NULL " +
+        linkFilterSql("L", spec) +
       "ORDER BY " +
-        "L.ID, " +
-        "POINTS.ID"
+        "L.ID"
     );
     
     dbr.psClearParams(query);
-    dbr.psSetBigInt(query, 1, networkID);
+    int i = 1;
+    if (spec.simplifyMeters != null) {
+      dbr.psSetDouble(query, i++, spec.simplifyMeters);
+    }
+    dbr.psSetBigInt(query, i++, networkID);
+    setLinkFilter(query, i, spec);
     dbr.psQuery(query);
 
     return query;
   }
 
   /**
-   * Instantiate and populate a Vertex object from the next item in the result set
-   * of a vertex query.
+   * Execute a query for the geometry of the links of several networks
+   * selected by the query spec, one row per link, ordered by network
+   * and then by link.
    * 
-   * @param query string
-   * @return Vertex
+   * @param networkIDs IDs of the networks, at least one
+   * @param spec       which links to read, and at what detail
+   * @return String     query string, may be passed to psRSNext or addGeometryFromNetworksQueryRS
    */
-  protected Vertex vertexFromQueryRS(String query) throws DatabaseException {
-    Vertex vertex = null;
+  protected String runGeometryQueryLinksOfNetworks(List<Long> networkIDs, LinkQuery spec) throws DatabaseException {
+    String query = "read_link_geometry_networks";
     
-    if (dbr.psRSNext(query)) {
-      //String columns = org.apache.commons.lang.StringUtils.join(dbr.psRSColumnNames(query), ", ");
-      //System.out.println("columns: [" + columns + "]");
-      
-      Long linkId = dbr.psRSGetBigInt(query, "LINK_ID");
-      Double longitude = dbr.psRSGetDouble(query, "X");
-      Double latitude = dbr.psRSGetDouble(query, "Y");
-      Long vertexIndex = dbr.psRSGetBigInt(query, "POINT_ID");
-      
-      vertex = new Vertex(linkId, vertexIndex, longitude, latitude);
+    String geom = spec.simplifyMeters == null ? "L.GEOM" :
+      "SDO_UTIL.SIMPLIFY(L.GEOM, ?, 0.05)";
+    
+    dbr.psCreate(query,
+      "SELECT " +
+        "L.NETWORK_ID, " +
+        "L.ID LINK_ID, " +
+        geometryColumnSql(geom) +
+      "FROM " +
+        "VIA.LINKS L " +
+      "WHERE " +
+        inListSql("L.NETWORK_ID", networkIDs.size()) + " AND " +
+        "L.GEOM IS NOT NULL " +
+        linkFilterSql("L", spec) +
+      "ORDER BY " +
+        "L.NETWORK_ID, " +
+        "L.ID"
+    );
+    
+    dbr.psClearParams(query);
+    int i = 1;
+    if (spec.simplifyMeters != null) {
+      dbr.psSetDouble(query, i++, spec.simplifyMeters);
+    }
+    for (Long networkID : networkIDs) {
+      dbr.psSetBigInt(query, i++, networkID);
     }
+    setLinkFilter(query, i, spec);
+    dbr.psQuery(query);
 
-    return vertex;
+    return query;
   }
 }
@@ -51,6 +51,13 @@ public class LinkWriter extends WriterBase {
     super(dbParams);
   }
   
+  public LinkWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
   public LinkWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
@@ -75,6 +82,7 @@ public class LinkWriter extends WriterBase {
       List<Link> links = new ArrayList();
       links.add(link);
       insertLinks(links, networkID);
+      touchModstamp("NETWORKS", networkID);
 
       dbw.transactionCommit();
       Monitor.debug("Link insert transaction committing on " + linkIdStr);
@@ -93,6 +101,8 @@ public class LinkWriter extends WriterBase {
       }
     }
 
+    ModstampCache.invalidate(ModstampCache.NETWORKS, networkID);
+
     long timeCommit = System.nanoTime();
     Monitor.duration("Insert " + linkIdStr, timeCommit - timeBegin);
   }
@@ -117,6 +127,10 @@ public class LinkWriter extends WriterBase {
     try {
       for (Link link : links) {
         linksInserter.insert(link);
+      }
+      linksInserter.flush();
+      
+      for (Link link : links) {
         if (link.getName() != null) {
           linkNamesInserter.insert(link);
         }
@@ -157,6 +171,7 @@ public class LinkWriter extends WriterBase {
       List<Link> links = new ArrayList();
       links.add(link);
       updateLinks(links, networkID);
+      touchModstamp("NETWORKS", networkID);
 
       dbw.transactionCommit();
       Monitor.debug("Link update transaction committing on " + linkIdStr);
@@ -175,92 +190,63 @@ public class LinkWriter extends WriterBase {
       }
     }
 
+    ModstampCache.invalidate(ModstampCache.NETWORKS, networkID);
+
     long timeCommit = System.nanoTime();
     Monitor.duration("Update " + linkIdStr, timeCommit - timeBegin);
   }
 
+  /**
+   * Update the given list of links in the specified network in the database.
+   * This is intended to be called from @see NetworkWriter, so it does
+   * not set up a transaction of its own. The optional attributes are
+   * written by one MERGE per table for each batch of links, which also
+   * deletes the attributes that are null.
+   * 
+   * @param links list of links
+   * @param networkID ID of the network
+   */
   protected void updateLinks(List<Link> links, long networkID) throws DatabaseException {
-    LinksRowUpdater       linkUpdater      = new LinksRowUpdater(networkID, dbw);
-    
-    LinkNamesRowUpdater   linkNameUpdater  = new LinkNamesRowUpdater(networkID, dbw);
-    LinkNamesRowInserter  linkNameInserter = new LinkNamesRowInserter(networkID, dbw);
-    LinkNamesRowDeleter   linkNameDeleter  = new LinkNamesRowDeleter(networkID, dbw);
-    
-    LinkLanesRowUpdater   linkLaneUpdater  = new LinkLanesRowUpdater(networkID, dbw);
-    LinkLanesRowInserter  linkLaneInserter = new LinkLanesRowInserter(networkID, dbw);
-    LinkLanesRowDeleter   linkLaneDeleter  = new LinkLanesRowDeleter(networkID, dbw);
-    
-    LinkLaneOffsetRowUpdater   linkLaneOffsetUpdater  = new LinkLaneOffsetRowUpdater(networkID, dbw);
-    LinkLaneOffsetRowInserter  linkLaneOffsetInserter = new LinkLaneOffsetRowInserter(networkID, dbw);
-    LinkLaneOffsetRowDeleter   linkLaneOffsetDeleter  = new LinkLaneOffsetRowDeleter(networkID, dbw);
-    
-    LinkTypesRowUpdater   linkTypeUpdater  = new LinkTypesRowUpdater(networkID, dbw);
-    LinkTypesRowInserter  linkTypeInserter = new LinkTypesRowInserter(networkID, dbw);
-    LinkTypesRowDeleter   linkTypeDeleter  = new LinkTypesRowDeleter(networkID, dbw);
+    LinksRowUpdater linkUpdater = new LinksRowUpdater(networkID, dbw);
     
     try {
       for (Link link : links) {
         linkUpdater.update(link);
-        
-        if (link.getName() == null) {
-          linkNameDeleter.delete(link.getLongId());
-        }
-        else {
-          long rows = linkNameUpdater.update(link);
-          if (rows == 0) {
-            linkNameInserter.insert(link);
-          }
-        }
-        
-        if (link.getLaneCount() == null) {
-          linkLaneDeleter.delete(link.getLongId());
-        }
-        else {
-          long rows = linkLaneUpdater.update(link);
-          if (rows == 0) {
-            linkLaneInserter.insert(link);
-          }
-        }
-        
-        if (link.getLaneOffset() == null) {
-          linkLaneOffsetDeleter.delete(link.getLongId());
-        }
-        else {
-          long rows = linkLaneOffsetUpdater.update(link);
-          if (rows == 0) {
-            linkLaneOffsetInserter.insert(link);
-          }
-        }
-        
-        if (link.getType() == null) {
-          linkTypeDeleter.delete(link.getLongId());
-        }
-        else {
-          long rows = linkTypeUpdater.update(link);
-          if (rows == 0) {
-            linkTypeInserter.insert(link);
-          }
-        }
       }
+      linkUpdater.flush();
     }
     finally {
       linkUpdater.release();
-      
-      linkNameUpdater.release();
-      linkNameInserter.release();
-      linkNameDeleter.release();
-      
-      linkLaneUpdater.release();
-      linkLaneInserter.release();
-      linkLaneDeleter.release();
-      
-      linkLaneOffsetUpdater.release();
-      linkLaneOffsetInserter.release();
-      linkLaneOffsetDeleter.release();
+    }
+    
+    mergeAttributes(links, networkID);
+  }
 
-      linkTypeUpdater.release();
-      linkTypeInserter.release();
-      linkTypeDeleter.release();
+  /**
+   * Write the names, lanes, lane offsets and types of the given links,
+   * inserting, updating or deleting rows as needed, with one statement per
+   * table for each batch of links.
+   * 
+   * @param links list of links
+   * @param networkID ID of the network
+   */
+  protected void mergeAttributes(List<Link> links, long networkID) throws DatabaseException {
+    LinkNamesRowMerger       linkNameMerger       = new LinkNamesRowMerger(networkID);
+    LinkLanesRowMerger       linkLaneMerger       = new LinkLanesRowMerger(networkID);
+    LinkLaneOffsetRowMerger  linkLaneOffsetMerger = new LinkLaneOffsetRowMerger(networkID);
+    LinkTypesRowMerger       linkTypeMerger       = new LinkTypesRowMerger(networkID);
+    
+    try {
+      linkNameMerger.merge(links);
+      linkLaneMerger.merge(links);
+      linkLaneOffsetMerger.merge(links);
+      linkTypeMerger.merge(links);
+    }
+    finally {
+      linkNameMerger.release();
+      linkLaneMerger.release();
+      linkLaneOffsetMerger.release();
+      linkTypeMerger.release();
     }
   }
 
@@ -281,6 +267,7 @@ public class LinkWriter extends WriterBase {
       List<Long> linkIDs = new ArrayList();
       linkIDs.add(linkID);
       deleteLinks(linkIDs, networkID);
+      touchModstamp("NETWORKS", networkID);
 
       dbw.transactionCommit();
       Monitor.debug("Link delete transaction committing on " + linkIdStr);
@@ -299,6 +286,8 @@ public class LinkWriter extends WriterBase {
       }
     }
 
+    ModstampCache.invalidate(ModstampCache.NETWORKS, networkID);
+
     long timeCommit = System.nanoTime();
     Monitor.duration("Delete " + linkIdStr, timeCommit - timeBegin);
   }
@@ -365,7 +354,7 @@ public class LinkWriter extends WriterBase {
   }
 
   protected class RowOp {
-    protected DatabaseWriter dbw;
+    protected DBConnection dbw;
     protected String psname;
     
     protected void release() throws DatabaseException {
@@ -373,51 +362,166 @@ public class LinkWriter extends WriterBase {
     }
   }
 
-  protected class LinksRowInserter extends RowOp {
-    protected LinksRowInserter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+  /**
+   * Rows of the LINKS table written per round trip.
+   **/
+  protected static final int BATCH_ROWS = 500;
+  
+  /**
+   * SQL expression of a line string geometry (srid 8307) from one bound
+   * parameter, to be bound by setGeometry(). The line is bound as WKB, or
+   * as WKT through core, which cannot bind binary parameters.
+   */
+  protected static String geometrySql(DBConnection dbw) {
+    if (dbw instanceof CoreStatements) {
+      return "SDO_UTIL.FROM_WKTGEOMETRY(?, 8307)";
+    }
+    return "SDO_UTIL.FROM_WKBGEOMETRY(?, 8307)";
+  }
+  
+  /**
+   * Bind the points of a line to the parameter of geometrySql().
+   */
+  protected static void setGeometry(
+      DBConnection dbw,
+      String psname,
+      int index,
+      List<Point> points
+      ) throws DatabaseException {
+    if (dbw instanceof CoreStatements) {
+      dbw.psSetVarChar(psname, index, LinkGeometry.toLineStringWkt(points));
+    }
+    else {
+      dbw.psSetBytes(psname, index, LinkGeometry.toLineStringWkb(points));
+    }
+  }
+  
+  /**
+   * Row op on the LINKS table, with one statement for links with geometry
+   * and one for links without. Rows are added to the batch of their
+   * statement, which runs when it has BATCH_ROWS rows, or on flush().
+   */
+  protected abstract class GeometryRowOp extends RowOp {
+    protected long networkID;
+    private String[] names = new String[2];
+    private List<Link>[] batches = new List[] {new ArrayList<Link>(), new ArrayList<Link>()};
+    
+    /**
+     * SQL of the statement for links with or without geometry.
+     */
+    protected abstract String sql(boolean geometry);
+    
+    /**
+     * Check the rows affected by one batched row.
+     */
+    protected void checkRows(Link link, int rows, String name) throws DatabaseException {
+    }
+    
+    /**
+     * Name of the prepared statement for links with or without geometry,
+     * preparing it if needed.
+     */
+    protected String statement(boolean geometry) throws DatabaseException {
+      int k = geometry ? 1 : 0;
+      
+      if (names[k] == null) {
+        String name = psname + (geometry ? "_geom" : "");
+        dbw.psCreate(name, sql(geometry));
+        names[k] = name;
+      }
+      
+      return names[k];
+    }
+    
+    /**
+     * Add the link bound to the statement to its batch, running the batch
+     * if it is full.
+     */
+    protected void addBatch(boolean geometry, Link link) throws DatabaseException {
+      int k = geometry ? 1 : 0;
+      
+      dbw.psAddBatch(names[k]);
+      batches[k].add(link);
+      
+      if (batches[k].size() == BATCH_ROWS) {
+        executeBatch(k);
+      }
+    }
+    
+    private void executeBatch(int k) throws DatabaseException {
+      List<Link> batch = batches[k];
+      if (batch.isEmpty()) {
+        return;
+      }
+      
+      int[] rows = dbw.psExecuteBatch(names[k]);
+      for (int i = 0; i < rows.length && i < batch.size(); i++) {
+        checkRows(batch.get(i), rows[i], names[k]);
+      }
+      batch.clear();
+    }
+    
+    /**
+     * Run the batches that are not yet full.
+     */
+    protected void flush() throws DatabaseException {
+      executeBatch(0);
+      executeBatch(1);
+    }
+    
+    protected void release() throws DatabaseException {
+      for (int k = 0; k < names.length; k++) {
+        if (names[k] != null) {
+          dbw.psDestroy(names[k]);
+          names[k] = null;
+        }
+        batches[k].clear();
+      }
+    }
+  }
+
+  protected class LinksRowInserter extends GeometryRowOp {
+    protected LinksRowInserter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
+      this.networkID = networkID;
       this.psname = "insert_links_in_network_" + networkID;
-      dbw.psCreate(psname,
-        "declare\n" +
-        "mygeom sdo_geometry ;\n" +
-        "begin\n" +
-        "select SDO_UTIL.FROM_WKTGEOMETRY(?) into mygeom from dual ;\n" +
-        "mygeom.sdo_srid := 8307 ;\n" +
-        "INSERT INTO VIA.LINKS (ID, NETWORK_ID, BEG_NODE_ID, END_NODE_ID, SPEED_LIMIT, LENGTH, DETAIL_LEVEL, geom) VALUES(?, " + networkID + ", ?, ?, ?, ?, ?, mygeom);\n" +
-        "end;"
-      );
+    }
+    
+    protected String sql(boolean geometry) {
+      return
+        "INSERT INTO VIA.LINKS (ID, NETWORK_ID, BEG_NODE_ID, END_NODE_ID, SPEED_LIMIT, LENGTH, DETAIL_LEVEL, GEOM) " +
+        "VALUES(?, " + networkID + ", ?, ?, ?, ?, ?, " + (geometry ? geometrySql(dbw) : "NULL") + ")";
     }
 
+    /**
+     * Add the link to the batch of inserts. Call flush() to run the last
+     * batch.
+     */
     protected void insert(Link link) throws DatabaseException {
-      dbw.psClearParams(psname);
+      List<Point> points = link.getPointList();
+      boolean geometry = !points.isEmpty();
+      String name = statement(geometry);
+      
+      dbw.psClearParams(name);
       int i = 0;
       
-      List<String> vertstrings = new ArrayList<String>();
-      for (Point point : link.getPointList()) {
-        vertstrings.add(
-          point.getLongitude() + " " +
-          point.getLatitude());
+      dbw.psSetBigInt(name, ++i, link.getLongId());
+      dbw.psSetBigInt(name, ++i, link.getBeginLongId());
+      dbw.psSetBigInt(name, ++i, link.getEndLongId());
+      dbw.psSetDouble(name, ++i, link.getSpeedLimit());
+      dbw.psSetDouble(name, ++i, link.getLength());
+      dbw.psSetInteger(name, ++i, link.getDetailLevel());
+      
+      if (geometry) {
+        setGeometry(dbw, name, ++i, points);
       }
       
-      String linestring = org.apache.commons.lang.StringUtils.join(vertstrings, ", ");
-      String linestring_wkt = 
-        "LINESTRING ( " +
-        linestring +
-        " )";
-      dbw.psSetVarChar(psname, ++i, linestring_wkt);
-      
-      dbw.psSetBigInt(psname, ++i, link.getLongId());
-      dbw.psSetBigInt(psname, ++i, link.getBeginLongId());
-      dbw.psSetBigInt(psname, ++i, link.getEndLongId());
-      dbw.psSetDouble(psname, ++i, link.getSpeedLimit());
-      dbw.psSetDouble(psname, ++i, link.getLength());
-      dbw.psSetInteger(psname, ++i, link.getDetailLevel());
-      dbw.psUpdate(psname);
+      addBatch(geometry, link);
     }
   }
   
   protected class LinkNamesRowInserter extends RowOp {
-    protected LinkNamesRowInserter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected LinkNamesRowInserter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "insert_link_names_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -434,7 +538,7 @@ public class LinkWriter extends WriterBase {
   }
   
   protected class LinkLanesRowInserter extends RowOp {
-    protected LinkLanesRowInserter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected LinkLanesRowInserter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "insert_link_lanes_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -451,7 +555,7 @@ public class LinkWriter extends WriterBase {
   }
   
   protected class LinkLaneOffsetRowInserter extends RowOp {
-    protected LinkLaneOffsetRowInserter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected LinkLaneOffsetRowInserter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "insert_link_lane_offset_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -468,7 +572,7 @@ public class LinkWriter extends WriterBase {
   }
   
   protected class LinkTypesRowInserter extends RowOp {
-    protected LinkTypesRowInserter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected LinkTypesRowInserter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "insert_link_types_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -485,161 +589,117 @@ public class LinkWriter extends WriterBase {
     }
   }
 
-  protected class LinksRowUpdater extends RowOp {
-    protected LinksRowUpdater(long networkID, DatabaseWriter dbw) throws DatabaseException {
+  protected class LinksRowUpdater extends GeometryRowOp {
+    protected LinksRowUpdater(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
+      this.networkID = networkID;
       this.psname = "update_links_in_network_" + networkID;
-      dbw.psCreate(psname,
-        "declare\n" +
-        "mygeom sdo_geometry ;\n" +
-        "begin\n" +
-        "select SDO_UTIL.FROM_WKTGEOMETRY(?) into mygeom from dual ;\n" +
-        "mygeom.sdo_srid := 8307 ;\n" +
-        "UPDATE VIA.LINKS SET BEG_NODE_ID = ?, END_NODE_ID = ?, SPEED_LIMIT = ?, LENGTH = ?, DETAIL_LEVEL = ?, geom = mygeom WHERE ((ID = ?) AND (NETWORK_ID = " + networkID + "));\n" +
-        "end;"
-      );
     }
     
-    protected long update(Link link) throws DatabaseException {
-      dbw.psClearParams(psname);
-      int i=0;
-      
-      List<String> vertstrings = new ArrayList<String>();
-      for (Point point : link.getPointList()) {
-        vertstrings.add(
-          point.getLongitude() + " " +
-          point.getLatitude());
-      }
-      
-      String linestring = org.apache.commons.lang.StringUtils.join(vertstrings, ", ");
-      String linestring_wkt = 
-        "LINESTRING ( " +
-        linestring +
-        " )";
-      dbw.psSetVarChar(psname, ++i, linestring_wkt);
-      
-      dbw.psSetBigInt(psname, ++i, link.getBeginLongId());
-      dbw.psSetBigInt(psname, ++i, link.getEndLongId());
-      dbw.psSetDouble(psname, ++i, link.getSpeedLimit());
-      dbw.psSetDouble(psname, ++i, link.getLength());
-      dbw.psSetInteger(psname, ++i, link.getDetailLevel());
-      dbw.psSetBigInt(psname, ++i, link.getLongId());
-
-      long rows = dbw.psUpdate(psname);
+    protected String sql(boolean geometry) {
+      return
+        "UPDATE VIA.LINKS SET BEG_NODE_ID = ?, END_NODE_ID = ?, SPEED_LIMIT = ?, LENGTH = ?, DETAIL_LEVEL = ?, " +
+          "GEOM = " + (geometry ? geometrySql(dbw) : "NULL") + " " +
+        "WHERE ((ID = ?) AND (NETWORK_ID = " + networkID + "))";
+    }
     
+    protected void checkRows(Link link, int rows, String name) throws DatabaseException {
       if (rows > 1) {
         throw new DatabaseException(null, "Link not unique: there exist " +
-          rows + " with id=" + link.getId(), dbw, psname);
+          rows + " with id=" + link.getId(), dbw.getDatabase(), name);
       }
-      
-      return rows;
-    }
-  }
-  
-  protected class LinkNamesRowUpdater extends RowOp {
-    protected LinkNamesRowUpdater(long networkID, DatabaseWriter dbw) throws DatabaseException {
-      this.dbw = dbw;
-      this.psname = "update_link_names_in_network_" + networkID;
-      dbw.psCreate(psname,
-        "UPDATE VIA.LINK_NAMES SET name = ? WHERE ((LINK_ID = ?) AND (NETWORK_ID = " + networkID + "))"
-      );
     }
     
-    protected long update(Link link) throws DatabaseException {
-      dbw.psClearParams(psname);
-      dbw.psSetVarChar(psname, 1, link.getNameString());
-      dbw.psSetBigInt(psname, 2, link.getLongId());
+    /**
+     * Add the link to the batch of updates. Call flush() to run the last
+     * batch.
+     */
+    protected void update(Link link) throws DatabaseException {
+      List<Point> points = link.getPointList();
+      boolean geometry = !points.isEmpty();
+      String name = statement(geometry);
+      
+      dbw.psClearParams(name);
+      int i=0;
       
-      long rows = dbw.psUpdate(psname);
+      dbw.psSetBigInt(name, ++i, link.getBeginLongId());
+      dbw.psSetBigInt(name, ++i, link.getEndLongId());
+      dbw.psSetDouble(name, ++i, link.getSpeedLimit());
+      dbw.psSetDouble(name, ++i, link.getLength());
+      dbw.psSetInteger(name, ++i, link.getDetailLevel());
       
-      if (rows > 1) {
-        throw new DatabaseException(null, "Link name not unique: there exist " +
-          rows + " with id=" + link.getId(), dbw, psname);
+      if (geometry) {
+        setGeometry(dbw, name, ++i, points);
       }
       
-      return rows;
+      dbw.psSetBigInt(name, ++i, link.getLongId());
+      
+      addBatch(geometry, link);
     }
   }
   
-  protected class LinkLanesRowUpdater extends RowOp {
-    protected LinkLanesRowUpdater(long networkID, DatabaseWriter dbw) throws DatabaseException {
-      this.dbw = dbw;
-      this.psname = "update_link_lanes_in_network_" + networkID;
-      dbw.psCreate(psname,
-        "UPDATE VIA.LINK_LANES SET lanes = ? WHERE ((LINK_ID = ?) AND (NETWORK_ID = " + networkID + "))"
-      );
+  protected class LinkNamesRowMerger extends AttributeMerger<Link> {
+    protected LinkNamesRowMerger(long networkID) {
+      super("LINK_NAMES", "LINK_ID", "NAME", networkID);
     }
     
-    protected long update(Link link) throws DatabaseException {
-      dbw.psClearParams(psname);
-      dbw.psSetDouble(psname, 1, link.getLaneCount());
-      dbw.psSetBigInt(psname, 2, link.getLongId());
-      
-      long rows = dbw.psUpdate(psname);
-      
-      if (rows > 1) {
-        throw new DatabaseException(null, "Link lanes not unique: there exist " +
-          rows + " with id=" + link.getId(), dbw, psname);
-      }
-      
-      return rows;
+    protected Long id(Link link) {
+      return link.getLongId();
+    }
+    
+    protected void setValue(String name, int index, Link link) throws DatabaseException {
+      dbw.psSetVarChar(name, index, link.getNameString());
     }
   }
   
-  protected class LinkLaneOffsetRowUpdater extends RowOp {
-    protected LinkLaneOffsetRowUpdater(long networkID, DatabaseWriter dbw) throws DatabaseException {
-      this.dbw = dbw;
-      this.psname = "update_link_lane_offset_in_network_" + networkID;
-      dbw.psCreate(psname,
-        "UPDATE VIA.LINK_LANE_OFFSET SET display_lane_offset = ? WHERE ((LINK_ID = ?) AND (NETWORK_ID = " + networkID + "))"
-      );
+  protected class LinkLanesRowMerger extends AttributeMerger<Link> {
+    protected LinkLanesRowMerger(long networkID) {
+      super("LINK_LANES", "LINK_ID", "LANES", networkID);
     }
     
-    protected long update(Link link) throws DatabaseException {
-      dbw.psClearParams(psname);
-      dbw.psSetInteger(psname, 1, link.getLaneOffset());
-      dbw.psSetBigInt(psname, 2, link.getLongId());
-      
-      long rows = dbw.psUpdate(psname);
-      
-      if (rows > 1) {
-        throw new DatabaseException(null, "Link lane offset not unique: there exist " +
-          rows + " with id=" + link.getId(), dbw, psname);
-      }
-      
-      return rows;
+    protected Long id(Link link) {
+      return link.getLongId();
+    }
+    
+    protected void setValue(String name, int index, Link link) throws DatabaseException {
+      dbw.psSetDouble(name, index, link.getLaneCount());
     }
   }
   
-  protected class LinkTypesRowUpdater extends RowOp {
-    protected LinkTypesRowUpdater(long networkID, DatabaseWriter dbw) throws DatabaseException {
-      this.dbw = dbw;
-      this.psname = "update_link_types_in_network_" + networkID;
-      dbw.psCreate(psname,
-        "UPDATE VIA.LINK_TYPE_DET SET LINK_TYPE = " +
-          "(SELECT ID FROM VIA.LINK_TYPES WHERE NAME = ?) " +
-          "WHERE ((LINK_ID = ?) AND (NETWORK_ID = " + networkID + "))"
-      );
+  protected class LinkLaneOffsetRowMerger extends AttributeMerger<Link> {
+    protected LinkLaneOffsetRowMerger(long networkID) {
+      super("LINK_LANE_OFFSET", "LINK_ID", "DISPLAY_LANE_OFFSET", networkID);
     }
     
-    protected long update(Link link) throws DatabaseException {
-      dbw.psClearParams(psname);
-      dbw.psSetVarChar(psname, 1, link.getTypeString());
-      dbw.psSetBigInt(psname, 2, link.getLongId());
-      
-      long rows = dbw.psUpdate(psname);
-      
-      if (rows > 1) {
-        throw new DatabaseException(null, "Link type not unique: there exist " +
-          rows + " with id=" + link.getId(), dbw, psname);
-      }
-      
-      return rows;
+    protected Long id(Link link) {
+      return link.getLongId();
+    }
+    
+    protected void setValue(String name, int index, Link link) throws DatabaseException {
+      dbw.psSetInteger(name, index, link.getLaneOffset());
+    }
+  }
+  
+  protected class LinkTypesRowMerger extends AttributeMerger<Link> {
+    protected LinkTypesRowMerger(long networkID) {
+      super("LINK_TYPE_DET", "LINK_ID", "LINK_TYPE", networkID);
+    }
+    
+    protected Long id(Link link) {
+      return link.getLongId();
+    }
+    
+    protected void setValue(String name, int index, Link link) throws DatabaseException {
+      dbw.psSetVarChar(name, index, link.getTypeString());
+    }
+    
+    protected String valueSql() {
+      return "(SELECT ID FROM VIA.LINK_TYPES WHERE NAME = S.VAL)";
     }
   }
   
   protected class LinksRowDeleter extends RowOp {
-    protected LinksRowDeleter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected LinksRowDeleter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "delete_links_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -655,7 +715,7 @@ public class LinkWriter extends WriterBase {
       
       if (rows > 1) {
         throw new DatabaseException(null, "Link not unique: network has " +
-          rows + " rows with id=" + linkID, dbw, psname);
+          rows + " rows with id=" + linkID, dbw.getDatabase(), psname);
       }
       
       return rows;
@@ -663,7 +723,7 @@ public class LinkWriter extends WriterBase {
   }
 
   protected class LinkNamesRowDeleter extends RowOp {
-    protected LinkNamesRowDeleter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected LinkNamesRowDeleter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "delete_link_names_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -679,7 +739,7 @@ public class LinkWriter extends WriterBase {
       
       if (rows > 1) {
         throw new DatabaseException(null, "Link name not unique: network has " +
-          rows + " rows with id=" + linkID, dbw, psname);
+          rows + " rows with id=" + linkID, dbw.getDatabase(), psname);
       }
       
       return rows;
@@ -687,7 +747,7 @@ public class LinkWriter extends WriterBase {
   }
 
   protected class LinkLanesRowDeleter extends RowOp {
-    protected LinkLanesRowDeleter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected LinkLanesRowDeleter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "delete_link_lanes_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -703,7 +763,7 @@ public class LinkWriter extends WriterBase {
       
       if (rows > 1) {
         throw new DatabaseException(null, "Link lanes not unique: network has " +
-          rows + " rows with id=" + linkID, dbw, psname);
+          rows + " rows with id=" + linkID, dbw.getDatabase(), psname);
       }
       
       return rows;
@@ -711,7 +771,7 @@ public class LinkWriter extends WriterBase {
   }
 
   protected class LinkLaneOffsetRowDeleter extends RowOp {
-    protected LinkLaneOffsetRowDeleter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected LinkLaneOffsetRowDeleter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "delete_link_lane_offset_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -727,7 +787,7 @@ public class LinkWriter extends WriterBase {
       
       if (rows > 1) {
         throw new DatabaseException(null, "Link lane offset not unique: network has " +
-          rows + " rows with id=" + linkID, dbw, psname);
+          rows + " rows with id=" + linkID, dbw.getDatabase(), psname);
       }
       
       return rows;
@@ -735,7 +795,7 @@ public class LinkWriter extends WriterBase {
   }
 
   protected class LinkTypesRowDeleter extends RowOp {
-    protected LinkTypesRowDeleter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected LinkTypesRowDeleter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "delete_link_types_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -751,7 +811,7 @@ public class LinkWriter extends WriterBase {
       
       if (rows > 1) {
         throw new DatabaseException(null, "Link type not unique: network has " +
-          rows + " rows with id=" + linkID, dbw, psname);
+          rows + " rows with id=" + linkID, dbw.getDatabase(), psname);
       }
       
       return rows;
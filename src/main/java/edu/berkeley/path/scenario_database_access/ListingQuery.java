@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import edu.berkeley.path.model_elements.*;
+
+/**
+ * Selects one page of a listing of projects or scenarios, such as the
+ * listings shown by a UI. Pages are found by keyset (the sort key and id
+ * of the last row of the previous page), not by offset, so reading a page
+ * costs the same no matter how deep in the listing it is, and rows
+ * inserted meanwhile do not shift the pages. Fields can be set directly,
+ * as with DBParams.
+ * 
+ * Listings read only the id, name and modstamp of each row (and the
+ * project id of scenarios).
+ * 
+ * @see ProjectReader#readProjectPage(ListingQuery)
+ * @see ProjectReader#readScenarioPage(long, ListingQuery)
+ * @author vjoel
+ */
+public class ListingQuery {
+  public enum Order {ID, NAME, MODSTAMP}
+  
+  /**
+   * sort key; ties are broken by id
+   **/
+  public Order orderBy = Order.ID;
+  
+  /**
+   * sort from largest to smallest
+   **/
+  public boolean descending = false;
+  
+  /**
+   * maximum number of rows in the page
+   **/
+  public int limit = 100;
+  
+  /**
+   * id of the last row of the previous page, or null for the first page
+   **/
+  public Long afterID = null;
+  
+  /**
+   * name of the last row of the previous page, if ordered by name
+   **/
+  public CharSequence afterName = null;
+  
+  /**
+   * modstamp of the last row of the previous page, in microseconds, if
+   * ordered by modstamp
+   **/
+  public Long afterModstamp = null;
+  
+  public ListingQuery() {
+  }
+  
+  /**
+   * First page of a listing sorted by name.
+   * 
+   * @param limit  maximum number of rows in the page
+   */
+  public static ListingQuery byName(int limit) {
+    ListingQuery spec = new ListingQuery();
+    spec.orderBy = Order.NAME;
+    spec.limit = limit;
+    return spec;
+  }
+  
+  /**
+   * First page of a listing sorted by modstamp, most recently modified
+   * first.
+   * 
+   * @param limit  maximum number of rows in the page
+   */
+  public static ListingQuery latestFirst(int limit) {
+    ListingQuery spec = new ListingQuery();
+    spec.orderBy = Order.MODSTAMP;
+    spec.descending = true;
+    spec.limit = limit;
+    return spec;
+  }
+  
+  /**
+   * The page after the page ending with the given row.
+   * 
+   * @param id        id of the last row of this page
+   * @param name      name of the last row of this page
+   * @param modstamp  modstamp of the last row of this page
+   * @return ListingQuery with the same order and limit
+   */
+  public ListingQuery next(Long id, CharSequence name, Long modstamp) {
+    ListingQuery spec = new ListingQuery();
+    spec.orderBy = orderBy;
+    spec.descending = descending;
+    spec.limit = limit;
+    spec.afterID = id;
+    spec.afterName = name;
+    spec.afterModstamp = modstamp;
+    return spec;
+  }
+  
+  public ListingQuery next(Project last) {
+    return next(last.getLongId(), last.name, last.getModstamp());
+  }
+  
+  public ListingQuery next(Scenario last) {
+    return next(last.getLongId(), last.getName(), last.getModstamp());
+  }
+  
+  public String toString() {
+    return "{order_by=" + orderBy +
+      ", descending=" + descending +
+      ", limit=" + limit +
+      ", after_id=" + afterID +
+      ", after_name=" + afterName +
+      ", after_modstamp=" + afterModstamp + "}";
+  }
+}
@@ -0,0 +1,480 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import edu.berkeley.path.model_elements.*;
+
+import core.*;
+
+/**
+ * Read-through cache of objects read from a table with a MODSTAMP column,
+ * such as networks, scenarios and sensor sets, keyed by id. A cached
+ * object is returned only after a cheap query confirms that its version
+ * (normally its MODSTAMP) has not changed since it was read; otherwise the
+ * object is read again. get(List) checks many ids in one query.
+ * 
+ * The cache is bounded by the estimated size of the objects it holds, and
+ * drops the least recently used objects first. Writers call invalidate()
+ * when they modify a table, so that caches in the same process drop the
+ * object even before the change is committed.
+ * 
+ * Use the factory methods networks(), scenarios() and sensorSets().
+ * 
+ * @author vjoel
+ */
+public abstract class ModstampCache<T> extends ReaderBase {
+  public static final String NETWORKS = "VIA.NETWORKS";
+  public static final String SCENARIOS = "VIA.SCENARIOS";
+  public static final String SENSOR_SETS = "VIA.SENSOR_SETS";
+  public static final String SPLIT_RATIO_SETS = "VIA.SPLIT_RATIO_SETS";
+  public static final String DEMAND_SETS = "VIA.DEMAND_SETS";
+  public static final String FD_SETS = "VIA.FUND_DIAG_SETS";
+  
+  /**
+   * All live caches, so writers can invalidate them. Weak, so that caches
+   * which are no longer used can be collected.
+   **/
+  private static final Set<ModstampCache<?>> registry =
+    Collections.synchronizedSet(Collections.newSetFromMap(
+      new WeakHashMap<ModstampCache<?>,Boolean>()));
+  
+  private static class Entry<T> {
+    final T object;
+    final Long version;
+    final long weight;
+    
+    Entry(T object, Long version, long weight) {
+      this.object = object;
+      this.version = version;
+      this.weight = weight;
+    }
+  }
+  
+  private final String table;
+  private final long maxWeight;
+  private final LinkedHashMap<Long,Entry<T>> entries =
+    new LinkedHashMap<Long,Entry<T>>(16, 0.75f, true);
+  
+  private long weight = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long revalidations = 0;
+  private long versionReads = 0;
+  private long staleReads = 0;
+  
+  /**
+   * @param dbParams  database to read from, with a new connection
+   * @param table     table the objects are read from, such as NETWORKS
+   * @param maxWeight maximum total estimated size of cached objects, in bytes
+   */
+  protected ModstampCache(
+          DBParams dbParams,
+          String table,
+          long maxWeight
+          ) throws DatabaseException {
+    super(dbParams);
+    this.table = table;
+    this.maxWeight = maxWeight;
+    registry.add(this);
+  }
+  
+  /**
+   * Read the object with all its associates, normally with the read()
+   * method of the corresponding reader.
+   */
+  protected abstract T readObject(long id) throws DatabaseException;
+  
+  /**
+   * Estimated size of the object in memory, in bytes.
+   */
+  protected abstract long weigh(T object);
+  
+  /**
+   * SQL expression for the version of a row of the table, aliased as T.
+   * Compared for equality only.
+   */
+  protected String versionSql() {
+    return "T.MODSTAMP";
+  }
+  
+  /**
+   * Drop cached objects affected by a change to the given row of the
+   * given table. By default, drop the object with that id if the table is
+   * this cache's table.
+   */
+  protected synchronized void onInvalidate(String changedTable, long id) {
+    if (table.equals(changedTable)) {
+      remove(id);
+    }
+  }
+  
+  /**
+   * Notify all caches in this process that a row has been modified.
+   * Called by the writers.
+   * 
+   * @param changedTable  table name, such as NETWORKS
+   * @param id            id of the row
+   */
+  public static void invalidate(String changedTable, long id) {
+    ModstampCache<?>[] caches;
+    synchronized (registry) {
+      caches = registry.toArray(new ModstampCache<?>[0]);
+    }
+    for (ModstampCache<?> cache : caches) {
+      cache.onInvalidate(changedTable, id);
+    }
+  }
+  
+  /**
+   * Get the object with the given id, from the cache if its version in
+   * the database is unchanged, and otherwise from the database.
+   * 
+   * @param id  ID of the object in the database
+   * @return the object, or null if there is none
+   */
+  public synchronized T get(long id) throws DatabaseException {
+    return get(Collections.singletonList(id)).get(id);
+  }
+  
+  /**
+   * Get the objects with the given ids. The versions of all the cached
+   * objects are checked with one query.
+   * 
+   * @param ids  IDs of the objects in the database
+   * @return map of id to object, omitting ids that do not exist
+   */
+  public synchronized Map<Long,T> get(List<Long> ids) throws DatabaseException {
+    Map<Long,T> objects = new LinkedHashMap<Long,T>();
+    List<Long> cachedIds = new ArrayList<Long>();
+    
+    for (Long id : ids) {
+      if (entries.containsKey(id)) {
+        cachedIds.add(id);
+      }
+    }
+    
+    Map<Long,Long> versions = Collections.emptyMap();
+    if (!cachedIds.isEmpty()) {
+      revalidations++;
+      versions = readVersions(cachedIds);
+    }
+    
+    for (Long id : ids) {
+      Entry<T> entry = entries.get(id);
+      
+      if (entry != null) {
+        Long version = versions.get(id);
+        if (version != null && version.equals(entry.version)) {
+          hits++;
+          objects.put(id, entry.object);
+          continue;
+        }
+        staleReads++;
+        remove(id);
+      }
+      else {
+        misses++;
+      }
+      
+      T object = load(id);
+      if (object != null) {
+        objects.put(id, object);
+      }
+    }
+    
+    return objects;
+  }
+  
+  /**
+   * Read the object and its version, and cache it. The version is read
+   * first, so that a change made while the object is read is detected on
+   * the next get().
+   */
+  private T load(long id) throws DatabaseException {
+    versionReads++;
+    Long version = readVersions(Collections.singletonList(id)).get(id);
+    if (version == null) {
+      return null;
+    }
+    
+    T object = readObject(id);
+    if (object == null) {
+      return null;
+    }
+    
+    Entry<T> entry = new Entry<T>(object, version, weigh(object));
+    entries.put(id, entry);
+    weight += entry.weight;
+    evict();
+    
+    return object;
+  }
+  
+  private void evict() {
+    Iterator<Entry<T>> iter = entries.values().iterator();
+    while (weight > maxWeight && entries.size() > 1 && iter.hasNext()) {
+      weight -= iter.next().weight;
+      iter.remove();
+    }
+  }
+  
+  private void remove(long id) {
+    Entry<T> entry = entries.remove(id);
+    if (entry != null) {
+      weight -= entry.weight;
+    }
+  }
+  
+  /**
+   * Read the current versions of the given ids.
+   * 
+   * @return map of id to version, omitting ids that do not exist
+   */
+  protected Map<Long,Long> readVersions(List<Long> ids) throws DatabaseException {
+    Map<Long,Long> versions = new HashMap<Long,Long>();
+    String query = "read_versions_" + table;
+    
+    try {
+      dbr.psCreate(query,
+        "SELECT T.ID, " + versionSql() + " VERSION " +
+        "FROM " + table + " T " +
+        "WHERE " + inListSql("T.ID", ids.size())
+      );
+      
+      dbr.psClearParams(query);
+      int i = 1;
+      for (Long id : ids) {
+        dbr.psSetBigInt(query, i++, id);
+      }
+      dbr.psQuery(query);
+      
+      while (dbr.psRSNext(query)) {
+        Long version = dbr.psRSGetTimestampMicroseconds(query, "VERSION");
+        versions.put(dbr.psRSGetBigInt(query, "ID"),
+          version == null ? 0L : version);
+      }
+    }
+    finally {
+      dbr.psDestroy(query);
+    }
+    
+    return versions;
+  }
+  
+  /**
+   * Drop all cached objects.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+  
+  public synchronized int size() {
+    return entries.size();
+  }
+  
+  /**
+   * Estimated size of the cached objects, in bytes.
+   **/
+  public synchronized long getWeight() {
+    return weight;
+  }
+  
+  /**
+   * Number of gets answered from the cache after checking the version.
+   **/
+  public synchronized long getHits() {
+    return hits;
+  }
+  
+  /**
+   * Number of gets of objects that were not cached.
+   **/
+  public synchronized long getMisses() {
+    return misses;
+  }
+  
+  /**
+   * Number of version queries run to check cached objects.
+   **/
+  public synchronized long getRevalidations() {
+    return revalidations;
+  }
+  
+  /**
+   * Number of version queries run to load objects that were not cached
+   * or were stale.
+   **/
+  public synchronized long getVersionReads() {
+    return versionReads;
+  }
+  
+  /**
+   * Number of gets of cached objects that had changed in the database.
+   **/
+  public synchronized long getStaleReads() {
+    return staleReads;
+  }
+  
+  public synchronized String toString() {
+    return "{table=" + table +
+      ", size=" + entries.size() +
+      ", weight=" + weight +
+      ", hits=" + hits +
+      ", misses=" + misses +
+      ", revalidations=" + revalidations +
+      ", version_reads=" + versionReads +
+      ", stale_reads=" + staleReads + "}";
+  }
+  
+  private static long weighNetwork(Network network) {
+    return 256 +
+      384L * network.getLinkList().size() +
+      128L * network.getNodeList().size();
+  }
+  
+  /**
+   * Cache of networks, read with NetworkReader.read(). The node and link
+   * writers give the network row a new MODSTAMP, so its MODSTAMP alone is
+   * the version of the whole network.
+   * 
+   * @param dbParams  database to read from
+   * @param maxWeight maximum total estimated size of cached networks, in bytes
+   */
+  public static ModstampCache<Network> networks(
+          final DBParams dbParams,
+          long maxWeight
+          ) throws DatabaseException {
+    return new ModstampCache<Network>(dbParams, NETWORKS, maxWeight) {
+      private final NetworkReader reader = new NetworkReader(dbParams, dbr);
+      
+      protected Network readObject(long id) throws DatabaseException {
+        return reader.read(id);
+      }
+      
+      protected long weigh(Network network) {
+        return weighNetwork(network);
+      }
+    };
+  }
+  
+  /**
+   * Cache of sensor sets, read with SensorSetReader.read().
+   * 
+   * @param dbParams  database to read from
+   * @param maxWeight maximum total estimated size of cached sets, in bytes
+   */
+  public static ModstampCache<SensorSet> sensorSets(
+          final DBParams dbParams,
+          long maxWeight
+          ) throws DatabaseException {
+    return new ModstampCache<SensorSet>(dbParams, SENSOR_SETS, maxWeight) {
+      private final SensorSetReader reader = new SensorSetReader(dbParams, dbr);
+      
+      protected SensorSet readObject(long id) throws DatabaseException {
+        return reader.read(id);
+      }
+      
+      protected long weigh(SensorSet sensorSet) {
+        return 256 + 256L * sensorSet.getSensorList().size();
+      }
+    };
+  }
+  
+  /**
+   * Cache of scenarios, read with ScenarioReader.read(). The version of a
+   * scenario is the latest MODSTAMP of the scenario row, its networks and
+   * its sets, so a change to any of those reads the scenario again. Any
+   * invalidation of a network or set drops all cached scenarios.
+   * 
+   * @param dbParams  database to read from
+   * @param maxWeight maximum total estimated size of cached scenarios, in bytes
+   */
+  public static ModstampCache<Scenario> scenarios(
+          final DBParams dbParams,
+          long maxWeight
+          ) throws DatabaseException {
+    return new ModstampCache<Scenario>(dbParams, SCENARIOS, maxWeight) {
+      private final ScenarioReader reader = new ScenarioReader(dbParams, dbr);
+      
+      protected Scenario readObject(long id) throws DatabaseException {
+        return reader.read(id);
+      }
+      
+      protected String versionSql() {
+        return
+          "GREATEST(T.MODSTAMP, " +
+            "NVL((SELECT MAX(N.MODSTAMP) FROM VIA.NETWORK_SETS NS " +
+              "JOIN VIA.NETWORKS N ON (N.ID = NS.NETWORK_ID) " +
+              "WHERE NS.SCENARIO_ID = T.ID), T.MODSTAMP), " +
+            setVersionSql(SPLIT_RATIO_SETS, "SPLIT_RATIO_SET") + ", " +
+            setVersionSql(DEMAND_SETS, "DEMAND_PROF_SET") + ", " +
+            setVersionSql(FD_SETS, "FUND_DIAG_SET") + ", " +
+            setVersionSql(SENSOR_SETS, "SENSOR_SET") + ")";
+      }
+      
+      private String setVersionSql(String setTable, String column) {
+        return
+          "NVL((SELECT S.MODSTAMP FROM " + setTable + " S " +
+            "WHERE S.ID = T." + column + "), T.MODSTAMP)";
+      }
+      
+      protected synchronized void onInvalidate(String changedTable, long id) {
+        if (SCENARIOS.equals(changedTable)) {
+          super.onInvalidate(changedTable, id);
+        }
+        else {
+          clear();
+        }
+      }
+      
+      protected long weigh(Scenario scenario) {
+        long w = 1024;
+        for (Network network : scenario.getNetworkList()) {
+          w += weighNetwork(network);
+        }
+        if (scenario.getSensorSet() != null) {
+          w += 256L * scenario.getSensorSet().getSensorList().size();
+        }
+        return w;
+      }
+    };
+  }
+}
@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.Arrays;
+
+/**
+ * Read-only graph of a network in compressed sparse row (CSR) form, for
+ * routing and simulation code that walks the graph many times. Nodes and
+ * links are numbered by dense ordinals 0..n-1 in order of increasing id,
+ * and all attributes are held in primitive arrays indexed by ordinal, so
+ * walking the graph needs no boxing, hashing or string ids.
+ * 
+ * The links leaving node n are outLink[outStart[n]] up to (but not
+ * including) outLink[outStart[n+1]], and likewise for inStart and inLink.
+ * Null attributes in the database are represented as NaN.
+ * 
+ * @see NetworkReader#readGraph
+ * @author vjoel
+ */
+public class NetworkGraph {
+  /**
+   * id of the network
+   **/
+  public final long networkId;
+  
+  /**
+   * node id of each node ordinal, ascending
+   **/
+  public long[] nodeId;
+  
+  /**
+   * link id of each link ordinal, ascending
+   **/
+  public long[] linkId;
+  
+  /**
+   * ordinal of the begin node of each link
+   **/
+  public int[] linkBegin;
+  
+  /**
+   * ordinal of the end node of each link
+   **/
+  public int[] linkEnd;
+  
+  /**
+   * length of each link
+   **/
+  public double[] length;
+  
+  /**
+   * number of lanes of each link
+   **/
+  public double[] lanes;
+  
+  /**
+   * speed limit of each link
+   **/
+  public double[] speedLimit;
+  
+  /**
+   * start of each node's outgoing links in outLink, with one extra entry
+   **/
+  public int[] outStart;
+  
+  /**
+   * ordinals of outgoing links, grouped by begin node
+   **/
+  public int[] outLink;
+  
+  /**
+   * start of each node's incoming links in inLink, with one extra entry
+   **/
+  public int[] inStart;
+  
+  /**
+   * ordinals of incoming links, grouped by end node
+   **/
+  public int[] inLink;
+  
+  private int nodeCount = 0;
+  private int linkCount = 0;
+  
+  // node ids of the link ends, until build() resolves them to ordinals
+  private long[] linkBeginId;
+  private long[] linkEndId;
+  
+  public NetworkGraph(long networkId) {
+    this.networkId = networkId;
+    this.nodeId = new long[16];
+    this.linkId = new long[16];
+    this.linkBeginId = new long[16];
+    this.linkEndId = new long[16];
+    this.length = new double[16];
+    this.lanes = new double[16];
+    this.speedLimit = new double[16];
+  }
+  
+  /**
+   * Number of nodes.
+   **/
+  public int nodeCount() {
+    return nodeCount;
+  }
+  
+  /**
+   * Number of links.
+   **/
+  public int linkCount() {
+    return linkCount;
+  }
+  
+  /**
+   * Ordinal of the node with the given id, or -1 if there is none.
+   **/
+  public int nodeOrdinal(long id) {
+    int i = Arrays.binarySearch(nodeId, 0, nodeCount, id);
+    return i < 0 ? -1 : i;
+  }
+  
+  /**
+   * Ordinal of the link with the given id, or -1 if there is none.
+   **/
+  public int linkOrdinal(long id) {
+    int i = Arrays.binarySearch(linkId, 0, linkCount, id);
+    return i < 0 ? -1 : i;
+  }
+  
+  /**
+   * Number of links leaving the node with the given ordinal.
+   **/
+  public int outDegree(int node) {
+    return outStart[node + 1] - outStart[node];
+  }
+  
+  /**
+   * Number of links entering the node with the given ordinal.
+   **/
+  public int inDegree(int node) {
+    return inStart[node + 1] - inStart[node];
+  }
+  
+  /**
+   * Append one node. Nodes must be added in order of increasing id.
+   **/
+  protected void addNode(long id) {
+    if (nodeCount > 0 && id <= nodeId[nodeCount - 1]) {
+      throw new IllegalArgumentException(
+        "node ids must be added in increasing order: " + id +
+        " after " + nodeId[nodeCount - 1]);
+    }
+    
+    if (nodeCount == nodeId.length) {
+      nodeId = Arrays.copyOf(nodeId, 2 * nodeCount);
+    }
+    
+    nodeId[nodeCount++] = id;
+  }
+  
+  /**
+   * Append one link. Links must be added in order of increasing id.
+   **/
+  protected void addLink(long id, long beginNodeId, long endNodeId,
+      Double len, Double lns, Double speed) {
+    if (linkCount > 0 && id <= linkId[linkCount - 1]) {
+      throw new IllegalArgumentException(
+        "link ids must be added in increasing order: " + id +
+        " after " + linkId[linkCount - 1]);
+    }
+    
+    if (linkCount == linkId.length) {
+      int capacity = 2 * linkCount;
+      linkId = Arrays.copyOf(linkId, capacity);
+      linkBeginId = Arrays.copyOf(linkBeginId, capacity);
+      linkEndId = Arrays.copyOf(linkEndId, capacity);
+      length = Arrays.copyOf(length, capacity);
+      lanes = Arrays.copyOf(lanes, capacity);
+      speedLimit = Arrays.copyOf(speedLimit, capacity);
+    }
+    
+    linkId[linkCount] = id;
+    linkBeginId[linkCount] = beginNodeId;
+    linkEndId[linkCount] = endNodeId;
+    length[linkCount] = len == null ? Double.NaN : len;
+    lanes[linkCount] = lns == null ? Double.NaN : lns;
+    speedLimit[linkCount] = speed == null ? Double.NaN : speed;
+    linkCount++;
+  }
+  
+  /**
+   * Trim the arrays, resolve link ends to node ordinals and build the
+   * adjacency arrays. Call once, after all nodes and links are added.
+   * 
+   * @throws IllegalArgumentException if a link refers to a missing node
+   **/
+  protected void build() {
+    nodeId = Arrays.copyOf(nodeId, nodeCount);
+    linkId = Arrays.copyOf(linkId, linkCount);
+    length = Arrays.copyOf(length, linkCount);
+    lanes = Arrays.copyOf(lanes, linkCount);
+    speedLimit = Arrays.copyOf(speedLimit, linkCount);
+    
+    linkBegin = new int[linkCount];
+    linkEnd = new int[linkCount];
+    
+    for (int ln = 0; ln < linkCount; ln++) {
+      linkBegin[ln] = resolveNode(ln, linkBeginId[ln]);
+      linkEnd[ln] = resolveNode(ln, linkEndId[ln]);
+    }
+    
+    linkBeginId = null;
+    linkEndId = null;
+    
+    outStart = new int[nodeCount + 1];
+    outLink = new int[linkCount];
+    groupLinks(linkBegin, outStart, outLink);
+    
+    inStart = new int[nodeCount + 1];
+    inLink = new int[linkCount];
+    groupLinks(linkEnd, inStart, inLink);
+  }
+  
+  private int resolveNode(int ln, long id) {
+    int nd = nodeOrdinal(id);
+    if (nd < 0) {
+      throw new IllegalArgumentException(
+        "link " + linkId[ln] + " refers to missing node " + id);
+    }
+    return nd;
+  }
+  
+  /**
+   * Counting sort of link ordinals by node, keeping links of the same
+   * node in ordinal order.
+   **/
+  private void groupLinks(int[] linkNode, int[] start, int[] links) {
+    for (int ln = 0; ln < linkCount; ln++) {
+      start[linkNode[ln] + 1]++;
+    }
+    
+    for (int nd = 0; nd < nodeCount; nd++) {
+      start[nd + 1] += start[nd];
+    }
+    
+    int[] next = Arrays.copyOf(start, nodeCount);
+    for (int ln = 0; ln < linkCount; ln++) {
+      links[next[linkNode[ln]]++] = ln;
+    }
+  }
+  
+  public String toString() {
+    return "{network_id=" + networkId +
+      ", nodes=" + nodeCount +
+      ", links=" + linkCount + "}";
+  }
+}
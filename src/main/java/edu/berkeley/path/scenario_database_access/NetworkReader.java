@@ -31,6 +31,8 @@ package edu.berkeley.path.scenario_database_access;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Arrays;
 import java.util.HashSet;
 
@@ -50,6 +52,13 @@ public class NetworkReader extends ReaderBase {
     super(dbParams);
   }
   
+  public NetworkReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public NetworkReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -64,17 +73,30 @@ public class NetworkReader extends ReaderBase {
    * @return Network
    */
   public Network read(long networkID) throws DatabaseException {
+    return read(networkID, new LinkQuery());
+  }
+
+  /**
+   * Read one network with the given ID from the database, reading only
+   * the link attributes selected by the spec. For example,
+   * LinkQuery.topology() reads just what a solver needs.
+   * 
+   * @param networkID  numerical ID of the network in the database
+   * @param spec       which links and link attributes to read
+   * @return Network
+   */
+  public Network read(long networkID, LinkQuery spec) throws DatabaseException {
     Network network;
     
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug("Network reader transaction beginning on network.id=" + networkID);
 
-      network = readWithAssociates(networkID);
+      network = readWithAssociates(networkID, spec);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug("Network reader transaction committing on network.id=" + networkID);
     }
     catch (DatabaseException dbExc) {
@@ -83,7 +105,7 @@ public class NetworkReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug("Network reader transaction rollback on network.id=" + networkID);
       }
       catch(Exception Exc) {
@@ -109,6 +131,21 @@ public class NetworkReader extends ReaderBase {
    * @return Network.
    */
   public Network readWithAssociates(long networkID) throws DatabaseException {
+    return readWithAssociates(networkID, new LinkQuery());
+  }
+
+  /**
+   * Read the network row with the given ID from the database, including
+   * nodes and the links selected by the spec, with only the link
+   * attributes it selects.
+   * 
+   * @see #read() if you want a transaction and logging around the operation.
+   * 
+   * @param networkID  numerical ID of the network in the database
+   * @param spec       which links and link attributes to read
+   * @return Network.
+   */
+  public Network readWithAssociates(long networkID, LinkQuery spec) throws DatabaseException {
     Network network = readRow(networkID);
 
     if (network != null) {
@@ -116,13 +153,265 @@ public class NetworkReader extends ReaderBase {
       network.setNodeList(ndReader.readNodes(networkID));
 
       LinkReader lnReader = new LinkReader(dbParams, dbr);
-      network.setLinkList(lnReader.readLinks(networkID));
+      network.setLinkList(lnReader.readLinks(networkID, spec));
 
       network.resolveReferences();
     }
     return network;
   }
 
+  /**
+   * Read the networks with the given IDs from the database, with one
+   * network query, one node query, one link query and one geometry query
+   * for all of them, instead of four queries per network.
+   * 
+   * @param networkIDs  numerical IDs of the networks in the database
+   * @return List of networks, in the order of networkIDs, with null for
+   *         each ID that is not in the database
+   */
+  public List<Network> readAll(List<Long> networkIDs) throws DatabaseException {
+    return readAll(networkIDs, new LinkQuery());
+  }
+
+  /**
+   * Read the networks with the given IDs from the database, reading only
+   * the link attributes selected by the spec.
+   * 
+   * @param networkIDs  numerical IDs of the networks in the database
+   * @param spec        which links and link attributes to read
+   * @return List of networks, in the order of networkIDs, with null for
+   *         each ID that is not in the database
+   */
+  public List<Network> readAll(List<Long> networkIDs, LinkQuery spec) throws DatabaseException {
+    List<Network> networks;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug("Network reader transaction beginning on network.id in " + networkIDs);
+
+      networks = readAllWithAssociates(networkIDs, spec);
+
+      snapshotCommit();
+      Monitor.debug("Network reader transaction committing on network.id in " + networkIDs);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug("Network reader transaction rollback on network.id in " + networkIDs);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Read network.id in " + networkIDs, timeCommit - timeBegin);
+    Monitor.count("Read network.id in " + networkIDs, networks.size());
+
+    return networks;
+  }
+
+  /**
+   * Read the network rows with the given IDs from the database, including
+   * nodes and the links selected by the spec. Each kind of row is read by
+   * one query for all the networks, ordered by network, and split into
+   * per-network lists as it is read.
+   * 
+   * @see #readAll() if you want a transaction and logging around the operation.
+   * 
+   * @param networkIDs  numerical IDs of the networks in the database
+   * @param spec        which links and link attributes to read
+   * @return List of networks, in the order of networkIDs, with null for
+   *         each ID that is not in the database
+   */
+  public List<Network> readAllWithAssociates(List<Long> networkIDs, LinkQuery spec) throws DatabaseException {
+    List<Network> networks = new ArrayList<Network>(networkIDs.size());
+    
+    if (networkIDs.isEmpty()) {
+      return networks;
+    }
+    
+    Map<Long,Network> networksByID = readRows(networkIDs);
+    
+    if (!networksByID.isEmpty()) {
+      NodeReader ndReader = new NodeReader(dbParams, dbr);
+      Map<Long,ArrayList<Node>> nodes = ndReader.readNodesOfNetworks(networkIDs);
+
+      LinkReader lnReader = new LinkReader(dbParams, dbr);
+      Map<Long,ArrayList<Link>> links = lnReader.readLinksOfNetworks(networkIDs, spec);
+      
+      for (Network network : networksByID.values()) {
+        ArrayList<Node> nwNodes = nodes.get(network.getLongId());
+        network.setNodeList(nwNodes != null ? nwNodes : new ArrayList<Node>());
+        
+        ArrayList<Link> nwLinks = links.get(network.getLongId());
+        network.setLinkList(nwLinks != null ? nwLinks : new ArrayList<Link>());
+        
+        network.resolveReferences();
+      }
+    }
+    
+    for (Long networkID : networkIDs) {
+      networks.add(networksByID.get(networkID));
+    }
+    
+    return networks;
+  }
+
+  /**
+   * Read the graph of the network with the given ID from the database, in
+   * compact CSR form. This reads the LINKS and NODES tables (and lane
+   * counts) directly, without building Link and Node objects.
+   * 
+   * @param networkID  numerical ID of the network in the database
+   * @return NetworkGraph, possibly with no nodes and links
+   */
+  public NetworkGraph readGraph(long networkID) throws DatabaseException {
+    NetworkGraph graph;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug("Network graph reader transaction beginning on network.id=" + networkID);
+
+      graph = readGraphRows(networkID);
+
+      snapshotCommit();
+      Monitor.debug("Network graph reader transaction committing on network.id=" + networkID);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug("Network graph reader transaction rollback on network.id=" + networkID);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Read graph of network.id=" + networkID, timeCommit - timeBegin);
+    Monitor.count("Read graph of network.id=" + networkID, graph.linkCount());
+
+    return graph;
+  }
+
+  /**
+   * Read the graph of the network with the given ID from the database.
+   * 
+   * @see #readGraph() if you want a transaction and logging around the operation.
+   * 
+   * @param networkID  numerical ID of the network in the database
+   * @return NetworkGraph
+   */
+  public NetworkGraph readGraphRows(long networkID) throws DatabaseException {
+    NetworkGraph graph = new NetworkGraph(networkID);
+    String query = null;
+    
+    try {
+      query = runGraphNodeQuery(networkID);
+      while (dbr.psRSNext(query)) {
+        graph.addNode(dbr.psRSGetBigInt(query, "ID"));
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    query = null;
+    try {
+      query = runGraphLinkQuery(networkID);
+      while (dbr.psRSNext(query)) {
+        graph.addLink(
+          dbr.psRSGetBigInt(query, "ID"),
+          dbr.psRSGetBigInt(query, "BEG_NODE_ID"),
+          dbr.psRSGetBigInt(query, "END_NODE_ID"),
+          dbr.psRSGetDouble(query, "LENGTH"),
+          dbr.psRSGetDouble(query, "LANES"),
+          dbr.psRSGetDouble(query, "SPEED_LIMIT"));
+      }
+      
+      graph.build();
+    }
+    catch (IllegalArgumentException exc) {
+      throw new DatabaseException(exc,
+        "Invalid graph of network.id=" + networkID + ": " + exc.getMessage(), dbr.getDatabase(), query);
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    return graph;
+  }
+
+  /**
+   * Execute a query for the node ids of a network, in increasing order.
+   * 
+   * @param networkID  numerical ID of the network in the database
+   * @return String     query string, may be passed to psRSNext
+   */
+  protected String runGraphNodeQuery(long networkID) throws DatabaseException {
+    String query = "read_graph_nodes_network" + networkID;
+    
+    dbr.psCreate(query,
+      "SELECT ID FROM VIA.NODES WHERE (NETWORK_ID = ?) ORDER BY ID"
+    );
+    
+    dbr.psClearParams(query);
+    dbr.psSetBigInt(query, 1, networkID);
+    dbr.psQuery(query);
+
+    return query;
+  }
+
+  /**
+   * Execute a query for the topology and solver attributes of the links of
+   * a network, in increasing order of id.
+   * 
+   * @param networkID  numerical ID of the network in the database
+   * @return String     query string, may be passed to psRSNext
+   */
+  protected String runGraphLinkQuery(long networkID) throws DatabaseException {
+    String query = "read_graph_links_network" + networkID;
+    
+    dbr.psCreate(query,
+      "SELECT " +
+        "LINKS.ID, " +
+        "LINKS.BEG_NODE_ID, " +
+        "LINKS.END_NODE_ID, " +
+        "LINKS.LENGTH, " +
+        "LINKS.SPEED_LIMIT, " +
+        "LINK_LANES.LANES " +
+      "FROM VIA.LINKS " +
+      "LEFT OUTER JOIN VIA.LINK_LANES " +
+        "ON ((VIA.LINK_LANES.LINK_ID = VIA.LINKS.ID) AND " +
+            "(VIA.LINK_LANES.NETWORK_ID = VIA.LINKS.NETWORK_ID)) " +
+      "WHERE (LINKS.NETWORK_ID = ?) " +
+      "ORDER BY LINKS.ID"
+    );
+    
+    dbr.psClearParams(query);
+    dbr.psSetBigInt(query, 1, networkID);
+    dbr.psQuery(query);
+
+    return query;
+  }
+
   /**
    * Read just the network row with the given ID from the database. Ignores dependent objects, such
    * as nodes and links.
@@ -147,6 +436,33 @@ public class NetworkReader extends ReaderBase {
     return network;
   }
 
+  /**
+   * Read just the network rows with the given IDs from the database.
+   * Ignores dependent objects, such as nodes and links.
+   * 
+   * @param networkIDs  numerical IDs of the networks in the database, at least one
+   * @return Map from ID to Network, with null for all dependent objects.
+   */
+  public Map<Long,Network> readRows(List<Long> networkIDs) throws DatabaseException {
+    String query = null;
+    Map<Long,Network> networks = new HashMap<Long,Network>();
+    
+    try {
+      query = runQueryNetworks(networkIDs);
+      while (dbr.psRSNext(query)) {
+        Network network = networkFromRS(query);
+        networks.put(network.getLongId(), network);
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    return networks;
+  }
+
   /**
    * Execute a query for the specified network.
    * 
@@ -167,6 +483,29 @@ public class NetworkReader extends ReaderBase {
     return query;
   }
 
+  /**
+   * Execute a query for the specified networks.
+   * 
+   * @param networkIDs  numerical IDs of the networks in the database, at least one
+   * @return String     query string, may be passed to psRSNext or networkFromRS
+   */
+  protected String runQueryNetworks(List<Long> networkIDs) throws DatabaseException {
+    String query = "read_networks";
+    
+    dbr.psCreate(query,
+      "SELECT * FROM VIA.NETWORKS WHERE " + inListSql("ID", networkIDs.size())
+    );
+    
+    dbr.psClearParams(query);
+    int i = 1;
+    for (Long networkID : networkIDs) {
+      dbr.psSetBigInt(query, i++, networkID);
+    }
+    dbr.psQuery(query);
+
+    return query;
+  }
+
   /**
    * Instantiate and populate a network object from the result set
    * of a network query. Do not attempt to read related rows, such
@@ -180,30 +519,13 @@ public class NetworkReader extends ReaderBase {
     
     while (dbr.psRSNext(query)) {
       if (network != null) {
-        throw new DatabaseException(null, "Network not unique: " + query, this.dbr, query);
+        throw new DatabaseException(null, "Network not unique: " + query, dbr.getDatabase(), query);
       }
       
       //String columns = org.apache.commons.lang.StringUtils.join(psRSColumnNames(query), ", ");
       //System.out.println("columns: [" + columns + "]");
       
-      network = new Network();
-      
-      Long id = dbr.psRSGetBigInt(query, "ID");
-      String name = dbr.psRSGetVarChar(query, "NAME");
-      String desc = dbr.psRSGetVarChar(query, "DESCRIPTION");
-      Long modstampMicros = dbr.psRSGetTimestampMicroseconds(query, "MODSTAMP");
-      if (modstampMicros == null) {
-        modstampMicros = 0L;
-      }
-      //The DB doesn't support this yet:
-      //Long prjId = dbr.psRSGetBigInt(query, "PROJECT_ID");
-      
-      network.setId(id);
-      network.name = name;
-      network.description = desc;
-      network.setModstamp(modstampMicros);
-      //The DB doesn't support this yet:
-      //network.setProjectId(prjId == null ? null : prjId.toString());
+      network = networkFromRS(query);
 
       //System.out.println("Network: " + network);
     }
@@ -211,6 +533,36 @@ public class NetworkReader extends ReaderBase {
     return network;
   }
   
+  /**
+   * Instantiate and populate a network object from the current row of the
+   * result set of a network query.
+   * 
+   * @param query string
+   * @return Network
+   */
+  protected Network networkFromRS(String query) throws DatabaseException {
+    Network network = new Network();
+    
+    Long id = dbr.psRSGetBigInt(query, "ID");
+    String name = dbr.psRSGetVarChar(query, "NAME");
+    String desc = dbr.psRSGetVarChar(query, "DESCRIPTION");
+    Long modstampMicros = dbr.psRSGetTimestampMicroseconds(query, "MODSTAMP");
+    if (modstampMicros == null) {
+      modstampMicros = 0L;
+    }
+    //The DB doesn't support this yet:
+    //Long prjId = dbr.psRSGetBigInt(query, "PROJECT_ID");
+    
+    network.setId(id);
+    network.name = name;
+    network.description = desc;
+    network.setModstamp(modstampMicros);
+    //The DB doesn't support this yet:
+    //network.setProjectId(prjId == null ? null : prjId.toString());
+
+    return network;
+  }
+  
   protected String seqQueryName() {
     return "nextNetworkID";
   }
@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.berkeley.path.model_elements.*;
+
+import core.*;
+
+/**
+ * Caches the links and nodes of one network by web map tile (z/x/y), so
+ * that a map view which pans or zooms back over tiles it has already shown
+ * does not read them from the database again. Each tile is read with the
+ * bounding box methods of LinkReader and NodeReader, with link geometry
+ * simplified to the tile's zoom level (see LinkQuery.forTile). The least
+ * recently used tiles are dropped once the cache holds maxTiles tiles.
+ * 
+ * Links that cross tile boundaries appear in every tile they touch.
+ * The cache is not invalidated by writes to the network; call clear()
+ * after modifying it.
+ * 
+ * @see BoundingBox#fromTile
+ * @author vjoel
+ */
+public class NetworkTileCache {
+  /**
+   * The links and nodes of one tile.
+   **/
+  public static class Tile {
+    public final int z;
+    public final int x;
+    public final int y;
+    public final Integer maxDetailLevel;
+    public final ArrayList<Link> links;
+    public final ArrayList<Node> nodes;
+    
+    public Tile(
+        int z, int x, int y,
+        Integer maxDetailLevel,
+        ArrayList<Link> links,
+        ArrayList<Node> nodes) {
+      this.z = z;
+      this.x = x;
+      this.y = y;
+      this.maxDetailLevel = maxDetailLevel;
+      this.links = links;
+      this.nodes = nodes;
+    }
+  }
+  
+  private final long networkID;
+  private final LinkReader lnReader;
+  private final NodeReader ndReader;
+  private final DBConnection dbr;
+  
+  private final Map<String,Tile> tiles;
+  
+  private long hits = 0;
+  private long misses = 0;
+  
+  /**
+   * Create a tile cache for the network, with a new connection to the db,
+   * specified by the dbParams.
+   * 
+   * @param dbParams  database to read from
+   * @param networkID ID of the network
+   * @param maxTiles  number of tiles to keep
+   */
+  public NetworkTileCache(
+          DBParams dbParams,
+          long networkID,
+          final int maxTiles
+          ) throws DatabaseException {
+    this.networkID = networkID;
+    this.lnReader = new LinkReader(dbParams);
+    this.dbr = lnReader.getConnection();
+    this.ndReader = new NodeReader(dbParams, dbr);
+    
+    this.tiles = new LinkedHashMap<String,Tile>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry<String,Tile> eldest) {
+        return size() > maxTiles;
+      }
+    };
+  }
+  
+  /**
+   * Get the tile, reading it from the database if it is not cached.
+   * 
+   * @param z               zoom level
+   * @param x               tile column
+   * @param y               tile row
+   * @param maxDetailLevel  highest link DETAIL_LEVEL to include, or null for all
+   * @return Tile
+   */
+  public synchronized Tile getTile(int z, int x, int y, Integer maxDetailLevel) throws DatabaseException {
+    String key = z + "/" + x + "/" + y + "/" + maxDetailLevel;
+    
+    Tile tile = tiles.get(key);
+    if (tile != null) {
+      hits++;
+      return tile;
+    }
+    
+    misses++;
+    tile = readTile(z, x, y, maxDetailLevel);
+    tiles.put(key, tile);
+    
+    return tile;
+  }
+  
+  /**
+   * Read the tile from the database, bypassing the cache.
+   */
+  protected Tile readTile(int z, int x, int y, Integer maxDetailLevel) throws DatabaseException {
+    BoundingBox box = BoundingBox.fromTile(z, x, y);
+    Tile tile;
+    
+    String tileStr = "tile.{network_id=" + networkID +
+      ", tile=" + z + "/" + x + "/" + y +
+      ", max_detail_level=" + maxDetailLevel + "}";
+    
+    long timeBegin = System.nanoTime();
+    ReadSnapshot snapshot = null;
+    
+    try {
+      snapshot = ReadSnapshot.begin(dbr);
+      Monitor.debug("Tile reader transaction beginning on " + tileStr);
+      
+      tile = new Tile(z, x, y, maxDetailLevel,
+        lnReader.readLinks(networkID, LinkQuery.forTile(z, x, y, maxDetailLevel)),
+        ndReader.readNodesInBox(networkID, box));
+      
+      snapshot.end();
+      Monitor.debug("Tile reader transaction committing on " + tileStr);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        if (snapshot != null && snapshot.isOpen()) {
+          snapshot.end();
+          Monitor.debug("Tile reader transaction rollback on " + tileStr);
+        }
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Read " + tileStr, timeCommit - timeBegin);
+    
+    return tile;
+  }
+  
+  /**
+   * Drop all cached tiles, for example after the network is modified.
+   */
+  public synchronized void clear() {
+    tiles.clear();
+  }
+  
+  public synchronized int size() {
+    return tiles.size();
+  }
+  
+  public synchronized long getHits() {
+    return hits;
+  }
+  
+  public synchronized long getMisses() {
+    return misses;
+  }
+}
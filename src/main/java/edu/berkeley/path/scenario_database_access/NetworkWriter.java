@@ -32,6 +32,7 @@ package edu.berkeley.path.scenario_database_access;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Arrays;
 import java.util.HashSet;
 
@@ -45,12 +46,24 @@ import core.*;
  * @author vjoel
  */
 public class NetworkWriter extends WriterBase {
+  /**
+   * reader of ids for clones, on this writer's connection
+   **/
+  private NetworkReader idReader;
+  
   public NetworkWriter(
           DBParams dbParams
           ) throws DatabaseException {
     super(dbParams);
   }
   
+  public NetworkWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
   public NetworkWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
@@ -159,7 +172,7 @@ public class NetworkWriter extends WriterBase {
       
       long rows = dbw.psUpdate(query);
       if (rows != 1) {
-        throw new DatabaseException(null, "Network not unique: there exist " + rows + " with id=" + network.getId(), dbw, query);
+        throw new DatabaseException(null, "Network not unique: there exist " + rows + " with id=" + network.getId(), dbw.getDatabase(), query);
       }
     }
     finally {
@@ -219,6 +232,234 @@ public class NetworkWriter extends WriterBase {
     deleteDependents(networkID);
     updateRow(network);
     insertDependents(network);
+    touchModstamp("NETWORKS", networkID);
+  }
+
+  /**
+   * Update the given network in the database, as update() does, but only if
+   * it has not been modified since it was read, as shown by its modstamp.
+   * Editors can then work concurrently without holding a transaction open
+   * while they edit. On success, the network gets its new modstamp.
+   * 
+   * @param network  the network, with the modstamp it was read with
+   * @throws ConcurrencyException if it was modified or deleted by another writer
+   */
+  public void updateIfUnmodified(Network network) throws DatabaseException, ConcurrencyException {
+    long modstamp;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("Network conditional update transaction beginning on network.id=" + network.getId());
+      
+      modstamp = updateWithDependentsIfUnmodified(network);
+
+      dbw.transactionCommit();
+      Monitor.debug("Network conditional update transaction committing on network.id=" + network.getId());
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("Network conditional update transaction rollback on network.id=" + network.getId());
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    network.setModstamp(modstamp);
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Conditional update network.id=" + network.getId(), timeCommit - timeBegin);
+  }
+
+  /**
+   * Update the given network in the database, as updateWithDependents()
+   * does, after checking that its row still has the modstamp it was read
+   * with. The row is locked until the transaction ends. The new modstamp
+   * is read back after all the writes.
+   * 
+   * @see #updateIfUnmodified() if you want a transaction and logging around the operation.
+   * 
+   * @param network  the network, with the modstamp it was read with
+   * @return the new modstamp, in microseconds
+   * @throws ConcurrencyException if it was modified or deleted by another writer
+   */
+  public long updateWithDependentsIfUnmodified(Network network) throws DatabaseException, ConcurrencyException {
+    claimModstamp("NETWORKS", network.getLongId(), network.getModstamp());
+    
+    updateWithDependents(network);
+    
+    return readModstamp("NETWORKS", network.getLongId());
+  }
+
+  /**
+   * Update the given network in the database, writing only the nodes and
+   * links that differ from the stored network. Editing a few links of a
+   * large network writes just the rows of those links. Only a digest of
+   * each stored node and link is read, on this writer's connection, with
+   * the network row locked.
+   * 
+   * @param network  the network
+   * @return number of nodes and links inserted, updated or deleted
+   */
+  public long updateChanged(Network network) throws DatabaseException {
+    long written;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("Network diff update transaction beginning on network.id=" + network.getId());
+      
+      // Lock the network first, so no other writer changes it between
+      // reading it and writing the differences.
+      lockRow("NETWORKS", network.getLongId());
+      
+      Map<Long, Long> storedNodes = new NodeReader(dbParams, dbw).readNodeDigests(network.getLongId());
+      Map<Long, Long> storedLinks = new LinkReader(dbParams, dbw).readLinkDigests(network.getLongId());
+      
+      written = updateWithDependents(network, storedNodes, storedLinks);
+
+      dbw.transactionCommit();
+      Monitor.debug("Network diff update transaction committing on network.id=" + network.getId());
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("Network diff update transaction rollback on network.id=" + network.getId());
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Diff update network.id=" + network.getId(), timeCommit - timeBegin);
+    
+    return written;
+  }
+
+  /**
+   * Update the given network in the database, including dependent objects,
+   * given the network as it is currently stored, for example from a
+   * ModstampCache. Nodes and links that are the same in both are not
+   * written. New ones are inserted, changed ones are updated, and ones
+   * missing from the given network are deleted.
+   * 
+   * @see #updateChanged() if you want a transaction and logging around the operation.
+   * 
+   * @param network  the network
+   * @param stored   the stored version of the same network
+   */
+  public void updateWithDependents(Network network, Network stored) throws DatabaseException {
+    HashMap<Long, Long> storedNodes = new HashMap<Long, Long>();
+    if (stored.getNodeList() != null) {
+      for (Node node : stored.getNodeList()) {
+        storedNodes.put(node.getLongId(), RowDigest.of(node));
+      }
+    }
+    
+    HashMap<Long, Long> storedLinks = new HashMap<Long, Long>();
+    if (stored.getLinkList() != null) {
+      for (Link link : stored.getLinkList()) {
+        storedLinks.put(link.getLongId(), RowDigest.of(link));
+      }
+    }
+    
+    updateWithDependents(network, storedNodes, storedLinks);
+  }
+
+  /**
+   * Update the given network in the database, as updateWithDependents()
+   * does, given the digests of its stored nodes and links. Nodes and links
+   * whose digests match are not written.
+   * 
+   * @param network      the network
+   * @param storedNodes  digest of each stored node, by id; emptied
+   * @param storedLinks  digest of each stored link, by id; emptied
+   * @return number of nodes and links inserted, updated or deleted
+   */
+  protected long updateWithDependents(
+          Network network,
+          Map<Long, Long> storedNodes,
+          Map<Long, Long> storedLinks
+          ) throws DatabaseException {
+    long networkID = network.getLongId();
+    NodeWriter ndWriter = new NodeWriter(dbParams, dbw);
+    LinkWriter lnWriter = new LinkWriter(dbParams, dbw);
+    
+    List<Node> newNodes = new ArrayList<Node>();
+    List<Node> changedNodes = new ArrayList<Node>();
+    if (network.getNodeList() != null) {
+      for (Node node : network.getNodeList()) {
+        Long old = storedNodes.remove(node.getLongId());
+        if (old == null) {
+          newNodes.add(node);
+        }
+        else if (old.longValue() != RowDigest.of(node)) {
+          changedNodes.add(node);
+        }
+      }
+    }
+    
+    List<Link> newLinks = new ArrayList<Link>();
+    List<Link> changedLinks = new ArrayList<Link>();
+    if (network.getLinkList() != null) {
+      for (Link link : network.getLinkList()) {
+        Long old = storedLinks.remove(link.getLongId());
+        if (old == null) {
+          newLinks.add(link);
+        }
+        else if (old.longValue() != RowDigest.of(link)) {
+          changedLinks.add(link);
+        }
+      }
+    }
+    
+    // What is left in the maps is no longer in the network.
+    List<Long> deletedNodeIDs = new ArrayList<Long>(storedNodes.keySet());
+    List<Long> deletedLinkIDs = new ArrayList<Long>(storedLinks.keySet());
+    
+    Monitor.debug("Network diff update on network.id=" + networkID +
+      ": nodes +" + newNodes.size() + " ~" + changedNodes.size() + " -" + deletedNodeIDs.size() +
+      ", links +" + newLinks.size() + " ~" + changedLinks.size() + " -" + deletedLinkIDs.size());
+    
+    updateRow(network);
+    
+    if (!deletedLinkIDs.isEmpty()) {
+      lnWriter.deleteLinks(deletedLinkIDs, networkID);
+    }
+    if (!newNodes.isEmpty()) {
+      ndWriter.insertNodes(newNodes, networkID);
+    }
+    if (!changedNodes.isEmpty()) {
+      ndWriter.updateNodes(changedNodes, networkID);
+    }
+    if (!newLinks.isEmpty()) {
+      lnWriter.insertLinks(newLinks, networkID);
+    }
+    if (!changedLinks.isEmpty()) {
+      lnWriter.updateLinks(changedLinks, networkID);
+    }
+    if (!deletedNodeIDs.isEmpty()) {
+      ndWriter.deleteNodes(deletedNodeIDs, networkID);
+    }
+    
+    touchModstamp("NETWORKS", networkID);
+    
+    return
+      newNodes.size() + changedNodes.size() + deletedNodeIDs.size() +
+      newLinks.size() + changedLinks.size() + deletedLinkIDs.size();
   }
 
   /**
@@ -248,8 +489,10 @@ public class NetworkWriter extends WriterBase {
       long rows = dbw.psUpdate(query);
       
       if (rows != 1) {
-        throw new DatabaseException(null, "Network not unique: there exist " + rows + " with id=" + network.getId(), dbw, query);
+        throw new DatabaseException(null, "Network not unique: there exist " + rows + " with id=" + network.getId(), dbw.getDatabase(), query);
       }
+      
+      ModstampCache.invalidate(ModstampCache.NETWORKS, network.getLongId());
     }
     finally {
       if (query != null) {
@@ -313,8 +556,10 @@ public class NetworkWriter extends WriterBase {
       long rows = dbw.psUpdate(query);
       
       if (rows != 1) {
-        throw new DatabaseException(null, "Network not unique: there exist " + rows + " with id=" + networkID, dbw, query);
+        throw new DatabaseException(null, "Network not unique: there exist " + rows + " with id=" + networkID, dbw.getDatabase(), query);
       }
+      
+      ModstampCache.invalidate(ModstampCache.NETWORKS, networkID);
     }
     finally {
       if (query != null) {
@@ -335,4 +580,99 @@ public class NetworkWriter extends WriterBase {
     ndWriter.deleteAllNodes(networkID);
     lnWriter.deleteAllLinks(networkID);
   }
+  
+  /**
+   * SQL that copies a network and its nodes and links within the database,
+   * given the old and the new id.
+   **/
+  static final String cloneSql =
+      "declare\n" +
+      "old_id NUMBER := ?;\n" +
+      "new_id NUMBER := ?;\n" +
+      "begin\n" +
+      "INSERT INTO VIA.NETWORKS (ID, NAME, DESCRIPTION)\n" +
+      "  SELECT new_id, NAME, DESCRIPTION FROM VIA.NETWORKS WHERE ID = old_id;\n" +
+      "IF SQL%ROWCOUNT <> 1 THEN\n" +
+      "  RAISE_APPLICATION_ERROR(-20001, 'No network with id ' || old_id);\n" +
+      "END IF;\n" +
+      "INSERT INTO VIA.NODES (ID, NETWORK_ID, GEOM)\n" +
+      "  SELECT ID, new_id, GEOM FROM VIA.NODES WHERE NETWORK_ID = old_id;\n" +
+      "INSERT INTO VIA.NODE_NAMES (NODE_ID, NETWORK_ID, NAME)\n" +
+      "  SELECT NODE_ID, new_id, NAME FROM VIA.NODE_NAMES WHERE NETWORK_ID = old_id;\n" +
+      "INSERT INTO VIA.NODE_TYPE_DET (NODE_ID, NETWORK_ID, NODE_TYPE_ID)\n" +
+      "  SELECT NODE_ID, new_id, NODE_TYPE_ID FROM VIA.NODE_TYPE_DET WHERE NETWORK_ID = old_id;\n" +
+      "INSERT INTO VIA.LINKS (ID, NETWORK_ID, BEG_NODE_ID, END_NODE_ID, SPEED_LIMIT, LENGTH, DETAIL_LEVEL, GEOM)\n" +
+      "  SELECT ID, new_id, BEG_NODE_ID, END_NODE_ID, SPEED_LIMIT, LENGTH, DETAIL_LEVEL, GEOM FROM VIA.LINKS WHERE NETWORK_ID = old_id;\n" +
+      "INSERT INTO VIA.LINK_NAMES (LINK_ID, NETWORK_ID, NAME)\n" +
+      "  SELECT LINK_ID, new_id, NAME FROM VIA.LINK_NAMES WHERE NETWORK_ID = old_id;\n" +
+      "INSERT INTO VIA.LINK_LANES (LINK_ID, NETWORK_ID, LANES)\n" +
+      "  SELECT LINK_ID, new_id, LANES FROM VIA.LINK_LANES WHERE NETWORK_ID = old_id;\n" +
+      "INSERT INTO VIA.LINK_LANE_OFFSET (LINK_ID, NETWORK_ID, DISPLAY_LANE_OFFSET)\n" +
+      "  SELECT LINK_ID, new_id, DISPLAY_LANE_OFFSET FROM VIA.LINK_LANE_OFFSET WHERE NETWORK_ID = old_id;\n" +
+      "INSERT INTO VIA.LINK_TYPE_DET (LINK_ID, NETWORK_ID, LINK_TYPE)\n" +
+      "  SELECT LINK_ID, new_id, LINK_TYPE FROM VIA.LINK_TYPE_DET WHERE NETWORK_ID = old_id;\n" +
+      "end;";
+  
+  /**
+   * Copy the network with the given ID and its nodes and links, within the
+   * database. The copy gets a new id from the sequence. Nodes and links keep
+   * their ids, which are only unique within a network.
+   * 
+   * @param networkID  the ID of the network to copy
+   * @return ID of the copy
+   */
+  public long clone(long networkID) throws DatabaseException {
+    long newID;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("Network clone transaction beginning on network.id=" + networkID);
+      
+      newID = cloneWithDependents(networkID);
+
+      dbw.transactionCommit();
+      Monitor.debug("Network clone transaction committing on network.id=" + networkID);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("Network clone transaction rollback on network.id=" + networkID);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Clone network.id=" + networkID + " to id=" + newID, timeCommit - timeBegin);
+    
+    return newID;
+  }
+
+  /**
+   * Copy the network with the given ID and its nodes and links, within the
+   * database. The new id is read on this writer's connection, with one
+   * reader for all the clones made by this writer.
+   * 
+   * @see #clone() if you want a transaction and logging around the operation.
+   * 
+   * @param networkID  the ID of the network to copy
+   * @return ID of the copy
+   */
+  public long cloneWithDependents(long networkID) throws DatabaseException {
+    if (idReader == null) {
+      idReader = new NetworkReader(dbParams, dbw);
+    }
+    long newID = idReader.getNextID();
+    
+    runCloneStatement("clone_network_" + networkID, cloneSql, networkID, newID);
+    
+    return newID;
+  }
 }
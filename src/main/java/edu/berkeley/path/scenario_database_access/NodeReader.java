@@ -31,6 +31,8 @@ package edu.berkeley.path.scenario_database_access;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Arrays;
 import java.util.HashSet;
 
@@ -50,6 +52,13 @@ public class NodeReader extends ReaderBase {
     super(dbParams);
   }
   
+  public NodeReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public NodeReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -71,12 +80,12 @@ public class NodeReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug("Node reader transaction beginning on " + nodeIdStr);
 
       node = readWithAssociates(nodeID, networkID);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug("Node reader transaction committing on " + nodeIdStr);
     }
     catch (DatabaseException dbExc) {
@@ -85,7 +94,7 @@ public class NodeReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug("Node reader transaction rollback on " + nodeIdStr);
       }
       catch(Exception Exc) {
@@ -145,6 +154,106 @@ public class NodeReader extends ReaderBase {
     return nodes;
   }
 
+  /**
+   * Read a digest of each stored node of a network, as RowDigest.of(Node),
+   * keeping only the digests. This is intended to be called from
+   * @see NetworkWriter, so it does not set up a transaction of its own.
+   * 
+   * @param networkID ID of the network
+   * @return map from node id to digest
+   */
+  public Map<Long,Long> readNodeDigests(long networkID) throws DatabaseException {
+    Map<Long,Long> digests = new HashMap<Long,Long>();
+    
+    String query = null;
+    Node node = null;
+    
+    try {
+      query = runQueryAllNodes(networkID);
+      while (null != (node = nodeFromQueryRS(query))) {
+        digests.put(node.getLongId(), RowDigest.of(node));
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    return digests;
+  }
+
+  /**
+   * Read the nodes of several networks from the database, with one query
+   * for all of them instead of one per network. The query is ordered by
+   * network, so the results are split into per-network lists in one pass.
+   * This is intended to be called from @see NetworkReader, so it does
+   * not set up a transaction of its own.
+   * 
+   * @param networkIDs IDs of the networks, at least one
+   * @return Map from network ID to list of nodes. Networks without nodes
+   *         are not in the map.
+   */
+  public Map<Long,ArrayList<Node>> readNodesOfNetworks(List<Long> networkIDs) throws DatabaseException {
+    Map<Long,ArrayList<Node>> nodesByNetwork = new HashMap<Long,ArrayList<Node>>();
+    
+    String query = null;
+    Node node = null;
+    
+    try {
+      query = runQueryNodesOfNetworks(networkIDs);
+      ArrayList<Node> nodes = null;
+      Long currentNetworkID = null;
+      while (null != (node = nodeFromQueryRS(query))) {
+        Long networkID = dbr.psRSGetBigInt(query, "NETWORK_ID");
+        if (!networkID.equals(currentNetworkID)) {
+          currentNetworkID = networkID;
+          nodes = new ArrayList<Node>();
+          nodesByNetwork.put(networkID, nodes);
+        }
+        nodes.add(node);
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    return nodesByNetwork;
+  }
+
+  /**
+   * Read the list of nodes of a network that lie in the bounding box. The
+   * filter is applied by the database, using the spatial index on
+   * NODES.GEOM. This is intended for map views, which only need the
+   * viewport, so it does not set up a transaction of its own.
+   * 
+   * @param networkID ID of the network
+   * @param box       the bounding box
+   * @return List of nodes.
+   */
+  public ArrayList<Node> readNodesInBox(long networkID, BoundingBox box) throws DatabaseException {
+    ArrayList<Node> nodes = new ArrayList<Node>();
+    
+    String query = null;
+    Node node = null;
+    
+    try {
+      query = runQueryNodesInBox(networkID, box);
+      while (null != (node = nodeFromQueryRS(query))) {
+        nodes.add(node);
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    return nodes;
+  }
+
   /**
    * Read just the node row with the given ID from the database.
    * 
@@ -242,6 +351,84 @@ public class NodeReader extends ReaderBase {
     return query;
   }
 
+  /**
+   * Execute a query for all nodes in several networks, ordered by network.
+   * 
+   * @param networkIDs IDs of the networks, at least one
+   * @return String     query string, may be passed to psRSNext or nodeFromQueryRS
+   */
+  protected String runQueryNodesOfNetworks(List<Long> networkIDs) throws DatabaseException {
+    String query = "read_nodes_networks";
+    
+    dbr.psCreate(query,
+      "SELECT " +
+        "NODES.ID, " +
+        "NODES.NETWORK_ID, " +
+        "NODES.GEOM.SDO_POINT.X X, " +
+        "NODES.GEOM.SDO_POINT.Y Y, " +
+        "NODE_NAMES.NAME, " +
+        "NODE_TYPES.NAME TYPE " +
+      "FROM VIA.NODES " +
+      "LEFT OUTER JOIN VIA.NODE_NAMES " +
+        "ON ((VIA.NODE_NAMES.NODE_ID = VIA.NODES.ID) AND " +
+            "(VIA.NODE_NAMES.NETWORK_ID = VIA.NODES.NETWORK_ID)) " +
+      "LEFT OUTER JOIN VIA.NODE_TYPE_DET " +
+        "ON ((VIA.NODE_TYPE_DET.NODE_ID = NODES.ID) AND " +
+            "(VIA.NODE_TYPE_DET.NETWORK_ID = NODES.NETWORK_ID)) " +
+      "LEFT OUTER JOIN VIA.NODE_TYPES " +
+        "ON (VIA.NODE_TYPES.ID = NODE_TYPE_DET.NODE_TYPE_ID) " +
+      "WHERE " + inListSql("NODES.NETWORK_ID", networkIDs.size()) + " " +
+      "ORDER BY NODES.NETWORK_ID, NODES.ID"
+    );
+    
+    dbr.psClearParams(query);
+    int i = 1;
+    for (Long networkID : networkIDs) {
+      dbr.psSetBigInt(query, i++, networkID);
+    }
+    dbr.psQuery(query);
+
+    return query;
+  }
+
+  /**
+   * Execute a query for the nodes of a network in a bounding box.
+   * 
+   * @param networkID ID of the network
+   * @param box       the bounding box
+   * @return String     query string, may be passed to psRSNext or nodeFromQueryRS
+   */
+  protected String runQueryNodesInBox(long networkID, BoundingBox box) throws DatabaseException {
+    String query = "read_nodes_box_network_" + networkID;
+    
+    dbr.psCreate(query,
+      "SELECT " +
+        "NODES.ID, " +
+        "NODES.GEOM.SDO_POINT.X X, " +
+        "NODES.GEOM.SDO_POINT.Y Y, " +
+        "NODE_NAMES.NAME, " +
+        "NODE_TYPES.NAME TYPE " +
+      "FROM VIA.NODES " +
+      "LEFT OUTER JOIN VIA.NODE_NAMES " +
+        "ON ((VIA.NODE_NAMES.NODE_ID = VIA.NODES.ID) AND " +
+            "(VIA.NODE_NAMES.NETWORK_ID = VIA.NODES.NETWORK_ID)) " +
+      "LEFT OUTER JOIN VIA.NODE_TYPE_DET " +
+        "ON ((VIA.NODE_TYPE_DET.NODE_ID = NODES.ID) AND " +
+            "(VIA.NODE_TYPE_DET.NETWORK_ID = NODES.NETWORK_ID)) " +
+      "LEFT OUTER JOIN VIA.NODE_TYPES " +
+        "ON (VIA.NODE_TYPES.ID = NODE_TYPE_DET.NODE_TYPE_ID) " +
+      "WHERE (NODES.NETWORK_ID = ?) AND " +
+        boundingBoxSql("NODES.GEOM")
+    );
+    
+    dbr.psClearParams(query);
+    dbr.psSetBigInt(query, 1, networkID);
+    setBoundingBox(query, 2, box);
+    dbr.psQuery(query);
+
+    return query;
+  }
+
   /**
    * Instantiate and populate a node object from the next item in the result set
    * of a node query.
@@ -52,6 +52,13 @@ public class NodeWriter extends WriterBase {
   }
   
     public NodeWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
+  public NodeWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
           ) throws DatabaseException {
@@ -75,6 +82,7 @@ public class NodeWriter extends WriterBase {
       List<Node> nodes = new ArrayList();
       nodes.add(node);
       insertNodes(nodes, networkID);
+      touchModstamp("NETWORKS", networkID);
 
       dbw.transactionCommit();
       Monitor.debug("Node insert transaction committing on " + nodeIdStr);
@@ -93,6 +101,8 @@ public class NodeWriter extends WriterBase {
       }
     }
 
+    ModstampCache.invalidate(ModstampCache.NETWORKS, networkID);
+
     long timeCommit = System.nanoTime();
     Monitor.duration("Insert " + nodeIdStr, timeCommit - timeBegin);
   }
@@ -147,6 +157,7 @@ public class NodeWriter extends WriterBase {
       List<Node> nodes = new ArrayList();
       nodes.add(node);
       updateNodes(nodes, networkID);
+      touchModstamp("NETWORKS", networkID);
 
       dbw.transactionCommit();
       Monitor.debug("Node update transaction committing on " + nodeIdStr);
@@ -165,56 +176,56 @@ public class NodeWriter extends WriterBase {
       }
     }
 
+    ModstampCache.invalidate(ModstampCache.NETWORKS, networkID);
+
     long timeCommit = System.nanoTime();
     Monitor.duration("Update " + nodeIdStr, timeCommit - timeBegin);
   }
 
+  /**
+   * Update the given list of nodes in the specified network in the database.
+   * This is intended to be called from @see NetworkWriter, so it does
+   * not set up a transaction of its own. The optional attributes are
+   * written by one MERGE per table for each batch of nodes, which also
+   * deletes the attributes that are null.
+   * 
+   * @param nodes list of nodes
+   * @param networkID ID of the network
+   */
   protected void updateNodes(List<Node> nodes, long networkID) throws DatabaseException {
-    NodesRowUpdater       nodeUpdater      = new NodesRowUpdater(networkID, dbw);
-    
-    NodeNamesRowUpdater   nodeNameUpdater  = new NodeNamesRowUpdater(networkID, dbw);
-    NodeNamesRowInserter  nodeNameInserter = new NodeNamesRowInserter(networkID, dbw);
-    NodeNamesRowDeleter   nodeNameDeleter  = new NodeNamesRowDeleter(networkID, dbw);
-    
-    NodeTypesRowUpdater   nodeTypeUpdater  = new NodeTypesRowUpdater(networkID, dbw);
-    NodeTypesRowInserter  nodeTypeInserter = new NodeTypesRowInserter(networkID, dbw);
-    NodeTypesRowDeleter   nodeTypeDeleter  = new NodeTypesRowDeleter(networkID, dbw);
+    NodesRowUpdater nodeUpdater = new NodesRowUpdater(networkID, dbw);
     
     try {
       for (Node node : nodes) {
         nodeUpdater.update(node);
-        
-        if (node.getName() == null) {
-          nodeNameDeleter.delete(node.getLongId());
-        }
-        else {
-          long rows = nodeNameUpdater.update(node);
-          if (rows == 0) {
-            nodeNameInserter.insert(node);
-          }
-        }
-        
-        if (node.getType() == null) {
-          nodeTypeDeleter.delete(node.getLongId());
-        }
-        else {
-          long rows = nodeTypeUpdater.update(node);
-          if (rows == 0) {
-            nodeTypeInserter.insert(node);
-          }
-        }
       }
     }
     finally {
       nodeUpdater.release();
-      
-      nodeNameUpdater.release();
-      nodeNameInserter.release();
-      nodeNameDeleter.release();
-      
-      nodeTypeUpdater.release();
-      nodeTypeInserter.release();
-      nodeTypeDeleter.release();
+    }
+    
+    mergeAttributes(nodes, networkID);
+  }
+
+  /**
+   * Write the names and types of the given nodes, inserting, updating or
+   * deleting rows as needed, with one statement per table for each batch
+   * of nodes.
+   * 
+   * @param nodes list of nodes
+   * @param networkID ID of the network
+   */
+  protected void mergeAttributes(List<Node> nodes, long networkID) throws DatabaseException {
+    NodeNamesRowMerger nodeNameMerger = new NodeNamesRowMerger(networkID);
+    NodeTypesRowMerger nodeTypeMerger = new NodeTypesRowMerger(networkID);
+    
+    try {
+      nodeNameMerger.merge(nodes);
+      nodeTypeMerger.merge(nodes);
+    }
+    finally {
+      nodeNameMerger.release();
+      nodeTypeMerger.release();
     }
   }
 
@@ -235,6 +246,7 @@ public class NodeWriter extends WriterBase {
       List<Long> nodeIDs = new ArrayList();
       nodeIDs.add(nodeID);
       deleteNodes(nodeIDs, networkID);
+      touchModstamp("NETWORKS", networkID);
 
       dbw.transactionCommit();
       Monitor.debug("Node delete transaction committing on " + nodeIdStr);
@@ -253,6 +265,8 @@ public class NodeWriter extends WriterBase {
       }
     }
 
+    ModstampCache.invalidate(ModstampCache.NETWORKS, networkID);
+
     long timeCommit = System.nanoTime();
     Monitor.duration("Delete " + nodeIdStr, timeCommit - timeBegin);
   }
@@ -309,7 +323,7 @@ public class NodeWriter extends WriterBase {
   }
 
   protected class RowOp {
-    protected DatabaseWriter dbw;
+    protected DBConnection dbw;
     protected String psname;
     
     protected void release() throws DatabaseException {
@@ -317,35 +331,36 @@ public class NodeWriter extends WriterBase {
     }
   }
 
+  /**
+   * SQL expression constructing a node's point geometry (srid 8307) from
+   * its bound longitude and latitude, so that no WKT needs to be formatted
+   * and parsed.
+   **/
+  private static final String pointSql =
+    "SDO_GEOMETRY(2001, 8307, SDO_POINT_TYPE(?, ?, NULL), NULL, NULL)";
+
   protected class NodesRowInserter extends RowOp {
-    protected NodesRowInserter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected NodesRowInserter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "insert_nodes_in_network_" + networkID;
       dbw.psCreate(psname,
-        "declare\n" +
-        "mygeom sdo_geometry ;\n" +
-        "begin\n" +
-        "select SDO_UTIL.FROM_WKTGEOMETRY(?) into mygeom from dual ;\n" +
-        "mygeom.sdo_srid := 8307 ;\n" +
-        "INSERT INTO VIA.NODES (ID, NETWORK_ID, geom) VALUES(?, " + networkID + ", mygeom);\n" +
-        "end;"
+        "INSERT INTO VIA.NODES (ID, NETWORK_ID, GEOM) " +
+        "VALUES(?, " + networkID + ", " + pointSql + ")"
       );
     }
 
     protected void insert(Node node) throws DatabaseException {
       int i = 0;
       dbw.psClearParams(psname);
-      dbw.psSetVarChar(psname, ++i,
-        "POINT ( " +
-          node.getLongitude() + " " +
-          node.getLatitude() + " )" );
       dbw.psSetBigInt(psname, ++i, node.getLongId());
+      dbw.psSetDouble(psname, ++i, node.getLongitude());
+      dbw.psSetDouble(psname, ++i, node.getLatitude());
       dbw.psUpdate(psname);
     }
   }
   
   protected class NodeNamesRowInserter extends RowOp {
-    protected NodeNamesRowInserter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected NodeNamesRowInserter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "insert_node_names_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -362,7 +377,7 @@ public class NodeWriter extends WriterBase {
   }
   
   protected class NodeTypesRowInserter extends RowOp {
-    protected NodeTypesRowInserter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected NodeTypesRowInserter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "insert_node_types_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -380,94 +395,67 @@ public class NodeWriter extends WriterBase {
   }
 
   protected class NodesRowUpdater extends RowOp {
-    protected NodesRowUpdater(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected NodesRowUpdater(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "update_nodes_in_network_" + networkID;
       dbw.psCreate(psname,
-        "declare\n" +
-        "mygeom sdo_geometry ;\n" +
-        "begin\n" +
-        "select SDO_UTIL.FROM_WKTGEOMETRY(?) into mygeom from dual ;\n" +
-        "mygeom.sdo_srid := 8307 ;\n" +
-        "UPDATE VIA.NODES SET geom = mygeom WHERE ((ID = ?) AND (NETWORK_ID = " + networkID + "));\n" +
-        "end;"
+        "UPDATE VIA.NODES SET GEOM = " + pointSql + " " +
+        "WHERE ((ID = ?) AND (NETWORK_ID = " + networkID + "))"
       );
     }
     
     protected long update(Node node) throws DatabaseException {
       int i = 0;
       dbw.psClearParams(psname);
-      dbw.psSetVarChar(psname, ++i,
-        "POINT ( " +
-          node.getLongitude() + " " +
-          node.getLatitude() + " )" );
+      dbw.psSetDouble(psname, ++i, node.getLongitude());
+      dbw.psSetDouble(psname, ++i, node.getLatitude());
       dbw.psSetBigInt(psname, ++i, node.getLongId());
 
       long rows = dbw.psUpdate(psname);
     
       if (rows > 1) {
         throw new DatabaseException(null, "Node not unique: there exist " +
-          rows + " with id=" + node.getId(), dbw, psname);
+          rows + " with id=" + node.getId(), dbw.getDatabase(), psname);
       }
       
       return rows;
     }
   }
   
-  protected class NodeNamesRowUpdater extends RowOp {
-    protected NodeNamesRowUpdater(long networkID, DatabaseWriter dbw) throws DatabaseException {
-      this.dbw = dbw;
-      this.psname = "update_node_names_in_network_" + networkID;
-      dbw.psCreate(psname,
-        "UPDATE VIA.NODE_NAMES SET name = ? WHERE ((NODE_ID = ?) AND (NETWORK_ID = " + networkID + "))"
-      );
+  protected class NodeNamesRowMerger extends AttributeMerger<Node> {
+    protected NodeNamesRowMerger(long networkID) {
+      super("NODE_NAMES", "NODE_ID", "NAME", networkID);
     }
     
-    protected long update(Node node) throws DatabaseException {
-      dbw.psClearParams(psname);
-      dbw.psSetVarChar(psname, 1, node.getNameString());
-      dbw.psSetBigInt(psname, 2, node.getLongId());
-      
-      long rows = dbw.psUpdate(psname);
-      
-      if (rows > 1) {
-        throw new DatabaseException(null, "Node name not unique: there exist " +
-          rows + " with id=" + node.getId(), dbw, psname);
-      }
-      
-      return rows;
+    protected Long id(Node node) {
+      return node.getLongId();
+    }
+    
+    protected void setValue(String name, int index, Node node) throws DatabaseException {
+      dbw.psSetVarChar(name, index, node.getNameString());
     }
   }
   
-  protected class NodeTypesRowUpdater extends RowOp {
-    protected NodeTypesRowUpdater(long networkID, DatabaseWriter dbw) throws DatabaseException {
-      this.dbw = dbw;
-      this.psname = "update_node_types_in_network_" + networkID;
-      dbw.psCreate(psname,
-        "UPDATE VIA.NODE_TYPE_DET SET NODE_TYPE_ID = " +
-          "(SELECT ID FROM VIA.NODE_TYPES WHERE NAME = ?) " +
-          "WHERE ((NODE_ID = ?) AND (NETWORK_ID = " + networkID + "))"
-      );
+  protected class NodeTypesRowMerger extends AttributeMerger<Node> {
+    protected NodeTypesRowMerger(long networkID) {
+      super("NODE_TYPE_DET", "NODE_ID", "NODE_TYPE_ID", networkID);
     }
     
-    protected long update(Node node) throws DatabaseException {
-      dbw.psClearParams(psname);
-      dbw.psSetVarChar(psname, 1, node.getTypeString());
-      dbw.psSetBigInt(psname, 2, node.getLongId());
-      
-      long rows = dbw.psUpdate(psname);
-      
-      if (rows > 1) {
-        throw new DatabaseException(null, "Node type not unique: there exist " +
-          rows + " with id=" + node.getId(), dbw, psname);
-      }
-      
-      return rows;
+    protected Long id(Node node) {
+      return node.getLongId();
+    }
+    
+    protected void setValue(String name, int index, Node node) throws DatabaseException {
+      dbw.psSetVarChar(name, index, node.getTypeString());
+    }
+    
+    protected String valueSql() {
+      return "(SELECT ID FROM VIA.NODE_TYPES WHERE NAME = S.VAL)";
     }
   }
   
   protected class NodesRowDeleter extends RowOp {
-    protected NodesRowDeleter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected NodesRowDeleter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "delete_nodes_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -483,7 +471,7 @@ public class NodeWriter extends WriterBase {
       
       if (rows > 1) {
         throw new DatabaseException(null, "Node not unique: network has " +
-          rows + " rows with id=" + nodeID, dbw, psname);
+          rows + " rows with id=" + nodeID, dbw.getDatabase(), psname);
       }
       
       return rows;
@@ -491,7 +479,7 @@ public class NodeWriter extends WriterBase {
   }
 
   protected class NodeNamesRowDeleter extends RowOp {
-    protected NodeNamesRowDeleter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected NodeNamesRowDeleter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "delete_node_names_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -507,7 +495,7 @@ public class NodeWriter extends WriterBase {
       
       if (rows > 1) {
         throw new DatabaseException(null, "Node name not unique: network has " +
-          rows + " rows with id=" + nodeID, dbw, psname);
+          rows + " rows with id=" + nodeID, dbw.getDatabase(), psname);
       }
       
       return rows;
@@ -515,7 +503,7 @@ public class NodeWriter extends WriterBase {
   }
 
   protected class NodeTypesRowDeleter extends RowOp {
-    protected NodeTypesRowDeleter(long networkID, DatabaseWriter dbw) throws DatabaseException {
+    protected NodeTypesRowDeleter(long networkID, DBConnection dbw) throws DatabaseException {
       this.dbw = dbw;
       this.psname = "delete_node_types_in_network_" + networkID;
       dbw.psCreate(psname,
@@ -531,7 +519,7 @@ public class NodeWriter extends WriterBase {
       
       if (rows > 1) {
         throw new DatabaseException(null, "Node type not unique: network has " +
-          rows + " rows with id=" + nodeID, dbw, psname);
+          rows + " rows with id=" + nodeID, dbw.getDatabase(), psname);
       }
       
       return rows;
@@ -49,6 +49,13 @@ public class PeMSReader extends ReaderBase {
     super(dbParams);
   }
   
+  public PeMSReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public PeMSReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -66,12 +73,12 @@ public class PeMSReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug("PeMS reader transaction beginning on " + pemsIdStr);
 
       profile = readProfile(interval, vdsId);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug("PeMS reader transaction committing on " + pemsIdStr);
     }
     catch (DatabaseException dbExc) {
@@ -80,7 +87,7 @@ public class PeMSReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug("PeMS reader transaction rollback on " + pemsIdStr);
       }
       catch(Exception Exc) {
@@ -108,12 +115,12 @@ public class PeMSReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug("PeMS reader transaction beginning on " + pemsIdStr);
 
       set = readSet(interval, vdsIds);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug("PeMS reader transaction committing on " + pemsIdStr);
     }
     catch (DatabaseException dbExc) {
@@ -122,7 +129,7 @@ public class PeMSReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug("PeMS reader transaction rollback on " + pemsIdStr);
       }
       catch(Exception Exc) {
@@ -49,6 +49,13 @@ public class PeMSStationAggregateReader extends ReaderBase {
     super(dbParams);
   }
   
+  public PeMSStationAggregateReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public PeMSStationAggregateReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -75,12 +82,12 @@ public class PeMSStationAggregateReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug("PeMS aggregate reader transaction beginning on " + pemsIdStr);
 
       list = readList(interval, vdsIds, level);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug("PeMS aggregate reader transaction committing on " + pemsIdStr);
     }
     catch (DatabaseException dbExc) {
@@ -89,7 +96,7 @@ public class PeMSStationAggregateReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug("PeMS aggregate reader transaction rollback on " + pemsIdStr);
       }
       catch(Exception Exc) {
@@ -47,6 +47,13 @@ public class PeMSStationReader extends ReaderBase {
     super(dbParams);
   }
   
+  public PeMSStationReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public PeMSStationReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -64,12 +71,12 @@ public class PeMSStationReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug("PeMSStation reader transaction beginning on " + pemsIdStr);
 
       station = readStation(vdsId);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug("PeMSStation reader transaction committing on " + pemsIdStr);
     }
     catch (DatabaseException dbExc) {
@@ -78,7 +85,7 @@ public class PeMSStationReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug("PeMSStation reader transaction rollback on " + pemsIdStr);
       }
       catch(Exception Exc) {
@@ -94,6 +101,134 @@ public class PeMSStationReader extends ReaderBase {
     return station;
   }
   
+  /**
+   * Read the PeMS stations with the given IDs, with one query.
+   * 
+   * @param vdsIds IDs of the stations
+   * @return map of id to station, sorted by id, omitting unknown ids
+   */
+  public Map<Long,PeMSStation> read(List<Long> vdsIds) throws DatabaseException {
+    Map<Long,PeMSStation> stations;
+    String pemsIdStr = "pems.{vds_ids.size=" + vdsIds.size() + "}";
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug("PeMSStation reader transaction beginning on " + pemsIdStr);
+
+      stations = readStations(vdsIds);
+
+      snapshotCommit();
+      Monitor.debug("PeMSStation reader transaction committing on " + pemsIdStr);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug("PeMSStation reader transaction rollback on " + pemsIdStr);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Read " + pemsIdStr, timeCommit - timeBegin);
+    Monitor.count("Read " + pemsIdStr, stations.size());
+
+    return stations;
+  }
+  
+  /**
+   * Read all PeMS stations in a district, optionally only those on one
+   * freeway, with one query.
+   * 
+   * @param district  district number
+   * @param fwyNum    freeway number, or null for all freeways
+   * @return map of id to station, sorted by id
+   */
+  public Map<Long,PeMSStation> readDistrict(int district, Integer fwyNum) throws DatabaseException {
+    Map<Long,PeMSStation> stations;
+    String pemsIdStr = "pems.{district=" + district + ", fwy_num=" + fwyNum + "}";
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug("PeMSStation reader transaction beginning on " + pemsIdStr);
+
+      stations = readStationsInDistrict(district, fwyNum);
+
+      snapshotCommit();
+      Monitor.debug("PeMSStation reader transaction committing on " + pemsIdStr);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug("PeMSStation reader transaction rollback on " + pemsIdStr);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Read " + pemsIdStr, timeCommit - timeBegin);
+    Monitor.count("Read " + pemsIdStr, stations.size());
+
+    return stations;
+  }
+  
+  /**
+   * Read the PeMS stations with the given IDs.
+   * 
+   * @see #read(List) if you want a transaction and logging around the operation.
+   */
+  public Map<Long,PeMSStation> readStations(List<Long> vdsIds) throws DatabaseException {
+    if (vdsIds.isEmpty()) {
+      return new TreeMap<Long,PeMSStation>();
+    }
+    
+    String query = null;
+    
+    try {
+      query = runQueryStations(vdsIds);
+      return stationsFromQueryRS(query);
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+  }
+  
+  /**
+   * Read the PeMS stations in a district, optionally only on one freeway.
+   * 
+   * @see #readDistrict() if you want a transaction and logging around the operation.
+   */
+  public Map<Long,PeMSStation> readStationsInDistrict(int district, Integer fwyNum) throws DatabaseException {
+    String query = null;
+    
+    try {
+      query = runQueryStationsInDistrict(district, fwyNum);
+      return stationsFromQueryRS(query);
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+  }
+  
   /**
    * Read the PeMS station with the given ID.
    * 
@@ -116,15 +251,7 @@ public class PeMSStationReader extends ReaderBase {
     return station;
   }
   
-  /**
-   * Execute a query for the specified pems station.
-   * 
-   * @return String     query string, may be passed to psRSNext or stationFromQueryRS
-   */
-  protected String runQueryStation(Long vdsId) throws DatabaseException {
-    String query = "read_pems_station";
-    
-    dbr.psCreate(query,
+  private static String queryFragment =
       "SELECT " +
         "VIA.PEMS_VD_STATIONS.STATE_PM, " +
         "VIA.PEMS_VD_STATIONS.ABS_PM, " +
@@ -150,7 +277,17 @@ public class PeMSStationReader extends ReaderBase {
       "LEFT OUTER JOIN VIA.PEMS_VD_STATIONS_CITIES " +
         "ON (VIA.PEMS_VD_STATIONS.CITY = VIA.PEMS_VD_STATIONS_CITIES.ID) " +
       "LEFT OUTER JOIN VIA.PEMS_VD_STATIONS_COUNTIES " +
-        "ON (VIA.PEMS_VD_STATIONS.COUNTY = VIA.PEMS_VD_STATIONS_COUNTIES.ID) " +
+        "ON (VIA.PEMS_VD_STATIONS.COUNTY = VIA.PEMS_VD_STATIONS_COUNTIES.ID) ";
+
+  /**
+   * Execute a query for the specified pems station.
+   * 
+   * @return String     query string, may be passed to psRSNext or stationFromQueryRS
+   */
+  protected String runQueryStation(Long vdsId) throws DatabaseException {
+    String query = "read_pems_station";
+    
+    dbr.psCreate(query, queryFragment +
       "WHERE " +
         "PEMS_VD_STATIONS.ID = ? "
     );
@@ -162,6 +299,73 @@ public class PeMSStationReader extends ReaderBase {
     return query;
   }
 
+  /**
+   * Execute a query for the specified pems stations.
+   * 
+   * @return String     query string, may be passed to psRSNext or stationsFromQueryRS
+   */
+  protected String runQueryStations(List<Long> vdsIds) throws DatabaseException {
+    String query = "read_pems_stations";
+    
+    dbr.psCreate(query, queryFragment +
+      "WHERE " +
+        inListSql("PEMS_VD_STATIONS.ID", vdsIds.size()) + " " +
+      "ORDER BY PEMS_VD_STATIONS.ID"
+    );
+    
+    dbr.psClearParams(query);
+    int i = 1;
+    for (Long vdsId : vdsIds) {
+      dbr.psSetBigInt(query, i++, vdsId);
+    }
+    dbr.psQuery(query);
+
+    return query;
+  }
+  
+  /**
+   * Execute a query for the pems stations of a district and freeway.
+   * 
+   * @return String     query string, may be passed to psRSNext or stationsFromQueryRS
+   */
+  protected String runQueryStationsInDistrict(int district, Integer fwyNum) throws DatabaseException {
+    String query = "read_pems_stations_district";
+    
+    dbr.psCreate(query, queryFragment +
+      "WHERE " +
+        "PEMS_VD_STATIONS.DISTRICT = ? " +
+        (fwyNum == null ? "" : "AND PEMS_VD_STATIONS.FWY_NUM = ? ") +
+      "ORDER BY PEMS_VD_STATIONS.ID"
+    );
+    
+    dbr.psClearParams(query);
+    dbr.psSetInteger(query, 1, district);
+    if (fwyNum != null) {
+      dbr.psSetInteger(query, 2, fwyNum);
+    }
+    dbr.psQuery(query);
+
+    return query;
+  }
+  
+  /**
+   * Instantiate and populate pems stations from all (remaining) items in
+   * the result set of a query.
+   * 
+   * @param query string
+   * @return map of id to station, sorted by id
+   */
+  protected Map<Long,PeMSStation> stationsFromQueryRS(String query) throws DatabaseException {
+    Map<Long,PeMSStation> stations = new TreeMap<Long,PeMSStation>();
+    PeMSStation station;
+    
+    while (null != (station = stationFromQueryRS(query))) {
+      stations.put(station.getId(), station);
+    }
+    
+    return stations;
+  }
+
   /**
    * Instantiate and populate a pems station from the next item in the result set
    * of a query.
@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.*;
+
+import edu.berkeley.path.model_elements.*;
+
+import core.*;
+
+/**
+ * In-memory registry of PeMS station metadata, which almost never changes.
+ * Stations are read in bulk, either by id on first use or by preloading
+ * whole districts or freeways, and are then looked up without touching the
+ * database. Stations are also indexed by freeway, direction and absolute
+ * postmile, for corridor lookups.
+ * 
+ * Ids that have no station are remembered too, so that looking them up
+ * again does not query the database. The registry re-reads all its
+ * stations, and the districts it preloaded, and forgets the unknown ids,
+ * on the first access after refreshMillis have passed since the last
+ * refresh, or when refresh() is called.
+ * 
+ * @see PeMSStationReader
+ * @author vjoel
+ */
+public class PeMSStationRegistry {
+  private final PeMSStationReader reader;
+  private final long refreshMillis;
+  private long lastRefresh;
+  
+  private final Map<Long,PeMSStation> stations = new HashMap<Long,PeMSStation>();
+  
+  /**
+   * Ids that were read and have no station, until the next refresh.
+   **/
+  private final Set<Long> unknown = new HashSet<Long>();
+  
+  /**
+   * Stations by "fwyNum/direction", then by absolute postmile. Stations
+   * with no postmile are not indexed.
+   **/
+  private final Map<String,TreeMap<Double,List<PeMSStation>>> corridors =
+    new HashMap<String,TreeMap<Double,List<PeMSStation>>>();
+  
+  /**
+   * Preloaded district and freeway pairs, freeway may be null. Each pair
+   * is read once per refresh, however often it was preloaded.
+   **/
+  private final Set<List<Integer>> preloads = new LinkedHashSet<List<Integer>>();
+  
+  /**
+   * Create a registry with a new connection to the db, specified by the
+   * dbParams.
+   * 
+   * @param dbParams      database to read from
+   * @param refreshMillis time after which stations are read again, or
+   *                      0 to refresh only when refresh() is called
+   */
+  public PeMSStationRegistry(
+          DBParams dbParams,
+          long refreshMillis
+          ) throws DatabaseException {
+    this.reader = new PeMSStationReader(dbParams);
+    this.refreshMillis = refreshMillis;
+    this.lastRefresh = System.currentTimeMillis();
+  }
+  
+  /**
+   * Get the station with the given ID, reading it if it is not registered.
+   * 
+   * @return PeMSStation, or null if there is none
+   */
+  public synchronized PeMSStation get(Long vdsId) throws DatabaseException {
+    return get(Arrays.asList(vdsId)).get(vdsId);
+  }
+  
+  /**
+   * Get the stations with the given IDs, reading the ones that are not
+   * registered, and not known to have no station, with one query.
+   * 
+   * @return map of id to station, omitting unknown ids
+   */
+  public synchronized Map<Long,PeMSStation> get(List<Long> vdsIds) throws DatabaseException {
+    refreshIfDue();
+    
+    List<Long> missing = new ArrayList<Long>();
+    for (Long vdsId : vdsIds) {
+      if (!stations.containsKey(vdsId) && !unknown.contains(vdsId)) {
+        missing.add(vdsId);
+      }
+    }
+    
+    if (!missing.isEmpty()) {
+      Map<Long,PeMSStation> read = reader.read(missing);
+      addAll(read);
+      
+      missing.removeAll(read.keySet());
+      unknown.addAll(missing);
+    }
+    
+    Map<Long,PeMSStation> result = new TreeMap<Long,PeMSStation>();
+    for (Long vdsId : vdsIds) {
+      PeMSStation station = stations.get(vdsId);
+      if (station != null) {
+        result.put(vdsId, station);
+      }
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Read and register all stations in a district, or on one freeway of a
+   * district. The district is read again on each refresh.
+   * 
+   * @param district  district number
+   * @param fwyNum    freeway number, or null for all freeways
+   * @return number of stations read
+   */
+  public synchronized int preload(int district, Integer fwyNum) throws DatabaseException {
+    preloads.add(Arrays.asList(district, fwyNum));
+    
+    Map<Long,PeMSStation> read = reader.readDistrict(district, fwyNum);
+    addAll(read);
+    
+    return read.size();
+  }
+  
+  /**
+   * Registered stations on a freeway and direction, with absolute postmile
+   * in the given range (inclusive), in order of postmile. Only stations
+   * already registered (for example by preload) are found; this does not
+   * read from the database.
+   * 
+   * @param fwyNum        freeway number
+   * @param direction     direction, such as "N"
+   * @param fromPostmile  lower end of the range
+   * @param toPostmile    upper end of the range
+   * @return list of stations, possibly empty
+   */
+  public synchronized List<PeMSStation> findOnCorridor(
+      int fwyNum,
+      String direction,
+      double fromPostmile,
+      double toPostmile) {
+    List<PeMSStation> found = new ArrayList<PeMSStation>();
+    TreeMap<Double,List<PeMSStation>> corridor =
+      corridors.get(corridorKey(fwyNum, direction));
+    
+    if (corridor != null && fromPostmile <= toPostmile) {
+      for (List<PeMSStation> atPostmile :
+          corridor.subMap(fromPostmile, true, toPostmile, true).values()) {
+        found.addAll(atPostmile);
+      }
+    }
+    
+    return found;
+  }
+  
+  /**
+   * Read all registered stations and preloaded districts again, and
+   * forget the ids that had no station.
+   */
+  public synchronized void refresh() throws DatabaseException {
+    Map<Long,PeMSStation> read = new TreeMap<Long,PeMSStation>();
+    
+    for (List<Integer> preload : preloads) {
+      read.putAll(reader.readDistrict(preload.get(0), preload.get(1)));
+    }
+    
+    List<Long> ids = new ArrayList<Long>(stations.keySet());
+    ids.removeAll(read.keySet());
+    if (!ids.isEmpty()) {
+      read.putAll(reader.read(ids));
+    }
+    
+    stations.clear();
+    corridors.clear();
+    unknown.clear();
+    addAll(read);
+    lastRefresh = System.currentTimeMillis();
+  }
+  
+  public synchronized int size() {
+    return stations.size();
+  }
+  
+  private void refreshIfDue() throws DatabaseException {
+    if (refreshMillis > 0 &&
+        System.currentTimeMillis() - lastRefresh >= refreshMillis) {
+      refresh();
+    }
+  }
+  
+  private void addAll(Map<Long,PeMSStation> read) {
+    for (PeMSStation station : read.values()) {
+      PeMSStation old = stations.put(station.getId(), station);
+      unknown.remove(station.getId());
+      if (old != null) {
+        unindex(old);
+      }
+      index(station);
+    }
+  }
+  
+  private static String corridorKey(Integer fwyNum, CharSequence direction) {
+    return fwyNum + "/" + direction;
+  }
+  
+  private void index(PeMSStation station) {
+    Double postmile = station.getAbsPostmile();
+    if (postmile == null) {
+      return;
+    }
+    
+    String key = corridorKey(station.getFwyNum(),
+      station.getDirection() == null ? null : station.getDirection().toString());
+    
+    TreeMap<Double,List<PeMSStation>> corridor = corridors.get(key);
+    if (corridor == null) {
+      corridor = new TreeMap<Double,List<PeMSStation>>();
+      corridors.put(key, corridor);
+    }
+    
+    List<PeMSStation> atPostmile = corridor.get(postmile);
+    if (atPostmile == null) {
+      atPostmile = new ArrayList<PeMSStation>(1);
+      corridor.put(postmile, atPostmile);
+    }
+    atPostmile.add(station);
+  }
+  
+  private void unindex(PeMSStation station) {
+    Double postmile = station.getAbsPostmile();
+    if (postmile == null) {
+      return;
+    }
+    
+    String key = corridorKey(station.getFwyNum(),
+      station.getDirection() == null ? null : station.getDirection().toString());
+    
+    TreeMap<Double,List<PeMSStation>> corridor = corridors.get(key);
+    if (corridor != null && corridor.containsKey(postmile)) {
+      corridor.get(postmile).remove(station);
+    }
+  }
+}
@@ -51,6 +51,13 @@ public class PeMSWriter extends WriterBase {
   }
   
     public PeMSWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
+  public PeMSWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
           ) throws DatabaseException {
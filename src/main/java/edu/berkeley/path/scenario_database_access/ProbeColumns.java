@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.util.Arrays;
+
+/**
+ * Probe data of one link and one run in columnar form, as an alternative
+ * to a list of PifProbeCoord when reading many probes. Entry i of each
+ * array belongs to the same probe, and entries are sorted by time.
+ * Null values in the database are represented as NaN.
+ * 
+ * @see ProbeReader#readBulkColumns
+ * @author vjoel
+ */
+public class ProbeColumns {
+  /**
+   * id of the run that filtered the probes
+   **/
+  public Long runId;
+  
+  /**
+   * id of the link the probes are mapped to
+   **/
+  public Long linkId;
+  
+  /**
+   * probe time stamps, in milliseconds since the epoch
+   **/
+  public long[] time;
+  
+  /**
+   * probe speeds
+   **/
+  public double[] speed;
+  
+  /**
+   * probe offsets along the link
+   **/
+  public double[] offset;
+  
+  /**
+   * probability of the probe being on this link
+   **/
+  public double[] probability;
+  
+  private int size = 0;
+  
+  public ProbeColumns(Long runId, Long linkId) {
+    this.runId = runId;
+    this.linkId = linkId;
+    this.time = new long[16];
+    this.speed = new double[16];
+    this.offset = new double[16];
+    this.probability = new double[16];
+  }
+  
+  /**
+   * Number of probes.
+   **/
+  public int size() {
+    return size;
+  }
+  
+  /**
+   * Append one probe, growing the arrays as needed. The time stamp is
+   * required, since there is no NaN for times.
+   **/
+  protected void add(long t, Double spd, Double off, Double prob) {
+    if (size == time.length) {
+      int capacity = 2 * size;
+      time = Arrays.copyOf(time, capacity);
+      speed = Arrays.copyOf(speed, capacity);
+      offset = Arrays.copyOf(offset, capacity);
+      probability = Arrays.copyOf(probability, capacity);
+    }
+    
+    time[size] = t;
+    speed[size] = spd == null ? Double.NaN : spd;
+    offset[size] = off == null ? Double.NaN : off;
+    probability[size] = prob == null ? Double.NaN : prob;
+    size++;
+  }
+  
+  /**
+   * Shrink the arrays to exactly size() entries.
+   **/
+  protected void trim() {
+    if (size != time.length) {
+      time = Arrays.copyOf(time, size);
+      speed = Arrays.copyOf(speed, size);
+      offset = Arrays.copyOf(offset, size);
+      probability = Arrays.copyOf(probability, size);
+    }
+  }
+  
+  public String toString() {
+    return "{run_id=" + runId +
+      ", link_id=" + linkId +
+      ", size=" + size + "}";
+  }
+}
@@ -49,6 +49,13 @@ public class ProbeReader extends ReaderBase {
     super(dbParams);
   }
   
+  public ProbeReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public ProbeReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -67,12 +74,12 @@ public class ProbeReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug("Probe reader transaction beginning on " + probeIdStr);
 
       probes = readRows(runId, networkId, linkId, interval);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug("Probe reader transaction committing on " + probeIdStr);
     }
     catch (DatabaseException dbExc) {
@@ -81,7 +88,7 @@ public class ProbeReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug("Probe reader transaction rollback on " + probeIdStr);
       }
       catch(Exception Exc) {
@@ -120,6 +127,225 @@ public class ProbeReader extends ReaderBase {
     return probes;
   }
   
+  /**
+   * Receives the probes of one link and one run at a time from readBulk().
+   **/
+  public interface ProbeVisitor {
+    /**
+     * @param runId   id of the run that filtered the probes
+     * @param linkId  id of the link the probes are mapped to
+     * @param probes  probes on the link, sorted by time
+     */
+    void visit(Long runId, Long linkId, List<PifProbeCoord> probes) throws DatabaseException;
+  }
+  
+  /**
+   * Receives the probes of one link and one run at a time from
+   * readBulkColumns().
+   **/
+  public interface ProbeColumnsVisitor {
+    /**
+     * @param columns probes on the link, sorted by time
+     */
+    void visit(ProbeColumns columns) throws DatabaseException;
+  }
+  
+  /**
+   * Read all Probe data of the given runs on the given links, or on the
+   * whole network, in one query. The probes are passed to the visitor
+   * grouped by link and then run, so only one group is held in memory at a
+   * time.
+   * 
+   * @param runIds    IDs of the runs that filtered the probes
+   * @param networkId ID of the network the probes are mapped to
+   * @param linkIds   IDs of the links to read, or null for all links
+   * @param interval  time interval of the data to be read
+   * @param visitor   receives the probes of each link and run
+   * @return number of probes read
+   */
+  public long readBulk(
+      List<Long> runIds,
+      Long networkId,
+      List<Long> linkIds,
+      Interval interval,
+      ProbeVisitor visitor
+      ) throws DatabaseException {
+    return readBulk(runIds, networkId, linkIds, interval, visitor, null);
+  }
+  
+  /**
+   * Read all Probe data of the given runs on the given links, or on the
+   * whole network, in one query, in columnar form. Otherwise the same as
+   * readBulk().
+   * 
+   * @param runIds    IDs of the runs that filtered the probes
+   * @param networkId ID of the network the probes are mapped to
+   * @param linkIds   IDs of the links to read, or null for all links
+   * @param interval  time interval of the data to be read
+   * @param visitor   receives the probes of each link and run
+   * @return number of probes read
+   */
+  public long readBulkColumns(
+      List<Long> runIds,
+      Long networkId,
+      List<Long> linkIds,
+      Interval interval,
+      ProbeColumnsVisitor visitor
+      ) throws DatabaseException {
+    return readBulk(runIds, networkId, linkIds, interval, null, visitor);
+  }
+  
+  private long readBulk(
+      List<Long> runIds,
+      Long networkId,
+      List<Long> linkIds,
+      Interval interval,
+      ProbeVisitor visitor,
+      ProbeColumnsVisitor columnsVisitor
+      ) throws DatabaseException {
+    long count;
+
+    String probeIdStr = "bulk probe.{network_id=" + networkId +
+      ", run_ids=" + runIds +
+      ", links=" + (linkIds == null ? "all" : linkIds.size()) +
+      ", interval=" + interval + "}";
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug("Probe reader transaction beginning on " + probeIdStr);
+
+      count = readBulkRows(runIds, networkId, linkIds, interval, visitor, columnsVisitor);
+
+      snapshotCommit();
+      Monitor.debug("Probe reader transaction committing on " + probeIdStr);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug("Probe reader transaction rollback on " + probeIdStr);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Read " + probeIdStr, timeCommit - timeBegin);
+    Monitor.count("Read " + probeIdStr, count);
+
+    return count;
+  }
+  
+  /**
+   * Read all Probe data of the given runs and links, passing each group of
+   * probes to whichever of the two visitors is not null.
+   * 
+   * @see #readBulk() if you want a transaction and logging around the operation.
+   * 
+   * @return number of probes read
+   */
+  public long readBulkRows(
+      List<Long> runIds,
+      Long networkId,
+      List<Long> linkIds,
+      Interval interval,
+      ProbeVisitor visitor,
+      ProbeColumnsVisitor columnsVisitor
+      ) throws DatabaseException {
+    if (runIds.isEmpty() || (linkIds != null && linkIds.isEmpty())) {
+      return 0;
+    }
+    
+    String query = null;
+    long count = 0;
+    
+    try {
+      query = runBulkQuery(runIds, networkId, linkIds, interval);
+      
+      Long groupRunId = null;
+      Long groupLinkId = null;
+      List<PifProbeCoord> probes = null;
+      ProbeColumns columns = null;
+      
+      while (dbr.psRSNext(query)) {
+        Long runId = dbr.psRSGetBigInt(query, "RUN_ID");
+        Long linkId = dbr.psRSGetBigInt(query, "LINK_ID");
+        
+        if (groupLinkId == null ||
+            !linkId.equals(groupLinkId) ||
+            !runId.equals(groupRunId)) {
+          if (groupLinkId != null) {
+            visitGroup(groupRunId, groupLinkId, probes, columns, visitor, columnsVisitor);
+          }
+          
+          groupRunId = runId;
+          groupLinkId = linkId;
+          
+          if (columnsVisitor != null) {
+            columns = new ProbeColumns(runId, linkId);
+          }
+          else {
+            probes = new ArrayList<PifProbeCoord>();
+          }
+        }
+        
+        if (columnsVisitor != null) {
+          Long ts = dbr.psRSGetTimestampMilliseconds(query, "PROBE_TS");
+          if (ts == null) {
+            throw new DatabaseException(null,
+              "Probe without time stamp on link " + linkId + " of run " + runId,
+              dbr.getDatabase(), query);
+          }
+          
+          columns.add(
+            ts,
+            dbr.psRSGetDouble(query, "PROBE_SPEED"),
+            dbr.psRSGetDouble(query, "LINK_OFFSET"),
+            dbr.psRSGetDouble(query, "PROBABILITY"));
+        }
+        else {
+          probes.add(probeFromRow(query));
+        }
+        
+        count++;
+      }
+      
+      if (groupLinkId != null) {
+        visitGroup(groupRunId, groupLinkId, probes, columns, visitor, columnsVisitor);
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    return count;
+  }
+  
+  private static void visitGroup(
+      Long runId,
+      Long linkId,
+      List<PifProbeCoord> probes,
+      ProbeColumns columns,
+      ProbeVisitor visitor,
+      ProbeColumnsVisitor columnsVisitor
+      ) throws DatabaseException {
+    if (columnsVisitor != null) {
+      columns.trim();
+      columnsVisitor.visit(columns);
+    }
+    else {
+      visitor.visit(runId, linkId, probes);
+    }
+  }
+  
   /**
    * Execute a query for the specified probe data.
    * 
@@ -154,6 +380,61 @@ public class ProbeReader extends ReaderBase {
     return query;
   }
 
+  /**
+   * Execute a query for the probe data of several runs and links, ordered
+   * by link, run and time.
+   * 
+   * @return String     query string, may be passed to psRSNext
+   */
+  protected String runBulkQuery(
+      List<Long> runIds,
+      Long networkId,
+      List<Long> linkIds,
+      Interval interval
+      ) throws DatabaseException {
+    String query = "read_probes_bulk";
+    
+    dbr.psCreate(query,
+      "SELECT " +
+        "RUN_ID, " +
+        "LINK_ID, " +
+        "PROBE_TS, " +
+        "PROBE_SPEED, " +
+        "LINK_OFFSET, " +
+        "PROBABILITY " +
+      "FROM VIA.PIF_PROBE_COORD " +
+      "WHERE " +
+         "PROBE_TS BETWEEN ? AND ? " +
+         "AND " + inListSql("RUN_ID", runIds.size()) + " " +
+         "AND NETWORK_ID = ? " +
+         (linkIds == null ? "" :
+           "AND " + inListSql("LINK_ID", linkIds.size()) + " ") +
+      "ORDER BY LINK_ID, RUN_ID, PROBE_TS"
+    );
+    
+    dbr.psClearParams(query);
+    
+    int i = 1;
+    dbr.psSetTimestampMilliseconds(query, i++, interval.getStartMillis());
+    dbr.psSetTimestampMilliseconds(query, i++, interval.getEndMillis());
+    
+    for (Long runId : runIds) {
+      dbr.psSetBigInt(query, i++, runId);
+    }
+    
+    dbr.psSetBigInt(query, i++, networkId);
+    
+    if (linkIds != null) {
+      for (Long linkId : linkIds) {
+        dbr.psSetBigInt(query, i++, linkId);
+      }
+    }
+    
+    dbr.psQuery(query);
+
+    return query;
+  }
+
   /**
    * Instantiate and populate a probe object from the next item in the result set
    * of a query.
@@ -168,20 +449,310 @@ public class ProbeReader extends ReaderBase {
       //String columns = org.apache.commons.lang.StringUtils.join(dbr.psRSColumnNames(query), ", ");
       //System.out.println("columns: [" + columns + "]");
       
-      probe = new PifProbeCoord();
+      probe = probeFromRow(query);
+    }
 
-      edu.berkeley.path.model_elements.DateTime time =
-        new edu.berkeley.path.model_elements.DateTime(dbr.psRSGetTimestampMilliseconds(query, "PROBE_TS"));
-      
-      Double speed = dbr.psRSGetDouble(query, "PROBE_SPEED");
-      Double offset = dbr.psRSGetDouble(query, "LINK_OFFSET");
-      Double prob = dbr.psRSGetDouble(query, "PROBABILITY");
-      
-      probe.setTime(time);
-      probe.setOffset(offset);
-      probe.setSpeed(speed);
-      probe.setProbability(prob);
+    return probe;
+  }
+
+  /**
+   * Read probe speeds aggregated per link over time buckets of the given
+   * size, for all links of the network. The aggregation is done by the
+   * database, so only one row per link per bucket is transferred.
+   * 
+   * @param runId         ID of the run that filtered the probes
+   * @param networkId     ID of the network the probes are mapped to
+   * @param interval      time interval of the data to be read
+   * @param bucketSeconds size of each time bucket in seconds
+   * @param fn            aggregate function to apply to the speeds in each bucket
+   * @return list of TimeBucketAggregate, sorted by time and then link id
+   */
+  public List<TimeBucketAggregate> readAggregates(
+      Long runId,
+      Long networkId,
+      Interval interval,
+      int bucketSeconds,
+      AggregateFunction fn
+      ) throws DatabaseException {
+    List<TimeBucketAggregate> aggs;
+
+    String probeIdStr = "probe aggregate.{network_id=" + networkId +
+      ", run_id=" + runId + ", interval=" + interval +
+      ", fn=" + fn + ", bucket=" + bucketSeconds + "s}";
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug("Probe reader transaction beginning on " + probeIdStr);
+
+      aggs = readAggregateRows(runId, networkId, interval, bucketSeconds, fn);
+
+      snapshotCommit();
+      Monitor.debug("Probe reader transaction committing on " + probeIdStr);
     }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug("Probe reader transaction rollback on " + probeIdStr);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Read " + probeIdStr, timeCommit - timeBegin);
+    Monitor.count("Read " + probeIdStr, aggs.size());
+
+    return aggs;
+  }
+  
+  /**
+   * Read probe speeds aggregated per link and time bucket.
+   * 
+   * @see #readAggregates() if you want a transaction and logging around the operation.
+   */
+  public List<TimeBucketAggregate> readAggregateRows(
+      Long runId,
+      Long networkId,
+      Interval interval,
+      int bucketSeconds,
+      AggregateFunction fn
+      ) throws DatabaseException {
+    String query = null;
+    
+    try {
+      query = runAggregateQuery(runId, networkId, interval, bucketSeconds, fn);
+      return aggregatesFromQueryRS(query);
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+  }
+  
+  /**
+   * Read a histogram of probe speeds per link and time bucket. Each returned
+   * aggregate is one non-empty bin: its value is the lower edge of the bin,
+   * and its samples is the number of probes in the bin. Empty bins are
+   * omitted.
+   * 
+   * @param runId         ID of the run that filtered the probes
+   * @param networkId     ID of the network the probes are mapped to
+   * @param interval      time interval of the data to be read
+   * @param bucketSeconds size of each time bucket in seconds
+   * @param binWidth      width of each speed bin, in the units of PROBE_SPEED
+   * @return list of TimeBucketAggregate, sorted by time, link id and bin
+   */
+  public List<TimeBucketAggregate> readSpeedHistogram(
+      Long runId,
+      Long networkId,
+      Interval interval,
+      int bucketSeconds,
+      double binWidth
+      ) throws DatabaseException {
+    List<TimeBucketAggregate> bins;
+
+    String probeIdStr = "probe histogram.{network_id=" + networkId +
+      ", run_id=" + runId + ", interval=" + interval +
+      ", bin_width=" + binWidth + ", bucket=" + bucketSeconds + "s}";
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug("Probe reader transaction beginning on " + probeIdStr);
+
+      bins = readSpeedHistogramRows(runId, networkId, interval, bucketSeconds, binWidth);
+
+      snapshotCommit();
+      Monitor.debug("Probe reader transaction committing on " + probeIdStr);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug("Probe reader transaction rollback on " + probeIdStr);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Read " + probeIdStr, timeCommit - timeBegin);
+    Monitor.count("Read " + probeIdStr, bins.size());
+
+    return bins;
+  }
+  
+  /**
+   * Read a histogram of probe speeds per link and time bucket.
+   * 
+   * @see #readSpeedHistogram() if you want a transaction and logging around the operation.
+   */
+  public List<TimeBucketAggregate> readSpeedHistogramRows(
+      Long runId,
+      Long networkId,
+      Interval interval,
+      int bucketSeconds,
+      double binWidth
+      ) throws DatabaseException {
+    String query = null;
+    
+    try {
+      query = runHistogramQuery(runId, networkId, interval, bucketSeconds, binWidth);
+      return aggregatesFromQueryRS(query);
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+  }
+  
+  /**
+   * Execute an aggregate query for the specified probe data.
+   * 
+   * @return String     query string, may be passed to psRSNext or aggregatesFromQueryRS
+   */
+  protected String runAggregateQuery(
+      Long runId,
+      Long networkId,
+      Interval interval,
+      int bucketSeconds,
+      AggregateFunction fn
+      ) throws DatabaseException {
+    String query = "read_probe_aggregates";
+    
+    dbr.psCreate(query,
+      "SELECT " +
+        "LINK_ID, " +
+        "BUCKET_TS, " +
+        fn.toSql("PROBE_SPEED") + " AS VALUE, " +
+        "COUNT(PROBE_SPEED) AS SAMPLES " +
+      "FROM (" +
+        "SELECT " +
+          "LINK_ID, " +
+          timeBucketSql("PROBE_TS", bucketSeconds) + " AS BUCKET_TS, " +
+          "PROBE_SPEED " +
+        "FROM VIA.PIF_PROBE_COORD " +
+        "WHERE " +
+           "PROBE_TS BETWEEN ? AND ? " +
+           "AND RUN_ID = ? " +
+           "AND NETWORK_ID = ?" +
+      ") " +
+      "GROUP BY BUCKET_TS, LINK_ID " +
+      "ORDER BY BUCKET_TS, LINK_ID"
+    );
+    
+    dbr.psClearParams(query);
+    dbr.psSetTimestampMilliseconds(query, 1, interval.getStartMillis());
+    dbr.psSetTimestampMilliseconds(query, 2, interval.getEndMillis());
+    dbr.psSetBigInt(query, 3, runId);
+    dbr.psSetBigInt(query, 4, networkId);
+    dbr.psQuery(query);
+
+    return query;
+  }
+  
+  /**
+   * Execute a speed histogram query for the specified probe data.
+   * 
+   * @return String     query string, may be passed to psRSNext or aggregatesFromQueryRS
+   */
+  protected String runHistogramQuery(
+      Long runId,
+      Long networkId,
+      Interval interval,
+      int bucketSeconds,
+      double binWidth
+      ) throws DatabaseException {
+    if (!(binWidth > 0.0)) {
+      throw new IllegalArgumentException(
+        "bin width must be positive, not " + binWidth);
+    }
+    
+    String query = "read_probe_histogram";
+    
+    dbr.psCreate(query,
+      "SELECT " +
+        "LINK_ID, " +
+        "BUCKET_TS, " +
+        "BIN AS VALUE, " +
+        "COUNT(*) AS SAMPLES " +
+      "FROM (" +
+        "SELECT " +
+          "LINK_ID, " +
+          timeBucketSql("PROBE_TS", bucketSeconds) + " AS BUCKET_TS, " +
+          "FLOOR(PROBE_SPEED / ?) * ? AS BIN " +
+        "FROM VIA.PIF_PROBE_COORD " +
+        "WHERE " +
+           "PROBE_TS BETWEEN ? AND ? " +
+           "AND RUN_ID = ? " +
+           "AND NETWORK_ID = ? " +
+           "AND PROBE_SPEED IS NOT NULL" +
+      ") " +
+      "GROUP BY BUCKET_TS, LINK_ID, BIN " +
+      "ORDER BY BUCKET_TS, LINK_ID, BIN"
+    );
+    
+    dbr.psClearParams(query);
+    dbr.psSetDouble(query, 1, binWidth);
+    dbr.psSetDouble(query, 2, binWidth);
+    dbr.psSetTimestampMilliseconds(query, 3, interval.getStartMillis());
+    dbr.psSetTimestampMilliseconds(query, 4, interval.getEndMillis());
+    dbr.psSetBigInt(query, 5, runId);
+    dbr.psSetBigInt(query, 6, networkId);
+    dbr.psQuery(query);
+
+    return query;
+  }
+  
+  /**
+   * Populate a list of aggregates from the result set of an aggregate or
+   * histogram query, consuming all (remaining) results.
+   * 
+   * @param query string
+   * @return list of TimeBucketAggregate
+   */
+  protected List<TimeBucketAggregate> aggregatesFromQueryRS(String query) throws DatabaseException {
+    List<TimeBucketAggregate> aggs = new ArrayList<TimeBucketAggregate>();
+    TimeBucketAggregate agg;
+    
+    while (null != (agg = bucketAggregateFromQueryRS(query))) {
+      aggs.add(agg);
+    }
+    
+    return aggs;
+  }
+
+  /**
+   * Instantiate and populate a probe object from the current row of a query.
+   */
+  private PifProbeCoord probeFromRow(String query) throws DatabaseException {
+    PifProbeCoord probe = new PifProbeCoord();
+
+    edu.berkeley.path.model_elements.DateTime time =
+      new edu.berkeley.path.model_elements.DateTime(dbr.psRSGetTimestampMilliseconds(query, "PROBE_TS"));
+    
+    Double speed = dbr.psRSGetDouble(query, "PROBE_SPEED");
+    Double offset = dbr.psRSGetDouble(query, "LINK_OFFSET");
+    Double prob = dbr.psRSGetDouble(query, "PROBABILITY");
+    
+    probe.setTime(time);
+    probe.setOffset(offset);
+    probe.setSpeed(speed);
+    probe.setProbability(prob);
 
     return probe;
   }
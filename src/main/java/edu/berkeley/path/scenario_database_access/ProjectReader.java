@@ -48,6 +48,13 @@ public class ProjectReader extends ReaderBase {
     super(dbParams);
   }
   
+  public ProjectReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public ProjectReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -68,14 +75,14 @@ public class ProjectReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug(
         "Project reader transaction beginning on project.id=" +
         projectID);
 
       project = readRow(projectID);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug(
         "Project reader transaction committing on project.id=" +
         projectID);
@@ -86,7 +93,7 @@ public class ProjectReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug(
           "Project reader transaction rollback on project.id=" +
           projectID);
@@ -115,13 +122,13 @@ public class ProjectReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug(
         "Project.readProjects transaction beginning");
 
       projects = readProjectRows();
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug(
         "Project.readProjects transaction committing");
     }
@@ -131,7 +138,7 @@ public class ProjectReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug(
           "Project.readProjects transaction rollback");
       }
@@ -199,14 +206,14 @@ public class ProjectReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug(
         "Project.readScenarios transaction beginning on project.id=" +
         projectID);
 
       scenarios = readScenarioRows(projectID);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug(
         "Project.readScenarios transaction committing on project.id=" +
         projectID);
@@ -217,7 +224,7 @@ public class ProjectReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug(
           "Project.readScenarios transaction rollback on project.id=" +
           projectID);
@@ -274,6 +281,414 @@ public class ProjectReader extends ReaderBase {
     return scenarios;
   }
 
+  /**
+   * Read one page of the listing of all projects. Each project in the
+   * result has just its id, name and modstamp.
+   * 
+   * @param spec  which page, in what order
+   * @return List of projects, at most spec.limit long. A shorter list is
+   *         the last page.
+   */
+  public List<Project> readProjectPage(ListingQuery spec) throws DatabaseException {
+    List<Project> projects;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug(
+        "Project.readProjectPage transaction beginning on " + spec);
+
+      projects = readProjectPageRows(spec);
+
+      snapshotCommit();
+      Monitor.debug(
+        "Project.readProjectPage transaction committing on " + spec);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug(
+          "Project.readProjectPage transaction rollback on " + spec);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Project.readProjectPage", timeCommit - timeBegin);
+    Monitor.count("Found Projects in page", projects.size());
+    
+    return projects;
+  }
+
+  /**
+   * Read one page of the listing of all projects.
+   * 
+   * @see readProjectPage() if you want a transaction and logging around the operation.
+   * 
+   * @param spec  which page, in what order
+   * @return List of projects, with just id, name and modstamp.
+   */
+  public List<Project> readProjectPageRows(ListingQuery spec) throws DatabaseException {
+    List<Project> projects = new ArrayList<Project>();
+    
+    String query = "read_projects_page";
+
+    try {
+      dbr.psCreate(query, listingSql("PROJECTS", "ID, NAME, MODSTAMP", null, spec));
+    
+      dbr.psClearParams(query);
+      setListing(query, 1, spec);
+      dbr.psQuery(query);
+
+      while (dbr.psRSNext(query)) {
+        Project project = new Project();
+        
+        project.setId(dbr.psRSGetBigInt(query, "ID"));
+        project.name = dbr.psRSGetVarChar(query, "NAME");
+        project.setModstamp(modstampFromRS(query));
+        
+        projects.add(project);
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    return projects;
+  }
+
+  /**
+   * Read one page of the listing of the scenarios of the given project.
+   * Each scenario in the result has just its id, name, project id and
+   * modstamp.
+   * 
+   * @param projectID  ID of the project in the database
+   * @param spec       which page, in what order
+   * @return List of scenarios, at most spec.limit long. A shorter list is
+   *         the last page.
+   */
+  public List<Scenario> readScenarioPage(long projectID, ListingQuery spec) throws DatabaseException {
+    List<Scenario> scenarios;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug(
+        "Project.readScenarioPage transaction beginning on project.id=" +
+        projectID + " " + spec);
+
+      scenarios = readScenarioPageRows(projectID, spec);
+
+      snapshotCommit();
+      Monitor.debug(
+        "Project.readScenarioPage transaction committing on project.id=" +
+        projectID + " " + spec);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug(
+          "Project.readScenarioPage transaction rollback on project.id=" +
+          projectID + " " + spec);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Project.readScenarioPage project.id=" + projectID, timeCommit - timeBegin);
+    Monitor.count("Found scenarios in page of project " + projectID, scenarios.size());
+    
+    return scenarios;
+  }
+
+  /**
+   * Read one page of the listing of the scenarios of the given project.
+   * 
+   * @see readScenarioPage() if you want a transaction and logging around the operation.
+   * 
+   * @param projectID  ID of the project in the database
+   * @param spec       which page, in what order
+   * @return List of scenarios, with just id, name, project id and modstamp.
+   */
+  public List<Scenario> readScenarioPageRows(long projectID, ListingQuery spec) throws DatabaseException {
+    List<Scenario> scenarios = new ArrayList<Scenario>();
+    
+    String query = "read_scenarios_page_project_" + projectID;
+
+    try {
+      dbr.psCreate(query,
+        listingSql("SCENARIOS", "ID, NAME, PROJECT_ID, MODSTAMP", "(PROJECT_ID = ?)", spec));
+    
+      dbr.psClearParams(query);
+      dbr.psSetBigInt(query, 1, projectID);
+      setListing(query, 2, spec);
+      dbr.psQuery(query);
+
+      while (dbr.psRSNext(query)) {
+        Scenario scenario = new Scenario();
+        
+        Long prjId = dbr.psRSGetBigInt(query, "PROJECT_ID");
+        
+        scenario.setId(dbr.psRSGetBigInt(query, "ID"));
+        scenario.setName(dbr.psRSGetVarChar(query, "NAME"));
+        scenario.setProjectId(prjId == null ? null : prjId.toString());
+        scenario.setModstamp(modstampFromRS(query));
+        
+        scenarios.add(scenario);
+      }
+    }
+    finally {
+      if (query != null) {
+        dbr.psDestroy(query);
+      }
+    }
+    
+    return scenarios;
+  }
+
+  /**
+   * Count all projects.
+   * 
+   * @return number of projects
+   */
+  public long countProjects() throws DatabaseException {
+    return countProjects(0);
+  }
+
+  /**
+   * Count all projects, or return the count read by this reader within the
+   * last maxAgeMillis, so that a UI can show a total with each page without
+   * counting again.
+   * 
+   * @param maxAgeMillis  oldest cached count to return, or 0 to always count
+   * @return number of projects
+   */
+  public long countProjects(long maxAgeMillis) throws DatabaseException {
+    return count("count_projects",
+      "SELECT COUNT(*) N FROM VIA.PROJECTS", null, maxAgeMillis);
+  }
+
+  /**
+   * Count the scenarios of the given project.
+   * 
+   * @param projectID  ID of the project in the database
+   * @return number of scenarios
+   */
+  public long countScenarios(long projectID) throws DatabaseException {
+    return countScenarios(projectID, 0);
+  }
+
+  /**
+   * Count the scenarios of the given project, or return the count read by
+   * this reader within the last maxAgeMillis.
+   * 
+   * @param projectID     ID of the project in the database
+   * @param maxAgeMillis  oldest cached count to return, or 0 to always count
+   * @return number of scenarios
+   */
+  public long countScenarios(long projectID, long maxAgeMillis) throws DatabaseException {
+    return count("count_scenarios_project_" + projectID,
+      "SELECT COUNT(*) N FROM VIA.SCENARIOS WHERE (PROJECT_ID = ?)",
+      projectID, maxAgeMillis);
+  }
+
+  /**
+   * Run a count query with at most one parameter, unless its result is
+   * cached and no older than maxAgeMillis. The count is one statement, so
+   * it is consistent without a snapshot.
+   */
+  private long count(String query, String sql, Long param, long maxAgeMillis) throws DatabaseException {
+    long now = System.currentTimeMillis();
+    
+    CachedCount cached = counts.get(query);
+    if (cached != null && now - cached.time < maxAgeMillis) {
+      return cached.count;
+    }
+    
+    long count = 0;
+    
+    try {
+      dbr.psCreate(query, sql);
+      
+      dbr.psClearParams(query);
+      if (param != null) {
+        dbr.psSetBigInt(query, 1, param);
+      }
+      dbr.psQuery(query);
+      
+      if (dbr.psRSNext(query)) {
+        count = dbr.psRSGetBigInt(query, "N");
+      }
+    }
+    finally {
+      dbr.psDestroy(query);
+    }
+    
+    counts.put(query, new CachedCount(count, now));
+    Monitor.count(query, count);
+    
+    return count;
+  }
+
+  private static class CachedCount {
+    final long count;
+    final long time;
+    
+    CachedCount(long count, long time) {
+      this.count = count;
+      this.time = time;
+    }
+  }
+  
+  /**
+   * counts read by count(), by query name
+   **/
+  private Map<String,CachedCount> counts = new HashMap<String,CachedCount>();
+
+  /**
+   * Sort key column of a listing, other than the id, or null if the
+   * listing is sorted by id alone. The key is compared as stored, so that
+   * an index on (key, ID) can serve the listing.
+   */
+  private static String listingKeySql(ListingQuery spec) {
+    switch (spec.orderBy) {
+      case NAME:
+        return "NAME";
+      case MODSTAMP:
+        return "MODSTAMP";
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Whether the last row of the previous page has no sort key. Rows read
+   * without a modstamp have modstamp 0.
+   */
+  private static boolean afterNullKey(ListingQuery spec) {
+    switch (spec.orderBy) {
+      case NAME:
+        return spec.afterName == null;
+      case MODSTAMP:
+        return spec.afterModstamp == null || spec.afterModstamp == 0;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * SQL query for one page of a listing of a table. Bind its parameters,
+   * after those of the condition, with setListing().
+   * 
+   * Rows without a sort key sort after all others, ascending, and before
+   * all others, descending, which is Oracle's default and the order of an
+   * index on (key, ID). Those rows are paged by id within their own branch
+   * of the keyset condition.
+   * 
+   * @param table     table in the VIA schema, with ID, NAME and MODSTAMP
+   * @param columns   columns to select
+   * @param condition SQL condition, or null for all rows
+   * @param spec      which page, in what order
+   */
+  private static String listingSql(String table, String columns, String condition, ListingQuery spec) {
+    if (spec.limit <= 0) {
+      throw new IllegalArgumentException(
+        "page must have at least one row, not " + spec.limit);
+    }
+    
+    String key = listingKeySql(spec);
+    String after = spec.orderBy == ListingQuery.Order.MODSTAMP ?
+      WriterBase.MODSTAMP_SQL : "?";
+    String op = spec.descending ? "<" : ">";
+    String dir = spec.descending ? " DESC NULLS FIRST" : " NULLS LAST";
+    
+    List<String> where = new ArrayList<String>();
+    if (condition != null) {
+      where.add(condition);
+    }
+    if (spec.afterID != null) {
+      if (key == null) {
+        where.add("(ID " + op + " ?)");
+      }
+      else if (afterNullKey(spec)) {
+        where.add("((" + key + " IS NULL AND ID " + op + " ?)" +
+          (spec.descending ? " OR " + key + " IS NOT NULL)" : ")"));
+      }
+      else {
+        where.add("((" + key + " " + op + " " + after + ") OR " +
+          "(" + key + " = " + after + " AND ID " + op + " ?)" +
+          (spec.descending ? ")" : " OR " + key + " IS NULL)"));
+      }
+    }
+    
+    StringBuilder sql = new StringBuilder("SELECT * FROM (");
+    sql.append("SELECT ").append(columns).append(" FROM VIA.").append(table).append(" ");
+    for (int i = 0; i < where.size(); i++) {
+      sql.append(i == 0 ? "WHERE " : "AND ").append(where.get(i)).append(" ");
+    }
+    sql.append("ORDER BY ");
+    if (key != null) {
+      sql.append(key).append(dir).append(", ");
+    }
+    sql.append("ID").append(spec.descending ? " DESC" : "");
+    sql.append(") WHERE ROWNUM <= ?");
+    
+    return sql.toString();
+  }
+
+  /**
+   * Bind the parameters of listingSql(), starting at the given index.
+   * 
+   * @return index of the next parameter
+   */
+  private int setListing(String query, int i, ListingQuery spec) throws DatabaseException {
+    if (spec.afterID != null) {
+      if (!afterNullKey(spec)) {
+        switch (spec.orderBy) {
+          case NAME:
+            String name = spec.afterName.toString();
+            dbr.psSetVarChar(query, i++, name);
+            dbr.psSetVarChar(query, i++, name);
+            break;
+          case MODSTAMP:
+            String modstamp = WriterBase.modstampString(spec.afterModstamp);
+            dbr.psSetVarChar(query, i++, modstamp);
+            dbr.psSetVarChar(query, i++, modstamp);
+            break;
+          default:
+            break;
+        }
+      }
+      dbr.psSetBigInt(query, i++, spec.afterID);
+    }
+    dbr.psSetInteger(query, i++, spec.limit);
+    return i;
+  }
+
+  /**
+   * Modstamp in the current row of a query, in microseconds, or 0 if null.
+   */
+  private Long modstampFromRS(String query) throws DatabaseException {
+    Long modstampMicros = dbr.psRSGetTimestampMicroseconds(query, "MODSTAMP");
+    return modstampMicros == null ? 0L : modstampMicros;
+  }
+
   /**
    * Read just the project row with the given ID from the database. Ignores
    * dependent objects, such as networks and profile sets.
@@ -331,7 +746,7 @@ public class ProjectReader extends ReaderBase {
     
     while (dbr.psRSNext(query)) {
       if (checkUniq && project != null) {
-        throw new DatabaseException(null, "Project not unique: " + query, dbr, query);
+        throw new DatabaseException(null, "Project not unique: " + query, dbr.getDatabase(), query);
       }
       
       //String columns = org.apache.commons.lang.StringUtils.join(dbr.psRSColumnNames(query), ", ");
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import core.*;
+
+/**
+ * A consistent, read-only view of the database on one connection, for
+ * readers to use instead of an ordinary (locking) transaction.
+ * 
+ * begin() starts a SET TRANSACTION READ ONLY transaction: every query sees
+ * the database as of the start of the snapshot, takes no locks, and does
+ * not contend with writers. That is the only statement it runs. To share
+ * the snapshot, getSCN() reads its system change number (SCN), and
+ * beginAt() puts another connection in flashback mode at that SCN, so
+ * that several connections reading in parallel all see the same
+ * consistent state. Only sharing needs EXECUTE on DBMS_FLASHBACK.
+ * 
+ * The statements are those of the dialect of the connection. Those other
+ * than the SCN query are run with psExecute, since they are neither
+ * queries nor updates.
+ * 
+ * @see ReaderBase#setSnapshot
+ * @author vjoel
+ */
+public class ReadSnapshot {
+  private final DBConnection dbr;
+  private Long scn;
+  private final boolean flashback;
+  private boolean open = true;
+  
+  private ReadSnapshot(DBConnection dbr, Long scn, boolean flashback) {
+    this.dbr = dbr;
+    this.scn = scn;
+    this.flashback = flashback;
+  }
+  
+  /**
+   * Start a read-only transaction on the connection.
+   * 
+   * @param dbr the connection
+   * @return ReadSnapshot, which must be ended with end()
+   */
+  public static ReadSnapshot begin(DBConnection dbr) throws DatabaseException {
+    dbr.transactionBegin();
+    
+    try {
+      execute(dbr, "snapshot_read_only", dbr.getDialect().snapshotBeginSql(), null);
+      return new ReadSnapshot(dbr, null, false);
+    }
+    catch (DatabaseException dbExc) {
+      try {
+        dbr.transactionRollback();
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+      throw dbExc;
+    }
+  }
+  
+  /**
+   * Put the connection in flashback mode at the given SCN, usually the
+   * SCN of a snapshot taken on another connection. Until end() is called,
+   * all queries on the connection see the database as of that SCN.
+   * 
+   * @param dbr the connection, which must not be in a transaction
+   * @param scn system change number, such as from getSCN()
+   * @return ReadSnapshot, which must be ended with end()
+   */
+  public static ReadSnapshot beginAt(DBConnection dbr, long scn) throws DatabaseException {
+    execute(dbr, "snapshot_flashback_enable",
+      dbr.getDialect().flashbackEnableSql(), scn);
+    return new ReadSnapshot(dbr, scn, true);
+  }
+  
+  /**
+   * System change number the snapshot reads as of, for beginAt() on
+   * another connection. It is read by the first call, as the current SCN
+   * of the database, so call this right after begin(), before any write
+   * elsewhere could commit.
+   */
+  public Long getSCN() throws DatabaseException {
+    if (scn == null && open) {
+      scn = readSCN(dbr);
+    }
+    return scn;
+  }
+  
+  public DBConnection getConnection() {
+    return dbr;
+  }
+  
+  public boolean isOpen() {
+    return open;
+  }
+  
+  /**
+   * End the snapshot, returning the connection to normal reads.
+   * Does nothing if the snapshot has already ended.
+   */
+  public void end() throws DatabaseException {
+    if (!open) {
+      return;
+    }
+    open = false;
+    
+    if (flashback) {
+      execute(dbr, "snapshot_flashback_disable",
+        dbr.getDialect().flashbackDisableSql(), null);
+    }
+    else {
+      // nothing to commit; this just ends the read-only transaction
+      dbr.transactionCommit();
+    }
+  }
+  
+  public String toString() {
+    return "{scn=" + scn +
+      ", flashback=" + flashback +
+      ", open=" + open + "}";
+  }
+  
+  private static Long readSCN(DBConnection dbr) throws DatabaseException {
+    String query = "snapshot_scn";
+    Long scn = null;
+    
+    try {
+      dbr.psCreate(query, dbr.getDialect().snapshotSCNSql());
+      dbr.psQuery(query);
+      
+      if (dbr.psRSNext(query)) {
+        scn = dbr.psRSGetBigInt(query, "SCN");
+      }
+    }
+    finally {
+      dbr.psDestroy(query);
+    }
+    
+    return scn;
+  }
+  
+  /**
+   * Run a statement of the dialect, if it has one.
+   */
+  private static void execute(DBConnection dbr, String query, String sql, Long param) throws DatabaseException {
+    if (sql == null) {
+      return;
+    }
+    
+    try {
+      dbr.psCreate(query, sql);
+      dbr.psClearParams(query);
+      if (param != null) {
+        dbr.psSetBigInt(query, 1, param);
+      }
+      dbr.psExecute(query);
+    }
+    finally {
+      dbr.psDestroy(query);
+    }
+  }
+}
@@ -33,7 +33,7 @@ import core.*;
 
 /**
  * Base class for all classes that read from a database.
- * Can be constructed with or without a DatabaseReader.
+ * Can be constructed with or without a DBConnection.
  * In the former case, the dbParams are used to construct a reader.
  * The latter case is for passing a reader down the containment
  * hierarchy (such as from DemandSetReader to DemandProfileReader), so
@@ -43,9 +43,19 @@ import core.*;
  * @author vjoel
  */
 public class ReaderBase {
-  protected DatabaseReader dbr;
+  protected DBConnection dbr;
   protected DBParams dbParams;
   
+  /**
+   * snapshot set by the caller, shared by all reads until it is unset
+   **/
+  private ReadSnapshot sharedSnapshot = null;
+  
+  /**
+   * snapshot begun and ended by one read
+   **/
+  private ReadSnapshot ownSnapshot = null;
+  
   /**
    * Create a reader base with a new connection to the db,
    * specified by the dbParams.
@@ -54,13 +64,7 @@ public class ReaderBase {
           DBParams dbParams
           ) throws DatabaseException {
     this.dbParams = dbParams;
-    this.dbr = new DatabaseReader(
-      dbParams.usingOracle,
-      dbParams.host,
-      dbParams.port,
-      dbParams.name,
-      dbParams.user,
-      dbParams.pass);
+    this.dbr = JdbcStatements.connect(dbParams);
   }
   
   /**
@@ -69,20 +73,96 @@ public class ReaderBase {
    **/
   public ReaderBase(
           DBParams dbParams,
-          DatabaseReader dbReader
+          DBConnection dbReader
           ) throws DatabaseException {
     this.dbParams = dbParams;
     this.dbr = dbReader;
   }
   
+  /**
+   * Create a reader base reusing a given core connection to the db,
+   * such as one made by a caller that connects through core.
+   **/
+  public ReaderBase(
+          DBParams dbParams,
+          DatabaseReader dbReader
+          ) throws DatabaseException {
+    this(dbParams, new CoreStatements(dbReader));
+  }
+  
   public DBParams getDBParams() {
     return dbParams;
   }
   
-  public DatabaseReader getDatabaseReader() {
+  /**
+   * The connection of this reader, for passing it down the containment
+   * hierarchy.
+   **/
+  public DBConnection getConnection() {
     return dbr;
   }
   
+  /**
+   * The core connection of this reader, if it was given one, or null.
+   **/
+  public DatabaseReader getDatabaseReader() {
+    return dbr instanceof CoreStatements ?
+      ((CoreStatements)dbr).getDatabaseReader() : null;
+  }
+  
+  /**
+   * Make all following reads use the given snapshot, instead of a
+   * read-only snapshot of their own. The caller ends the snapshot.
+   * For example, to read in parallel on two connections, begin a snapshot
+   * on the first and use ReadSnapshot.beginAt() with its SCN on the
+   * second.
+   * 
+   * @param snapshot a snapshot on this reader's connection, or null to
+   *                 go back to one snapshot per read
+   */
+  public void setSnapshot(ReadSnapshot snapshot) {
+    this.sharedSnapshot = snapshot;
+  }
+  
+  public ReadSnapshot getSnapshot() {
+    return sharedSnapshot != null ? sharedSnapshot : ownSnapshot;
+  }
+  
+  /**
+   * Begin a read-only snapshot for one read, unless a shared snapshot
+   * is set. Used instead of a transaction by the public read methods.
+   */
+  protected void snapshotBegin() throws DatabaseException {
+    if (sharedSnapshot == null) {
+      ownSnapshot = ReadSnapshot.begin(dbr);
+    }
+  }
+  
+  /**
+   * End the snapshot begun by snapshotBegin().
+   */
+  protected void snapshotCommit() throws DatabaseException {
+    if (ownSnapshot != null) {
+      ReadSnapshot snapshot = ownSnapshot;
+      ownSnapshot = null;
+      snapshot.end();
+    }
+  }
+  
+  /**
+   * End the snapshot begun by snapshotBegin(), after a failed read.
+   * 
+   * @throws DatabaseException if no snapshot of its own is open, like
+   *                           a rollback outside of a transaction
+   */
+  protected void snapshotRollback() throws DatabaseException {
+    if (ownSnapshot == null) {
+      throw new DatabaseException(null,
+        "Cannot end a snapshot that is not open.", dbr.getDatabase(), null);
+    }
+    snapshotCommit();
+  }
+  
   protected String seqQueryName() {return null;}
   protected String seqQuerySql() {return null;}
 
@@ -106,4 +186,116 @@ public class ReaderBase {
     
     return id;
   }
+
+  /**
+   * SQL condition testing a column against a list of count bind
+   * parameters, such as "(LINK_ID IN (?, ?, ?))". Bind each of the values
+   * with psSetBigInt, in order. Lists longer than Oracle's limit of 1000
+   * expressions are split into several IN lists joined by OR.
+   *
+   * This is used instead of an array parameter, which doesn't seem to work.
+   *
+   * @param column  column to test
+   * @param count   number of values, must be positive
+   * @return SQL condition
+   */
+  protected static String inListSql(String column, int count) {
+    if (count <= 0) {
+      throw new IllegalArgumentException(
+        "IN list must have at least one value, not " + count);
+    }
+
+    StringBuilder sql = new StringBuilder("(");
+
+    for (int i = 0; i < count; i++) {
+      if (i % 1000 == 0) {
+        if (i > 0) {
+          sql.append(") OR ");
+        }
+        sql.append(column).append(" IN (?");
+      }
+      else {
+        sql.append(", ?");
+      }
+    }
+
+    return sql.append("))").toString();
+  }
+
+  /**
+   * SQL condition testing whether a geometry column interacts with a
+   * bounding box. Uses the spatial index, so only geometries near the box
+   * are examined. Bind the box with setBoundingBox().
+   *
+   * @param geomColumn  SDO_GEOMETRY column, such as LINKS.GEOM
+   * @return SQL condition with 4 bind parameters
+   */
+  protected static String boundingBoxSql(String geomColumn) {
+    return
+      "SDO_ANYINTERACT(" + geomColumn + ", " +
+        "SDO_GEOMETRY(2003, 8307, NULL, " +
+          "SDO_ELEM_INFO_ARRAY(1, 1003, 3), " +
+          "SDO_ORDINATE_ARRAY(?, ?, ?, ?))) = 'TRUE'";
+  }
+
+  /**
+   * Bind the 4 parameters of a boundingBoxSql() condition.
+   *
+   * @param query string
+   * @param index index of the first of the 4 parameters
+   * @param box   the bounding box
+   * @return index of the next parameter after the box
+   */
+  protected int setBoundingBox(String query, int index, BoundingBox box) throws DatabaseException {
+    dbr.psSetDouble(query, index++, box.minLongitude);
+    dbr.psSetDouble(query, index++, box.minLatitude);
+    dbr.psSetDouble(query, index++, box.maxLongitude);
+    dbr.psSetDouble(query, index++, box.maxLatitude);
+    return index;
+  }
+
+  /**
+   * SQL expression truncating a timestamp column to the start of its time
+   * bucket. Buckets are counted from the epoch in the database's local time,
+   * so buckets that divide a day evenly are aligned to midnight.
+   *
+   * @param column        timestamp column, such as TS or PROBE_TS
+   * @param bucketSeconds size of each bucket in seconds
+   * @return SQL expression of DATE type
+   */
+  protected static String timeBucketSql(String column, int bucketSeconds) {
+    if (bucketSeconds <= 0) {
+      throw new IllegalArgumentException(
+        "bucket size must be positive, not " + bucketSeconds);
+    }
+
+    return
+      "(DATE '1970-01-01' + " +
+        "FLOOR((CAST(" + column + " AS DATE) - DATE '1970-01-01') * 86400 / " +
+          bucketSeconds + ") * " + bucketSeconds + " / 86400)";
+  }
+
+  /**
+   * Instantiate and populate an aggregate from the next item in the result set
+   * of an aggregate query, which must have columns LINK_ID, BUCKET_TS, VALUE
+   * and SAMPLES.
+   *
+   * @param query string
+   * @return TimeBucketAggregate, or null if there are no more results
+   */
+  protected TimeBucketAggregate bucketAggregateFromQueryRS(String query) throws DatabaseException {
+    TimeBucketAggregate agg = null;
+
+    if (dbr.psRSNext(query)) {
+      Long linkId = dbr.psRSGetBigInt(query, "LINK_ID");
+      edu.berkeley.path.model_elements.DateTime time =
+        new edu.berkeley.path.model_elements.DateTime(dbr.psRSGetTimestampMilliseconds(query, "BUCKET_TS"));
+      Double value = dbr.psRSGetDouble(query, "VALUE");
+      Long samples = dbr.psRSGetBigInt(query, "SAMPLES");
+
+      agg = new TimeBucketAggregate(linkId, time, value, samples);
+    }
+
+    return agg;
+  }
 }
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import edu.berkeley.path.model_elements.*;
+
+/**
+ * A 64-bit digest of the columns of a node or link, so that the stored
+ * rows of a network can be compared with the ones about to be written
+ * without holding the stored network. The digest of a node or link read
+ * back from the database equals that of the one written, so writers can
+ * skip the rows whose digests match.
+ * 
+ * Doubles are rounded to DIGITS decimal places, a tenth of a millimeter
+ * in degrees, since values stored as NUMBER may come back differently
+ * rounded. A difference finer than that does not count as a change.
+ * 
+ * @see NetworkWriter#updateChanged
+ * @author vjoel
+ */
+public class RowDigest {
+  /**
+   * Decimal places of doubles that count.
+   **/
+  public static final int DIGITS = 9;
+  
+  private static final double SCALE = Math.pow(10, DIGITS);
+  
+  private final MessageDigest md;
+  private final ByteBuffer buf = ByteBuffer.allocate(9);
+  
+  public RowDigest() {
+    try {
+      md = MessageDigest.getInstance("MD5");
+    }
+    catch (NoSuchAlgorithmException exc) {
+      throw new IllegalStateException("MD5 is not available", exc);
+    }
+  }
+  
+  /**
+   * Digest of the columns of a node that NodeWriter writes.
+   */
+  public static long of(Node node) {
+    return new RowDigest()
+      .add(node.getLongitude())
+      .add(node.getLatitude())
+      .add(node.getNameString())
+      .add(node.getTypeString())
+      .value();
+  }
+  
+  /**
+   * Digest of the columns of a link that LinkWriter writes, including the
+   * geometry and the optional attributes.
+   */
+  public static long of(Link link) {
+    RowDigest digest = new RowDigest()
+      .add(link.getBeginLongId())
+      .add(link.getEndLongId())
+      .add(link.getSpeedLimit())
+      .add(link.getLength())
+      .add(link.getDetailLevel() == null ? null : link.getDetailLevel().longValue())
+      .add(link.getNameString())
+      .add(link.getLaneCount())
+      .add(link.getLaneOffset() == null ? null : link.getLaneOffset().longValue())
+      .add(link.getTypeString())
+      .add(Long.valueOf(link.getPointList().size()));
+    
+    for (Point point : link.getPointList()) {
+      digest.add(point.getLongitude()).add(point.getLatitude());
+    }
+    
+    return digest.value();
+  }
+  
+  private RowDigest put(byte tag, long value) {
+    buf.clear();
+    buf.put(tag).putLong(value);
+    md.update(buf.array(), 0, buf.position());
+    return this;
+  }
+  
+  public RowDigest add(Long value) {
+    return value == null ? put((byte)0, 0) : put((byte)1, value);
+  }
+  
+  public RowDigest add(Double value) {
+    return value == null ? put((byte)0, 0) : put((byte)2, Math.round(value * SCALE));
+  }
+  
+  public RowDigest add(String value) {
+    if (value == null) {
+      return put((byte)0, 0);
+    }
+    
+    byte[] bytes;
+    try {
+      bytes = value.getBytes("UTF-8");
+    }
+    catch (java.io.UnsupportedEncodingException exc) {
+      throw new IllegalStateException(exc);
+    }
+    
+    put((byte)3, bytes.length);
+    md.update(bytes);
+    return this;
+  }
+  
+  /**
+   * The digest of the values added so far.
+   */
+  public long value() {
+    return ByteBuffer.wrap(md.digest()).getLong();
+  }
+}
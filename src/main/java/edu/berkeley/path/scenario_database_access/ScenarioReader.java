@@ -47,6 +47,13 @@ public class ScenarioReader extends ReaderBase {
     super(dbParams);
   }
   
+  public ScenarioReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public ScenarioReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -67,14 +74,14 @@ public class ScenarioReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug(
         "Scenario reader transaction beginning on scenario.id=" +
         scenarioID);
 
       scenario = readWithAssociates(scenarioID);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug(
         "Scenario reader transaction committing on scenario.id=" +
         scenarioID);
@@ -85,7 +92,7 @@ public class ScenarioReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug(
           "Scenario reader transaction rollback on scenario.id=" +
           scenarioID);
@@ -103,6 +110,62 @@ public class ScenarioReader extends ReaderBase {
     return scenario;
   }
 
+  /**
+   * Read the scenario with the given ID from the database, but not its
+   * associated networks and sets. These are read on first access through
+   * the returned LazyScenario, using this reader's connection.
+   * 
+   * @param scenarioID  numerical ID of the scenario in the database
+   * @return LazyScenario, or null if there is no such scenario
+   */
+  public LazyScenario readLazy(long scenarioID) throws DatabaseException {
+    LazyScenario lazy = null;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      snapshotBegin();
+      Monitor.debug(
+        "Scenario lazy reader transaction beginning on scenario.id=" +
+        scenarioID);
+
+      HashMap<String, Long> associateIDs = new HashMap<String, Long>();
+      Scenario scenario = readRow(scenarioID, associateIDs);
+      
+      if (scenario != null) {
+        lazy = new LazyScenario(scenario, associateIDs,
+          readNetworkIDs(scenarioID), dbParams, dbr);
+      }
+
+      snapshotCommit();
+      Monitor.debug(
+        "Scenario lazy reader transaction committing on scenario.id=" +
+        scenarioID);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        snapshotRollback();
+        Monitor.debug(
+          "Scenario lazy reader transaction rollback on scenario.id=" +
+          scenarioID);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    long timeCommit = System.nanoTime();
+    if (lazy != null) {
+      Monitor.duration("Read lazy scenario.id=" + scenarioID, timeCommit - timeBegin);
+    }
+
+    return lazy;
+  }
+
   /**
    * Read the scenario with the given ID from the database, including associated
    * objects, such as networks and profile sets.
@@ -119,11 +182,8 @@ public class ScenarioReader extends ReaderBase {
 
     if (scenario != null) {
       NetworkReader nwr = new NetworkReader(dbParams, dbr);
-      List<Network> networks = scenario.getNetworkList();
-      for (Long networkID: readNetworkIDs(scenarioID)) {
-        Network nw = nwr.readWithAssociates(networkID);
-        networks.add(nw);
-      }
+      scenario.getNetworkList().addAll(
+        nwr.readAllWithAssociates(readNetworkIDs(scenarioID), new LinkQuery()));
       
       Long srSetID = associateIDs.get("SPLIT_RATIO_SET");
       if (null != srSetID) {
@@ -250,7 +310,7 @@ public class ScenarioReader extends ReaderBase {
     
     while (dbr.psRSNext(query)) {
       if (checkUniq && scenario != null) {
-        throw new DatabaseException(null, "Scenario not unique: " + query, dbr, query);
+        throw new DatabaseException(null, "Scenario not unique: " + query, dbr.getDatabase(), query);
       }
       
       //String columns = org.apache.commons.lang.StringUtils.join(dbr.psRSColumnNames(query), ", ");
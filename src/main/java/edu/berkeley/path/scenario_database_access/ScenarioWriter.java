@@ -33,6 +33,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 import edu.berkeley.path.model_elements.*;
 
@@ -50,6 +52,13 @@ public class ScenarioWriter extends WriterBase {
     super(dbParams);
   }
   
+  public ScenarioWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
   public ScenarioWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
@@ -143,7 +152,7 @@ public class ScenarioWriter extends WriterBase {
 
       long rows = dbw.psUpdate(query);
       if (rows != 1) {
-        throw new DatabaseException(null, "Scenario not unique: there exist " + rows + " with id=" + scenario.getId(), dbw, query);
+        throw new DatabaseException(null, "Scenario not unique: there exist " + rows + " with id=" + scenario.getId(), dbw.getDatabase(), query);
       }
     }
     finally {
@@ -199,6 +208,69 @@ public class ScenarioWriter extends WriterBase {
     updateRow(scenario);
   }
 
+  /**
+   * Update the given scenario in the database, as update() does, but only if
+   * it has not been modified since it was read, as shown by its modstamp.
+   * Editors can then work concurrently without holding a transaction open
+   * while they edit. On success, the scenario gets its new modstamp.
+   * 
+   * @param scenario  the scenario, with the modstamp it was read with
+   * @throws ConcurrencyException if it was modified or deleted by another writer
+   */
+  public void updateIfUnmodified(Scenario scenario) throws DatabaseException, ConcurrencyException {
+    long modstamp;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("Scenario conditional update transaction beginning on scenario.id=" + scenario.getId());
+      
+      modstamp = updateWithDependentsIfUnmodified(scenario);
+
+      dbw.transactionCommit();
+      Monitor.debug("Scenario conditional update transaction committing on scenario.id=" + scenario.getId());
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("Scenario conditional update transaction rollback on scenario.id=" + scenario.getId());
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    scenario.setModstamp(modstamp);
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Conditional update scenario.id=" + scenario.getId(), timeCommit - timeBegin);
+  }
+
+  /**
+   * Update the given scenario in the database, as updateWithDependents()
+   * does, after checking that its row still has the modstamp it was read
+   * with. The row is locked until the transaction ends. The new modstamp
+   * is read back after all the writes.
+   * 
+   * @see #updateIfUnmodified() if you want a transaction and logging around the operation.
+   * 
+   * @param scenario  the scenario, with the modstamp it was read with
+   * @return the new modstamp, in microseconds
+   * @throws ConcurrencyException if it was modified or deleted by another writer
+   */
+  public long updateWithDependentsIfUnmodified(Scenario scenario) throws DatabaseException, ConcurrencyException {
+    claimModstamp("SCENARIOS", scenario.getLongId(), scenario.getModstamp());
+    
+    updateWithDependents(scenario);
+    
+    return readModstamp("SCENARIOS", scenario.getLongId());
+  }
+
   /**
    * Update just the scenario row into the database.
    * 
@@ -227,8 +299,10 @@ public class ScenarioWriter extends WriterBase {
       long rows = dbw.psUpdate(query);
       
       if (rows != 1) {
-        throw new DatabaseException(null, "Scenario not unique: there exist " + rows + " with id=" + scenario.getId(), dbw, query);
+        throw new DatabaseException(null, "Scenario not unique: there exist " + rows + " with id=" + scenario.getId(), dbw.getDatabase(), query);
       }
+      
+      ModstampCache.invalidate(ModstampCache.SCENARIOS, scenario.getLongId());
     }
     finally {
       if (query != null) {
@@ -291,7 +365,242 @@ public class ScenarioWriter extends WriterBase {
       long rows = dbw.psUpdate(query);
       
       if (rows != 1) {
-        throw new DatabaseException(null, "Scenario not unique: there exist " + rows + " with id=" + scenarioID, dbw, query);
+        throw new DatabaseException(null, "Scenario not unique: there exist " + rows + " with id=" + scenarioID, dbw.getDatabase(), query);
+      }
+      
+      ModstampCache.invalidate(ModstampCache.SCENARIOS, scenarioID);
+    }
+    finally {
+      if (query != null) {
+        dbw.psDestroy(query);
+      }
+    }
+  }
+
+  /**
+   * SQL that copies a scenario row, including its references to sets, and
+   * its network associations within the database, given the old and the new
+   * id.
+   **/
+  static final String cloneSql =
+      "declare\n" +
+      "old_id NUMBER := ?;\n" +
+      "new_id NUMBER := ?;\n" +
+      "begin\n" +
+      "INSERT INTO VIA.SCENARIOS (ID, NAME, DESCRIPTION, PROJECT_ID, SPLIT_RATIO_SET, DEMAND_PROF_SET, FUND_DIAG_SET, SENSOR_SET)\n" +
+      "  SELECT new_id, NAME, DESCRIPTION, PROJECT_ID, SPLIT_RATIO_SET, DEMAND_PROF_SET, FUND_DIAG_SET, SENSOR_SET\n" +
+      "  FROM VIA.SCENARIOS WHERE ID = old_id;\n" +
+      "IF SQL%ROWCOUNT <> 1 THEN\n" +
+      "  RAISE_APPLICATION_ERROR(-20001, 'No scenario with id ' || old_id);\n" +
+      "END IF;\n" +
+      "INSERT INTO VIA.NETWORK_SETS (SCENARIO_ID, NETWORK_ID)\n" +
+      "  SELECT new_id, NETWORK_ID FROM VIA.NETWORK_SETS WHERE SCENARIO_ID = old_id;\n" +
+      "end;";
+
+  /**
+   * Copy the scenario with the given ID within the database.
+   * The copy gets a new id from the sequence.
+   * 
+   * @param scenarioID  the ID of the scenario to copy
+   * @param deep        if false, the copy shares the networks and sets of
+   *                    the original; if true, they are copied too
+   * @return ID of the copy
+   */
+  public long clone(long scenarioID, boolean deep) throws DatabaseException {
+    long newID;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("Scenario clone transaction beginning on scenario.id=" + scenarioID);
+      
+      newID = cloneWithAssociates(scenarioID, deep);
+
+      dbw.transactionCommit();
+      Monitor.debug("Scenario clone transaction committing on scenario.id=" + scenarioID);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("Scenario clone transaction rollback on scenario.id=" + scenarioID);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Clone scenario.id=" + scenarioID + " to id=" + newID, timeCommit - timeBegin);
+    
+    return newID;
+  }
+
+  /**
+   * Copy the scenario with the given ID within the database, and, if deep,
+   * its networks and sets, all on this writer's connection.
+   * 
+   * @see #clone() if you want a transaction and logging around the operation.
+   * 
+   * @param scenarioID  the ID of the scenario to copy
+   * @param deep        whether to copy the networks and sets too
+   * @return ID of the copy
+   */
+  public long cloneWithAssociates(long scenarioID, boolean deep) throws DatabaseException {
+    long newID = new ScenarioReader(dbParams, dbw).getNextID();
+    
+    runCloneStatement("clone_scenario_" + scenarioID, cloneSql, scenarioID, newID);
+    
+    if (deep) {
+      cloneAssociates(scenarioID, newID);
+    }
+    
+    return newID;
+  }
+
+  /**
+   * Copy the networks and sets of a scenario, and point the copy of the
+   * scenario at the copies. The destination networks of the profiles of
+   * the copied split ratio and demand sets are changed to the copied
+   * networks.
+   * 
+   * @param scenarioID  the ID of the original scenario
+   * @param newID       the ID of its copy
+   */
+  private void cloneAssociates(long scenarioID, long newID) throws DatabaseException {
+    ScenarioReader sr = new ScenarioReader(dbParams, dbw);
+    HashMap<String, Long> associateIDs = new HashMap<String, Long>();
+    
+    sr.readRow(scenarioID, associateIDs);
+    List<Long> networkIDs = sr.readNetworkIDs(scenarioID);
+    
+    HashMap<Long, Long> newNetworkIDs = new HashMap<Long, Long>();
+    NetworkWriter nww = new NetworkWriter(dbParams, dbw);
+    for (Long networkID : networkIDs) {
+      long newNetworkID = nww.cloneWithDependents(networkID);
+      updateNetworkSet(newID, networkID, newNetworkID);
+      newNetworkIDs.put(networkID, newNetworkID);
+    }
+    
+    Long srSetID = associateIDs.get("SPLIT_RATIO_SET");
+    if (null != srSetID) {
+      srSetID = new SplitRatioSetWriter(dbParams, dbw).cloneWithDependents(srSetID);
+      updateDestNetworks("SPLIT_RATIO_PROFS", "SPLIT_RATIO_SET_ID", srSetID, newNetworkIDs);
+    }
+    
+    Long demSetID = associateIDs.get("DEMAND_SET");
+    if (null != demSetID) {
+      // DemandSetWriter has a connection of its own, so copy its tables here.
+      long oldDemSetID = demSetID;
+      demSetID = new DemandSetReader(dbParams, dbw).getNextID();
+      DemandSetWriter.cloneTables.copy(dbw, oldDemSetID, demSetID);
+      updateDestNetworks("DEMAND_PROFS", "DEMAND_SET_ID", demSetID, newNetworkIDs);
+    }
+    
+    Long fdSetID = associateIDs.get("FD_SET");
+    if (null != fdSetID) {
+      fdSetID = new FDSetWriter(dbParams, dbw).cloneWithDependents(fdSetID);
+    }
+    
+    Long sensorSetID = associateIDs.get("SENSOR_SET");
+    if (null != sensorSetID) {
+      sensorSetID = new SensorSetWriter(dbParams, dbw).cloneWithDependents(sensorSetID);
+    }
+    
+    updateSets(newID, srSetID, demSetID, fdSetID, sensorSetID);
+  }
+
+  /**
+   * Change the destination networks of the profiles of a set, from each
+   * original network to its copy.
+   * 
+   * @param table          profile table, such as DEMAND_PROFS
+   * @param setColumn      column of the set id in the table
+   * @param setID          the ID of the set
+   * @param newNetworkIDs  map of original network ID to the ID of its copy
+   */
+  private void updateDestNetworks(String table, String setColumn, long setID, Map<Long, Long> newNetworkIDs) throws DatabaseException {
+    if (newNetworkIDs.isEmpty()) {
+      return;
+    }
+    
+    String query = "update_dest_networks_" + table.toLowerCase() + "_" + setID;
+    dbw.psCreate(query,
+      "UPDATE VIA." + table + " SET DEST_NETWORK_ID = ? " +
+      "WHERE " + setColumn + " = ? AND DEST_NETWORK_ID = ?"
+    );
+    
+    try {
+      for (Map.Entry<Long, Long> entry : newNetworkIDs.entrySet()) {
+        dbw.psClearParams(query);
+        dbw.psSetBigInt(query, 1, entry.getValue());
+        dbw.psSetBigInt(query, 2, setID);
+        dbw.psSetBigInt(query, 3, entry.getKey());
+        dbw.psUpdate(query);
+      }
+    }
+    finally {
+      dbw.psDestroy(query);
+    }
+  }
+
+  /**
+   * Replace a network of a scenario with another network.
+   * 
+   * @param scenarioID    the ID of the scenario
+   * @param networkID     the ID of the network to replace
+   * @param newNetworkID  the ID of the replacement
+   */
+  private void updateNetworkSet(long scenarioID, long networkID, long newNetworkID) throws DatabaseException {
+    String query = "update_network_set_" + scenarioID + "_" + networkID;
+    dbw.psCreate(query,
+      "UPDATE VIA.NETWORK_SETS SET NETWORK_ID = ? WHERE SCENARIO_ID = ? AND NETWORK_ID = ?"
+    );
+    
+    try {
+      dbw.psClearParams(query);
+      dbw.psSetBigInt(query, 1, newNetworkID);
+      dbw.psSetBigInt(query, 2, scenarioID);
+      dbw.psSetBigInt(query, 3, networkID);
+      long rows = dbw.psUpdate(query);
+      
+      if (rows != 1) {
+        throw new DatabaseException(null, "Network set not unique: there exist " + rows + " with scenario id=" + scenarioID + " and network id=" + networkID, dbw.getDatabase(), query);
+      }
+    }
+    finally {
+      if (query != null) {
+        dbw.psDestroy(query);
+      }
+    }
+  }
+
+  /**
+   * Point a scenario at the given sets.
+   * 
+   * @param scenarioID  the ID of the scenario
+   */
+  private void updateSets(long scenarioID, Long srSetID, Long demSetID, Long fdSetID, Long sensorSetID) throws DatabaseException {
+    String query = "update_scenario_sets_" + scenarioID;
+    dbw.psCreate(query,
+      "UPDATE VIA.SCENARIOS SET SPLIT_RATIO_SET = ?, DEMAND_PROF_SET = ?, FUND_DIAG_SET = ?, SENSOR_SET = ? WHERE ID = ?"
+    );
+    
+    try {
+      dbw.psClearParams(query);
+      dbw.psSetBigInt(query, 1, srSetID);
+      dbw.psSetBigInt(query, 2, demSetID);
+      dbw.psSetBigInt(query, 3, fdSetID);
+      dbw.psSetBigInt(query, 4, sensorSetID);
+      dbw.psSetBigInt(query, 5, scenarioID);
+      long rows = dbw.psUpdate(query);
+      
+      if (rows != 1) {
+        throw new DatabaseException(null, "Scenario not unique: there exist " + rows + " with id=" + scenarioID, dbw.getDatabase(), query);
       }
     }
     finally {
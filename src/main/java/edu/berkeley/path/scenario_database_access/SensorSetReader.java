@@ -47,6 +47,13 @@ public class SensorSetReader extends ReaderBase {
     super(dbParams);
   }
   
+  public SensorSetReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public SensorSetReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -67,14 +74,14 @@ public class SensorSetReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug(
         "SensorSet reader transaction beginning on sensorSet.id=" +
         sensorSetID);
 
       sensorSet = readWithDependents(sensorSetID);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug(
         "SensorSet reader transaction committing on sensorSet.id=" +
         sensorSetID);
@@ -85,7 +92,7 @@ public class SensorSetReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug(
           "SensorSet reader transaction rollback on sensorSet.id=" +
           sensorSetID);
@@ -181,7 +188,7 @@ public class SensorSetReader extends ReaderBase {
     while (dbr.psRSNext(query)) {
       if (sensorSet != null) {
         throw new DatabaseException(null,
-          "SensorSet not unique: " + query, dbr, query);
+          "SensorSet not unique: " + query, dbr.getDatabase(), query);
       }
       
       //String columns = org.apache.commons.lang.StringUtils.join(dbr.psRSColumnNames(query), ", ");
@@ -51,6 +51,13 @@ public class SensorSetWriter extends WriterBase {
     super(dbParams);
   }
   
+  public SensorSetWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
   public SensorSetWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
@@ -256,6 +263,70 @@ public class SensorSetWriter extends WriterBase {
     deleteDependents(sensorSetID);
     updateRow(sensorSet);
     insertDependents(sensorSet);
+    touchModstamp("SENSOR_SETS", sensorSetID);
+  }
+
+  /**
+   * Update the given sensor set in the database, as update() does, but only if
+   * it has not been modified since it was read, as shown by its modstamp.
+   * Editors can then work concurrently without holding a transaction open
+   * while they edit. On success, the sensor set gets its new modstamp.
+   * 
+   * @param sensorSet  the sensor set, with the modstamp it was read with
+   * @throws ConcurrencyException if it was modified or deleted by another writer
+   */
+  public void updateIfUnmodified(SensorSet sensorSet) throws DatabaseException, ConcurrencyException {
+    long modstamp;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("SensorSet conditional update transaction beginning on sensorSet.id=" + sensorSet.getId());
+      
+      modstamp = updateWithDependentsIfUnmodified(sensorSet);
+
+      dbw.transactionCommit();
+      Monitor.debug("SensorSet conditional update transaction committing on sensorSet.id=" + sensorSet.getId());
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("SensorSet conditional update transaction rollback on sensorSet.id=" + sensorSet.getId());
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    sensorSet.setModstamp(modstamp);
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Conditional update sensorSet.id=" + sensorSet.getId(), timeCommit - timeBegin);
+  }
+
+  /**
+   * Update the given sensor set in the database, as updateWithDependents()
+   * does, after checking that its row still has the modstamp it was read
+   * with. The row is locked until the transaction ends. The new modstamp
+   * is read back after all the writes.
+   * 
+   * @see #updateIfUnmodified() if you want a transaction and logging around the operation.
+   * 
+   * @param sensorSet  the sensor set, with the modstamp it was read with
+   * @return the new modstamp, in microseconds
+   * @throws ConcurrencyException if it was modified or deleted by another writer
+   */
+  public long updateWithDependentsIfUnmodified(SensorSet sensorSet) throws DatabaseException, ConcurrencyException {
+    claimModstamp("SENSOR_SETS", sensorSet.getLongId(), sensorSet.getModstamp());
+    
+    updateWithDependents(sensorSet);
+    
+    return readModstamp("SENSOR_SETS", sensorSet.getLongId());
   }
 
   /**
@@ -285,8 +356,10 @@ public class SensorSetWriter extends WriterBase {
       long rows = dbw.psUpdate(query);
       
       if (rows != 1) {
-        throw new DatabaseException(null, "SensorSet not unique: there exist " + rows + " with id=" + sensorSet.getId(), dbw, query);
+        throw new DatabaseException(null, "SensorSet not unique: there exist " + rows + " with id=" + sensorSet.getId(), dbw.getDatabase(), query);
       }
+      
+      ModstampCache.invalidate(ModstampCache.SENSOR_SETS, sensorSet.getLongId());
     }
     finally {
       if (query != null) {
@@ -349,8 +422,10 @@ public class SensorSetWriter extends WriterBase {
       long rows = dbw.psUpdate(query);
       
       if (rows != 1) {
-        throw new DatabaseException(null, "SensorSet not unique: there exist " + rows + " with id=" + sensorSetID, dbw, query);
+        throw new DatabaseException(null, "SensorSet not unique: there exist " + rows + " with id=" + sensorSetID, dbw.getDatabase(), query);
       }
+      
+      ModstampCache.invalidate(ModstampCache.SENSOR_SETS, sensorSetID);
     }
     finally {
       if (query != null) {
@@ -382,4 +457,71 @@ public class SensorSetWriter extends WriterBase {
       }
     }
   }
+  
+  /**
+   * Tables of a sensor set and its sensors, for copying them within the
+   * database. Sensors have no rows of their own.
+   **/
+  static final WriterBase.CloneTables cloneTables = new WriterBase.CloneTables(
+      "SENSOR_SETS", "NAME, DESCRIPTION, PROJECT_ID",
+      "SENSORS", "SENSOR_SET_ID", "VIA.SEQ_SENSORS_ID",
+        "SENSOR_TYPE_ID, ENTITY_ID, DATA_FEED_ID, LINK_ID, LINK_OFFSET, LANE_NUM, HEALTH_STATUS",
+      null, null, null);
+  
+  /**
+   * Copy the sensor set with the given ID and its sensors, within the database.
+   * The copy gets a new id from the sequence. The sensors get new ids.
+   * 
+   * @param sensorSetID  the ID of the sensor set to copy
+   * @return ID of the copy
+   */
+  public long clone(long sensorSetID) throws DatabaseException {
+    long newID;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("SensorSet clone transaction beginning on sensorSet.id=" + sensorSetID);
+      
+      newID = cloneWithDependents(sensorSetID);
+
+      dbw.transactionCommit();
+      Monitor.debug("SensorSet clone transaction committing on sensorSet.id=" + sensorSetID);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("SensorSet clone transaction rollback on sensorSet.id=" + sensorSetID);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Clone sensorSet.id=" + sensorSetID + " to id=" + newID, timeCommit - timeBegin);
+    
+    return newID;
+  }
+
+  /**
+   * Copy the sensor set with the given ID and its sensors, within the database.
+   * 
+   * @see #clone() if you want a transaction and logging around the operation.
+   * 
+   * @param sensorSetID  the ID of the sensor set to copy
+   * @return ID of the copy
+   */
+  public long cloneWithDependents(long sensorSetID) throws DatabaseException {
+    long newID = new SensorSetReader(dbParams, dbw).getNextID();
+    
+    cloneTables.copy(dbw, sensorSetID, newID);
+    
+    return newID;
+  }
 }
@@ -72,6 +72,130 @@ public class SingleOracleConnector {
   public static int executeSP(String name, oraSPParams[] params) {
     return oraExecuteSP.callSP(getConnection(), name, params);
   }
+  
+  /**
+   * Get the next value of a sequence, such as VIA.SEQ_DEMAND_PROF_SETS_ID.
+   * 
+   * @param sequence name of the sequence
+   * @return the next value
+   * @throws DatabaseException on any error.
+   */
+  public static long nextVal(String sequence) throws DatabaseException {
+    java.sql.Statement stmt = null;
+    
+    try {
+      stmt = getConnection().createStatement();
+      java.sql.ResultSet rs = stmt.executeQuery(
+        "SELECT " + sequence + ".nextVal AS ID FROM dual");
+      rs.next();
+      return rs.getLong("ID");
+    } catch (java.sql.SQLException sqlExp) {
+      throw new DatabaseException(
+              sqlExp,
+              "Could not get the next value of " + sequence + ".",
+              null,
+              null);
+    } finally {
+      close(stmt);
+    }
+  }
+  
+  /**
+   * Execute a statement, such as a PL/SQL block, with the given
+   * numeric parameters, in order. Integer values are bound as
+   * longs, others as doubles, and nulls as numeric nulls.
+   * 
+   * @param sql    the statement
+   * @param params values of its parameters
+   * @return the number of rows updated
+   * @throws DatabaseException on any error.
+   */
+  public static int executeUpdate(String sql, Number... params) throws DatabaseException {
+    java.sql.PreparedStatement stmt = null;
+    
+    try {
+      stmt = getConnection().prepareStatement(sql);
+      bind(stmt, params);
+      return stmt.executeUpdate();
+    } catch (java.sql.SQLException sqlExp) {
+      throw new DatabaseException(
+              sqlExp,
+              "Could not execute statement.",
+              null,
+              null);
+    } finally {
+      close(stmt);
+    }
+  }
+  
+  /**
+   * Receives the rows of a query from executeQuery(), one at a time.
+   **/
+  public interface RowVisitor {
+    /**
+     * @param rs the result set, positioned at the row
+     */
+    void visit(java.sql.ResultSet rs) throws java.sql.SQLException;
+  }
+  
+  /**
+   * Execute a query with the given numeric parameters, bound as by
+   * executeUpdate(), and pass each row of its result to the visitor.
+   * 
+   * @param sql     the query
+   * @param visitor receives each row
+   * @param params  values of its parameters
+   * @return the number of rows read
+   * @throws DatabaseException on any error.
+   */
+  public static int executeQuery(String sql, RowVisitor visitor, Number... params) throws DatabaseException {
+    java.sql.PreparedStatement stmt = null;
+    int rows = 0;
+    
+    try {
+      stmt = getConnection().prepareStatement(sql);
+      bind(stmt, params);
+      
+      java.sql.ResultSet rs = stmt.executeQuery();
+      while (rs.next()) {
+        visitor.visit(rs);
+        rows++;
+      }
+      return rows;
+    } catch (java.sql.SQLException sqlExp) {
+      throw new DatabaseException(
+              sqlExp,
+              "Could not execute query.",
+              null,
+              null);
+    } finally {
+      close(stmt);
+    }
+  }
+  
+  private static void bind(java.sql.PreparedStatement stmt, Number... params) throws java.sql.SQLException {
+    for (int i = 0; i < params.length; i++) {
+      if (params[i] == null) {
+        stmt.setNull(i + 1, java.sql.Types.NUMERIC);
+      }
+      else if (params[i] instanceof Long || params[i] instanceof Integer) {
+        stmt.setLong(i + 1, params[i].longValue());
+      }
+      else {
+        stmt.setDouble(i + 1, params[i].doubleValue());
+      }
+    }
+  }
+  
+  private static void close(java.sql.Statement stmt) {
+    if (stmt != null) {
+      try {
+        stmt.close();
+      } catch (java.sql.SQLException sqlExp) {
+        // Do nothing.
+      }
+    }
+  }
 
   /**
    * Checks if this connection is currently within a transaction.
@@ -109,7 +233,7 @@ public class SingleOracleConnector {
    * same time, and/or they <u>all</u> appear or <u>none</u> of them appear.
    * <p/>
    * This is also useful to get data from very large queries, see
-   * {@link DatabaseReader#setFetchSize(int)}.
+   * {@link DBConnection#setFetchSize(int)}.
    * @throws DatabaseException on any error.
    * @see #transactionCommit()
    * @see #transactionRollback()
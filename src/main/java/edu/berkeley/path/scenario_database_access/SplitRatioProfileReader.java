@@ -54,6 +54,13 @@ public class SplitRatioProfileReader extends ReaderBase {
     super(dbParams);
   }
   
+  public SplitRatioProfileReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public SplitRatioProfileReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -54,6 +54,13 @@ public class SplitRatioProfileWriter extends WriterBase {
     super(dbParams);
   }
   
+  public SplitRatioProfileWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
   public SplitRatioProfileWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
@@ -50,6 +50,13 @@ public class SplitRatioSetReader extends ReaderBase {
     super(dbParams);
   }
   
+  public SplitRatioSetReader(
+          DBParams dbParams,
+          DBConnection dbReader
+          ) throws DatabaseException {
+    super(dbParams, dbReader);
+  }
+  
   public SplitRatioSetReader(
           DBParams dbParams,
           DatabaseReader dbReader
@@ -71,14 +78,14 @@ public class SplitRatioSetReader extends ReaderBase {
     long timeBegin = System.nanoTime();
     
     try {
-      dbr.transactionBegin();
+      snapshotBegin();
       Monitor.debug(
         "SplitRatioSet reader transaction beginning on splitratioSet.id=" +
         splitratioSetID);
 
       splitratioSet = readWithDependents(splitratioSetID);
 
-      dbr.transactionCommit();
+      snapshotCommit();
       Monitor.debug(
         "SplitRatioSet reader transaction committing on splitratioSet.id=" +
         splitratioSetID);
@@ -89,7 +96,7 @@ public class SplitRatioSetReader extends ReaderBase {
     }
     finally {
       try {
-        dbr.transactionRollback();
+        snapshotRollback();
         Monitor.debug(
           "SplitRatioSet reader transaction rollback on splitratioSet.id=" +
           splitratioSetID);
@@ -187,7 +194,7 @@ public class SplitRatioSetReader extends ReaderBase {
     while (dbr.psRSNext(query)) {
       if (splitratioSet != null) {
         throw new DatabaseException(null,
-          "SplitRatioSet not unique: " + query, dbr, query);
+          "SplitRatioSet not unique: " + query, dbr.getDatabase(), query);
       }
       
       //String columns = org.apache.commons.lang.StringUtils.join(dbr.psRSColumnNames(query), ", ");
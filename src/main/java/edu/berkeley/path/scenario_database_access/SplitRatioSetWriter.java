@@ -51,6 +51,13 @@ public class SplitRatioSetWriter extends WriterBase {
     super(dbParams);
   }
   
+  public SplitRatioSetWriter(
+          DBParams dbParams,
+          DBConnection dbWriter
+          ) throws DatabaseException {
+    super(dbParams, dbWriter);
+  }
+  
   public SplitRatioSetWriter(
           DBParams dbParams,
           DatabaseWriter dbWriter
@@ -203,6 +210,70 @@ public class SplitRatioSetWriter extends WriterBase {
     deleteDependents(splitratioSetID);
     updateRow(splitratioSet);
     insertDependents(splitratioSet);
+    touchModstamp("SPLIT_RATIO_SETS", splitratioSetID);
+  }
+
+  /**
+   * Update the given split ratio set in the database, as update() does, but only if
+   * it has not been modified since it was read, as shown by its modstamp.
+   * Editors can then work concurrently without holding a transaction open
+   * while they edit. On success, the split ratio set gets its new modstamp.
+   * 
+   * @param splitratioSet  the split ratio set, with the modstamp it was read with
+   * @throws ConcurrencyException if it was modified or deleted by another writer
+   */
+  public void updateIfUnmodified(SplitRatioSet splitratioSet) throws DatabaseException, ConcurrencyException {
+    long modstamp;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("SplitRatioSet conditional update transaction beginning on splitratioSet.id=" + splitratioSet.getId());
+      
+      modstamp = updateWithDependentsIfUnmodified(splitratioSet);
+
+      dbw.transactionCommit();
+      Monitor.debug("SplitRatioSet conditional update transaction committing on splitratioSet.id=" + splitratioSet.getId());
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("SplitRatioSet conditional update transaction rollback on splitratioSet.id=" + splitratioSet.getId());
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+    
+    splitratioSet.setModstamp(modstamp);
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Conditional update splitratioSet.id=" + splitratioSet.getId(), timeCommit - timeBegin);
+  }
+
+  /**
+   * Update the given split ratio set in the database, as updateWithDependents()
+   * does, after checking that its row still has the modstamp it was read
+   * with. The row is locked until the transaction ends. The new modstamp
+   * is read back after all the writes.
+   * 
+   * @see #updateIfUnmodified() if you want a transaction and logging around the operation.
+   * 
+   * @param splitratioSet  the split ratio set, with the modstamp it was read with
+   * @return the new modstamp, in microseconds
+   * @throws ConcurrencyException if it was modified or deleted by another writer
+   */
+  public long updateWithDependentsIfUnmodified(SplitRatioSet splitratioSet) throws DatabaseException, ConcurrencyException {
+    claimModstamp("SPLIT_RATIO_SETS", splitratioSet.getLongId(), splitratioSet.getModstamp());
+    
+    updateWithDependents(splitratioSet);
+    
+    return readModstamp("SPLIT_RATIO_SETS", splitratioSet.getLongId());
   }
 
   /**
@@ -232,8 +303,10 @@ public class SplitRatioSetWriter extends WriterBase {
       long rows = dbw.psUpdate(query);
       
       if (rows != 1) {
-        throw new DatabaseException(null, "SplitRatioSet not unique: there exist " + rows + " with id=" + splitratioSet.getId(), dbw, query);
+        throw new DatabaseException(null, "SplitRatioSet not unique: there exist " + rows + " with id=" + splitratioSet.getId(), dbw.getDatabase(), query);
       }
+      
+      ModstampCache.invalidate(ModstampCache.SPLIT_RATIO_SETS, splitratioSet.getLongId());
     }
     finally {
       if (query != null) {
@@ -296,8 +369,10 @@ public class SplitRatioSetWriter extends WriterBase {
       long rows = dbw.psUpdate(query);
       
       if (rows != 1) {
-        throw new DatabaseException(null, "SplitRatioSet not unique: there exist " + rows + " with id=" + splitratioSetID, dbw, query);
+        throw new DatabaseException(null, "SplitRatioSet not unique: there exist " + rows + " with id=" + splitratioSetID, dbw.getDatabase(), query);
       }
+      
+      ModstampCache.invalidate(ModstampCache.SPLIT_RATIO_SETS, splitratioSetID);
     }
     finally {
       if (query != null) {
@@ -316,4 +391,74 @@ public class SplitRatioSetWriter extends WriterBase {
     
     srpWriter.deleteAllProfiles(splitratioSetID);
   }
+  
+  /**
+   * Tables of a split ratio set and its profiles and split ratios, for
+   * copying them within the database.
+   **/
+  static final WriterBase.CloneTables cloneTables = new WriterBase.CloneTables(
+      "SPLIT_RATIO_SETS", "NAME, DESCRIPTION, PROJECT_ID",
+      "SPLIT_RATIO_PROFS", "SPLIT_RATIO_SET_ID", "VIA.SEQ_SPLIT_RATIO_PROFS_ID",
+        "NODE_ID, DEST_NETWORK_ID, START_TIME, SAMPLE_RATE",
+      "SPLIT_RATIOS", "SPLIT_RATIO_PROF_ID",
+        "IN_LINK_ID, OUT_LINK_ID, VEH_TYPE_ID, RATIO_ORDER, RATIO");
+  
+  /**
+   * Copy the split ratio set with the given ID and its profiles and split
+   * ratios, within the database. The copy gets a new id from the sequence.
+   * The profiles get new ids.
+   * 
+   * @param splitratioSetID  the ID of the split ratio set to copy
+   * @return ID of the copy
+   */
+  public long clone(long splitratioSetID) throws DatabaseException {
+    long newID;
+    
+    long timeBegin = System.nanoTime();
+    
+    try {
+      dbw.transactionBegin();
+      Monitor.debug("SplitRatioSet clone transaction beginning on splitratioSet.id=" + splitratioSetID);
+      
+      newID = cloneWithDependents(splitratioSetID);
+
+      dbw.transactionCommit();
+      Monitor.debug("SplitRatioSet clone transaction committing on splitratioSet.id=" + splitratioSetID);
+    }
+    catch (DatabaseException dbExc) {
+      Monitor.err(dbExc);
+      throw dbExc;
+    }
+    finally {
+      try {
+        dbw.transactionRollback();
+        Monitor.debug("SplitRatioSet clone transaction rollback on splitratioSet.id=" + splitratioSetID);
+      }
+      catch(Exception Exc) {
+        // Do nothing.
+      }
+    }
+
+    long timeCommit = System.nanoTime();
+    Monitor.duration("Clone splitratioSet.id=" + splitratioSetID + " to id=" + newID, timeCommit - timeBegin);
+    
+    return newID;
+  }
+
+  /**
+   * Copy the split ratio set with the given ID and its profiles and split
+   * ratios, within the database.
+   * 
+   * @see #clone() if you want a transaction and logging around the operation.
+   * 
+   * @param splitratioSetID  the ID of the split ratio set to copy
+   * @return ID of the copy
+   */
+  public long cloneWithDependents(long splitratioSetID) throws DatabaseException {
+    long newID = new SplitRatioSetReader(dbParams, dbw).getNextID();
+    
+    cloneTables.copy(dbw, splitratioSetID, newID);
+    
+    return newID;
+  }
 }
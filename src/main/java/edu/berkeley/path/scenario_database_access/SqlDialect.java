@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import core.*;
+
+/**
+ * Translates the SQL of the readers and writers, which is written for
+ * Oracle, into the SQL of the database behind a JDBC url. The base class
+ * is the Oracle dialect, which changes nothing. Statements are translated
+ * once, when they are prepared, so the readers and writers run unchanged.
+ * 
+ * @see DBParams#url
+ * @see JdbcStatements
+ * @author vjoel
+ */
+public class SqlDialect {
+  public static final SqlDialect ORACLE = new SqlDialect();
+  
+  protected SqlDialect() {}
+  
+  /**
+   * The dialect of the database behind a JDBC url: H2Dialect for
+   * jdbc:h2: urls, otherwise ORACLE.
+   */
+  public static SqlDialect forUrl(String url) {
+    if (url != null && url.startsWith("jdbc:h2:")) {
+      return new H2Dialect();
+    }
+    return ORACLE;
+  }
+  
+  /**
+   * Translate a statement into this dialect.
+   * 
+   * @param sql  statement as written for Oracle
+   * @return statement in this dialect
+   * @throws DatabaseException if the statement cannot be expressed in
+   *         this dialect, such as a PL/SQL block
+   */
+  public String translate(String sql) throws DatabaseException {
+    return sql;
+  }
+  
+  /**
+   * Split a statement into the statements to prepare and run in turn in
+   * this dialect, which share its parameters in order. Each is then
+   * translated.
+   * 
+   * @param sql  statement as written for Oracle
+   * @return the statement itself, in the base dialect
+   */
+  public String[] split(String sql) {
+    return new String[] {sql};
+  }
+  
+  /**
+   * Statement that makes the transaction just begun a read-only
+   * snapshot, or null if an ordinary transaction is one.
+   * 
+   * @see ReadSnapshot#begin
+   */
+  public String snapshotBeginSql() {
+    return "SET TRANSACTION READ ONLY";
+  }
+  
+  /**
+   * Query for the system change number of the current snapshot, as the
+   * single column SCN.
+   * 
+   * @see ReadSnapshot#getSCN
+   */
+  public String snapshotSCNSql() {
+    return "SELECT DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER AS SCN FROM dual";
+  }
+  
+  /**
+   * Statement that makes the connection read as of the SCN bound as its
+   * one parameter, or null if the dialect has no flashback.
+   * 
+   * @see ReadSnapshot#beginAt
+   */
+  public String flashbackEnableSql() {
+    return "BEGIN DBMS_FLASHBACK.ENABLE_AT_SYSTEM_CHANGE_NUMBER(?); END;";
+  }
+  
+  /**
+   * Statement that ends flashback on the connection, or null if the
+   * dialect has no flashback.
+   */
+  public String flashbackDisableSql() {
+    return "BEGIN DBMS_FLASHBACK.DISABLE; END;";
+  }
+  
+  /**
+   * Query for the partitions of a table, if the table is list partitioned
+   * by APP_RUN_ID alone, as the columns PARTITION_NAME and HIGH_VALUE (the
+   * text of the partition's value list). Bind the table name. Null if the
+   * dialect has no partitions.
+   * 
+   * @param tableName  table in the VIA schema
+   * @see FreewayCTMReportWriter#purge
+   */
+  public String runPartitionSql(String tableName) {
+    return
+      "SELECT P.PARTITION_NAME, P.HIGH_VALUE " +
+      "FROM ALL_TAB_PARTITIONS P, ALL_PART_TABLES T, ALL_PART_KEY_COLUMNS K " +
+      "WHERE P.TABLE_OWNER = 'VIA' AND P.TABLE_NAME = ? " +
+        "AND T.OWNER = P.TABLE_OWNER AND T.TABLE_NAME = P.TABLE_NAME " +
+        "AND T.PARTITIONING_TYPE = 'LIST' AND T.PARTITIONING_KEY_COUNT = 1 " +
+        "AND K.OWNER = T.OWNER AND K.NAME = T.TABLE_NAME " +
+        "AND K.OBJECT_TYPE = 'TABLE' AND K.COLUMN_NAME = 'APP_RUN_ID'";
+  }
+  
+  /**
+   * Query for the next values of a sequence, such as
+   * VIA.SEQ_SPLIT_RATIO_PROFS_ID, as the column ID, one row per value. Bind
+   * the number of values.
+   * 
+   * @param sequence  name of the sequence
+   */
+  public String nextValuesSql(String sequence) {
+    return "SELECT " + sequence + ".nextVal AS ID FROM dual CONNECT BY LEVEL <= ?";
+  }
+  
+  public String toString() {
+    return getClass().getSimpleName();
+  }
+}
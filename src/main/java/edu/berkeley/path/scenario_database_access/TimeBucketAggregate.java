@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+/**
+ * One row of a time-bucketed aggregate query: the aggregated value of some
+ * quantity on one link over one time bucket. Returned by the readAggregates()
+ * methods of FreewayCTMReportReader and ProbeReader.
+ * 
+ * @see AggregateFunction
+ * @author vjoel
+ */
+public class TimeBucketAggregate {
+  /**
+   * id of the link the value refers to
+   **/
+  public Long linkId;
+  
+  /**
+   * start of the time bucket
+   **/
+  public edu.berkeley.path.model_elements.DateTime time;
+  
+  /**
+   * value of the aggregate function over the bucket (for a histogram
+   * query, the lower edge of the bin)
+   **/
+  public Double value;
+  
+  /**
+   * number of non-null samples that went into the bucket
+   **/
+  public Long samples;
+  
+  public TimeBucketAggregate(
+      Long linkId,
+      edu.berkeley.path.model_elements.DateTime time,
+      Double value,
+      Long samples) {
+    this.linkId = linkId;
+    this.time = time;
+    this.value = value;
+    this.samples = samples;
+  }
+  
+  public String toString() {
+    return "{link_id=" + linkId +
+      ", time=" + (time == null ? null : time.getMilliseconds()) +
+      ", value=" + value +
+      ", samples=" + samples + "}";
+  }
+}
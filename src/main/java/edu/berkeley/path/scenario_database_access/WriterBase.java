@@ -29,11 +29,15 @@
 
 package edu.berkeley.path.scenario_database_access;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
 import core.*;
 
 /**
  * Base class for all classes that write to a database.
- * Can be constructed with or without a DatabaseWriter.
+ * Can be constructed with or without a DBConnection.
  * In the former case, the dbParams are used to construct a writer.
  * The latter case is for passing a writer down the containment
  * hierarchy (such as from DemandSetWriter to DemandProfileWriter), so
@@ -43,7 +47,7 @@ import core.*;
  * @author vjoel
  */
 public class WriterBase {
-  protected DatabaseWriter dbw;
+  protected DBConnection dbw;
   protected DBParams dbParams;
   
   /**
@@ -54,13 +58,7 @@ public class WriterBase {
           DBParams dbParams
           ) throws DatabaseException {
     this.dbParams = dbParams;
-    this.dbw = new DatabaseWriter(
-      dbParams.usingOracle,
-      dbParams.host,
-      dbParams.port,
-      dbParams.name,
-      dbParams.user,
-      dbParams.pass);
+    this.dbw = JdbcStatements.connect(dbParams);
   }
   
   /**
@@ -69,17 +67,585 @@ public class WriterBase {
    **/
   public WriterBase(
           DBParams dbParams,
-          DatabaseWriter dbWriter
+          DBConnection dbWriter
           ) throws DatabaseException {
     this.dbParams = dbParams;
     this.dbw = dbWriter;
   }
   
+  /**
+   * Create a writer base reusing a given core connection to the db,
+   * such as one made by a caller that connects through core.
+   **/
+  public WriterBase(
+          DBParams dbParams,
+          DatabaseWriter dbWriter
+          ) throws DatabaseException {
+    this(dbParams, new CoreStatements(dbWriter));
+  }
+  
   public DBParams getDBParams() {
     return dbParams;
   }
   
-  public DatabaseWriter getDatabaseWriter() {
+  /**
+   * The connection of this writer, for passing it down the containment
+   * hierarchy.
+   **/
+  public DBConnection getConnection() {
     return dbw;
   }
+  
+  /**
+   * The core connection of this writer, if it was given one, or null.
+   **/
+  public DatabaseWriter getDatabaseWriter() {
+    return dbw instanceof CoreStatements ?
+      ((CoreStatements)dbw).getDatabaseWriter() : null;
+  }
+  
+  /**
+   * Run a statement that copies an object and its dependents within the
+   * database, such as a PL/SQL block of INSERT ... SELECT statements. The
+   * ids of the original and of the copy are bound as its two parameters.
+   * No rows cross the connection.
+   * 
+   * @param query name of the prepared statement
+   * @param sql   statement with two parameters, the old and the new id
+   * @param oldID id of the object to copy
+   * @param newID id of the copy
+   */
+  protected void runCloneStatement(String query, String sql, long oldID, long newID) throws DatabaseException {
+    dbw.psCreate(query, sql);
+    
+    try {
+      dbw.psClearParams(query);
+      dbw.psSetBigInt(query, 1, oldID);
+      dbw.psSetBigInt(query, 2, newID);
+      dbw.psUpdate(query);
+    }
+    finally {
+      dbw.psDestroy(query);
+    }
+  }
+  
+  /**
+   * Tables of a set, such as a split ratio set, for copying the set and its
+   * profiles within the database with copy(). Each profile gets a new id
+   * from the sequence, and the rows of the profiles, if there are any, are
+   * copied to the new profiles through a mapping from old to new profile
+   * ids. Each table is copied by set-based INSERT ... SELECT statements,
+   * one per MAX_MERGE_ROWS profiles, so only profile ids cross the
+   * connection.
+   **/
+  protected static class CloneTables {
+    protected String setTable;
+    protected String setColumns;
+    protected String profTable;
+    protected String setColumn;
+    protected String sequence;
+    protected String profColumns;
+    protected String rowTable;
+    protected String profColumn;
+    protected String rowColumns;
+    
+    /**
+     * @param setTable     table of the sets, such as SPLIT_RATIO_SETS
+     * @param setColumns   columns of setTable other than ID
+     * @param profTable    table of the profiles of a set
+     * @param setColumn    column of profTable holding the set id
+     * @param sequence     sequence of the profile ids
+     * @param profColumns  columns of profTable other than ID and setColumn
+     * @param rowTable     table of the rows of a profile, or null if none
+     * @param profColumn   column of rowTable holding the profile id
+     * @param rowColumns   columns of rowTable other than profColumn
+     */
+    protected CloneTables(
+        String setTable, String setColumns,
+        String profTable, String setColumn, String sequence, String profColumns,
+        String rowTable, String profColumn, String rowColumns) {
+      this.setTable = setTable;
+      this.setColumns = setColumns;
+      this.profTable = profTable;
+      this.setColumn = setColumn;
+      this.sequence = sequence;
+      this.profColumns = profColumns;
+      this.rowTable = rowTable;
+      this.profColumn = profColumn;
+      this.rowColumns = rowColumns;
+    }
+    
+    /**
+     * Copy the set with the given id, its profiles and their rows.
+     * 
+     * @param db     connection to copy on
+     * @param oldID  id of the set to copy
+     * @param newID  id of the copy
+     * @throws DatabaseException if there is no such set
+     */
+    protected void copy(DBConnection db, long oldID, long newID) throws DatabaseException {
+      String query = "clone_" + setTable.toLowerCase() + "_" + oldID;
+      db.psCreate(query,
+        "INSERT INTO VIA." + setTable + " (ID, " + setColumns + ") " +
+        "SELECT " + newID + ", " + setColumns + " FROM VIA." + setTable + " WHERE ID = ?"
+      );
+      
+      try {
+        db.psClearParams(query);
+        db.psSetBigInt(query, 1, oldID);
+        
+        if (db.psUpdate(query) != 1) {
+          throw new DatabaseException(null,
+            "Row not found: " + setTable + ".id=" + oldID, db.getDatabase(), query);
+        }
+      }
+      finally {
+        db.psDestroy(query);
+      }
+      
+      if (rowTable == null) {
+        copyProfiles(db, oldID, newID);
+      }
+      else {
+        copyProfilesAndRows(db, oldID, newID);
+      }
+    }
+    
+    /**
+     * Copy profiles without rows of their own, in one statement taking the
+     * new ids straight from the sequence.
+     */
+    private void copyProfiles(DBConnection db, long oldID, long newID) throws DatabaseException {
+      String query = "clone_" + profTable.toLowerCase() + "_of_" + oldID;
+      db.psCreate(query,
+        "INSERT INTO VIA." + profTable + " (ID, " + setColumn + ", " + profColumns + ") " +
+        "SELECT " + sequence + ".nextVal, " + newID + ", " + profColumns + " " +
+        "FROM VIA." + profTable + " WHERE " + setColumn + " = ?"
+      );
+      
+      try {
+        db.psClearParams(query);
+        db.psSetBigInt(query, 1, oldID);
+        db.psUpdate(query);
+      }
+      finally {
+        db.psDestroy(query);
+      }
+    }
+    
+    /**
+     * Copy profiles and their rows, through a mapping from the old profile
+     * ids to new ones, bound as a union of rows of dual like the source of
+     * AttributeMerger. The statements are prepared once for each size of
+     * the mapping and reused.
+     */
+    private void copyProfilesAndRows(DBConnection db, long oldID, long newID) throws DatabaseException {
+      List<Long> oldProfIDs = readIDs(db,
+        "SELECT ID FROM VIA." + profTable + " WHERE " + setColumn + " = ?", oldID);
+      
+      if (oldProfIDs.isEmpty()) {
+        return;
+      }
+      
+      List<Long> newProfIDs = readIDs(db,
+        db.getDialect().nextValuesSql(sequence), (long)oldProfIDs.size());
+      
+      // names of the statements copying the profiles and their rows, by size
+      HashMap<Integer,String[]> psnames = new HashMap<Integer,String[]>();
+      
+      try {
+        for (int from = 0; from < oldProfIDs.size(); from += MAX_MERGE_ROWS) {
+          int to = Math.min(oldProfIDs.size(), from + MAX_MERGE_ROWS);
+          int nSlots = mergeSlots(to - from);
+          
+          String[] queries = psnames.get(nSlots);
+          if (queries == null) {
+            queries = new String[] {
+              "clone_" + profTable.toLowerCase() + "_of_" + oldID + "_" + nSlots,
+              "clone_" + rowTable.toLowerCase() + "_of_" + oldID + "_" + nSlots
+            };
+            String mapping = mappingSql(nSlots);
+            
+            psnames.put(nSlots, queries);
+            db.psCreate(queries[0],
+              "INSERT INTO VIA." + profTable + " (ID, " + setColumn + ", " + profColumns + ") " +
+              "SELECT M.NEW_ID, " + newID + ", " + profColumns + " " +
+              "FROM VIA." + profTable + " P, (" + mapping + ") M WHERE P.ID = M.OLD_ID"
+            );
+            db.psCreate(queries[1],
+              "INSERT INTO VIA." + rowTable + " (" + profColumn + ", " + rowColumns + ") " +
+              "SELECT M.NEW_ID, " + rowColumns + " " +
+              "FROM VIA." + rowTable + " R, (" + mapping + ") M WHERE R." + profColumn + " = M.OLD_ID"
+            );
+          }
+          
+          // The rows refer to the new profiles, so the profiles go first.
+          for (String query : queries) {
+            bindMapping(db, query, oldProfIDs, newProfIDs, from, to, nSlots);
+            db.psUpdate(query);
+          }
+        }
+      }
+      finally {
+        for (String[] queries : psnames.values()) {
+          for (String query : queries) {
+            db.psDestroy(query);
+          }
+        }
+      }
+    }
+    
+    /**
+     * Rows of OLD_ID and NEW_ID, all bound.
+     */
+    private static String mappingSql(int nRows) {
+      StringBuilder rows = new StringBuilder(
+        "SELECT CAST(? AS NUMBER) OLD_ID, CAST(? AS NUMBER) NEW_ID FROM dual");
+      for (int i = 1; i < nRows; i++) {
+        rows.append(" UNION ALL SELECT ?, ? FROM dual");
+      }
+      return rows.toString();
+    }
+    
+    /**
+     * Bind the ids from..to of the mapping, padded to nSlots with rows of
+     * null ids, which match no profile.
+     */
+    private static void bindMapping(DBConnection db, String query,
+        List<Long> oldIDs, List<Long> newIDs, int from, int to, int nSlots) throws DatabaseException {
+      int i = 0;
+      
+      db.psClearParams(query);
+      for (int k = from; k < to; k++) {
+        db.psSetBigInt(query, ++i, oldIDs.get(k));
+        db.psSetBigInt(query, ++i, newIDs.get(k));
+      }
+      for (int slot = to - from; slot < nSlots; slot++) {
+        db.psSetBigInt(query, ++i, null);
+        db.psSetBigInt(query, ++i, null);
+      }
+    }
+    
+    /**
+     * Read the ID column of a query with one parameter.
+     */
+    private static List<Long> readIDs(DBConnection db, String sql, long param) throws DatabaseException {
+      List<Long> ids = new ArrayList<Long>();
+      String query = "read_clone_ids";
+      db.psCreate(query, sql);
+      
+      try {
+        db.psClearParams(query);
+        db.psSetBigInt(query, 1, param);
+        db.psQuery(query);
+        
+        while (db.psRSNext(query)) {
+          ids.add(db.psRSGetBigInt(query, "ID"));
+        }
+      }
+      finally {
+        db.psDestroy(query);
+      }
+      
+      return ids;
+    }
+  }
+  
+  /**
+   * Null-safe equality of two column values, for deciding whether a row
+   * has changed.
+   */
+  protected static boolean same(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+  
+  /**
+   * Largest number of rows merged by one MERGE statement. Each row has two
+   * bind parameters.
+   **/
+  protected static final int MAX_MERGE_ROWS = 500;
+  
+  /**
+   * Number of rows of the MERGE statement for a batch of nRows, at most
+   * MAX_MERGE_ROWS. Batches are padded to a few sizes, so that only a few
+   * statements are prepared, while merging a single row stays cheap.
+   */
+  protected static int mergeSlots(int nRows) {
+    if (nRows <= 1) {
+      return nRows;
+    }
+    
+    int slots = 8;
+    while (slots < nRows) {
+      slots *= 8;
+    }
+    return Math.min(slots, MAX_MERGE_ROWS);
+  }
+  
+  /**
+   * Upsert of an optional attribute table of network elements, such as
+   * LINK_NAMES, keyed by element id and network id. Each batch of rows is
+   * written by one MERGE statement: rows with a value are updated or
+   * inserted, and rows whose value is null are deleted. Batches are padded
+   * to the sizes of mergeSlots() with rows of null id, which the statement
+   * skips. Statements are prepared on first use for each size and reused.
+   */
+  protected abstract class AttributeMerger<T> {
+    protected String table;
+    protected String idColumn;
+    protected String valueColumn;
+    protected long networkID;
+    private HashMap<Integer,String> psnames = new HashMap<Integer,String>();
+    
+    protected AttributeMerger(String table, String idColumn, String valueColumn, long networkID) {
+      this.table = table;
+      this.idColumn = idColumn;
+      this.valueColumn = valueColumn;
+      this.networkID = networkID;
+    }
+    
+    /**
+     * Id of the element that the row belongs to.
+     */
+    protected abstract Long id(T item);
+    
+    /**
+     * Bind the value of the attribute of the item, possibly null.
+     */
+    protected abstract void setValue(String psname, int index, T item) throws DatabaseException;
+    
+    /**
+     * SQL expression for the stored value, given S.VAL, the bound value.
+     * Override to look up an id, for example.
+     */
+    protected String valueSql() {
+      return "S.VAL";
+    }
+    
+    protected String sql(int nRows) {
+      StringBuilder rows = new StringBuilder("SELECT ? ID, ? VAL FROM dual");
+      for (int i = 1; i < nRows; i++) {
+        rows.append(" UNION ALL SELECT ?, ? FROM dual");
+      }
+      
+      return
+        "MERGE INTO VIA." + table + " T " +
+        "USING (SELECT S.ID, " + valueSql() + " VAL FROM (" + rows + ") S WHERE S.ID IS NOT NULL) S " +
+        "ON ((T." + idColumn + " = S.ID) AND (T.NETWORK_ID = " + networkID + ")) " +
+        "WHEN MATCHED THEN UPDATE SET T." + valueColumn + " = NVL(S.VAL, T." + valueColumn + ") " +
+          "DELETE WHERE (S.VAL IS NULL) " +
+        "WHEN NOT MATCHED THEN INSERT (" + idColumn + ", NETWORK_ID, " + valueColumn + ") " +
+          "VALUES (S.ID, " + networkID + ", S.VAL) WHERE (S.VAL IS NOT NULL)";
+    }
+    
+    protected String statement(int nRows) throws DatabaseException {
+      String name = psnames.get(nRows);
+      
+      if (name == null) {
+        name = "merge_" + table.toLowerCase() + "_in_network_" + networkID + "_" + nRows;
+        dbw.psCreate(name, sql(nRows));
+        psnames.put(nRows, name);
+      }
+      
+      return name;
+    }
+    
+    /**
+     * Write the attribute of all the items, in batches of at most
+     * MAX_MERGE_ROWS rows.
+     * 
+     * @return number of rows merged
+     */
+    protected long merge(List<T> items) throws DatabaseException {
+      long rows = 0;
+      
+      for (int from = 0; from < items.size(); from += MAX_MERGE_ROWS) {
+        List<T> batch = items.subList(from, Math.min(items.size(), from + MAX_MERGE_ROWS));
+        int nSlots = mergeSlots(batch.size());
+        String name = statement(nSlots);
+        int i = 0;
+        
+        dbw.psClearParams(name);
+        for (T item : batch) {
+          dbw.psSetBigInt(name, ++i, id(item));
+          setValue(name, ++i, item);
+        }
+        
+        // Padding rows repeat the last value, so that each column has one
+        // type, with a null id.
+        T last = batch.get(batch.size() - 1);
+        for (int slot = batch.size(); slot < nSlots; slot++) {
+          dbw.psSetBigInt(name, ++i, null);
+          setValue(name, ++i, last);
+        }
+        
+        rows += dbw.psUpdate(name);
+      }
+      
+      return rows;
+    }
+    
+    protected void release() throws DatabaseException {
+      for (String name : psnames.values()) {
+        dbw.psDestroy(name);
+      }
+      psnames.clear();
+    }
+  }
+  
+  /**
+   * SQL expression for a modstamp bound with modstampString().
+   **/
+  protected static final String MODSTAMP_SQL =
+    "TO_TIMESTAMP(?, 'YYYY-MM-DD HH24:MI:SS.FF6')";
+  
+  /**
+   * SQL expression for the next modstamp of a row: the current time, but
+   * always later than its modstamp, so that it differs even if the clock
+   * is behind or has not ticked.
+   **/
+  protected static final String NEXT_MODSTAMP_SQL =
+    "GREATEST(LOCALTIMESTAMP, MODSTAMP + INTERVAL '0.000001' SECOND)";
+  
+  /**
+   * Format a modstamp, in microseconds as read by the readers, so that it
+   * can be bound to MODSTAMP_SQL. The readers read the stored time as UTC
+   * (see DBConnection#psRSGetTimestampMicroseconds), so it is formatted in
+   * UTC, which gives back the stored value exactly.
+   */
+  protected static String modstampString(long micros) {
+    java.util.Date seconds = new java.util.Date(micros / 1000000 * 1000);
+    java.text.SimpleDateFormat format = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    format.setTimeZone(java.util.TimeZone.getTimeZone("UTC"));
+    
+    return
+      format.format(seconds) +
+      String.format(".%06d", micros % 1000000);
+  }
+  
+  /**
+   * Give a row a new modstamp, so that readers which check it, such as a
+   * ModstampCache in another process, see that the object it heads has
+   * changed. Used when only dependent rows were written, such as the links
+   * of a network.
+   * 
+   * @param table     table with ID and MODSTAMP columns, such as NETWORKS
+   * @param id        ID of the row
+   */
+  protected void touchModstamp(String table, long id) throws DatabaseException {
+    String query = "touch_" + table.toLowerCase() + "_" + id;
+    dbw.psCreate(query,
+      "UPDATE VIA." + table + " SET MODSTAMP = " + NEXT_MODSTAMP_SQL + " WHERE ID = ?"
+    );
+    
+    try {
+      dbw.psClearParams(query);
+      dbw.psSetBigInt(query, 1, id);
+      dbw.psUpdate(query);
+    }
+    finally {
+      dbw.psDestroy(query);
+    }
+  }
+  
+  /**
+   * Lock a row until the transaction ends, so that what is read from it
+   * and its dependents on this connection stays current while writing.
+   * 
+   * @param table  table with an ID column, such as NETWORKS
+   * @param id     ID of the row
+   * @throws DatabaseException if there is no such row
+   */
+  protected void lockRow(String table, long id) throws DatabaseException {
+    String query = "lock_" + table.toLowerCase() + "_" + id;
+    dbw.psCreate(query,
+      "SELECT ID FROM VIA." + table + " WHERE ID = ? FOR UPDATE"
+    );
+    
+    try {
+      dbw.psClearParams(query);
+      dbw.psSetBigInt(query, 1, id);
+      dbw.psQuery(query);
+      
+      if (!dbw.psRSNext(query)) {
+        throw new DatabaseException(null,
+          "Row not found: " + table + ".id=" + id, dbw.getDatabase(), query);
+      }
+    }
+    finally {
+      dbw.psDestroy(query);
+    }
+  }
+  
+  /**
+   * Check that a row has not been modified since it was read, and give it
+   * a new modstamp, in one conditional update. The row stays locked until
+   * the transaction ends, so no other writer can modify it in between.
+   * Call readModstamp() after writing, for the modstamp to read with next.
+   * 
+   * @param table     table with ID and MODSTAMP columns, such as NETWORKS
+   * @param id        ID of the row
+   * @param modstamp  modstamp the row was read with, in microseconds
+   * @throws ConcurrencyException if the row was modified or deleted since
+   */
+  protected void claimModstamp(String table, long id, Long modstamp) throws DatabaseException, ConcurrencyException {
+    if (modstamp == null) {
+      throw new DatabaseException(null,
+        "Cannot check for concurrent updates without a modstamp: " +
+        table + ".id=" + id, dbw.getDatabase(), null);
+    }
+    
+    String query = "claim_" + table.toLowerCase() + "_" + id;
+    dbw.psCreate(query,
+      "UPDATE VIA." + table + " SET MODSTAMP = " + NEXT_MODSTAMP_SQL + " " +
+      "WHERE ((ID = ?) AND (MODSTAMP = " + MODSTAMP_SQL + "))"
+    );
+    
+    try {
+      dbw.psClearParams(query);
+      dbw.psSetBigInt(query, 1, id);
+      dbw.psSetVarChar(query, 2, modstampString(modstamp));
+      long rows = dbw.psUpdate(query);
+      
+      if (rows == 0) {
+        throw new ConcurrencyException(
+          "record was updated by another process or user: " + table + ".id=" + id);
+      }
+    }
+    finally {
+      dbw.psDestroy(query);
+    }
+  }
+  
+  /**
+   * Read the modstamp of a row on this writer's connection, so that it
+   * includes the writes of the current transaction.
+   * 
+   * @param table     table with ID and MODSTAMP columns, such as NETWORKS
+   * @param id        ID of the row
+   * @return the modstamp, in microseconds, as the readers read it
+   */
+  protected long readModstamp(String table, long id) throws DatabaseException {
+    String query = "read_modstamp_" + table.toLowerCase() + "_" + id;
+    dbw.psCreate(query,
+      "SELECT MODSTAMP FROM VIA." + table + " WHERE ID = ?"
+    );
+    
+    try {
+      dbw.psClearParams(query);
+      dbw.psSetBigInt(query, 1, id);
+      dbw.psQuery(query);
+      
+      if (!dbw.psRSNext(query)) {
+        throw new DatabaseException(null,
+          "Row not found: " + table + ".id=" + id, dbw.getDatabase(), query);
+      }
+      
+      Long modstamp = dbw.psRSGetTimestampMicroseconds(query, "MODSTAMP");
+      return modstamp == null ? 0L : modstamp;
+    }
+    finally {
+      dbw.psDestroy(query);
+    }
+  }
 }
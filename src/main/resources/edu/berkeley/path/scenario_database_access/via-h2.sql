@@ -0,0 +1,393 @@
+-- The VIA schema, as far as the readers and writers of
+-- edu.berkeley.path.scenario_database_access use it, for an embedded H2
+-- database in Oracle mode. Geometry columns hold WKB, and the SDO
+-- functions are the Java functions of EmbeddedGeometry.
+-- See EmbeddedDatabase.createSchema().
+
+CREATE SCHEMA IF NOT EXISTS VIA;
+CREATE SCHEMA IF NOT EXISTS SDO_UTIL;
+
+CREATE ALIAS IF NOT EXISTS SDO_GEOMETRY FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.sdoGeometry';
+CREATE ALIAS IF NOT EXISTS SDO_POINT_TYPE FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.sdoPointType';
+CREATE ALIAS IF NOT EXISTS SDO_ELEM_INFO_ARRAY FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.sdoElemInfoArray';
+CREATE ALIAS IF NOT EXISTS SDO_ORDINATE_ARRAY FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.sdoOrdinateArray';
+CREATE ALIAS IF NOT EXISTS SDO_POINT_X FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.sdoPointX';
+CREATE ALIAS IF NOT EXISTS SDO_POINT_Y FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.sdoPointY';
+CREATE ALIAS IF NOT EXISTS SDO_ANYINTERACT FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.sdoAnyInteract';
+CREATE ALIAS IF NOT EXISTS SDO_UTIL.FROM_WKTGEOMETRY FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.fromWkt';
+CREATE ALIAS IF NOT EXISTS SDO_UTIL.FROM_WKBGEOMETRY FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.fromWkb';
+CREATE ALIAS IF NOT EXISTS SDO_UTIL.TO_WKTGEOMETRY FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.toWkt';
+CREATE ALIAS IF NOT EXISTS SDO_UTIL.TO_WKBGEOMETRY FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.toWkb';
+CREATE ALIAS IF NOT EXISTS SDO_UTIL.SIMPLIFY FOR 'edu.berkeley.path.scenario_database_access.EmbeddedGeometry.simplify';
+
+-- sequences
+
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_PROJECT_ID START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_SCENARIO_ID START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_NETWORK_ID START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_FUND_DIAG_SETS_ID START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_FUND_DIAG_PROFILES_ID START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_SPLIT_RATIO_SETS_ID START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_SPLIT_RATIO_PROFS_ID START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_SENSOR_SETS_ID START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_SENSORS_ID START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_DEMAND_PROF_SETS_ID START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS VIA.SEQ_DEMAND_PROFS_ID START WITH 1;
+
+-- type tables
+
+CREATE TABLE IF NOT EXISTS VIA.NODE_TYPES (
+  ID          INTEGER PRIMARY KEY,
+  NAME        VARCHAR(100) NOT NULL,
+  DESCRIPTION VARCHAR(4000)
+);
+
+MERGE INTO VIA.NODE_TYPES (ID, NAME) KEY (ID) VALUES
+  (1, 'Freeway'),
+  (2, 'Highway'),
+  (3, 'Signalized Intersection'),
+  (4, 'Stop Intersection'),
+  (5, 'Simple'),
+  (6, 'Terminal');
+
+CREATE TABLE IF NOT EXISTS VIA.LINK_TYPES (
+  ID          INTEGER PRIMARY KEY,
+  NAME        VARCHAR(100) NOT NULL,
+  DESCRIPTION VARCHAR(4000)
+);
+
+MERGE INTO VIA.LINK_TYPES (ID, NAME) KEY (ID) VALUES
+  (1, 'Freeway'),
+  (2, 'HOV'),
+  (3, 'HOT'),
+  (4, 'Heavy Vehicle'),
+  (5, 'Electric Toll'),
+  (6, 'Street'),
+  (7, 'On-Ramp'),
+  (8, 'Off-Ramp'),
+  (9, 'Interconnect'),
+  (10, 'Source'),
+  (11, 'Sink'),
+  (12, 'Intersection Approach');
+
+CREATE TABLE IF NOT EXISTS VIA.SENSOR_TYPES (
+  ID          INTEGER PRIMARY KEY,
+  NAME        VARCHAR(100) NOT NULL,
+  DESCRIPTION VARCHAR(4000)
+);
+
+MERGE INTO VIA.SENSOR_TYPES (ID, NAME) KEY (ID) VALUES
+  (1, 'Loop'),
+  (2, 'Magnetic'),
+  (3, 'Radar'),
+  (4, 'Camera'),
+  (5, 'TMC');
+
+CREATE TABLE IF NOT EXISTS VIA.FUND_DIAG_TYPES (
+  ID          INTEGER PRIMARY KEY,
+  NAME        VARCHAR(100) NOT NULL,
+  DESCRIPTION VARCHAR(4000)
+);
+
+MERGE INTO VIA.FUND_DIAG_TYPES (ID, NAME) KEY (ID) VALUES
+  (1, 'Triangular');
+
+-- projects and scenarios
+
+CREATE TABLE IF NOT EXISTS VIA.PROJECTS (
+  ID          BIGINT PRIMARY KEY,
+  NAME        VARCHAR(100),
+  DESCRIPTION VARCHAR(4000),
+  MODSTAMP    TIMESTAMP(6) DEFAULT LOCALTIMESTAMP(6) ON UPDATE LOCALTIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.SCENARIOS (
+  ID              BIGINT PRIMARY KEY,
+  NAME            VARCHAR(100),
+  DESCRIPTION     VARCHAR(4000),
+  PROJECT_ID      BIGINT,
+  SPLIT_RATIO_SET BIGINT,
+  DEMAND_PROF_SET BIGINT,
+  FUND_DIAG_SET   BIGINT,
+  SENSOR_SET      BIGINT,
+  MODSTAMP        TIMESTAMP(6) DEFAULT LOCALTIMESTAMP(6) ON UPDATE LOCALTIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS VIA.PROJECTS_NAME ON VIA.PROJECTS (NAME, ID);
+CREATE INDEX IF NOT EXISTS VIA.PROJECTS_MODSTAMP ON VIA.PROJECTS (MODSTAMP, ID);
+CREATE INDEX IF NOT EXISTS VIA.SCENARIOS_PROJECT_NAME ON VIA.SCENARIOS (PROJECT_ID, NAME, ID);
+CREATE INDEX IF NOT EXISTS VIA.SCENARIOS_PROJECT_MODSTAMP ON VIA.SCENARIOS (PROJECT_ID, MODSTAMP, ID);
+
+CREATE TABLE IF NOT EXISTS VIA.NETWORK_SETS (
+  SCENARIO_ID BIGINT NOT NULL,
+  NETWORK_ID  BIGINT NOT NULL,
+  PRIMARY KEY (SCENARIO_ID, NETWORK_ID)
+);
+
+-- networks, nodes and links
+
+CREATE TABLE IF NOT EXISTS VIA.NETWORKS (
+  ID          BIGINT PRIMARY KEY,
+  NAME        VARCHAR(100),
+  DESCRIPTION VARCHAR(4000),
+  PROJECT_ID  BIGINT,
+  MODSTAMP    TIMESTAMP(6) DEFAULT LOCALTIMESTAMP(6) ON UPDATE LOCALTIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.NODES (
+  ID         BIGINT NOT NULL,
+  NETWORK_ID BIGINT NOT NULL,
+  GEOM       VARBINARY,
+  MODSTAMP   TIMESTAMP(6) DEFAULT LOCALTIMESTAMP(6) ON UPDATE LOCALTIMESTAMP(6),
+  PRIMARY KEY (NETWORK_ID, ID)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.NODE_NAMES (
+  NODE_ID    BIGINT NOT NULL,
+  NETWORK_ID BIGINT NOT NULL,
+  NAME       VARCHAR(100),
+  PRIMARY KEY (NETWORK_ID, NODE_ID)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.NODE_TYPE_DET (
+  NODE_ID      BIGINT NOT NULL,
+  NETWORK_ID   BIGINT NOT NULL,
+  NODE_TYPE_ID INTEGER,
+  PRIMARY KEY (NETWORK_ID, NODE_ID)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.LINKS (
+  ID           BIGINT NOT NULL,
+  NETWORK_ID   BIGINT NOT NULL,
+  BEG_NODE_ID  BIGINT,
+  END_NODE_ID  BIGINT,
+  SPEED_LIMIT  DOUBLE PRECISION,
+  LENGTH       DOUBLE PRECISION,
+  DETAIL_LEVEL INTEGER,
+  GEOM         VARBINARY,
+  MODSTAMP     TIMESTAMP(6) DEFAULT LOCALTIMESTAMP(6) ON UPDATE LOCALTIMESTAMP(6),
+  PRIMARY KEY (NETWORK_ID, ID)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.LINK_NAMES (
+  LINK_ID    BIGINT NOT NULL,
+  NETWORK_ID BIGINT NOT NULL,
+  NAME       VARCHAR(100),
+  PRIMARY KEY (NETWORK_ID, LINK_ID)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.LINK_LANES (
+  LINK_ID    BIGINT NOT NULL,
+  NETWORK_ID BIGINT NOT NULL,
+  LANES      DOUBLE PRECISION,
+  PRIMARY KEY (NETWORK_ID, LINK_ID)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.LINK_LANE_OFFSET (
+  LINK_ID             BIGINT NOT NULL,
+  NETWORK_ID          BIGINT NOT NULL,
+  DISPLAY_LANE_OFFSET DOUBLE PRECISION,
+  PRIMARY KEY (NETWORK_ID, LINK_ID)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.LINK_TYPE_DET (
+  LINK_ID    BIGINT NOT NULL,
+  NETWORK_ID BIGINT NOT NULL,
+  LINK_TYPE  INTEGER,
+  PRIMARY KEY (NETWORK_ID, LINK_ID)
+);
+
+-- fundamental diagrams
+
+CREATE TABLE IF NOT EXISTS VIA.FUND_DIAG_SETS (
+  ID             BIGINT PRIMARY KEY,
+  NAME           VARCHAR(100),
+  DESCRIPTION    VARCHAR(4000),
+  FUND_DIAG_TYPE INTEGER,
+  PROJECT_ID     BIGINT,
+  MODSTAMP       TIMESTAMP(6) DEFAULT LOCALTIMESTAMP(6) ON UPDATE LOCALTIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.FUND_DIAG_PROFS (
+  ID            BIGINT PRIMARY KEY,
+  LINK_ID       BIGINT,
+  FUND_DIAG_SET BIGINT,
+  START_TIME    DOUBLE PRECISION,
+  SAMPLE_RATE   DOUBLE PRECISION
+);
+
+CREATE INDEX IF NOT EXISTS VIA.FUND_DIAG_PROFS_SET ON VIA.FUND_DIAG_PROFS (FUND_DIAG_SET);
+
+CREATE TABLE IF NOT EXISTS VIA.FUND_DIAGRAMS (
+  FUND_DIAG_PROF_ID   BIGINT NOT NULL,
+  DIAG_ORDER          INTEGER NOT NULL,
+  FREE_FLOW_SPEED     DOUBLE PRECISION,
+  CRITICAL_SPEED      DOUBLE PRECISION,
+  CONG_WAVE_SPEED     DOUBLE PRECISION,
+  CAPACITY            DOUBLE PRECISION,
+  JAM_DENSITY         DOUBLE PRECISION,
+  CAPACITY_DROP       DOUBLE PRECISION,
+  FREE_FLOW_SPEED_STD DOUBLE PRECISION,
+  CONG_WAVE_SPEED_STD DOUBLE PRECISION,
+  CAPACITY_STD        DOUBLE PRECISION,
+  PRIMARY KEY (FUND_DIAG_PROF_ID, DIAG_ORDER)
+);
+
+-- split ratios
+
+CREATE TABLE IF NOT EXISTS VIA.SPLIT_RATIO_SETS (
+  ID          BIGINT PRIMARY KEY,
+  NAME        VARCHAR(100),
+  DESCRIPTION VARCHAR(4000),
+  PROJECT_ID  BIGINT,
+  MODSTAMP    TIMESTAMP(6) DEFAULT LOCALTIMESTAMP(6) ON UPDATE LOCALTIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.SPLIT_RATIO_PROFS (
+  ID                 BIGINT PRIMARY KEY,
+  NODE_ID            BIGINT,
+  DEST_NETWORK_ID    BIGINT,
+  SPLIT_RATIO_SET_ID BIGINT,
+  START_TIME         DOUBLE PRECISION,
+  SAMPLE_RATE        DOUBLE PRECISION
+);
+
+CREATE INDEX IF NOT EXISTS VIA.SPLIT_RATIO_PROFS_SET ON VIA.SPLIT_RATIO_PROFS (SPLIT_RATIO_SET_ID);
+
+CREATE TABLE IF NOT EXISTS VIA.SPLIT_RATIOS (
+  SPLIT_RATIO_PROF_ID BIGINT NOT NULL,
+  IN_LINK_ID          BIGINT NOT NULL,
+  OUT_LINK_ID         BIGINT NOT NULL,
+  VEH_TYPE_ID         BIGINT NOT NULL,
+  RATIO_ORDER         INTEGER NOT NULL,
+  RATIO               DOUBLE PRECISION,
+  PRIMARY KEY (SPLIT_RATIO_PROF_ID, IN_LINK_ID, OUT_LINK_ID, VEH_TYPE_ID, RATIO_ORDER)
+);
+
+-- sensors
+
+CREATE TABLE IF NOT EXISTS VIA.SENSOR_SETS (
+  ID          BIGINT PRIMARY KEY,
+  NAME        VARCHAR(100),
+  DESCRIPTION VARCHAR(4000),
+  PROJECT_ID  BIGINT,
+  MODSTAMP    TIMESTAMP(6) DEFAULT LOCALTIMESTAMP(6) ON UPDATE LOCALTIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.SENSORS (
+  ID             BIGINT PRIMARY KEY,
+  SENSOR_TYPE_ID INTEGER,
+  SENSOR_SET_ID  BIGINT,
+  ENTITY_ID      VARCHAR(100),
+  DATA_FEED_ID   BIGINT,
+  LINK_ID        BIGINT,
+  LINK_OFFSET    DOUBLE PRECISION,
+  LANE_NUM       DOUBLE PRECISION,
+  HEALTH_STATUS  DOUBLE PRECISION
+);
+
+CREATE INDEX IF NOT EXISTS VIA.SENSORS_SET ON VIA.SENSORS (SENSOR_SET_ID);
+
+-- demands
+
+CREATE TABLE IF NOT EXISTS VIA.DEMAND_SETS (
+  ID          BIGINT PRIMARY KEY,
+  NAME        VARCHAR(100),
+  DESCRIPTION VARCHAR(4000),
+  PROJECT_ID  BIGINT,
+  MODSTAMP    TIMESTAMP(6) DEFAULT LOCALTIMESTAMP(6) ON UPDATE LOCALTIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS VIA.DEMAND_PROFS (
+  ID              BIGINT PRIMARY KEY,
+  DEMAND_SET_ID   BIGINT,
+  ORG_LINK_ID     BIGINT,
+  DEST_NETWORK_ID BIGINT,
+  START_TIME      DOUBLE PRECISION,
+  SAMPLE_RATE     DOUBLE PRECISION,
+  KNOB            DOUBLE PRECISION,
+  STD_DEV_ADD     DOUBLE PRECISION,
+  STD_DEV_MULT    DOUBLE PRECISION
+);
+
+CREATE INDEX IF NOT EXISTS VIA.DEMAND_PROFS_SET ON VIA.DEMAND_PROFS (DEMAND_SET_ID);
+
+CREATE TABLE IF NOT EXISTS VIA.DEMANDS (
+  DEMAND_PROF_ID BIGINT NOT NULL,
+  VEH_TYPE_ID    BIGINT NOT NULL,
+  DEMAND_ORDER   INTEGER NOT NULL,
+  FLOW           DOUBLE PRECISION,
+  PRIMARY KEY (DEMAND_PROF_ID, VEH_TYPE_ID, DEMAND_ORDER)
+);
+
+-- run output and measurements
+
+CREATE TABLE IF NOT EXISTS VIA.LINK_DATA_TOTAL (
+  NETWORK_ID            BIGINT NOT NULL,
+  APP_RUN_ID            BIGINT NOT NULL,
+  APP_TYPE_ID           BIGINT NOT NULL,
+  TS                    TIMESTAMP(6) NOT NULL,
+  LINK_ID               BIGINT NOT NULL,
+  FREE_FLOW_SPEED       DOUBLE PRECISION,
+  CRITICAL_SPEED        DOUBLE PRECISION,
+  CONGESTION_WAVE_SPEED DOUBLE PRECISION,
+  CAPACITY              DOUBLE PRECISION,
+  JAM_DENSITY           DOUBLE PRECISION,
+  CAPACITY_DROP         DOUBLE PRECISION,
+  AGG_TYPE_ID           BIGINT,
+  QTY_TYPE_ID           BIGINT,
+  IN_FLOW               DOUBLE PRECISION,
+  OUT_FLOW              DOUBLE PRECISION,
+  DENSITY               DOUBLE PRECISION,
+  SPEED                 DOUBLE PRECISION,
+  QUEUE_LENGTH          DOUBLE PRECISION
+);
+
+CREATE INDEX IF NOT EXISTS VIA.LINK_DATA_TOTAL_RUN ON VIA.LINK_DATA_TOTAL (APP_RUN_ID, NETWORK_ID, TS);
+
+CREATE TABLE IF NOT EXISTS VIA.LINK_DATA_TOTAL_DEBUG (
+  NETWORK_ID            BIGINT NOT NULL,
+  APP_RUN_ID            BIGINT NOT NULL,
+  APP_TYPE_ID           BIGINT NOT NULL,
+  TS                    TIMESTAMP(6) NOT NULL,
+  CTM_ID                BIGINT,
+  LINK_ID               BIGINT NOT NULL,
+  FREE_FLOW_SPEED       DOUBLE PRECISION,
+  CRITICAL_SPEED        DOUBLE PRECISION,
+  CONGESTION_WAVE_SPEED DOUBLE PRECISION,
+  CAPACITY              DOUBLE PRECISION,
+  JAM_DENSITY           DOUBLE PRECISION,
+  CAPACITY_DROP         DOUBLE PRECISION,
+  AGG_TYPE_ID           BIGINT,
+  QTY_TYPE_ID           BIGINT,
+  IN_FLOW               DOUBLE PRECISION,
+  OUT_FLOW              DOUBLE PRECISION,
+  DENSITY               DOUBLE PRECISION,
+  SPEED                 DOUBLE PRECISION,
+  QUEUE_LENGTH          DOUBLE PRECISION
+);
+
+CREATE INDEX IF NOT EXISTS VIA.LINK_DATA_TOTAL_DEBUG_RUN ON VIA.LINK_DATA_TOTAL_DEBUG (APP_RUN_ID, NETWORK_ID, TS);
+
+CREATE TABLE IF NOT EXISTS VIA.PEMS_30SEC_FILT (
+  VDS_ID          BIGINT NOT NULL,
+  MEASURE_DT      TIMESTAMP(6) NOT NULL,
+  FLOW            DOUBLE PRECISION,
+  DENSITY         DOUBLE PRECISION,
+  DENSITY_ERR     DOUBLE PRECISION,
+  SPEED           DOUBLE PRECISION,
+  SPEED_ERROR     DOUBLE PRECISION,
+  FF_SPEED        DOUBLE PRECISION,
+  FUNC_LOOP_FACT  DOUBLE PRECISION,
+  G_FACTOR_LANE_0 DOUBLE PRECISION,
+  G_FACTOR_LANE_1 DOUBLE PRECISION,
+  G_FACTOR_LANE_2 DOUBLE PRECISION,
+  G_FACTOR_LANE_3 DOUBLE PRECISION,
+  G_FACTOR_LANE_4 DOUBLE PRECISION,
+  G_FACTOR_LANE_5 DOUBLE PRECISION,
+  G_FACTOR_LANE_6 DOUBLE PRECISION,
+  G_FACTOR_LANE_7 DOUBLE PRECISION,
+  G_FACTOR_LANE_8 DOUBLE PRECISION,
+  G_FACTOR_LANE_9 DOUBLE PRECISION,
+  PRIMARY KEY (VDS_ID, MEASURE_DT)
+);
@@ -161,4 +161,53 @@ public class DemandSetWriterTest {
       // as expected
     }
   }
+
+  @Test
+  public void testUpdateChangedProfiles() throws core.DatabaseException {
+    DemandSet ds = new DemandSet();
+    ds.setName("writer-test");
+    ds.setDescription("for test");
+    
+    DemandProfile prof = new DemandProfile();
+    prof.setStartTime(25200.0);
+    prof.setSampleRate(600.0);
+    prof.setKnob(1.5);
+    prof.addFlowAt(1L, 0.5);
+    prof.addFlowAt(1L, 0.2);
+    prof.addFlowAt(2L, 0.1);
+    ds.getProfileMap().put("2", prof);
+    
+    Long demandSetID = dsWriter.insert(ds);
+    
+    try {
+      DemandSet ds2 = dsReader.read(demandSetID);
+      DemandProfile dp = ds2.getProfileMap().get("2");
+      
+      dp.setKnob(2.5);
+      dp.getFlow().get("1").set(1, 0.3);
+      
+      DemandProfile prof2 = new DemandProfile();
+      prof2.setStartTime(0.0);
+      prof2.setSampleRate(300.0);
+      prof2.addFlowAt(1L, 0.7);
+      ds2.getProfileMap().put("3", prof2);
+      
+      dsWriter.update(ds2);
+      
+      DemandSet ds3 = dsReader.read(demandSetID);
+      assertEquals(2, ds3.getProfileMap().size());
+      
+      DemandProfile dp3 = ds3.getProfileMap().get("2");
+      assertEquals((Double)2.5, dp3.getKnob());
+      assertEquals((Double)0.3, dp3.getFlow().get("1").get(1));
+      assertEquals((Double)0.1, dp3.getFlow().get("2").get(0));
+      assertEquals((Double)0.7, ds3.getProfileMap().get("3").getFlow().get("1").get(0));
+    }
+    catch (ConcurrencyException exc) {
+      fail("unexpected ConcurrencyException");
+    }
+    finally {
+      dsWriter.delete(demandSetID);
+    }
+  }
 }
@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import edu.berkeley.path.model_elements.*;
+
+import java.util.ArrayList;
+
+/**
+ * Tests the readers and writers on an embedded database, and the
+ * translation and geometry that make that work.
+ * @author vjoel
+ */
+public class EmbeddedDatabaseTest {
+  static DBParams dbParams;
+  static NetworkWriter nwWriter;
+  static NetworkReader nwReader;
+  
+  @BeforeClass public static void dbsetup() throws core.DatabaseException {
+    dbParams = EmbeddedDatabase.create("EmbeddedDatabaseTest");
+    
+    nwWriter = new NetworkWriter(dbParams);
+    nwReader = new NetworkReader(dbParams);
+  }
+
+  @Test
+  public void testInsertDeleteOneNetworkWithNodesAndLinks() throws core.DatabaseException {
+    Long networkID = 99997L;
+
+    Network nw = new Network();
+    
+    nw.setId(networkID);
+    nw.setName("EmbeddedDatabaseTest testInsertDeleteOneNetworkWithNodesAndLinks");
+    nw.setDescription("for test");
+    
+    nw.setNodeList(new ArrayList<Node>());
+    nw.setLinkList(new ArrayList<Link>());
+    
+    Node nd1 = new Node();
+    nd1.setId(42L);
+    nd1.setLongitude(-75.97469);
+    nd1.setLatitude(40.90164);
+    nd1.setType("Terminal");
+    nw.getNodeList().add(nd1);
+
+    Node nd2 = new Node();
+    nd2.setId(43L);
+    nd2.setLongitude(-76.97469);
+    nd2.setLatitude(41.90164);
+    nd2.setType("Freeway");
+    nw.getNodeList().add(nd2);
+    
+    Link ln1 = new Link();
+    ln1.setId(44L);
+    ln1.setBegin(nd1);
+    ln1.setEnd(nd2);
+    ln1.setLength(555.0);
+    ln1.setSpeedLimit(45.0);
+    ln1.setType("Freeway");
+    ln1.setLaneCount(3.0);
+
+    Point p0 = new Point();
+    p0.setLongitude(-75.97469);
+    p0.setLatitude(40.90164);
+
+    Point p1 = new Point();
+    p1.setLongitude(-76.97469);
+    p1.setLatitude(41.90164);
+    
+    ln1.getPointList().add(p0);
+    ln1.getPointList().add(p1);
+
+    nw.getLinkList().add(ln1);
+
+    nwWriter.insert(nw);
+    
+    Network nw2 = nwReader.read(networkID);
+
+    assertTrue(null != nw2);
+    assertEquals(nw.getName(), nw2.getName());
+
+    assertEquals(2, nw2.getNodeList().size());
+    Node nd3 = nw2.getNodeList().get(0);
+    assertEquals(nd1.getLongId(), nd3.getLongId());
+    assertEquals(nd1.getLongitude(), nd3.getLongitude());
+    assertEquals(nd1.getLatitude(), nd3.getLatitude());
+    assertEquals("Terminal", nd3.getType());
+
+    assertEquals(1, nw2.getLinkList().size());
+    Link ln2 = nw2.getLinkList().get(0);
+    assertEquals(ln1.getLongId(), ln2.getLongId());
+    assertEquals((Double)555.0, ln2.getLength());
+    assertEquals((Double)3.0, ln2.getLaneCount());
+    assertEquals("Freeway", ln2.getType());
+    assertEquals(2, ln2.getPointList().size());
+    assertEquals(p1.getLongitude(), ln2.getPointList().get(1).getLongitude());
+    assertEquals(p1.getLatitude(), ln2.getPointList().get(1).getLatitude());
+    
+    nwWriter.delete(networkID);
+    
+    assertEquals(null, nwReader.read(networkID));
+    assertEquals(0, (new NodeReader(dbParams)).readNodes(networkID).size());
+    assertEquals(0, (new LinkReader(dbParams)).readLinks(networkID).size());
+  }
+
+  @Test
+  public void testUpdateLinkAttributesToNull() throws core.DatabaseException {
+    Long networkID = 99996L;
+    
+    Network nw = new Network();
+    
+    nw.setId(networkID);
+    nw.setName("EmbeddedDatabaseTest testUpdateLinkAttributesToNull");
+    nw.setDescription("for test");
+    
+    nw.setNodeList(new ArrayList<Node>());
+    nw.setLinkList(new ArrayList<Link>());
+    
+    Node nd1 = new Node();
+    nd1.setId(1L);
+    nd1.setLongitude(-75.97469);
+    nd1.setLatitude(40.90164);
+    nw.getNodeList().add(nd1);
+    
+    Node nd2 = new Node();
+    nd2.setId(2L);
+    nd2.setLongitude(-76.97469);
+    nd2.setLatitude(41.90164);
+    nw.getNodeList().add(nd2);
+    
+    // more links than one merge row, fewer than a full batch
+    for (long id = 1; id <= 10; id++) {
+      Link ln = new Link();
+      ln.setId(id);
+      ln.setBegin(nd1);
+      ln.setEnd(nd2);
+      ln.setLength(555.0);
+      nw.getLinkList().add(ln);
+    }
+    
+    nwWriter.insert(nw);
+    
+    try {
+      for (Link ln : nw.getLinkList()) {
+        ln.setName("link " + ln.getId());
+        ln.setLaneCount(2.0);
+        ln.setLaneOffset(1);
+        ln.setType("Freeway");
+      }
+      
+      nwWriter.updateChanged(nw);
+      
+      for (Link ln : nwReader.read(networkID).getLinkList()) {
+        assertEquals("link " + ln.getId(), ln.getName());
+        assertEquals((Double)2.0, ln.getLaneCount());
+        assertEquals((Integer)1, ln.getLaneOffset());
+        assertEquals("Freeway", ln.getType());
+      }
+      
+      for (Link ln : nw.getLinkList()) {
+        ln.setName(null);
+        ln.setLaneCount(null);
+        ln.setLaneOffset(null);
+        ln.setType(null);
+      }
+      
+      nwWriter.updateChanged(nw);
+      
+      for (Link ln : nwReader.read(networkID).getLinkList()) {
+        assertEquals(null, ln.getName());
+        assertEquals(null, ln.getLaneCount());
+        assertEquals(null, ln.getLaneOffset());
+        assertEquals(null, ln.getType());
+      }
+      
+      // one row, as in updating a single link
+      Link ln1 = nw.getLinkList().get(0);
+      ln1.setName("only");
+      
+      nwWriter.updateChanged(nw);
+      
+      for (Link ln : nwReader.read(networkID).getLinkList()) {
+        assertEquals(ln.getLongId().equals(ln1.getLongId()) ? "only" : null, ln.getName());
+      }
+    }
+    finally {
+      nwWriter.delete(networkID);
+    }
+  }
+
+  @Test
+  public void testGeometryRoundTrip() {
+    String wkt = "LINESTRING (-75.97469 40.90164, -76.97469 41.90164)";
+    
+    assertEquals(wkt, EmbeddedGeometry.toWkt(EmbeddedGeometry.fromWkt(wkt)));
+    
+    byte[] point = EmbeddedGeometry.sdoGeometry(2001, 8307,
+      EmbeddedGeometry.sdoPointType(-75.97469, 40.90164, null), null, null);
+    
+    assertEquals((Double)(-75.97469), EmbeddedGeometry.sdoPointX(point));
+    assertEquals((Double)40.90164, EmbeddedGeometry.sdoPointY(point));
+  }
+
+  @Test
+  public void testTranslate() throws core.DatabaseException {
+    SqlDialect dialect = SqlDialect.forUrl(dbParams.url);
+    
+    assertEquals(
+      "SELECT SDO_POINT_X(NODES.GEOM) X FROM VIA.NODES",
+      dialect.translate("SELECT NODES.GEOM.SDO_POINT.X X FROM VIA.NODES"));
+    
+    String[] parts = dialect.split(
+      "begin\n" +
+      "DELETE FROM VIA.NODE_NAMES WHERE (NETWORK_ID = ?);\n" +
+      "DELETE FROM VIA.NODES WHERE (NETWORK_ID = ?);\n" +
+      "end;");
+    
+    assertEquals(2, parts.length);
+    assertEquals("DELETE FROM VIA.NODES WHERE (NETWORK_ID = ?)", parts[1]);
+    
+    assertSame(SqlDialect.ORACLE, SqlDialect.forUrl(null));
+  }
+}
@@ -52,9 +52,11 @@ import org.joda.time.Interval;
  */
 public class FreewayCTMReportReaderTest {
   static FreewayCTMReportReader reportReader;
+  static FreewayCTMReportWriter reportWriter;
   
   @BeforeClass public static void dbsetup() throws core.DatabaseException {
     reportReader = new FreewayCTMReportReader(new DBParams());
+    reportWriter = new FreewayCTMReportWriter(new DBParams());
   }
 
   @Before
@@ -105,4 +107,232 @@ public class FreewayCTMReportReaderTest {
     // this was correct, but of course might not always be...
     // TODO add some assertions here based on the data that happens to exist
   }
+  
+  /**
+   * Test that the query spec selects the columns, time steps and links to
+   * read, and that ensemble rows (ctm_id > 0) are not read as reports.
+   * Uses synthetic data in the debug table.
+   **/
+  @Test
+  public void testReadQuery() throws core.DatabaseException {
+    Long runId = 99998L;
+    Long networkId = 99999L;
+    Interval interval = testInterval();
+    
+    try {
+      for (int i = 0; i < 4; i++) {
+        reportWriter.insertDebug(testReport(networkId, runId, i, 10.0 * i));
+      }
+      
+      // ctm 1 of an ensemble, with a link that the reports do not have
+      FreewayCTMEnsembleReport ensemble = new FreewayCTMEnsembleReport();
+      ensemble.setRunId(runId);
+      ensemble.setNetworkId(networkId);
+      
+      FreewayCTMEnsembleState enSt = new FreewayCTMEnsembleState();
+      ensemble.setEnsembleState(enSt);
+      enSt.setTime(testReport(networkId, runId, 0, 0.0).getTime());
+      enSt.setStates(new ArrayList<FreewayCTMState>());
+      enSt.getStates().add(new FreewayCTMState());
+      enSt.getStates().add(testState(103L, 99.0));
+      
+      reportWriter.insert(ensemble);
+      
+      List<FreewayCTMReport> reports;
+      
+      // everything
+      reports = reportReader.read(networkId, runId, interval, true);
+      assertEquals(4, reports.size());
+      
+      FreewayCTMReport r0 = reports.get(0);
+      Map<CharSequence,FreewayLinkState> meanStates = ((FreewayCTMState)r0.getMean()).getLinkStateMap();
+      assertEquals(2, meanStates.size());
+      assertFalse(meanStates.containsKey("103"));
+      assertTrue(null != r0.getStdDev());
+      assertTrue(null != r0.getFd());
+      assertTrue(((FreewayCTMState)r0.getMean()).getLinkFlowStateMap().containsKey("102"));
+      
+      // projection: mean density and speed only
+      FreewayCTMReportQuery spec = new FreewayCTMReportQuery();
+      spec.stdDev = false;
+      spec.flow = false;
+      spec.queueLength = false;
+      spec.fd = false;
+      
+      reports = reportReader.read(networkId, runId, interval, true, spec);
+      assertEquals(4, reports.size());
+      
+      FreewayCTMReport r1 = reports.get(1);
+      assertEquals(null, r1.getStdDev());
+      assertEquals(null, r1.getFd());
+      Map<CharSequence,FreewayLinkFlowState> flows = ((FreewayCTMState)r1.getMean()).getLinkFlowStateMap();
+      assertTrue(flows == null || flows.isEmpty());
+      assertEquals((Double)110.0,
+        ((FreewayCTMState)r1.getMean()).getLinkStateMap().get("101").getDensity());
+      
+      // stride: steps 0 and 2
+      spec = new FreewayCTMReportQuery();
+      spec.stride = 2;
+      
+      reports = reportReader.read(networkId, runId, interval, true, spec);
+      assertEquals(2, reports.size());
+      assertEquals(
+        testReport(networkId, runId, 2, 0.0).getTime().getMilliseconds(),
+        reports.get(1).getTime().getMilliseconds());
+      
+      // link filter
+      spec = new FreewayCTMReportQuery(Arrays.asList(102L));
+      
+      reports = reportReader.read(networkId, runId, interval, true, spec);
+      assertEquals(4, reports.size());
+      for (FreewayCTMReport report : reports) {
+        assertEquals(Collections.singleton("102"),
+          ((FreewayCTMState)report.getMean()).getLinkStateMap().keySet());
+      }
+      
+      spec = new FreewayCTMReportQuery(new ArrayList<Long>());
+      
+      reports = reportReader.read(networkId, runId, interval, true, spec);
+      assertEquals(0, reports.size());
+    }
+    finally {
+      reportWriter.delete(networkId, runId, interval, true);
+    }
+  }
+  
+  /**
+   * Test that the reports of several runs are passed to the visitor one
+   * time stamp at a time, in the order of the requested run ids, with
+   * runs that have no data at a time stamp left out.
+   **/
+  @Test
+  public void testReadMultiRun() throws core.DatabaseException {
+    final Long runA = 99998L;
+    final Long runB = 99997L;
+    Long networkId = 99999L;
+    Interval interval = testInterval();
+    
+    try {
+      // run A at minutes 0, 1, 2 and run B at minutes 1, 2
+      for (int i = 0; i < 3; i++) {
+        reportWriter.insertDebug(testReport(networkId, runA, i, 0.0));
+      }
+      for (int i = 1; i < 3; i++) {
+        reportWriter.insertDebug(testReport(networkId, runB, i, 1000.0));
+      }
+      
+      final List<List<Long>> runsSeen = new ArrayList<List<Long>>();
+      final List<Long> times = new ArrayList<Long>();
+      
+      long steps = reportReader.readMultiRun(networkId, Arrays.asList(runB, runA),
+        interval, true, new FreewayCTMReportQuery(),
+        new FreewayCTMReportReader.MultiRunVisitor() {
+          public void visit(Map<Long,FreewayCTMReport> reportsByRun) {
+            runsSeen.add(new ArrayList<Long>(reportsByRun.keySet()));
+            
+            Long time = null;
+            for (Map.Entry<Long,FreewayCTMReport> entry : reportsByRun.entrySet()) {
+              FreewayCTMReport report = entry.getValue();
+              assertEquals(entry.getKey(), report.getRunId());
+              
+              if (time == null) {
+                time = report.getTime().getMilliseconds();
+              }
+              assertEquals(time, report.getTime().getMilliseconds());
+              
+              double density = entry.getKey().equals(runB) ? 1100.0 : 100.0;
+              assertEquals((Double)density,
+                ((FreewayCTMState)report.getMean()).getLinkStateMap().get("101").getDensity());
+            }
+            times.add(time);
+          }
+        });
+      
+      assertEquals(3, steps);
+      assertEquals(Arrays.asList(runA), runsSeen.get(0));
+      assertEquals(Arrays.asList(runB, runA), runsSeen.get(1));
+      assertEquals(Arrays.asList(runB, runA), runsSeen.get(2));
+      
+      assertTrue(times.get(0) < times.get(1));
+      assertTrue(times.get(1) < times.get(2));
+      
+      // no runs, no steps
+      assertEquals(0, reportReader.readMultiRun(networkId, new ArrayList<Long>(),
+        interval, true, new FreewayCTMReportQuery(),
+        new FreewayCTMReportReader.MultiRunVisitor() {
+          public void visit(Map<Long,FreewayCTMReport> reportsByRun) {
+            fail("visited without runs");
+          }
+        }));
+    }
+    finally {
+      reportWriter.delete(networkId, runA, interval, true);
+      reportWriter.delete(networkId, runB, interval, true);
+    }
+  }
+  
+  /**
+   * Interval of the synthetic reports.
+   */
+  private static Interval testInterval() {
+    org.joda.time.DateTime timeBegin = new org.joda.time.DateTime(
+      // YYYY, MM, DD, HH, MM
+         1970,  1,  2,  6,  0,
+      org.joda.time.DateTimeZone.forID("America/Los_Angeles")
+    );
+    
+    return new Interval(timeBegin, org.joda.time.Duration.standardMinutes(60));
+  }
+  
+  /**
+   * Synthetic report at the given minute of testInterval(), with mean and
+   * std dev states of links 101 and 102 and an FD of link 102. The mean
+   * density of link 101 is 100 + offset.
+   */
+  private static FreewayCTMReport testReport(Long networkId, Long runId, int minute, double offset) {
+    FreewayCTMReport report = new FreewayCTMReport();
+    
+    report.setRunId(runId);
+    report.setNetworkId(networkId);
+    report.setTime(DateTime.fromJoda(testInterval().getStart().plusMinutes(minute)));
+    
+    FreewayCTMState mean = testState(101L, 100.0 + offset);
+    mean.getLinkStateMap().putAll(testState(102L, 200.0 + offset).getLinkStateMap());
+    mean.getLinkFlowStateMap().putAll(testState(102L, 200.0 + offset).getLinkFlowStateMap());
+    report.setMean(mean);
+    
+    FreewayCTMState stdDev = testState(101L, 1.0);
+    stdDev.getLinkStateMap().putAll(testState(102L, 2.0).getLinkStateMap());
+    report.setStdDev(stdDev);
+    
+    report.setFd(new FDMap());
+    FD fd = new FD();
+    fd.setCapacity(12.34);
+    ((FDMap)report.getFd()).getFdMap().put("102", fd);
+    
+    return report;
+  }
+  
+  /**
+   * State with the given density and flow on one link.
+   */
+  private static FreewayCTMState testState(Long linkId, double value) {
+    FreewayCTMState state = new FreewayCTMState();
+    
+    FreewayLinkState linkState = new FreewayLinkState();
+    linkState.setDensity(value);
+    linkState.setVelocity(value / 10);
+    
+    state.setLinkStateMap(new HashMap<CharSequence,FreewayLinkState>());
+    state.getLinkStateMap().put(linkId.toString(), linkState);
+    
+    FreewayLinkFlowState flowState = new FreewayLinkFlowState();
+    flowState.setInFlow(value);
+    flowState.setOutFlow(value);
+    
+    state.setLinkFlowStateMap(new HashMap<CharSequence,FreewayLinkFlowState>());
+    state.getLinkFlowStateMap().put(linkId.toString(), flowState);
+    
+    return state;
+  }
 }
@@ -480,4 +480,49 @@ public class FreewayCTMReportWriterTest {
     reports = reportReader.read(networkId, runId, interval);
     assertEquals(0, reports.size());
   }
+  
+  /**
+   * Test that purging in chunks smaller than the data deletes all of it.
+   **/
+  @Test
+  public void testPurgeInChunks() throws core.DatabaseException {
+    FreewayCTMReport report = new FreewayCTMReport();
+    
+    Long runId = 99999L;
+    Long networkId = 99999L;
+    
+    report.setRunId(runId);
+    report.setNetworkId(networkId);
+    
+    report.setFd(new FDMap());
+    Map<String,FD> fdMap = ((FDMap)report.getFd()).getFdMap();
+    FD fd = new FD();
+    fd.setFreeFlowSpeed(100.0);
+    fdMap.put("99999", fd);
+    
+    for (int i = 0; i < 10; i++) {
+      org.joda.time.DateTime time = new org.joda.time.DateTime(
+        // YYYY, MM, DD, HH, MM
+           1970,  1,  2,  3, 45 + i,
+        org.joda.time.DateTimeZone.forID("America/Los_Angeles")
+      );
+      report.setTime(DateTime.fromJoda(time));
+
+      reportWriter.insertDebug(report);
+    }
+    
+    org.joda.time.DateTime timeBegin = new org.joda.time.DateTime(
+      // YYYY, MM, DD, HH, MM
+         1970,  1,  2,  3,  0,
+      org.joda.time.DateTimeZone.forID("America/Los_Angeles")
+    );
+    
+    Interval interval = new Interval(timeBegin, org.joda.time.Duration.standardMinutes(60));
+    
+    long rows = reportWriter.purge(networkId, runId, interval, true, 3);
+    assertEquals(10L, rows);
+
+    List<FreewayCTMReport> reports = reportReader.read(networkId, runId, interval, true);
+    assertEquals(0, reports.size());
+  }
 }
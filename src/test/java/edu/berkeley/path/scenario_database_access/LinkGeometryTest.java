@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Tests decoding WKT and WKB link geometry. Needs no database.
+ * @author vjoel
+ */
+public class LinkGeometryTest {
+  @Test
+  public void testParseLineString() {
+    double[] coords = LinkGeometry.parseLineString(
+      "LINESTRING (-75.97469 40.90164, -76.97469 41.90164)");
+    
+    assertArrayEquals(new double[] {-75.97469, 40.90164, -76.97469, 41.90164}, coords, 0.0);
+  }
+  
+  @Test
+  public void testParseMultiLineString() {
+    double[] coords = LinkGeometry.parseLineString(
+      "MULTILINESTRING ((1 2, 3 4), (5 6, 7 8))");
+    
+    assertArrayEquals(new double[] {1, 2, 3, 4, 5, 6, 7, 8}, coords, 0.0);
+  }
+  
+  @Test
+  public void testParseEmpty() {
+    assertEquals(0, LinkGeometry.parseLineString(null).length);
+    assertEquals(0, LinkGeometry.parseLineString("").length);
+    assertEquals(0, LinkGeometry.parseLineString("LINESTRING EMPTY").length);
+    assertEquals(0, LinkGeometry.parseLineString("LINESTRING ()").length);
+  }
+  
+  @Test
+  public void testParseZM() {
+    double[] expected = new double[] {1, 2, 4, 5};
+    
+    // Only longitude and latitude are kept.
+    assertArrayEquals(expected,
+      LinkGeometry.parseLineString("LINESTRING Z (1 2 3, 4 5 6)"), 0.0);
+    assertArrayEquals(expected,
+      LinkGeometry.parseLineString("LINESTRING M (1 2 3, 4 5 6)"), 0.0);
+    assertArrayEquals(expected,
+      LinkGeometry.parseLineString("LINESTRING ZM (1 2 3 7, 4 5 6 8)"), 0.0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseBadOrdinate() {
+    LinkGeometry.parseLineString("LINESTRING (1 2, 3 x)");
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseMissingLatitude() {
+    LinkGeometry.parseLineString("LINESTRING (1 2, 3)");
+  }
+  
+  @Test
+  public void testRoundTrip() {
+    double[] coords = new double[] {-122.25, 37.75, -122.5, 37.875};
+    
+    String wkt = LinkGeometry.toLineStringWkt(LinkGeometry.toPoints(coords));
+    
+    assertArrayEquals(coords, LinkGeometry.parseLineString(wkt), 0.0);
+  }
+  
+  /**
+   * WKB of a line string with the given type code and ordinates, in the
+   * given byte order.
+   */
+  private static byte[] wkb(ByteOrder order, int type, int ordinates, double... values) {
+    ByteBuffer buf = ByteBuffer.allocate(9 + 8 * values.length).order(order);
+    buf.put((byte)(order == ByteOrder.BIG_ENDIAN ? 0 : 1));
+    buf.putInt(type);
+    buf.putInt(values.length / ordinates);
+    for (double value : values) {
+      buf.putDouble(value);
+    }
+    return buf.array();
+  }
+  
+  @Test
+  public void testParseWkb() {
+    double[] coords = new double[] {-75.97469, 40.90164, -76.97469, 41.90164};
+    
+    // Oracle writes big-endian WKB; the embedded database little-endian.
+    assertArrayEquals(coords,
+      LinkGeometry.parseWkb(wkb(ByteOrder.BIG_ENDIAN, 2, 2, coords)), 0.0);
+    assertArrayEquals(coords,
+      LinkGeometry.parseWkb(EmbeddedGeometry.lineString(coords)), 0.0);
+    assertEquals(0, LinkGeometry.parseWkb(null).length);
+  }
+  
+  @Test
+  public void testParseWkbZM() {
+    double[] expected = new double[] {1, 2, 4, 5};
+    
+    assertArrayEquals(expected,
+      LinkGeometry.parseWkb(wkb(ByteOrder.BIG_ENDIAN, 1002, 3, 1, 2, 3, 4, 5, 6)), 0.0);
+    assertArrayEquals(expected,
+      LinkGeometry.parseWkb(wkb(ByteOrder.LITTLE_ENDIAN, 0x80000002, 3, 1, 2, 3, 4, 5, 6)), 0.0);
+    assertArrayEquals(expected,
+      LinkGeometry.parseWkb(wkb(ByteOrder.BIG_ENDIAN, 3002, 4, 1, 2, 3, 7, 4, 5, 6, 8)), 0.0);
+  }
+  
+  @Test
+  public void testParseWkbMultiLineString() {
+    byte[] part1 = wkb(ByteOrder.BIG_ENDIAN, 2, 2, 1, 2, 3, 4);
+    byte[] part2 = wkb(ByteOrder.LITTLE_ENDIAN, 2, 2, 5, 6, 7, 8);
+    
+    ByteBuffer buf = ByteBuffer.allocate(9 + part1.length + part2.length);
+    buf.put((byte)0).putInt(5).putInt(2).put(part1).put(part2);
+    
+    assertArrayEquals(new double[] {1, 2, 3, 4, 5, 6, 7, 8},
+      LinkGeometry.parseWkb(buf.array()), 0.0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseWkbTruncated() {
+    byte[] whole = wkb(ByteOrder.BIG_ENDIAN, 2, 2, 1, 2, 3, 4);
+    LinkGeometry.parseWkb(java.util.Arrays.copyOf(whole, whole.length - 1));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseWkbPoint() {
+    LinkGeometry.parseWkb(EmbeddedGeometry.point(1, 2));
+  }
+}
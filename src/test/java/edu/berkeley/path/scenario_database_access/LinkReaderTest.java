@@ -33,7 +33,9 @@ import org.junit.*;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 
 import edu.berkeley.path.model_elements.*;
 
@@ -117,4 +119,63 @@ public class LinkReaderTest {
     
     assertEquals(expectedIds, actualIds);
   }
+
+  @Test
+  public void testReadLinksInBox() throws core.DatabaseException {
+    Long networkID = 99993L;
+    
+    // both links of the network lie in this box
+    BoundingBox box = new BoundingBox(-76.0, 40.9, -75.9, 41.0);
+    
+    // NOTE: no transaction in the following
+    ArrayList<Link> links = lnReader.readLinksInBox(networkID, box, null);
+    assertEquals(2, links.size());
+    assertEquals(4, links.get(0).getPointList().size());
+    
+    // only link 1 has detail level 1
+    links = lnReader.readLinksInBox(networkID, box, 1);
+    assertEquals(1, links.size());
+    assertEquals((Long)1L, links.get(0).getLongId());
+    
+    BoundingBox elsewhere = new BoundingBox(-122.3, 37.8, -122.2, 37.9);
+    links = lnReader.readLinksInBox(networkID, elsewhere, null);
+    assertEquals(0, links.size());
+  }
+
+  @Test
+  public void testReadSimplifiedLinks() throws core.DatabaseException {
+    Long networkID = 99993L;
+    
+    HashMap<Long, Link> full = new HashMap<Long, Link>();
+    for (Link ln : lnReader.readLinks(networkID)) {
+      full.put(ln.getLongId(), ln);
+    }
+    
+    // far coarser than the links, so only their end points are left
+    LinkQuery spec = new LinkQuery();
+    spec.simplifyMeters = 1000000.0;
+    
+    // NOTE: no transaction in the following
+    ArrayList<Link> links = lnReader.readLinks(networkID, spec);
+    assertEquals(full.size(), links.size());
+    
+    boolean shrunk = false;
+    
+    for (Link ln : links) {
+      List<Point> points = ln.getPointList();
+      List<Point> fullPoints = full.get(ln.getLongId()).getPointList();
+      
+      assertEquals(2, points.size());
+      assertTrue(points.size() <= fullPoints.size());
+      shrunk |= points.size() < fullPoints.size();
+      
+      assertEquals(fullPoints.get(0).getLongitude(), points.get(0).getLongitude());
+      assertEquals(fullPoints.get(0).getLatitude(), points.get(0).getLatitude());
+      assertEquals(fullPoints.get(fullPoints.size() - 1).getLongitude(), points.get(1).getLongitude());
+      assertEquals(fullPoints.get(fullPoints.size() - 1).getLatitude(), points.get(1).getLatitude());
+    }
+    
+    // at least one link of the network has more than two vertices
+    assertTrue(shrunk);
+  }
 }
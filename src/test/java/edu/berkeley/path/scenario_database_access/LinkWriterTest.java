@@ -270,4 +270,70 @@ public class LinkWriterTest {
     
     // todo check no rows in names or types table
   }
+  
+  @Test
+  public void testInsertUpdateLongLinks() throws core.DatabaseException {
+    Long networkID = 99992L;
+    
+    // short, and longer than the 999 arguments Oracle allows a constructor
+    int[] sizes = {3, 1000};
+    
+    ArrayList<Link> links = new ArrayList<Link>();
+    
+    for (int i = 0; i < sizes.length; i++) {
+      Link ln = new Link();
+      ln.setId(i + 1L);
+      ln.setLength(555.0);
+      ln.setBeginId("1"); // TODO create nodes instead
+      ln.setEndId("2");
+      
+      for (int j = 0; j < sizes[i]; j++) {
+        Point p = new Point();
+        p.setLongitude(-75.97469 + j * 0.0001);
+        p.setLatitude(40.90164 + j * 0.0001);
+        ln.getPointList().add(p);
+      }
+      
+      links.add(ln);
+    }
+    
+    // a real repeated vertex is kept
+    Link dup = new Link();
+    dup.setId(sizes.length + 1L);
+    dup.setLength(555.0);
+    dup.setBeginId("1");
+    dup.setEndId("2");
+    for (int j = 0; j < 4; j++) {
+      Point p = new Point();
+      p.setLongitude(-75.97469 + (j / 2) * 0.0001);
+      p.setLatitude(40.90164 + (j / 2) * 0.0001);
+      dup.getPointList().add(p);
+    }
+    links.add(dup);
+    
+    lnWriter.insertLinks(links, networkID);
+    assertSamePoints(links, networkID);
+    
+    for (Link ln : links) {
+      ln.getPointList().remove(ln.getPointList().size() - 1);
+      lnWriter.update(ln, networkID);
+    }
+    assertSamePoints(links, networkID);
+    
+    lnWriter.deleteAllLinks(networkID);
+  }
+  
+  private void assertSamePoints(ArrayList<Link> links, Long networkID) throws core.DatabaseException {
+    for (Link ln : links) {
+      Link ln2 = lnReader.read(ln.getLongId(), networkID);
+      
+      assertTrue(null != ln2);
+      assertEquals(ln.getPointList().size(), ln2.getPointList().size());
+      
+      for (int j = 0; j < ln.getPointList().size(); j++) {
+        assertEquals(ln.getPointList().get(j).getLongitude(), ln2.getPointList().get(j).getLongitude(), 1e-9);
+        assertEquals(ln.getPointList().get(j).getLatitude(), ln2.getPointList().get(j).getLatitude(), 1e-9);
+      }
+    }
+  }
 }
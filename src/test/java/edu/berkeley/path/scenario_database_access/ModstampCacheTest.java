@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2012 The Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the University nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package edu.berkeley.path.scenario_database_access;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import edu.berkeley.path.model_elements.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+
+/**
+ * Tests the hits, misses and stale reads of ModstampCaches of networks and
+ * sensor sets, on an embedded database.
+ * @author vjoel
+ */
+public class ModstampCacheTest {
+  static DBParams dbParams;
+  static NetworkWriter nwWriter;
+  static NetworkReader nwReader;
+  static Long networkID = 99980L;
+  static Long sensorSetID = 99980L;
+  static Link link;
+  
+  ModstampCache<Network> cache;
+  
+  @BeforeClass public static void dbsetup() throws core.DatabaseException {
+    dbParams = EmbeddedDatabase.create("ModstampCacheTest");
+    
+    nwWriter = new NetworkWriter(dbParams);
+    nwReader = new NetworkReader(dbParams);
+    
+    Network nw = new Network();
+    nw.setId(networkID);
+    nw.setName("ModstampCacheTest");
+    nw.setDescription("for test");
+    nw.setNodeList(new ArrayList<Node>());
+    nw.setLinkList(new ArrayList<Link>());
+    
+    Node nd1 = new Node();
+    nd1.setId(1L);
+    nd1.setLongitude(-122.0);
+    nd1.setLatitude(37.0);
+    nd1.setType("Terminal");
+    nw.getNodeList().add(nd1);
+    
+    Node nd2 = new Node();
+    nd2.setId(2L);
+    nd2.setLongitude(-122.1);
+    nd2.setLatitude(37.1);
+    nd2.setType("Terminal");
+    nw.getNodeList().add(nd2);
+    
+    link = new Link();
+    link.setId(3L);
+    link.setBegin(nd1);
+    link.setEnd(nd2);
+    link.setLength(100.0);
+    link.setSpeedLimit(30.0);
+    link.setLaneCount(2.0);
+    nw.getLinkList().add(link);
+    
+    nwWriter.insert(nw);
+    
+    SensorSet ss = new SensorSet();
+    ss.setId(sensorSetID);
+    ss.setName("ModstampCacheTest");
+    ss.setDescription("for test");
+    ss.setSensorList(new ArrayList<Sensor>());
+    ss.getSensorList().add(makeSensor("ent0"));
+    
+    new SensorSetWriter(dbParams).insert(ss);
+  }
+  
+  static Sensor makeSensor(String entityId) {
+    Sensor sensor = new Sensor();
+    sensor.setType("Loop");
+    sensor.setEntityId(entityId);
+    sensor.setLinkId(link.getLongId());
+    sensor.setLinkOffset(10.0);
+    sensor.setLaneNum(1.0);
+    sensor.setHealthStatus(1.0);
+    return sensor;
+  }
+  
+  @AfterClass public static void dbteardown() throws core.DatabaseException {
+    nwWriter.delete(networkID);
+    new SensorSetWriter(dbParams).delete(sensorSetID);
+  }
+  
+  @Before public void makeCache() throws core.DatabaseException {
+    cache = ModstampCache.networks(dbParams, 1L << 20);
+  }
+  
+  @Test
+  public void testMissThenHit() throws core.DatabaseException {
+    Network first = cache.get(networkID);
+    assertNotNull(first);
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getVersionReads());
+    assertEquals(0, cache.getRevalidations());
+    assertEquals(0, cache.getHits());
+    
+    Network second = cache.get(networkID);
+    assertSame(first, second);
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getVersionReads());
+    assertEquals(1, cache.getRevalidations());
+    assertEquals(1, cache.getHits());
+  }
+  
+  @Test
+  public void testMissingNetwork() throws core.DatabaseException {
+    assertNull(cache.get(networkID + 1));
+    assertEquals(1, cache.getMisses());
+    assertEquals(0, cache.size());
+  }
+  
+  @Test
+  public void testStaleAfterChangeByAnotherProcess() throws Exception {
+    cache.get(networkID);
+    Thread.sleep(2);
+    
+    // Bypass the writers, so the cache is not invalidated in-process.
+    Connection conn = DriverManager.getConnection(dbParams.url, dbParams.user, dbParams.pass);
+    try {
+      Statement stmt = conn.createStatement();
+      stmt.executeUpdate(
+        "UPDATE VIA.NETWORKS SET NAME = 'changed', MODSTAMP = LOCALTIMESTAMP " +
+        "WHERE ID = " + networkID);
+      stmt.close();
+    }
+    finally {
+      conn.close();
+    }
+    
+    Network network = cache.get(networkID);
+    assertEquals(1, cache.getStaleReads());
+    assertEquals(0, cache.getHits());
+    assertEquals(2, cache.getVersionReads());
+    assertEquals("changed", network.getName().toString());
+    
+    cache.get(networkID);
+    assertEquals(1, cache.getHits());
+  }
+  
+  @Test
+  public void testLinkWriterTouchesNetworkModstamp() throws Exception {
+    Long before = nwReader.read(networkID).getModstamp();
+    Thread.sleep(2);
+    
+    link.setSpeedLimit(link.getSpeedLimit() + 1);
+    new LinkWriter(dbParams).update(link, networkID);
+    
+    Long after = nwReader.read(networkID).getModstamp();
+    assertFalse(before.equals(after));
+  }
+  
+  @Test
+  public void testChangedSensorSet() throws Exception {
+    ModstampCache<SensorSet> ssCache = ModstampCache.sensorSets(dbParams, 1L << 20);
+    
+    SensorSet ss = ssCache.get(sensorSetID);
+    assertEquals(1, ss.getSensorList().size());
+    Long before = ss.getModstamp();
+    Thread.sleep(2);
+    
+    // Only the dependents change, so the writer must touch the set row.
+    ss.getSensorList().add(makeSensor("ent1"));
+    new SensorSetWriter(dbParams).update(ss);
+    
+    SensorSet changed = ssCache.get(sensorSetID);
+    assertNotSame(ss, changed);
+    assertEquals(2, ssCache.getMisses());
+    assertEquals(0, ssCache.getHits());
+    assertEquals(2, changed.getSensorList().size());
+    assertFalse(before.equals(changed.getModstamp()));
+    
+    ssCache.get(sensorSetID);
+    assertEquals(1, ssCache.getHits());
+  }
+}
@@ -94,4 +94,89 @@ public class NetworkReaderTest {
     Node nd2 = nw.getNodeById(2L);
     assertEquals(ln1End, nd2);
   }
+  
+  @Test
+  public void testReadTopology() throws core.DatabaseException {
+    Long networkID = 99990L;
+    Network nw;
+        
+    nw = nwReader.read(networkID, LinkQuery.topology());
+    
+    assertEquals(3, nw.getNodeList().size());
+    assertEquals(2, nw.getLinkList().size());
+    
+    Link ln1 = nw.getLinkById(1L);
+    assertEquals(nw.getNodeById(1L), ln1.getBegin());
+    assertEquals(nw.getNodeById(2L), ln1.getEnd());
+    assertEquals(null, ln1.getName());
+  }
+  
+  @Test
+  public void testReadAll() throws core.DatabaseException {
+    java.util.List<Network> nws;
+    
+    nws = nwReader.readAll(java.util.Arrays.asList(99990L, 99999L, -1L));
+    
+    assertEquals(3, nws.size());
+    
+    Network nw = nws.get(0);
+    assertEquals((Long)99990L, nw.getLongId());
+    assertEquals(3, nw.getNodeList().size());
+    assertEquals(2, nw.getLinkList().size());
+    assertEquals(nw.getNodeById(1L), nw.getLinkById(1L).getBegin());
+    
+    assertEquals((Long)99999L, nws.get(1).getLongId());
+    assertEquals(2, nws.get(1).getNodeList().size());
+    
+    assertEquals(null, nws.get(2));
+  }
+  
+  @Test
+  public void testReadGraph() throws core.DatabaseException {
+    Long networkID = 99990L;
+    NetworkGraph graph;
+        
+    graph = nwReader.readGraph(networkID);
+    
+    assertEquals(3, graph.nodeCount());
+    assertEquals(2, graph.linkCount());
+    
+    int ln1 = graph.linkOrdinal(1L);
+    assertTrue(ln1 >= 0);
+    assertEquals(graph.nodeOrdinal(1L), graph.linkBegin[ln1]);
+    assertEquals(graph.nodeOrdinal(2L), graph.linkEnd[ln1]);
+    
+    int nd1 = graph.nodeOrdinal(1L);
+    assertTrue(graph.outDegree(nd1) >= 1);
+    
+    boolean found = false;
+    for (int i = graph.outStart[nd1]; i < graph.outStart[nd1 + 1]; i++) {
+      found |= graph.outLink[i] == ln1;
+    }
+    assertTrue(found);
+  }
+  
+  @Test
+  public void testReadInSnapshot() throws core.DatabaseException {
+    Long networkID = 99999L;
+    
+    ReadSnapshot snapshot = ReadSnapshot.begin(nwReader.getConnection());
+    
+    try {
+      assertTrue(null != snapshot.getSCN());
+      assertTrue(snapshot.isOpen());
+      
+      nwReader.setSnapshot(snapshot);
+      Network nw = nwReader.read(networkID);
+      
+      assertEquals(networkID, nw.getLongId());
+      assertEquals(2, nw.getNodeList().size());
+    }
+    finally {
+      nwReader.setSnapshot(null);
+      snapshot.end();
+    }
+    
+    assertFalse(snapshot.isOpen());
+  }
 }
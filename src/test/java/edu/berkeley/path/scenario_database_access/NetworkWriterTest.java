@@ -228,4 +228,171 @@ public class NetworkWriterTest {
     assertEquals(0, (new NodeReader(new DBParams())).readNodes(networkID).size());
     assertEquals(0, (new LinkReader(new DBParams())).readLinks(networkID).size());
   }
+
+  @Test
+  public void testCloneNetwork() throws core.DatabaseException {
+    Long networkID = 99998L;
+    
+    Network nw = nwReader.readWithAssociates(networkID);
+    
+    long cloneID = nwWriter.clone(networkID);
+    assertTrue(networkID != cloneID);
+    
+    Network nw2 = nwReader.readWithAssociates(cloneID);
+    
+    assertEquals(Long.valueOf(cloneID), nw2.getLongId());
+    assertEquals(nw.getName(), nw2.getName());
+    assertEquals(nw.getNodeList().size(), nw2.getNodeList().size());
+    assertEquals(nw.getLinkList().size(), nw2.getLinkList().size());
+    
+    nwWriter.delete(cloneID);
+    
+    assertEquals(null, nwReader.read(cloneID));
+    assertEquals(0, (new NodeReader(new DBParams())).readNodes(cloneID).size());
+    assertEquals(0, (new LinkReader(new DBParams())).readLinks(cloneID).size());
+  }
+
+  @Test
+  public void testUpdateChangedNodes() throws core.DatabaseException {
+    Long networkID = 99997L;
+
+    Network nw = new Network();
+    
+    nw.setId(networkID);
+    nw.setName("NetworkWriterTest testUpdateChangedNodes");
+    nw.setDescription("for test");
+    
+    nw.setNodeList(new ArrayList<Node>());
+    
+    Node nd1 = new Node();
+    nd1.setId(42L);
+    nd1.setLongitude(-75.97469);
+    nd1.setLatitude(40.90164);
+    nw.getNodeList().add(nd1);
+    
+    Node nd2 = new Node();
+    nd2.setId(43L);
+    nd2.setLongitude(-76.97469);
+    nd2.setLatitude(41.90164);
+    nw.getNodeList().add(nd2);
+    
+    nw.setLinkList(new ArrayList<Link>());
+    
+    Link ln1 = new Link();
+    ln1.setId(45L);
+    ln1.setBegin(nd1);
+    ln1.setEnd(nd2);
+    ln1.setName("before");
+    ln1.setLaneCount(1.0);
+    
+    Point p0 = new Point();
+    p0.setLongitude(-75.97469);
+    p0.setLatitude(40.90164);
+    
+    Point p1 = new Point();
+    p1.setLongitude(-76.97469);
+    p1.setLatitude(41.90164);
+    
+    ln1.getPointList().add(p0);
+    ln1.getPointList().add(p1);
+    
+    nw.getLinkList().add(ln1);
+    
+    nwWriter.insert(nw);
+    
+    try {
+      nd2.setLatitude(42.0);
+      
+      Node nd3 = new Node();
+      nd3.setId(44L);
+      nd3.setLongitude(-77.0);
+      nd3.setLatitude(42.0);
+      
+      nw.getNodeList().remove(nd1);
+      nw.getNodeList().add(nd3);
+      
+      // the link now begins at the new node, with other attributes
+      ln1.setBegin(nd3);
+      ln1.setName("after");
+      ln1.setLaneCount(3.0);
+      ln1.setType("Freeway");
+      
+      // one node changed, one added and one deleted, and the link changed
+      assertEquals(4, nwWriter.updateChanged(nw));
+      
+      Network nw2 = nwReader.read(networkID);
+      assertEquals(2, nw2.getNodeList().size());
+      
+      for (Node nd : nw2.getNodeList()) {
+        assertTrue(nd.getLongId() == 43L || nd.getLongId() == 44L);
+        assertEquals(Double.valueOf(42.0), nd.getLatitude());
+      }
+      
+      assertEquals(1, nw2.getLinkList().size());
+      Link ln2 = nw2.getLinkList().get(0);
+      assertEquals(ln1.getLongId(), ln2.getLongId());
+      assertEquals(Long.valueOf(44L), ln2.getBeginLongId());
+      assertEquals(Long.valueOf(43L), ln2.getEndLongId());
+      assertEquals("after", ln2.getName());
+      assertEquals((Double)3.0, ln2.getLaneCount());
+      assertEquals("Freeway", ln2.getType());
+      
+      ln1.setName(null);
+      ln1.setType(null);
+      
+      // only the link changed
+      assertEquals(1, nwWriter.updateChanged(nw));
+      
+      ln2 = nwReader.read(networkID).getLinkList().get(0);
+      assertEquals(null, ln2.getName());
+      assertEquals(null, ln2.getType());
+      assertEquals((Double)3.0, ln2.getLaneCount());
+      
+      // unchanged rows, including the geometry read back, are left alone
+      assertEquals(0, nwWriter.updateChanged(nw));
+      assertEquals(0, nwWriter.updateChanged(nwReader.readWithAssociates(networkID)));
+    }
+    finally {
+      nwWriter.delete(networkID);
+    }
+  }
+
+  @Test
+  public void testUpdateIfUnmodified() throws core.DatabaseException {
+    Long networkID = 99998L;
+    
+    Network nw = nwReader.readWithAssociates(networkID);
+    Long modstamp = nw.getModstamp();
+    
+    try {
+      nwWriter.updateIfUnmodified(nw); // should not throw
+    }
+    catch (ConcurrencyException exc) {
+      fail("unexpected ConcurrencyException");
+    }
+    
+    assertTrue(nw.getModstamp() > modstamp);
+    assertEquals(nwReader.read(networkID).getModstamp(), nw.getModstamp());
+    
+    Long modstamp2 = nw.getModstamp();
+    
+    try {
+      nwWriter.updateIfUnmodified(nw); // should not throw, with the new modstamp
+    }
+    catch (ConcurrencyException exc) {
+      fail("unexpected ConcurrencyException with the returned modstamp");
+    }
+    
+    assertTrue(nw.getModstamp() > modstamp2);
+    
+    nw.setModstamp(modstamp);
+    
+    try {
+      nwWriter.updateIfUnmodified(nw); // should throw
+      fail("exception was expected but not thrown");
+    }
+    catch (ConcurrencyException exc) {
+      // as expected
+    }
+  }
 }
@@ -77,4 +77,14 @@ public class PeMSStationReaderTest {
     assertEquals(null, station.getUserId().get(3));
     assertEquals(null, station.getUserId().get(4));
   }
+  
+  @Test
+  public void testReadStations() throws core.DatabaseException {
+    Long vdsId = 400211L;
+    Map<Long,PeMSStation> stations =
+      stationReader.read(Arrays.asList(vdsId, -1L));
+    
+    assertEquals(1, stations.size());
+    assertEquals((Integer)680, stations.get(vdsId).getFwyNum());
+  }
 }
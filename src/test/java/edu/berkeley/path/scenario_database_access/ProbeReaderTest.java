@@ -97,4 +97,146 @@ public class ProbeReaderTest {
     assertEquals((Double)98.0, probes.get(0).getSpeed());
     assertEquals((Double)1.0, probes.get(0).getProbability());
   }
+
+  @Test
+  public void testReadAggregates() throws core.DatabaseException {
+    List<TimeBucketAggregate> aggs;
+    
+    org.joda.time.DateTime timeBegin = new org.joda.time.DateTime(
+      // YYYY, MM, DD, HH, MM
+         2012, 12, 14, 18, 29,
+      org.joda.time.DateTimeZone.forID("America/Los_Angeles")
+    );
+    
+    org.joda.time.Duration dt = org.joda.time.Duration.standardSeconds(30);
+    
+    Interval interval = new Interval(timeBegin, dt);
+    
+    // same data as testRead
+    Long runId = 18040L;
+    Long networkId = 100000L;
+    Long linkId = 707046366L;
+    
+    aggs = probeReader.readAggregates(runId, networkId, interval, 3600,
+      AggregateFunction.MEAN);
+    //System.out.println(aggs);
+    
+    // check that the list is sorted by time, then link
+    TimeBucketAggregate prev = null;
+    for (TimeBucketAggregate agg : aggs) {
+      if (prev != null) {
+        assertTrue(
+          prev.time.getMilliseconds() < agg.time.getMilliseconds() ||
+          (prev.time.getMilliseconds().equals(agg.time.getMilliseconds()) &&
+           prev.linkId < agg.linkId));
+      }
+      prev = agg;
+    }
+    
+    // the single probe from testRead should be in a bucket of its own link
+    TimeBucketAggregate found = null;
+    for (TimeBucketAggregate agg : aggs) {
+      if (agg.linkId.equals(linkId)) {
+        found = agg;
+      }
+    }
+    
+    assertNotNull(found);
+    assertEquals((Long)1L, found.samples);
+    assertEquals((Double)98.0, found.value);
+  }
+
+  @Test
+  public void testReadBulk() throws core.DatabaseException {
+    org.joda.time.DateTime timeBegin = new org.joda.time.DateTime(
+      // YYYY, MM, DD, HH, MM
+         2012, 12, 14, 18, 29,
+      org.joda.time.DateTimeZone.forID("America/Los_Angeles")
+    );
+    
+    org.joda.time.Duration dt = org.joda.time.Duration.standardSeconds(30);
+    
+    Interval interval = new Interval(timeBegin, dt);
+    
+    // same data as testRead
+    final Long runId = 18040L;
+    final Long networkId = 100000L;
+    final Long linkId = 707046366L;
+    
+    final List<PifProbeCoord> found = new ArrayList<PifProbeCoord>();
+    
+    long count = probeReader.readBulk(Arrays.asList(runId), networkId,
+      Arrays.asList(linkId), interval,
+      new ProbeReader.ProbeVisitor() {
+        public void visit(Long visitRunId, Long visitLinkId, List<PifProbeCoord> probes) {
+          assertEquals(runId, visitRunId);
+          assertEquals(linkId, visitLinkId);
+          found.addAll(probes);
+        }
+      });
+    
+    assertEquals(1, count);
+    assertEquals(1, found.size());
+    assertEquals((Double)111.71988, found.get(0).getOffset());
+    assertEquals((Double)98.0, found.get(0).getSpeed());
+    assertEquals((Double)1.0, found.get(0).getProbability());
+    
+    // no links, no query
+    count = probeReader.readBulk(Arrays.asList(runId), networkId,
+      new ArrayList<Long>(), interval,
+      new ProbeReader.ProbeVisitor() {
+        public void visit(Long visitRunId, Long visitLinkId, List<PifProbeCoord> probes) {
+          fail("visited without links");
+        }
+      });
+    
+    assertEquals(0, count);
+  }
+
+  @Test
+  public void testReadBulkColumns() throws core.DatabaseException {
+    org.joda.time.DateTime timeBegin = new org.joda.time.DateTime(
+      // YYYY, MM, DD, HH, MM
+         2012, 12, 14, 18, 29,
+      org.joda.time.DateTimeZone.forID("America/Los_Angeles")
+    );
+    
+    org.joda.time.Duration dt = org.joda.time.Duration.standardSeconds(30);
+    
+    final Interval interval = new Interval(timeBegin, dt);
+    
+    // same data as testRead, read for the whole network
+    Long runId = 18040L;
+    Long networkId = 100000L;
+    final Long linkId = 707046366L;
+    
+    final List<ProbeColumns> found = new ArrayList<ProbeColumns>();
+    
+    long count = probeReader.readBulkColumns(Arrays.asList(runId), networkId,
+      null, interval,
+      new ProbeReader.ProbeColumnsVisitor() {
+        public void visit(ProbeColumns columns) {
+          // arrays are trimmed, and sorted by time
+          assertEquals(columns.size(), columns.time.length);
+          for (int i = 1; i < columns.size(); i++) {
+            assertTrue(columns.time[i - 1] <= columns.time[i]);
+          }
+          
+          if (columns.linkId.equals(linkId)) {
+            found.add(columns);
+          }
+        }
+      });
+    
+    assertTrue(count >= 1);
+    assertEquals(1, found.size());
+    
+    ProbeColumns columns = found.get(0);
+    assertEquals(runId, columns.runId);
+    assertEquals(1, columns.size());
+    assertTrue(interval.contains(columns.time[0]));
+    assertEquals(111.71988, columns.offset[0], 0.0);
+    assertEquals(98.0, columns.speed[0], 0.0);
+    assertEquals(1.0, columns.probability[0], 0.0);
+  }
 }
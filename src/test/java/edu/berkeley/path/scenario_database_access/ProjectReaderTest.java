@@ -88,4 +88,55 @@ public class ProjectReaderTest {
 
     assertTrue(2 <= projects.size());
   }
+  
+  @Test
+  public void testReadScenarioPages() throws core.DatabaseException {
+    Long projectID = 99999L;
+    
+    ListingQuery spec = ListingQuery.byName(1);
+    List<Scenario> page1 = prjReader.readScenarioPage(projectID, spec);
+    assertEquals(1, page1.size());
+    
+    List<Scenario> page2 = prjReader.readScenarioPage(projectID, spec.next(page1.get(0)));
+    assertEquals(1, page2.size());
+    assertFalse(page1.get(0).getLongId().equals(page2.get(0).getLongId()));
+    
+    List<Scenario> page3 = prjReader.readScenarioPage(projectID, spec.next(page2.get(0)));
+    assertEquals(0, page3.size());
+    
+    assertEquals(2, prjReader.countScenarios(projectID));
+    assertEquals(2, prjReader.countScenarios(projectID, 60000));
+  }
+  
+  @Test
+  public void testReadProjectPage() throws core.DatabaseException {
+    List<Project> projects = prjReader.readProjectPage(ListingQuery.latestFirst(10));
+    
+    assertTrue(2 <= projects.size());
+    assertTrue(projects.get(0).getModstamp() >= projects.get(1).getModstamp());
+    assertTrue(prjReader.countProjects() >= projects.size());
+  }
+
+  @Test
+  public void testReadAllProjectPages() throws core.DatabaseException {
+    long count = prjReader.countProjects();
+    
+    // one row per page, so that rows with and without a name or
+    // modstamp are each the key of some page
+    for (ListingQuery spec : new ListingQuery[] {
+        ListingQuery.byName(1), ListingQuery.latestFirst(1)}) {
+      for (boolean descending : new boolean[] {false, true}) {
+        spec.descending = descending;
+        
+        Set<Long> ids = new HashSet<Long>();
+        List<Project> page = prjReader.readProjectPage(spec);
+        while (!page.isEmpty()) {
+          assertTrue(ids.add(page.get(0).getLongId()));
+          page = prjReader.readProjectPage(spec.next(page.get(0)));
+        }
+        
+        assertEquals(spec.toString(), count, ids.size());
+      }
+    }
+  }
 }
@@ -79,4 +79,21 @@ public class ScenarioReaderTest {
     assertTrue(null != sc.getDemandSet());
     assertTrue(null != sc.getSensorSet());
   }
+  
+  @Test
+  public void testReadLazyScenario() throws core.DatabaseException {
+    Long scenarioID = 99999L;
+    LazyScenario lazy = scReader.readLazy(scenarioID);
+    Scenario sc = lazy.getScenario();
+    
+    assertEquals(scenarioID, sc.getLongId());
+    assertTrue(null == sc.getDemandSet());
+    
+    assertTrue(null != lazy.getDemandSet());
+    assertTrue(null != sc.getDemandSet());
+    assertTrue(null == sc.getFdSet());
+    
+    assertEquals(1, lazy.getNetworks().size());
+    assertEquals(1, lazy.getNetworks().size());
+  }
 }
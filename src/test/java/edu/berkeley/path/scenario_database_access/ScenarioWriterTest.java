@@ -34,6 +34,8 @@ import static org.junit.Assert.*;
 
 import edu.berkeley.path.model_elements.*;
 
+import java.util.List;
+
 /**
  * Tests methods for writing Scenarios to a database.
  * @author vjoel
@@ -41,9 +43,10 @@ import edu.berkeley.path.model_elements.*;
 public class ScenarioWriterTest {
   static ScenarioWriter scWriter;
   static ScenarioReader scReader;
+  static DBParams dbParams;
   
   @BeforeClass public static void dbsetup() throws core.DatabaseException {
-    DBParams dbParams = new DBParams();
+    dbParams = new DBParams();
     
     scWriter = new ScenarioWriter(dbParams);
     scReader = new ScenarioReader(dbParams);
@@ -99,4 +102,60 @@ public class ScenarioWriterTest {
     Scenario sc3 = scReader.read(scenarioID);
     assertEquals(null, sc3);
   }
+
+  @Test
+  public void testDeepCloneScenario() throws core.DatabaseException {
+    Long scenarioID = 99998L;
+    
+    List<Long> networkIDs = scReader.readNetworkIDs(scenarioID);
+    
+    long cloneID = scWriter.clone(scenarioID, true);
+    assertTrue(scenarioID != cloneID);
+    
+    List<Long> cloneNetworkIDs = scReader.readNetworkIDs(cloneID);
+    Scenario clone = scReader.read(cloneID);
+    
+    try {
+      assertEquals(networkIDs.size(), cloneNetworkIDs.size());
+      for (Long networkID : cloneNetworkIDs) {
+        assertFalse(networkIDs.contains(networkID));
+      }
+      
+      // Profiles of the copied sets lead to the copied networks.
+      if (clone.getSplitratioSet() != null) {
+        for (SplitRatioProfile profile : clone.getSplitratioSet().getProfileMap().values()) {
+          Long destID = profile.getDestinationNetworkLongId();
+          assertTrue(destID == null || !networkIDs.contains(destID));
+        }
+      }
+      
+      if (clone.getDemandSet() != null) {
+        for (DemandProfile profile : clone.getDemandSet().getProfileMap().values()) {
+          Long destID = profile.getDestinationNetworkLongId();
+          assertTrue(destID == null || !networkIDs.contains(destID));
+        }
+      }
+    }
+    finally {
+      scWriter.delete(cloneID);
+      
+      NetworkWriter nwWriter = new NetworkWriter(dbParams);
+      for (Long networkID : cloneNetworkIDs) {
+        nwWriter.delete(networkID);
+      }
+      
+      if (clone.getSplitratioSet() != null) {
+        new SplitRatioSetWriter(dbParams).delete(clone.getSplitratioSet().getLongId());
+      }
+      if (clone.getDemandSet() != null) {
+        new DemandSetWriter().delete(clone.getDemandSet().getLongId());
+      }
+      if (clone.getFdSet() != null) {
+        new FDSetWriter(dbParams).delete(clone.getFdSet().getLongId());
+      }
+      if (clone.getSensorSet() != null) {
+        new SensorSetWriter(dbParams).delete(clone.getSensorSet().getLongId());
+      }
+    }
+  }
 }